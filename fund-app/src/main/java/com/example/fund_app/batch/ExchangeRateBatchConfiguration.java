@@ -1,41 +1,72 @@
 package com.example.fund_app.batch;
 
+import com.example.fund_app.config.ExchangeRateJobProperties;
 import com.example.fund_app.feign.ExchangeRateClient;
 import com.example.fund_app.model.ExchangeRate;
 import com.example.fund_app.repository.ExchangeRateRepository;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.data.RepositoryItemReader;
 import org.springframework.batch.item.data.builder.RepositoryItemReaderBuilder;
 import org.springframework.batch.item.data.builder.RepositoryItemWriterBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Updates the exchange rates out of date at the date of the job, run by the node holding the lease on the job. When
+ * partitioned, the currencies are split over partitions run by every node of the cluster.
+ * <p>
+ * A job instance is identified by its date, and its reader saves how far it went at every commit: a run interrupted
+ * with its node is restarted by the next node taking the lease, from the last commit of every unfinished partition.
+ */
 @Configuration
+@EnableConfigurationProperties(ExchangeRateJobProperties.class)
 public class ExchangeRateBatchConfiguration {
 
+    public static final String JOB_NAME = "exchangeRateJob";
+    public static final String DATE_PARAMETER = "date";
+    public static final String NODE_PARAMETER = "node";
+
     @Bean
     @Primary
-    public Job exchangeRateJob(JobRepository jobRepository, Step step) {
-        return new JobBuilder("exchangeRateJob", jobRepository).start(step).build();
+    public Job exchangeRateJob(JobRepository jobRepository, Step exchangeRateStep, JobExplorer jobExplorer,
+                               ExchangeRatePartitioner exchangeRatePartitioner, ExchangeRateJobProperties properties,
+                               @Value("${xrate.job.partition-poll-interval:1s}") Duration pollInterval) {
+        JobBuilder job = new JobBuilder(JOB_NAME, jobRepository);
+        if (!properties.partitioned()) {
+            return job.start(exchangeRateStep).build();
+        }
+        Step managerStep = new StepBuilder("exchangeRateManagerStep", jobRepository)
+                .partitioner(exchangeRateStep.getName(), exchangeRatePartitioner)
+                .partitionHandler(new JobRepositoryPartitionHandler(jobExplorer, properties.partitions(), pollInterval,
+                        properties.partitionTimeout()))
+                .build();
+        return job.start(managerStep).build();
     }
 
     @Bean
     public Step exchangeRateStep(JobRepository jobRepository,
                      PlatformTransactionManager transactionManager,
-                     ItemReader<ExchangeRate> reader,
+                     RepositoryItemReader<ExchangeRate> reader,
                      ItemProcessor<ExchangeRate, ExchangeRate> processor,
                      ItemWriter<ExchangeRate> writer) {
         return new StepBuilder("exchangeRateStep", jobRepository).
@@ -46,17 +77,44 @@ public class ExchangeRateBatchConfiguration {
                 .build();
     }
 
+    /**
+     * Reads the rates out of date at the date of the job, those of its partition only when partitioned. The query
+     * does not depend on the rates updated, so a restarted reader skips exactly what it read before its last commit.
+     */
     @Bean
-    public ItemReader<ExchangeRate> reader(ExchangeRateRepository repository) {
-        return new RepositoryItemReaderBuilder<ExchangeRate>()
+    @StepScope
+    public RepositoryItemReader<ExchangeRate> reader(ExchangeRateRepository repository,
+                                                     @Value("#{jobParameters['date']}") LocalDate date,
+                                                     @Value("#{stepExecutionContext['currencies']}") String currencies) {
+        LocalDate today = date != null ? date : LocalDate.now();
+        RepositoryItemReaderBuilder<ExchangeRate> reader = new RepositoryItemReaderBuilder<ExchangeRate>()
                 .name("exchangeRateItemReader")
                 .repository(repository)
-                .methodName("findAllByLastUpdatedAtBefore")
-                .arguments(List.of(LocalDate.now()))
-                .sorts(Map.of("currency", Sort.Direction.ASC))
+                .sorts(Map.of("currency", Sort.Direction.ASC));
+        if (currencies == null) {
+            return reader.methodName("findAllByLastUpdatedAtBefore")
+                    .arguments(List.of(today))
+                    .build();
+        }
+        return reader.methodName("findAllByCurrencyInAndLastUpdatedAtBefore")
+                .arguments(List.of(ExchangeRatePartitioner.currencies(currencies), today))
                 .build();
     }
 
+    @Bean
+    @StepScope
+    public ExchangeRatePartitioner exchangeRatePartitioner(ExchangeRateRepository repository,
+                                                           @Value("#{jobParameters['date']}") LocalDate date) {
+        return new ExchangeRatePartitioner(repository, date != null ? date : LocalDate.now());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "xrate.job", name = "partitioned", havingValue = "true")
+    public ExchangeRatePartitionWorker exchangeRatePartitionWorker(Step exchangeRateStep, JobExplorer jobExplorer,
+                                                                   JdbcTemplate jdbcTemplate) {
+        return new ExchangeRatePartitionWorker(exchangeRateStep, jobExplorer, jdbcTemplate);
+    }
+
     @Bean
     public ItemProcessor<ExchangeRate, ExchangeRate> processor(ExchangeRateClient client) {
         return new ExchangeRateItemProcessor(client);
@@ -0,0 +1,70 @@
+package com.example.fund_app.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * Runs on this node the partitions of the exchange rate step handed over by the {@link JobRepositoryPartitionHandler}
+ * of the node holding the lease on the job, one after the other.
+ * <p>
+ * A partition is claimed by moving its step execution from starting to started, bumping its version, with
+ * {@code FOR UPDATE SKIP LOCKED}: every partition is run by a single node, and the claims of the nodes polling at the
+ * same time do not wait for each other.
+ */
+@Slf4j
+public class ExchangeRatePartitionWorker {
+
+    private final Step step;
+    private final JobExplorer jobExplorer;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExchangeRatePartitionWorker(Step step, JobExplorer jobExplorer, JdbcTemplate jdbcTemplate) {
+        this.step = step;
+        this.jobExplorer = jobExplorer;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${xrate.job.partition-poll-interval:1s}")
+    public void runAvailable() {
+        for (Claim claim = claim(); claim != null; claim = claim()) {
+            StepExecution partition = jobExplorer.getStepExecution(claim.jobExecutionId(), claim.stepExecutionId());
+            log.info("[SCHEDULER] Running partition {} of job execution {}", partition.getStepName(),
+                    claim.jobExecutionId());
+            try {
+                step.execute(partition);
+            } catch (JobInterruptedException | RuntimeException e) {
+                log.warn("[SCHEDULER] Partition {} of job execution {} stopped: {}", partition.getStepName(),
+                        claim.jobExecutionId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The version is bumped as the job repository would, the step execution being read back once claimed.
+     *
+     * @return the partition claimed, null when none is waiting
+     */
+    private Claim claim() {
+        List<Claim> claimed = jdbcTemplate.query("""
+                UPDATE batch_step_execution SET status = 'STARTED', version = version + 1
+                WHERE step_execution_id = (
+                    SELECT step_execution_id FROM batch_step_execution
+                    WHERE status = 'STARTING' AND step_name LIKE ?
+                    ORDER BY step_execution_id
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING job_execution_id, step_execution_id
+                """, (rs, rowNum) -> new Claim(rs.getLong(1), rs.getLong(2)), step.getName() + ":%");
+        return claimed.isEmpty() ? null : claimed.getFirst();
+    }
+
+    private record Claim(long jobExecutionId, long stepExecutionId) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.fund_app.batch;
+
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.repository.ExchangeRateRepository;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Deals the currencies whose rates are out of date at the date of the job over the partitions, one after the other,
+ * each partition keeping its currencies in its execution context. A restarted job runs its partitions again with the
+ * contexts they saved, so a partition resumes from its last commit with the currencies it started with.
+ */
+public class ExchangeRatePartitioner implements Partitioner {
+
+    public static final String CURRENCIES_KEY = "currencies";
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final LocalDate date;
+
+    public ExchangeRatePartitioner(ExchangeRateRepository exchangeRateRepository, LocalDate date) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.date = date;
+    }
+
+    /**
+     * @return at most {@code gridSize} partitions, none of them empty
+     */
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<Currency> currencies = exchangeRateRepository.findCurrenciesByLastUpdatedAtBefore(date);
+        int partitions = Math.min(gridSize, currencies.size());
+        List<List<Currency>> dealt = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            dealt.add(new ArrayList<>());
+        }
+        for (int i = 0; i < currencies.size(); i++) {
+            dealt.get(i % partitions).add(currencies.get(i));
+        }
+
+        Map<String, ExecutionContext> contexts = new HashMap<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putString(CURRENCIES_KEY, dealt.get(i).stream().map(Currency::name).collect(Collectors.joining(",")));
+            contexts.put("partition" + i, context);
+        }
+        return contexts;
+    }
+
+    /**
+     * @param currencies the currencies of a partition, as kept in its execution context
+     */
+    public static List<Currency> currencies(String currencies) {
+        return Arrays.stream(currencies.split(",")).map(Currency::valueOf).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.fund_app.batch;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.support.AbstractPartitionHandler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hands the partitions of a step over to every node of the cluster through the job repository, in place of the
+ * messaging middleware of remote partitioning: the partitions are saved as starting step executions, claimed and run
+ * by the {@link ExchangeRatePartitionWorker} of any live node, this one included, while the manager step waits for
+ * them all to end.
+ * <p>
+ * A partition going without a commit for longer than the timeout is taken for lost with its node: the manager step
+ * fails, and the next run of the job restarts the partition from its last commit.
+ */
+public class JobRepositoryPartitionHandler extends AbstractPartitionHandler {
+
+    private final JobExplorer jobExplorer;
+    private final Duration pollInterval;
+    private final Duration partitionTimeout;
+
+    public JobRepositoryPartitionHandler(JobExplorer jobExplorer, int gridSize, Duration pollInterval,
+                                         Duration partitionTimeout) {
+        this.jobExplorer = jobExplorer;
+        this.pollInterval = pollInterval;
+        this.partitionTimeout = partitionTimeout;
+        setGridSize(gridSize);
+    }
+
+    @Override
+    protected Set<StepExecution> doHandle(StepExecution managerStepExecution,
+                                          Set<StepExecution> partitionStepExecutions) throws Exception {
+        Long jobExecutionId = managerStepExecution.getJobExecutionId();
+        Map<Long, StepExecution> ended = new HashMap<>();
+        while (true) {
+            for (StepExecution partition : partitionStepExecutions) {
+                if (ended.containsKey(partition.getId())) {
+                    continue;
+                }
+                StepExecution current = jobExplorer.getStepExecution(jobExecutionId, partition.getId());
+                if (!current.getStatus().isRunning()) {
+                    ended.put(current.getId(), current);
+                } else if (current.getStatus() == BatchStatus.STARTED
+                        && current.getLastUpdated().isBefore(LocalDateTime.now().minus(partitionTimeout))) {
+                    throw new IllegalStateException("Partition " + current.getStepName()
+                            + " lost with its node, no commit since " + current.getLastUpdated());
+                }
+            }
+            if (ended.size() == partitionStepExecutions.size()) {
+                return new HashSet<>(ended.values());
+            }
+            if (jobExplorer.getJobExecution(jobExecutionId).getStatus() != BatchStatus.STARTED) {
+                throw new JobInterruptedException("Job execution " + jobExecutionId
+                        + " stopped while waiting for its partitions");
+            }
+            Thread.sleep(pollInterval);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.fund_app.batch;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.UsernameFilter;
+import com.example.fund_app.config.OwnerImportProperties;
+import com.example.fund_app.service.OwnerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Imports owners and their accounts from a CSV or NDJSON file, for migrations from legacy systems:
+ * the file is copied to a staging table, merged with set-based SQL, then the caches are brought in line.
+ * Each step reports its throughput (rows and rowsPerSecond in its execution context).
+ */
+@Configuration
+@EnableConfigurationProperties(OwnerImportProperties.class)
+@Slf4j
+public class OwnerImportBatchConfiguration {
+
+    public static final String JOB_NAME = "ownerImportJob";
+    public static final String FILE_PARAMETER = "file";
+    public static final String FORMAT_PARAMETER = "format";
+
+    @Bean
+    public Job ownerImportJob(JobRepository jobRepository, Step ownerImportCopyStep, Step ownerImportMergeStep,
+                              Step ownerImportWarmUpStep, JdbcTemplate jdbcTemplate) {
+        return new JobBuilder(JOB_NAME, jobRepository)
+                .start(ownerImportCopyStep)
+                .next(ownerImportMergeStep)
+                .next(ownerImportWarmUpStep)
+                .listener(stagingCleanUp(jdbcTemplate))
+                .build();
+    }
+
+    @Bean
+    public Step ownerImportCopyStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                    DataSource dataSource, ObjectMapper objectMapper) {
+        return new StepBuilder("ownerImportCopyStep", jobRepository)
+                .tasklet(new OwnerImportCopyTasklet(dataSource, objectMapper), transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Step ownerImportMergeStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                     JdbcTemplate jdbcTemplate) {
+        return new StepBuilder("ownerImportMergeStep", jobRepository)
+                .tasklet(new OwnerImportMergeTasklet(jdbcTemplate), transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Step ownerImportWarmUpStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                      DataSource dataSource, AccountCacheStore accountCacheStore,
+                                      OwnerService ownerService, UsernameFilter usernameFilter,
+                                      ApplicationEventPublisher eventPublisher, OwnerImportProperties properties) {
+        JdbcTemplate streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(OwnerImportWarmUpTasklet.CHUNK_SIZE);
+        TransactionTemplate evictionTransaction = new TransactionTemplate(transactionManager);
+        evictionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        return new StepBuilder("ownerImportWarmUpStep", jobRepository)
+                .tasklet(new OwnerImportWarmUpTasklet(streamingJdbcTemplate, evictionTransaction, accountCacheStore,
+                        ownerService, usernameFilter, eventPublisher, properties.warmUpLimit()), transactionManager)
+                .build();
+    }
+
+    /**
+     * Staging tables are dropped once the import completed. A failed import keeps them for its restart.
+     */
+    private JobExecutionListener stagingCleanUp(JdbcTemplate jdbcTemplate) {
+        return new JobExecutionListener() {
+            @Override
+            public void afterJob(JobExecution jobExecution) {
+                if (jobExecution.getStatus() == BatchStatus.COMPLETED) {
+                    OwnerImportTables tables = OwnerImportTables.of(jobExecution);
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + tables.rows() + ", " + tables.owners());
+                }
+            }
+        };
+    }
+
+    static void report(StepExecution stepExecution, long rows, long nanos) {
+        double rowsPerSecond = nanos == 0 ? 0 : rows * 1_000_000_000.0 / nanos;
+        stepExecution.getExecutionContext().putLong("rows", rows);
+        stepExecution.getExecutionContext().putDouble("rowsPerSecond", rowsPerSecond);
+        log.info("[IMPORT] {}: {} rows in {} ms ({} rows/s)", stepExecution.getStepName(), rows,
+                Duration.ofNanos(nanos).toMillis(), Math.round(rowsPerSecond));
+    }
+}
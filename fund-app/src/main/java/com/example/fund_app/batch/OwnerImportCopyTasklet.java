@@ -0,0 +1,124 @@
+package com.example.fund_app.batch;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Streams the import file into the rows staging table through the COPY protocol.
+ * The file is never held in memory: CSV goes to Postgres as is, NDJSON is converted to CSV one object at a time
+ * and sent by buffers of {@link #BUFFER_SIZE} bytes.
+ */
+@Slf4j
+public class OwnerImportCopyTasklet implements Tasklet {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    public OwnerImportCopyTasklet(DataSource dataSource, ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        StepExecution stepExecution = contribution.getStepExecution();
+        String file = stepExecution.getJobParameters().getString(OwnerImportBatchConfiguration.FILE_PARAMETER);
+        OwnerImportFormat format = OwnerImportFormat.valueOf(
+                stepExecution.getJobParameters().getString(OwnerImportBatchConfiguration.FORMAT_PARAMETER));
+        OwnerImportTables tables = OwnerImportTables.of(stepExecution.getJobExecution());
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE UNLOGGED TABLE IF NOT EXISTS " + tables.rows() + " (username text, currency text)");
+                statement.execute("TRUNCATE " + tables.rows());
+            }
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            long start = System.nanoTime();
+            long rows;
+            try (InputStream input = Files.newInputStream(Path.of(file))) {
+                rows = switch (format) {
+                    case CSV -> copyManager.copyIn("COPY " + tables.rows()
+                            + " (username, currency) FROM STDIN WITH (FORMAT csv, HEADER true)", input, BUFFER_SIZE);
+                    case NDJSON -> copyNdjson(copyManager, tables, input);
+                };
+            }
+
+            OwnerImportBatchConfiguration.report(stepExecution, rows, System.nanoTime() - start);
+            contribution.incrementWriteCount(rows);
+            log.info("[IMPORT] {} rows of {} copied to {}", rows, file, tables.rows());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        return RepeatStatus.FINISHED;
+    }
+
+    private long copyNdjson(CopyManager copyManager, OwnerImportTables tables, InputStream input) throws Exception {
+        CopyIn copyIn = copyManager.copyIn("COPY " + tables.rows() + " (username, currency) FROM STDIN WITH (FORMAT csv)");
+        try (MappingIterator<NdjsonOwner> owners = objectMapper.readerFor(NdjsonOwner.class).readValues(input)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE + 1024);
+            while (owners.hasNextValue()) {
+                NdjsonOwner owner = owners.nextValue();
+                if (owner.currencies() == null || owner.currencies().isEmpty()) {
+                    buffer.writeBytes(csvRow(owner.username(), null));
+                } else {
+                    owner.currencies().forEach(currency -> buffer.writeBytes(csvRow(owner.username(), currency)));
+                }
+
+                if (buffer.size() >= BUFFER_SIZE) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                    buffer.reset();
+                }
+            }
+            copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            return copyIn.endCopy();
+        } catch (Exception e) {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * One CSV line in the COPY format: fields are quoted so any username goes through, a missing field stays
+     * unquoted to be read as NULL.
+     */
+    static byte[] csvRow(String username, String currency) {
+        return (csvField(username) + "," + csvField(currency) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String csvField(String value) {
+        return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Currencies are read as plain strings, unknown ones are rejected by the merge like those of a CSV file.
+     */
+    record NdjsonOwner(String username, List<String> currencies) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.fund_app.batch;
+
+import com.example.fund_app.exception.ScheduledJobRunningException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Runs an owner import from a file readable by the application, under /actuator/ownerimport
+ * (management port only). Launching the same file again restarts a failed import and is refused
+ * once it completed.
+ */
+@Component
+@Endpoint(id = "ownerimport")
+@Slf4j
+public class OwnerImportEndpoint {
+
+    private final Job ownerImportJob;
+    private final JobLauncher jobLauncher;
+
+    public OwnerImportEndpoint(@Qualifier(OwnerImportBatchConfiguration.JOB_NAME) Job ownerImportJob,
+                               JobLauncher jobLauncher) {
+        this.ownerImportJob = ownerImportJob;
+        this.jobLauncher = jobLauncher;
+    }
+
+    /**
+     * @param file path of the file to import
+     * @param format csv or ndjson, guessed from the file extension when omitted
+     */
+    @WriteOperation
+    public OwnerImportReport importOwners(String file, @Nullable String format) {
+        JobParameters parameters = new JobParametersBuilder()
+                .addString(OwnerImportBatchConfiguration.FILE_PARAMETER, file)
+                .addString(OwnerImportBatchConfiguration.FORMAT_PARAMETER, format == null
+                        ? OwnerImportFormat.of(file).name()
+                        : OwnerImportFormat.valueOf(format.toUpperCase(Locale.ROOT)).name())
+                .toJobParameters();
+
+        try {
+            log.info("[IMPORT] Starting import of {}", file);
+            JobExecution jobExecution = jobLauncher.run(ownerImportJob, parameters);
+            OwnerImportReport report = OwnerImportReport.of(jobExecution);
+            log.info("[IMPORT] Import of {} ended: {}", file, report);
+            return report;
+        } catch (JobExecutionAlreadyRunningException | JobRestartException | JobInstanceAlreadyCompleteException |
+                 JobParametersInvalidException e) {
+            log.error("[IMPORT] Error during the import job: {}", e.getMessage());
+            throw new ScheduledJobRunningException(e.getMessage());
+        }
+    }
+}
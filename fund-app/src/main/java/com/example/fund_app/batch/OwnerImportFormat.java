@@ -0,0 +1,17 @@
+package com.example.fund_app.batch;
+
+/**
+ * Formats accepted by the owner import.
+ * <ul>
+ *     <li>CSV: a username,currency header then one line per account, the currency left empty for an owner without account</li>
+ *     <li>NDJSON: one {"username": ..., "currencies": [...]} object per line</li>
+ * </ul>
+ */
+public enum OwnerImportFormat {
+    CSV,
+    NDJSON;
+
+    static OwnerImportFormat of(String file) {
+        return file.endsWith(".ndjson") || file.endsWith(".jsonl") ? NDJSON : CSV;
+    }
+}
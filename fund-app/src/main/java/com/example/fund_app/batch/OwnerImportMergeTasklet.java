@@ -0,0 +1,150 @@
+package com.example.fund_app.batch;
+
+import com.example.fund_app.model.Currency;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Merges the staged rows into the owners and accounts tables with a handful of set-based statements,
+ * all in the step transaction so a failed merge leaves nothing behind.
+ * <ul>
+ *     <li>owners whose username is not taken yet are created, existing ones are kept as they are</li>
+ *     <li>each owner gets an empty account for every currency of the file it does not hold yet</li>
+ *     <li>rows with an invalid username or an unknown currency are counted and skipped</li>
+ * </ul>
+ * IDs are taken from the entity sequences by blocks, the way the pooled-lo optimizer of Hibernate does,
+ * so imported rows never collide with the ones the application inserts meanwhile.
+ */
+@Slf4j
+public class OwnerImportMergeTasklet implements Tasklet {
+
+    private static final String VALID_ROW = "coalesce(r.username ~ '^\\D{3,15}$', false)"
+            + " AND (r.currency IS NULL OR r.currency IN (SELECT code FROM currencies))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OwnerImportMergeTasklet(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        StepExecution stepExecution = contribution.getStepExecution();
+        OwnerImportTables tables = OwnerImportTables.of(stepExecution.getJobExecution());
+        long start = System.nanoTime();
+
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE IF NOT EXISTS " + tables.owners() + " (username text PRIMARY KEY,"
+                + " owner_id bigint NOT NULL, created boolean NOT NULL, accounts_created integer NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("TRUNCATE " + tables.owners());
+
+        // Fresh staging tables have no statistics, without them the planner picks nested loops over millions of rows
+        jdbcTemplate.execute("ANALYZE " + tables.rows());
+        long rows = count("SELECT count(*) FROM " + tables.rows());
+        long rejected = count(currencies() + "SELECT count(*) FROM " + tables.rows() + " r WHERE NOT (" + VALID_ROW + ")");
+
+        int ownersCreated = jdbcTemplate.update(currencies() + """
+                , new_owners AS (
+                    SELECT u.username, row_number() OVER (ORDER BY u.username) - 1 AS n
+                    FROM (SELECT DISTINCT r.username FROM %s r WHERE %s) u
+                    WHERE NOT EXISTS (SELECT 1 FROM owners o WHERE o.name = u.username)
+                )%s
+                , created AS (
+                    INSERT INTO owners (id, name, owner_lock_version)
+                    SELECT blocks.lo + new_owners.n %% sequence.increment_by, new_owners.username, 0
+                    FROM new_owners
+                    CROSS JOIN sequence
+                    JOIN blocks ON blocks.b = new_owners.n / sequence.increment_by
+                    ON CONFLICT (name) DO NOTHING
+                    RETURNING id, name
+                )
+                INSERT INTO %s (username, owner_id, created)
+                SELECT name, id, true FROM created
+                """.formatted(tables.rows(), VALID_ROW, idBlocks("owner_sequence", "new_owners"), tables.owners()));
+
+        // Owners signed up since the first statement started were skipped by it, they are picked up as existing ones
+        jdbcTemplate.update(currencies() + """
+                INSERT INTO %s (username, owner_id, created)
+                SELECT DISTINCT ON (o.name) o.name, o.id, false
+                FROM owners o
+                JOIN (SELECT DISTINCT r.username FROM %s r WHERE %s) u ON u.username = o.name
+                WHERE NOT EXISTS (SELECT 1 FROM %s so WHERE so.username = o.name)
+                ORDER BY o.name, o.id
+                """.formatted(tables.owners(), tables.rows(), VALID_ROW, tables.owners()));
+
+        jdbcTemplate.execute("ANALYZE " + tables.owners());
+        jdbcTemplate.update(currencies() + """
+                , new_accounts AS (
+                    SELECT a.owner_id, a.currency, row_number() OVER (ORDER BY a.owner_id, a.currency) - 1 AS n
+                    FROM (
+                        SELECT DISTINCT so.owner_id, c.ordinal AS currency
+                        FROM %s r
+                        JOIN %s so ON so.username = r.username
+                        JOIN currencies c ON c.code = r.currency
+                    ) a
+                    WHERE NOT EXISTS (SELECT 1 FROM accounts acc WHERE acc.owner_id = a.owner_id AND acc.currency = a.currency)
+                )%s
+                , created AS (
+                    INSERT INTO accounts (account_id, owner_id, currency, balance, account_lock_version)
+                    SELECT blocks.lo + new_accounts.n %% sequence.increment_by, new_accounts.owner_id, new_accounts.currency, 0, 0
+                    FROM new_accounts
+                    CROSS JOIN sequence
+                    JOIN blocks ON blocks.b = new_accounts.n / sequence.increment_by
+                    RETURNING owner_id
+                )
+                UPDATE %s so SET accounts_created = c.total
+                FROM (SELECT owner_id, count(*) AS total FROM created GROUP BY owner_id) c
+                WHERE so.owner_id = c.owner_id
+                """.formatted(tables.rows(), tables.owners(), idBlocks("account_sequence", "new_accounts"), tables.owners()));
+
+        long accountsCreated = count("SELECT coalesce(sum(accounts_created), 0) FROM " + tables.owners());
+
+        OwnerImportBatchConfiguration.report(stepExecution, rows, System.nanoTime() - start);
+        stepExecution.getExecutionContext().putLong("rejected", rejected);
+        stepExecution.getExecutionContext().putLong("ownersCreated", ownersCreated);
+        stepExecution.getExecutionContext().putLong("accountsCreated", accountsCreated);
+        contribution.incrementFilterCount(rejected);
+        contribution.incrementWriteCount(ownersCreated + accountsCreated);
+        log.info("[IMPORT] {} rows merged: {} owners and {} accounts created, {} rows rejected",
+                rows, ownersCreated, accountsCreated, rejected);
+
+        return RepeatStatus.FINISHED;
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Currencies are stored by ordinal, this maps their codes for the statements that need it.
+     */
+    private static String currencies() {
+        return Arrays.stream(Currency.values())
+                .map(currency -> "('" + currency.name() + "', " + currency.ordinal() + ")")
+                .collect(Collectors.joining(", ", "WITH currencies (code, ordinal) AS (VALUES ", ")\n"));
+    }
+
+    /**
+     * One nextval per block of increment_by IDs, numbered so that the n-th new row gets lo + n % increment_by
+     * of block n / increment_by.
+     */
+    private static String idBlocks(String sequenceName, String newRows) {
+        return """
+
+                , sequence AS (
+                    SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = '%1$s'
+                )
+                , blocks AS (
+                    SELECT row_number() OVER () - 1 AS b, nextval('%1$s') AS lo
+                    FROM generate_series(1, (SELECT ceil(count(*)::numeric / (SELECT increment_by FROM sequence)) FROM %2$s)::integer)
+                )""".formatted(sequenceName, newRows);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.fund_app.batch;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of an owner import.
+ *
+ * @param status status of the job
+ * @param rows rows read from the file
+ * @param rejected rows skipped for an invalid username or an unknown currency
+ * @param ownersCreated owners that did not exist yet
+ * @param accountsCreated accounts opened, for new and existing owners alike
+ * @param ownersEvicted existing owners evicted from the cache because they got new accounts
+ * @param ownersWarmed imported owners loaded in the cache
+ * @param rowsPerSecond throughput of each step, and of the whole job under "job"
+ */
+public record OwnerImportReport(
+        BatchStatus status,
+        long rows,
+        long rejected,
+        long ownersCreated,
+        long accountsCreated,
+        long ownersEvicted,
+        long ownersWarmed,
+        Map<String, Long> rowsPerSecond
+) {
+
+    static OwnerImportReport of(JobExecution jobExecution) {
+        ExecutionContext context = new ExecutionContext();
+        Map<String, Long> rowsPerSecond = new LinkedHashMap<>();
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            stepExecution.getExecutionContext().entrySet().forEach(entry -> context.put(entry.getKey(), entry.getValue()));
+            if (stepExecution.getExecutionContext().containsKey("rowsPerSecond")) {
+                rowsPerSecond.put(stepExecution.getStepName(),
+                        Math.round(stepExecution.getExecutionContext().getDouble("rowsPerSecond")));
+            }
+        }
+
+        long rows = context.getLong("rows", 0);
+        if (jobExecution.getStartTime() != null && jobExecution.getEndTime() != null) {
+            long millis = Math.max(1, Duration.between(jobExecution.getStartTime(), jobExecution.getEndTime()).toMillis());
+            rowsPerSecond.put("job", rows * 1000 / millis);
+        }
+
+        return new OwnerImportReport(
+                jobExecution.getStatus(),
+                rows,
+                context.getLong("rejected", 0),
+                context.getLong("ownersCreated", 0),
+                context.getLong("accountsCreated", 0),
+                context.getLong("ownersEvicted", 0),
+                context.getLong("ownersWarmed", 0),
+                rowsPerSecond);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.fund_app.batch;
+
+import org.springframework.batch.core.JobExecution;
+
+/**
+ * Staging tables of an import. They are named after the job instance, so a restart finds the rows
+ * a previous execution already copied and concurrent imports of different files do not share them.
+ *
+ * @param rows raw rows of the file, one per owner and currency
+ * @param owners owners of the file once merged, with whether the import created them
+ */
+record OwnerImportTables(String rows, String owners) {
+
+    static OwnerImportTables of(JobExecution jobExecution) {
+        String prefix = "owner_import_" + jobExecution.getJobInstance().getInstanceId();
+        return new OwnerImportTables(prefix + "_rows", prefix + "_owners");
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.fund_app.batch;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.UsernameFilter;
+import com.example.fund_app.model.event.OwnersCreatedEvent;
+import com.example.fund_app.service.OwnerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Brings the caches in line with the merge:
+ * <ul>
+ *     <li>existing owners that got new accounts are evicted, by chunks each flushed in one pipeline on its own commit</li>
+ *     <li>the first imported owners, up to the configured limit, are loaded with the bulk read which fills the cache</li>
+ *     <li>the usernames of the created owners are added to the username filter and published, by chunks</li>
+ * </ul>
+ * Owner IDs are streamed from the staging table (the JDBC template is expected to have a fetch size),
+ * so memory stays bounded by the chunk size.
+ */
+@Slf4j
+public class OwnerImportWarmUpTasklet implements Tasklet {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate evictionTransaction;
+    private final AccountCacheStore accountCacheStore;
+    private final OwnerService ownerService;
+    private final UsernameFilter usernameFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int warmUpLimit;
+
+    public OwnerImportWarmUpTasklet(JdbcTemplate jdbcTemplate, TransactionTemplate evictionTransaction,
+                                    AccountCacheStore accountCacheStore, OwnerService ownerService,
+                                    UsernameFilter usernameFilter, ApplicationEventPublisher eventPublisher,
+                                    int warmUpLimit) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.evictionTransaction = evictionTransaction;
+        this.accountCacheStore = accountCacheStore;
+        this.ownerService = ownerService;
+        this.usernameFilter = usernameFilter;
+        this.eventPublisher = eventPublisher;
+        this.warmUpLimit = warmUpLimit;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        StepExecution stepExecution = contribution.getStepExecution();
+        OwnerImportTables tables = OwnerImportTables.of(stepExecution.getJobExecution());
+
+        long evicted = forEachChunk(
+                "SELECT owner_id FROM " + tables.owners() + " WHERE NOT created AND accounts_created > 0",
+                ownerIds -> evictionTransaction.executeWithoutResult(
+                        status -> ownerIds.forEach(accountCacheStore::evictOwner)));
+
+        long warmed = forEachChunk(
+                "SELECT owner_id FROM " + tables.owners() + " ORDER BY owner_id LIMIT " + warmUpLimit,
+                ownerService::getAllById);
+
+        Map<Long, String> created = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT owner_id, username FROM " + tables.owners() + " WHERE created",
+                (RowCallbackHandler) resultSet -> {
+                    usernameFilter.add(resultSet.getString(2));
+                    created.put(resultSet.getLong(1), resultSet.getString(2));
+                    if (created.size() == CHUNK_SIZE) {
+                        eventPublisher.publishEvent(new OwnersCreatedEvent(Map.copyOf(created)));
+                        created.clear();
+                    }
+                });
+        if (!created.isEmpty()) {
+            eventPublisher.publishEvent(new OwnersCreatedEvent(Map.copyOf(created)));
+        }
+
+        stepExecution.getExecutionContext().putLong("ownersEvicted", evicted);
+        stepExecution.getExecutionContext().putLong("ownersWarmed", warmed);
+        contribution.incrementWriteCount(evicted + warmed);
+        log.info("[IMPORT] {} cached owners evicted, {} imported owners loaded in the cache", evicted, warmed);
+
+        return RepeatStatus.FINISHED;
+    }
+
+    private long forEachChunk(String sql, Consumer<List<Long>> handler) {
+        List<Long> chunk = new ArrayList<>(CHUNK_SIZE);
+        long[] total = {0};
+        jdbcTemplate.query(sql, resultSet -> {
+            chunk.add(resultSet.getLong(1));
+            if (chunk.size() == CHUNK_SIZE) {
+                handler.accept(List.copyOf(chunk));
+                total[0] += chunk.size();
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            handler.accept(List.copyOf(chunk));
+            total[0] += chunk.size();
+        }
+        return total[0];
+    }
+}
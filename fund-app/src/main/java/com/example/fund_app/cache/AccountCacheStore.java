@@ -0,0 +1,97 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.dbo.AccountDbo;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Write-through store for the account and owner caches.
+ * Mutations register their new state here, which is pushed to the caches once the surrounding transaction
+ * has committed, so readers never see uncommitted balances and do not have to reload the entry from the DB.
+ */
+@Component
+public class AccountCacheStore {
+
+    public static final String ACCOUNTS_CACHE = "accountsCache";
+    public static final String OWNERS_CACHE = "ownersCache";
+
+    private final CacheInvalidationCoordinator coordinator;
+    private final AccountMapper accountMapper;
+
+    public AccountCacheStore(CacheInvalidationCoordinator coordinator, AccountMapper accountMapper) {
+        this.coordinator = coordinator;
+        this.accountMapper = accountMapper;
+    }
+
+    public Account getAccount(Long accountId, Supplier<Account> loader) {
+        return coordinator.getOrLoad(ACCOUNTS_CACHE, accountId, Account.class, loader);
+    }
+
+    public Owner getOwner(Long ownerId, Supplier<Owner> loader) {
+        return coordinator.getOrLoad(OWNERS_CACHE, ownerId, Owner.class, loader);
+    }
+
+    /**
+     * @return the accounts found, keyed by ID in the order of the given IDs
+     */
+    public Map<Long, Account> getAccounts(Collection<Long> accountIds, Function<Set<Long>, Map<Long, Account>> loader) {
+        return coordinator.getAllOrLoad(ACCOUNTS_CACHE, accountIds, Account.class, loader);
+    }
+
+    /**
+     * @return the owners found, keyed by ID in the order of the given IDs
+     */
+    public Map<Long, Owner> getOwners(Collection<Long> ownerIds, Function<Set<Long>, Map<Long, Owner>> loader) {
+        return coordinator.getAllOrLoad(OWNERS_CACHE, ownerIds, Owner.class, loader);
+    }
+
+    /**
+     * Caches the committed state of the account and invalidates its owner's entry, which embeds the balance.
+     * The entity is mapped after commit so the cached version matches the one flushed to the DB,
+     * and a write flushed late never replaces the entry of a newer version.
+     */
+    public void putAccount(AccountDbo dbo) {
+        coordinator.put(ACCOUNTS_CACHE, dbo.getAccountId(), () -> accountMapper.toModel(dbo), Account::getVersion);
+
+        if (dbo.getOwner() != null) {
+            coordinator.evict(OWNERS_CACHE, dbo.getOwner().getId());
+        }
+    }
+
+    /**
+     * Caches the committed state of the owner, replacing any previous entry.
+     */
+    public void putOwner(Owner owner) {
+        coordinator.put(OWNERS_CACHE, owner.getId(), () -> owner);
+    }
+
+    public void evictAccount(Long accountId) {
+        coordinator.evict(ACCOUNTS_CACHE, accountId);
+    }
+
+    public void evictOwner(Long ownerId) {
+        coordinator.evict(OWNERS_CACHE, ownerId);
+    }
+
+    /**
+     * Evicts the accounts, in the same round trip as the other writes of the transaction once it has committed.
+     */
+    public void evictAccounts(Collection<Long> accountIds) {
+        accountIds.forEach(this::evictAccount);
+    }
+
+    /**
+     * Evicts the owners, in the same round trip as the other writes of the transaction once it has committed.
+     */
+    public void evictOwners(Collection<Long> ownerIds) {
+        ownerIds.forEach(this::evictOwner);
+    }
+}
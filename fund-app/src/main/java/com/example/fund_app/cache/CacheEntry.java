@@ -0,0 +1,17 @@
+package com.example.fund_app.cache;
+
+import java.io.Serializable;
+
+/**
+ * Envelope stored in Redis around every cached value.
+ *
+ * @param value cached value
+ * @param expiresAt epoch millis at which the entry expires, 0 if it never does
+ * @param loadMillis time it took to load the value from the DB, used to decide on early refreshes
+ */
+record CacheEntry(
+        Object value,
+        long expiresAt,
+        long loadMillis
+) implements Serializable {
+}
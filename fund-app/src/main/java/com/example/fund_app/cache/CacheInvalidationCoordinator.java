@@ -0,0 +1,596 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.config.CacheProperties;
+import com.example.fund_app.datasource.ReadYourWrites;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Collects every cache key written or invalidated during a transaction and flushes them after commit,
+ * in a single pipelined round trip to Redis.
+ * <p>
+ * Cache misses are populated under a lease: the reader takes a short-lived lease before loading from the DB and its
+ * value is only stored if the lease is still there. Every flush drops the leases of the keys it touches, so a reader
+ * that loaded a pre-commit state can never overwrite what a committed transaction wrote. Misses are loaded from the
+ * primary, a replica could still miss a write whose flush came before the lease.
+ * <p>
+ * Concurrent misses on the same key are coalesced into a single load, and hits may refresh an entry shortly
+ * before it expires (probabilistic early expiration) so hot keys do not all miss at once.
+ * Bulk reads fetch all the entries with one MGET, load every miss at once and backfill them in one pipeline.
+ * <p>
+ * Each cache has its own TTL and key prefix. Bounded caches also keep an index of their keys ordered by last write
+ * (a sorted set next to the entries), and the least recently written entries are evicted once the bound is exceeded.
+ * The eviction scripts delete keys they only learn from the index, which is fine on a single Redis node
+ * but requires the whole cache to live in one hash slot on a cluster. Keys pinned by the {@link HotKeyTracker}
+ * are left out of the index, so the hottest entries are never evicted to make room.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationCoordinator {
+
+    private static final Duration LEASE_TTL = Duration.ofSeconds(10);
+
+    private static final String TRIM_FUNCTION = """
+            local function trim(index, now, ttl, max)
+                if ttl > 0 then
+                    redis.call('ZREMRANGEBYSCORE', index, '-inf', '(' .. (now - ttl))
+                end
+                local excess = math.min(redis.call('ZCARD', index) - max, 1000)
+                if excess <= 0 then
+                    return 0
+                end
+                local victims = redis.call('ZRANGE', index, 0, excess - 1)
+                redis.call('DEL', unpack(victims))
+                redis.call('ZREM', index, unpack(victims))
+                return #victims
+            end
+            """;
+
+    /**
+     * Returns -1 if the lease was lost, otherwise the number of entries evicted to respect the bound.
+     */
+    private static final RedisScript<Long> POPULATE_UNDER_LEASE = RedisScript.of(TRIM_FUNCTION + """
+            if redis.call('GET', KEYS[2]) ~= ARGV[1] then
+                return -1
+            end
+            local ttl = tonumber(ARGV[3])
+            if ttl > 0 then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ttl)
+            else
+                redis.call('SET', KEYS[1], ARGV[2])
+            end
+            redis.call('DEL', KEYS[2])
+            local max = tonumber(ARGV[5])
+            if max <= 0 then
+                return 0
+            end
+            if ARGV[6] == '1' then
+                redis.call('ZREM', KEYS[3], KEYS[1])
+            else
+                redis.call('ZADD', KEYS[3], ARGV[4], KEYS[1])
+            end
+            return trim(KEYS[3], tonumber(ARGV[4]), ttl, max)
+            """, Long.class);
+
+    /**
+     * Returns 0 if a write of the same or a newer version was already flushed, 1 if the entry was written.
+     * The version is kept next to the entry, with the same TTL, and survives invalidations.
+     */
+    private static final RedisScript<Long> SET_IF_NEWER = RedisScript.of("""
+            local current = redis.call('GET', KEYS[2])
+            if current and tonumber(current) >= tonumber(ARGV[2]) then
+                return 0
+            end
+            local ttl = tonumber(ARGV[3])
+            if ttl > 0 then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ttl)
+                redis.call('SET', KEYS[2], ARGV[2], 'PX', ttl)
+            else
+                redis.call('SET', KEYS[1], ARGV[1])
+                redis.call('SET', KEYS[2], ARGV[2])
+            end
+            return 1
+            """, Long.class);
+
+    private static final byte[] TRIM = (TRIM_FUNCTION + """
+            return trim(KEYS[1], tonumber(ARGV[1]), tonumber(ARGV[2]), tonumber(ARGV[3]))
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> cacheRedisTemplate;
+    private final CacheProperties cacheProperties;
+    private final CacheMetrics cacheMetrics;
+    private final HotKeyTracker hotKeyTracker;
+    private final Clock clock;
+    private final DoubleSupplier random;
+
+    private final Map<String, CompletableFuture<Object>> loadsInFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CacheInvalidationCoordinator(RedisTemplate<String, Object> cacheRedisTemplate, CacheProperties cacheProperties,
+                                        CacheMetrics cacheMetrics, HotKeyTracker hotKeyTracker) {
+        this(cacheRedisTemplate, cacheProperties, cacheMetrics, hotKeyTracker, Clock.systemUTC(),
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    CacheInvalidationCoordinator(RedisTemplate<String, Object> cacheRedisTemplate, CacheProperties cacheProperties,
+                                 CacheMetrics cacheMetrics, HotKeyTracker hotKeyTracker, Clock clock,
+                                 DoubleSupplier random) {
+        this.cacheRedisTemplate = cacheRedisTemplate;
+        this.cacheProperties = cacheProperties;
+        this.cacheMetrics = cacheMetrics;
+        this.hotKeyTracker = hotKeyTracker;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * Reads the entry, loading it on a miss. The loaded value is only cached if no transaction
+     * touching the same key has been flushed in the meantime.
+     */
+    public <T> T getOrLoad(String cacheName, Object key, Class<T> type, Supplier<T> loader) {
+        String cacheKey = cacheKey(cacheName, key);
+        if (cacheRedisTemplate.opsForValue().get(cacheKey) instanceof CacheEntry entry) {
+            if (!shouldRefreshEarly(entry)) {
+                cacheMetrics.hit(cacheName);
+                return type.cast(entry.value());
+            }
+            cacheMetrics.earlyRefresh(cacheName);
+        }
+        cacheMetrics.miss(cacheName);
+        return type.cast(load(cacheName, key, cacheKey, loader));
+    }
+
+    /**
+     * Reads the entries of all the keys with a single MGET and loads the misses with a single call to the loader.
+     * Misses are leased in one pipeline and backfilled in another, under the same rules as {@link #getOrLoad}.
+     * Bulk loads are not coalesced with the single key ones.
+     *
+     * @param loader loads the given keys, leaving out the ones that do not exist
+     * @return the entries found, in the order of the keys
+     */
+    public <K, T> Map<K, T> getAllOrLoad(String cacheName, Collection<K> keys, Class<T> type,
+                                         Function<Set<K>, Map<K, T>> loader) {
+        List<K> distinctKeys = List.copyOf(new LinkedHashSet<>(keys));
+        if (distinctKeys.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Object> cached = cacheRedisTemplate.opsForValue()
+                .multiGet(distinctKeys.stream().map(key -> cacheKey(cacheName, key)).toList());
+
+        Map<K, T> found = new HashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        for (int i = 0; i < distinctKeys.size(); i++) {
+            K key = distinctKeys.get(i);
+            if (cached != null && i < cached.size() && cached.get(i) instanceof CacheEntry entry) {
+                if (!shouldRefreshEarly(entry)) {
+                    cacheMetrics.hit(cacheName);
+                    found.put(key, type.cast(entry.value()));
+                    continue;
+                }
+                cacheMetrics.earlyRefresh(cacheName);
+            }
+            cacheMetrics.miss(cacheName);
+            missing.add(key);
+        }
+
+        if (!missing.isEmpty()) {
+            loadAllUnderLease(cacheName, missing, loader)
+                    .forEach((key, value) -> found.put(key, type.cast(value)));
+        }
+
+        Map<K, T> result = new LinkedHashMap<>();
+        distinctKeys.stream()
+                .filter(found::containsKey)
+                .forEach(key -> result.put(key, found.get(key)));
+        return result;
+    }
+
+    /**
+     * Registers a write-through of the value. The supplier is resolved after commit,
+     * so it can read state that is only final once the transaction has been flushed.
+     */
+    public void put(String cacheName, Object key, Supplier<?> value) {
+        register(cacheName, key, () -> new Write(value.get(), null));
+    }
+
+    /**
+     * Registers a write-through of a versioned value. Transactions commit and flush independently, so a flush may
+     * reach Redis after the one of a later commit: the entry is then only written if its version is newer than
+     * the last one flushed for the key.
+     */
+    public <T> void put(String cacheName, Object key, Supplier<T> value, Function<? super T, Long> version) {
+        register(cacheName, key, () -> {
+            T resolved = value.get();
+            return new Write(resolved, resolved == null ? null : version.apply(resolved));
+        });
+    }
+
+    public void evict(String cacheName, Object key) {
+        PendingWrites pending = pendingWrites();
+        pending.evict(new Target(cacheName, key, cacheKey(cacheName, key)));
+        flushIfNoTransaction(pending);
+    }
+
+    private void register(String cacheName, Object key, Supplier<Write> write) {
+        PendingWrites pending = pendingWrites();
+        pending.put(new Target(cacheName, key, cacheKey(cacheName, key)), write);
+        flushIfNoTransaction(pending);
+    }
+
+    void flushPipelined(PendingWrites pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Target, byte[]> values = new LinkedHashMap<>();
+        Map<Target, Long> versions = new HashMap<>();
+        pending.puts.forEach((target, supplier) -> {
+            Write write = supplier.get();
+            if (write.value() == null) {
+                pending.evictions.add(target);
+            } else {
+                byte[] payload = serializeValue(new CacheEntry(write.value(), expiresAt(target.cacheName()), 0));
+                values.put(target, payload);
+                if (write.version() != null) {
+                    versions.put(target, write.version());
+                }
+                cacheMetrics.put(target.cacheName(), payload.length);
+            }
+        });
+
+        Set<Target> touched = pending.touched();
+        List<byte[]> deletions = new ArrayList<>();
+        pending.evictions.forEach(target -> {
+            deletions.add(serializeKey(target.cacheKey()));
+            cacheMetrics.evicted(target.cacheName(), "invalidation", 1);
+        });
+        touched.forEach(target -> deletions.add(serializeKey(leaseKey(target.cacheKey()))));
+
+        Set<String> boundedCaches = new LinkedHashSet<>();
+        touched.stream()
+                .map(Target::cacheName)
+                .filter(cacheName -> cacheProperties.spec(cacheName).maxEntries() > 0)
+                .forEach(boundedCaches::add);
+        long now = clock.millis();
+
+        List<Object> results = cacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            if (!versions.isEmpty()) {
+                connection.scriptingCommands().scriptLoad(SET_IF_NEWER.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+            }
+            values.forEach((target, value) -> {
+                byte[] key = serializeKey(target.cacheKey());
+                Long version = versions.get(target);
+                if (version == null) {
+                    connection.stringCommands().set(key, value, expiration(target.cacheName()), SetOption.upsert());
+                } else {
+                    connection.scriptingCommands().evalSha(SET_IF_NEWER.getSha1(), ReturnType.INTEGER, 2,
+                            key, serializeKey(versionKey(target.cacheKey())), value, asBytes(version),
+                            asBytes(cacheProperties.spec(target.cacheName()).ttl().toMillis()));
+                }
+                if (!boundedCaches.contains(target.cacheName())) {
+                    return;
+                }
+                if (hotKeyTracker.isPinned(target.cacheName(), target.key())) {
+                    connection.zSetCommands().zRem(serializeKey(indexKey(target.cacheName())), key);
+                } else {
+                    connection.zSetCommands().zAdd(serializeKey(indexKey(target.cacheName())), now, key);
+                }
+            });
+            pending.evictions.stream()
+                    .filter(target -> boundedCaches.contains(target.cacheName()))
+                    .forEach(target -> connection.zSetCommands()
+                            .zRem(serializeKey(indexKey(target.cacheName())), serializeKey(target.cacheKey())));
+            connection.keyCommands().del(deletions.toArray(byte[][]::new));
+            // Trims go last so their eviction counts are the tail of the results
+            boundedCaches.forEach(cacheName -> {
+                CacheProperties.Spec spec = cacheProperties.spec(cacheName);
+                connection.scriptingCommands().eval(TRIM, ReturnType.INTEGER, 1,
+                        serializeKey(indexKey(cacheName)), asBytes(now), asBytes(spec.ttl().toMillis()),
+                        asBytes(spec.maxEntries()));
+            });
+            return null;
+        });
+        recordTrims(boundedCaches, results);
+
+        // Loads started before the commit must not be joined by readers arriving after it
+        touched.forEach(target -> loadsInFlight.remove(target.cacheKey()));
+        log.debug("[CACHE] Flushed {} writes and {} invalidations", values.size(), pending.evictions.size());
+    }
+
+    String cacheKey(String cacheName, Object key) {
+        return cacheProperties.spec(cacheName).keyPrefix() + "::" + key;
+    }
+
+    String indexKey(String cacheName) {
+        return cacheProperties.spec(cacheName).keyPrefix() + "::index";
+    }
+
+    static String leaseKey(String cacheKey) {
+        return cacheKey + "::lease";
+    }
+
+    static String versionKey(String cacheKey) {
+        return cacheKey + "::version";
+    }
+
+    private Object load(String cacheName, Object key, String cacheKey, Supplier<?> loader) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loadsInFlight.putIfAbsent(cacheKey, load);
+        if (inFlight != null) {
+            cacheMetrics.coalesced(cacheName);
+            return join(inFlight);
+        }
+
+        try {
+            Object loaded = loadUnderLease(cacheName, key, cacheKey, loader);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(cacheKey, load);
+        }
+    }
+
+    private Object loadUnderLease(String cacheName, Object key, String cacheKey, Supplier<?> loader) {
+        String leaseKey = leaseKey(cacheKey);
+        String token = UUID.randomUUID().toString();
+        boolean leased = Boolean.TRUE.equals(cacheRedisTemplate.opsForValue().setIfAbsent(leaseKey, token, LEASE_TTL));
+
+        long start = System.nanoTime();
+        Object loaded;
+        try {
+            loaded = ReadYourWrites.fromPrimary(loader);
+        } catch (RuntimeException e) {
+            cacheMetrics.load(cacheName, System.nanoTime() - start, false);
+            throw e;
+        }
+        long loadNanos = System.nanoTime() - start;
+        cacheMetrics.load(cacheName, loadNanos, true);
+
+        if (leased && loaded != null) {
+            CacheProperties.Spec spec = cacheProperties.spec(cacheName);
+            byte[] payload = serializeValue(new CacheEntry(loaded, expiresAt(cacheName), loadNanos / 1_000_000));
+            Long evicted = cacheRedisTemplate.execute(POPULATE_UNDER_LEASE, RedisSerializer.byteArray(),
+                    new GenericToStringSerializer<>(Long.class), List.of(cacheKey, leaseKey, indexKey(cacheName)),
+                    serializeValue(token), payload, asBytes(spec.ttl().toMillis()), asBytes(clock.millis()),
+                    asBytes(spec.maxEntries()), asBytes(hotKeyTracker.isPinned(cacheName, key) ? 1 : 0));
+            if (evicted != null && evicted >= 0) {
+                cacheMetrics.put(cacheName, payload.length);
+                cacheMetrics.evicted(cacheName, "size", evicted);
+            }
+        }
+        return loaded;
+    }
+
+    private <K, T> Map<K, T> loadAllUnderLease(String cacheName, Set<K> keys, Function<Set<K>, Map<K, T>> loader) {
+        List<K> orderedKeys = List.copyOf(keys);
+        byte[] token = serializeValue(UUID.randomUUID().toString());
+        List<Object> leases = cacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            orderedKeys.forEach(key -> connection.stringCommands().set(
+                    serializeKey(leaseKey(cacheKey(cacheName, key))), token,
+                    Expiration.from(LEASE_TTL), SetOption.ifAbsent()));
+            return null;
+        });
+
+        long start = System.nanoTime();
+        Map<K, T> loaded;
+        try {
+            loaded = ReadYourWrites.fromPrimary(() -> loader.apply(keys));
+        } catch (RuntimeException e) {
+            cacheMetrics.load(cacheName, System.nanoTime() - start, false);
+            throw e;
+        }
+        long loadNanos = System.nanoTime() - start;
+        cacheMetrics.load(cacheName, loadNanos, true);
+
+        Map<K, byte[]> payloads = new LinkedHashMap<>();
+        for (int i = 0; i < orderedKeys.size(); i++) {
+            K key = orderedKeys.get(i);
+            boolean leased = leases != null && i < leases.size() && Boolean.TRUE.equals(leases.get(i));
+            if (leased && loaded.get(key) != null) {
+                payloads.put(key, serializeValue(
+                        new CacheEntry(loaded.get(key), expiresAt(cacheName), loadNanos / 1_000_000)));
+            }
+        }
+        if (!payloads.isEmpty()) {
+            backfill(cacheName, token, payloads);
+        }
+        return loaded;
+    }
+
+    /**
+     * Populates the entries with the lease script in one pipeline. The script is loaded first,
+     * so each entry only sends its digest.
+     */
+    private <K> void backfill(String cacheName, byte[] token, Map<K, byte[]> payloads) {
+        CacheProperties.Spec spec = cacheProperties.spec(cacheName);
+        byte[] ttl = asBytes(spec.ttl().toMillis());
+        byte[] now = asBytes(clock.millis());
+        byte[] maxEntries = asBytes(spec.maxEntries());
+        byte[] indexKey = serializeKey(indexKey(cacheName));
+
+        List<Object> results = cacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptLoad(POPULATE_UNDER_LEASE.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+            payloads.forEach((key, payload) -> {
+                String cacheKey = cacheKey(cacheName, key);
+                connection.scriptingCommands().evalSha(POPULATE_UNDER_LEASE.getSha1(), ReturnType.INTEGER, 3,
+                        serializeKey(cacheKey), serializeKey(leaseKey(cacheKey)), indexKey,
+                        token, payload, ttl, now, maxEntries, asBytes(hotKeyTracker.isPinned(cacheName, key) ? 1 : 0));
+            });
+            return null;
+        });
+
+        int index = results == null ? 0 : results.size() - payloads.size();
+        for (byte[] payload : payloads.values()) {
+            if (index >= 0 && results != null && index < results.size()
+                    && results.get(index) instanceof Long evicted && evicted >= 0) {
+                cacheMetrics.put(cacheName, payload.length);
+                cacheMetrics.evicted(cacheName, "size", evicted);
+            }
+            index++;
+        }
+    }
+
+    private Object join(CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void recordTrims(Set<String> boundedCaches, List<Object> results) {
+        if (results == null || results.size() < boundedCaches.size()) {
+            return;
+        }
+        int index = results.size() - boundedCaches.size();
+        for (String cacheName : boundedCaches) {
+            if (results.get(index++) instanceof Long evicted) {
+                cacheMetrics.evicted(cacheName, "size", evicted);
+            }
+        }
+    }
+
+    /**
+     * XFetch: the closer the entry is to its expiry and the longer it took to load,
+     * the more likely a hit is to refresh it ahead of time.
+     */
+    private boolean shouldRefreshEarly(CacheEntry entry) {
+        CacheProperties.EarlyRefresh earlyRefresh = cacheProperties.earlyRefresh();
+        if (!earlyRefresh.enabled() || entry.expiresAt() == 0) {
+            return false;
+        }
+
+        double gap = -entry.loadMillis() * earlyRefresh.beta() * Math.log(1.0 - random.getAsDouble());
+        return clock.millis() + gap >= entry.expiresAt();
+    }
+
+    private long expiresAt(String cacheName) {
+        Duration ttl = cacheProperties.spec(cacheName).ttl();
+        return ttl.isZero() ? 0 : clock.millis() + ttl.toMillis();
+    }
+
+    private Expiration expiration(String cacheName) {
+        Duration ttl = cacheProperties.spec(cacheName).ttl();
+        return ttl.isZero() ? Expiration.persistent() : Expiration.from(ttl);
+    }
+
+    private byte[] serializeKey(String key) {
+        return RedisSerializer.string().serialize(key);
+    }
+
+    private static byte[] asBytes(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeValue(Object value) {
+        return ((RedisSerializer<Object>) cacheRedisTemplate.getValueSerializer()).serialize(value);
+    }
+
+    private void flushIfNoTransaction(PendingWrites pending) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            flushPipelined(pending);
+        }
+    }
+
+    /**
+     * Pending writes are registered as a synchronization of the current transaction, so suspended transactions
+     * (REQUIRES_NEW) keep their own set and flush on their own commit.
+     */
+    private PendingWrites pendingWrites() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new PendingWrites();
+        }
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingWrites pending && pending.coordinator() == this) {
+                return pending;
+            }
+        }
+
+        PendingWrites pending = new PendingWrites();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    /**
+     * A cache entry, identified by its full Redis key and the cache whose settings apply to it.
+     */
+    record Target(String cacheName, Object key, String cacheKey) {
+    }
+
+    /**
+     * A value to write through, with the version guarding it or null if the last flush wins.
+     */
+    record Write(Object value, Long version) {
+    }
+
+    class PendingWrites implements TransactionSynchronization {
+
+        private final Map<Target, Supplier<Write>> puts = new LinkedHashMap<>();
+        private final Set<Target> evictions = new LinkedHashSet<>();
+
+        void put(Target target, Supplier<Write> value) {
+            evictions.remove(target);
+            puts.put(target, value);
+        }
+
+        void evict(Target target) {
+            puts.remove(target);
+            evictions.add(target);
+        }
+
+        boolean isEmpty() {
+            return puts.isEmpty() && evictions.isEmpty();
+        }
+
+        Set<Target> touched() {
+            Set<Target> targets = new LinkedHashSet<>(puts.keySet());
+            targets.addAll(evictions);
+            return targets;
+        }
+
+        CacheInvalidationCoordinator coordinator() {
+            return CacheInvalidationCoordinator.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            try {
+                flushPipelined(this);
+            } catch (RuntimeException e) {
+                log.error("[CACHE] Could not flush cache writes after commit: {}", e.getMessage());
+            }
+        }
+    }
+}
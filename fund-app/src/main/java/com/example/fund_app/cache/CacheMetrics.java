@@ -0,0 +1,76 @@
+package com.example.fund_app.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer metrics of the Redis caches, all tagged with the cache name.
+ * Names follow the Micrometer cache conventions (cache.gets, cache.puts, cache.evictions...)
+ * so they show up next to the built-in ones under /actuator/metrics.
+ */
+@Component
+public class CacheMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public CacheMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void hit(String cacheName) {
+        counter("cache.gets", cacheName, "result", "hit").increment();
+    }
+
+    public void miss(String cacheName) {
+        counter("cache.gets", cacheName, "result", "miss").increment();
+    }
+
+    /**
+     * A miss that joined a load already in flight instead of querying the DB itself.
+     */
+    public void coalesced(String cacheName) {
+        counter("cache.loads.coalesced", cacheName).increment();
+    }
+
+    public void earlyRefresh(String cacheName) {
+        counter("cache.refreshes.early", cacheName).increment();
+    }
+
+    public void load(String cacheName, long nanos, boolean success) {
+        Timer.builder("cache.load.duration")
+                .tag("cache", cacheName)
+                .tag("result", success ? "success" : "failure")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void put(String cacheName, int payloadBytes) {
+        counter("cache.puts", cacheName).increment();
+        DistributionSummary.builder("cache.payload.size")
+                .baseUnit("bytes")
+                .tag("cache", cacheName)
+                .register(meterRegistry)
+                .record(payloadBytes);
+    }
+
+    /**
+     * @param cause "invalidation" when a write dropped the entry, "size" when the cache bound did
+     */
+    public void evicted(String cacheName, String cause, long count) {
+        if (count > 0) {
+            counter("cache.evictions", cacheName, "cause", cause).increment(count);
+        }
+    }
+
+    private Counter counter(String name, String cacheName, String... tags) {
+        return Counter.builder(name)
+                .tag("cache", cacheName)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+}
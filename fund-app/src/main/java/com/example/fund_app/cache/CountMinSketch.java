@@ -0,0 +1,69 @@
+package com.example.fund_app.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free count-min sketch of long keys. Estimates never undercount,
+ * and overcount by at most a fraction of the total inversely proportional to the width.
+ */
+class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        int columns = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.mask = columns - 1;
+        this.counters = new AtomicLongArray(depth * columns);
+    }
+
+    /**
+     * Counts one access to the key and returns its new estimate.
+     */
+    long increment(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    long estimate(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halves every counter, so old accesses weigh less and the sketch follows the current traffic.
+     */
+    void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+    }
+
+    private int index(int row, int hash) {
+        return row * (mask + 1) + (hash & mask);
+    }
+
+    /**
+     * SplitMix64 finalizer, sequential IDs would otherwise land in neighbouring counters of every row.
+     */
+    static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.config.CacheProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists the hottest keys of each cache in Redis, so a freshly started node knows which entries to warm up.
+ */
+@Component
+@Slf4j
+public class HotKeySnapshots {
+
+    private final RedisTemplate<String, Object> cacheRedisTemplate;
+    private final CacheProperties cacheProperties;
+    private final HotKeyTracker hotKeyTracker;
+
+    public HotKeySnapshots(RedisTemplate<String, Object> cacheRedisTemplate, CacheProperties cacheProperties,
+                           HotKeyTracker hotKeyTracker) {
+        this.cacheRedisTemplate = cacheRedisTemplate;
+        this.cacheProperties = cacheProperties;
+        this.hotKeyTracker = hotKeyTracker;
+    }
+
+    /**
+     * Only caches that saw traffic are saved, so a node that just started does not wipe the list it warmed up from.
+     */
+    @PreDestroy
+    @Scheduled(fixedRateString = "${warmup.snapshot-interval:5m}", initialDelayString = "${warmup.snapshot-interval:5m}")
+    public void save() {
+        try {
+            hotKeyTracker.topKeys().forEach((cacheName, hotKeys) -> {
+                if (!hotKeys.isEmpty()) {
+                    ArrayList<Long> keys = new ArrayList<>(hotKeys.stream().map(HotKeyTracker.HotKey::key).toList());
+                    cacheRedisTemplate.opsForValue().set(snapshotKey(cacheName), keys);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("[CACHE] Could not save the hot keys: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the hottest keys of the cache when they were last saved, hottest first
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> load(String cacheName) {
+        return cacheRedisTemplate.opsForValue().get(snapshotKey(cacheName)) instanceof List<?> keys
+                ? (List<Long>) keys
+                : List.of();
+    }
+
+    private String snapshotKey(String cacheName) {
+        return cacheProperties.spec(cacheName).keyPrefix() + "::hotkeys";
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.config.HotKeyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks how often each account and owner is accessed, per cache, to find the keys driving the Redis and DB load.
+ * <p>
+ * Accesses are counted in a count-min sketch, and keys whose estimate beats the current top-K threshold are kept as
+ * candidates. Candidates are pruned back to the top K with a heap once they outgrow twice that size. Recording an
+ * access is a handful of atomic increments and never blocks. Counts are halved periodically so the top K follows
+ * the current traffic. Accesses made on behalf of the application itself, such as the warm-up, can be left out
+ * with {@link #withoutRecording(Runnable)}.
+ */
+@Component
+@Slf4j
+public class HotKeyTracker {
+
+    private static final ThreadLocal<Boolean> SUPPRESSED = ThreadLocal.withInitial(() -> false);
+
+    private final HotKeyProperties properties;
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    public HotKeyTracker(HotKeyProperties properties) {
+        this.properties = properties;
+    }
+
+    public void record(String cacheName, Long key) {
+        if (properties.enabled() && key != null && !SUPPRESSED.get()) {
+            trackers.computeIfAbsent(cacheName, name -> new Tracker()).record(key);
+        }
+    }
+
+    /**
+     * Runs the action without recording the accesses it makes on the current thread.
+     */
+    public void withoutRecording(Runnable action) {
+        boolean suppressed = SUPPRESSED.get();
+        SUPPRESSED.set(true);
+        try {
+            action.run();
+        } finally {
+            SUPPRESSED.set(suppressed);
+        }
+    }
+
+    /**
+     * @return the hottest keys of the cache, hottest first
+     */
+    public List<HotKey> topKeys(String cacheName) {
+        Tracker tracker = trackers.get(cacheName);
+        return tracker == null ? List.of() : tracker.top();
+    }
+
+    public Map<String, List<HotKey>> topKeys() {
+        Map<String, List<HotKey>> topKeys = new TreeMap<>();
+        trackers.forEach((cacheName, tracker) -> topKeys.put(cacheName, tracker.top()));
+        return topKeys;
+    }
+
+    /**
+     * Whether the entry should be exempt from the size bound of its cache.
+     */
+    public boolean isPinned(String cacheName, Object key) {
+        if (!properties.pinInCache() || !(key instanceof Long id)) {
+            return false;
+        }
+        Tracker tracker = trackers.get(cacheName);
+        return tracker != null && tracker.hot.contains(id);
+    }
+
+    @Scheduled(fixedRateString = "${hotkeys.decay-interval:1m}")
+    public void decay() {
+        trackers.values().forEach(Tracker::decay);
+    }
+
+    public record HotKey(Long key, long estimatedCount) {
+    }
+
+    private class Tracker {
+
+        private final CountMinSketch sketch = new CountMinSketch(properties.depth(), properties.width());
+        private final Map<Long, Long> candidates = new ConcurrentHashMap<>();
+        private final AtomicBoolean pruning = new AtomicBoolean();
+
+        private volatile long threshold;
+        private volatile Set<Long> hot = Set.of();
+
+        void record(long key) {
+            long estimate = sketch.increment(key);
+            if (estimate > threshold || candidates.containsKey(key)) {
+                candidates.put(key, estimate);
+                if (candidates.size() > 2 * properties.topK()) {
+                    prune();
+                }
+            }
+        }
+
+        List<HotKey> top() {
+            return candidates.entrySet().stream()
+                    .map(candidate -> new HotKey(candidate.getKey(), candidate.getValue()))
+                    .sorted(Comparator.comparingLong(HotKey::estimatedCount).reversed())
+                    .limit(properties.topK())
+                    .toList();
+        }
+
+        void decay() {
+            sketch.decay();
+            candidates.replaceAll((key, count) -> count >>> 1);
+            prune();
+        }
+
+        /**
+         * Only one thread prunes at a time, the others keep recording: a few extra candidates are harmless.
+         */
+        private void prune() {
+            if (!pruning.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                PriorityQueue<Map.Entry<Long, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+                for (Map.Entry<Long, Long> candidate : candidates.entrySet()) {
+                    heap.offer(Map.entry(candidate.getKey(), candidate.getValue()));
+                    if (heap.size() > properties.topK()) {
+                        heap.poll();
+                    }
+                }
+
+                Set<Long> top = new HashSet<>();
+                heap.forEach(entry -> top.add(entry.getKey()));
+                candidates.keySet().retainAll(top);
+                threshold = heap.size() < properties.topK() || heap.isEmpty() ? 0 : heap.peek().getValue();
+                hot = Set.copyOf(top);
+            } finally {
+                pruning.set(false);
+            }
+        }
+    }
+}
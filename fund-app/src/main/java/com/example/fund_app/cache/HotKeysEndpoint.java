@@ -0,0 +1,33 @@
+package com.example.fund_app.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the hottest keys of each cache under /actuator/hotkeys.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private final HotKeyTracker hotKeyTracker;
+
+    public HotKeysEndpoint(HotKeyTracker hotKeyTracker) {
+        this.hotKeyTracker = hotKeyTracker;
+    }
+
+    @ReadOperation
+    public Map<String, List<HotKeyTracker.HotKey>> hotKeys() {
+        return hotKeyTracker.topKeys();
+    }
+
+    @ReadOperation
+    public List<HotKeyTracker.HotKey> hotKeys(@Selector String cacheName) {
+        return hotKeyTracker.topKeys(cacheName);
+    }
+}
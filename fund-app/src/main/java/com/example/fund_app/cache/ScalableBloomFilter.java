@@ -0,0 +1,154 @@
+package com.example.fund_app.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of strings that grows with its content (scalable Bloom filter). Once a layer holds its
+ * capacity, a layer twice as large with half its false-positive rate is added, so the rates of all the layers add up
+ * to at most the configured one however many values are added. Values are never reported absent once added.
+ */
+class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private volatile List<Layer> layers;
+
+    ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        this.layers = List.of(new Layer(Math.max(initialCapacity, 1), falsePositiveRate * (1 - TIGHTENING)));
+    }
+
+    boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = CountMinSketch.mix(h1) | 1;
+        for (Layer layer : layers) {
+            if (layer.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the value to the last layer, unless a layer already reports it.
+     */
+    void add(String value) {
+        long h1 = hash(value);
+        long h2 = CountMinSketch.mix(h1) | 1;
+        List<Layer> current = layers;
+        for (Layer layer : current) {
+            if (layer.mightContain(h1, h2)) {
+                return;
+            }
+        }
+
+        Layer last = current.getLast();
+        last.add(h1, h2);
+        if (last.entries.incrementAndGet() >= last.capacity) {
+            grow(current);
+        }
+    }
+
+    /**
+     * Values added concurrently to a full layer before the new one shows up slightly overfill it, which is harmless.
+     */
+    private synchronized void grow(List<Layer> full) {
+        if (layers != full) {
+            return;
+        }
+        Layer last = full.getLast();
+        List<Layer> grown = new ArrayList<>(full);
+        grown.add(new Layer(last.capacity * GROWTH, last.falsePositiveRate * TIGHTENING));
+        layers = List.copyOf(grown);
+    }
+
+    long entries() {
+        long entries = 0;
+        for (Layer layer : layers) {
+            entries += layer.entries.get();
+        }
+        return entries;
+    }
+
+    int layers() {
+        return layers.size();
+    }
+
+    long memoryBytes() {
+        long bytes = 0;
+        for (Layer layer : layers) {
+            bytes += layer.words.length() * (long) Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * False-positive rate expected from the current fill of the layers.
+     */
+    double expectedFalsePositiveRate() {
+        double allNegative = 1;
+        for (Layer layer : layers) {
+            double unsetBits = Math.exp(-(double) layer.hashes * layer.entries.get() / layer.bits);
+            allNegative *= 1 - Math.pow(1 - unsetBits, layer.hashes);
+        }
+        return 1 - allNegative;
+    }
+
+    /**
+     * FNV-1a over the characters, then mixed so that similar names land far apart.
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return CountMinSketch.mix(hash);
+    }
+
+    private static final class Layer {
+
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final int hashes;
+        private final long bits;
+        private final AtomicLongArray words;
+        private final AtomicLong entries = new AtomicLong();
+
+        /**
+         * Sized for the capacity at the false-positive rate: m = -n ln p / ln² 2 bits and k = log2(1 / p) hashes.
+         */
+        Layer(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray(Math.toIntExact(Math.max(1, (optimalBits + 63) / 64)));
+            this.bits = words.length() * 64L;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                if ((words.get(word) & mask) == 0) {
+                    words.getAndAccumulate(word, mask, (set, added) -> set | added);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.config.UsernameFilterProperties;
+import com.example.fund_app.model.event.OwnersCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bloom filter of the taken usernames, so that checks for free usernames (the vast majority) skip the DB.
+ * <p>
+ * The filter is loaded from the owners table before the node reports ready, and every username created through the
+ * node is added once its creation is committed: a rolled back creation, like the ones of the warm-up, would stay in
+ * the filter for good. Until it is loaded, or when disabled, every username might exist.
+ * A Bloom filter cannot forget a name: deleted owners only make it report more false positives, so it is rebuilt
+ * once they exceed a share of its content. It is also rebuilt periodically to pick up the owners created by the other
+ * nodes. A name missing from the filter is never trusted for a write, the unique index on the names has the last word.
+ */
+@Component
+@Slf4j
+public class UsernameFilter implements ApplicationRunner {
+
+    private static final String USERNAMES_QUERY = "SELECT name FROM owners";
+    private static final String ESTIMATED_OWNERS_QUERY =
+            "SELECT greatest(reltuples, 0)::bigint FROM pg_class WHERE oid = 'owners'::regclass";
+    private static final int FETCH_SIZE = 10_000;
+
+    private final UsernameFilterProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate loadTransaction;
+    private final Counter absent;
+    private final Counter possiblyTaken;
+    private final Counter falsePositives;
+
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final AtomicLong deletions = new AtomicLong();
+    private volatile ScalableBloomFilter filter;
+    private volatile ScalableBloomFilter pending;
+    private volatile long loadedAt;
+
+    @Autowired
+    public UsernameFilter(UsernameFilterProperties properties, DataSource dataSource,
+                          PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this(properties, cursorJdbcTemplate(dataSource), readOnly(new TransactionTemplate(transactionManager)),
+                meterRegistry);
+    }
+
+    UsernameFilter(UsernameFilterProperties properties, JdbcTemplate jdbcTemplate, TransactionTemplate loadTransaction,
+                   MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.loadTransaction = loadTransaction;
+        this.absent = checks(meterRegistry, "absent");
+        this.possiblyTaken = checks(meterRegistry, "possibly_taken");
+        this.falsePositives = Counter.builder("username.filter.false.positives")
+                .description("Usernames reported as possibly taken that turned out to be free")
+                .register(meterRegistry);
+        gauge(meterRegistry, "username.filter.entries", null, ScalableBloomFilter::entries);
+        gauge(meterRegistry, "username.filter.layers", null, ScalableBloomFilter::layers);
+        gauge(meterRegistry, "username.filter.memory", "bytes", ScalableBloomFilter::memoryBytes);
+        gauge(meterRegistry, "username.filter.false.positive.rate", null,
+                ScalableBloomFilter::expectedFalsePositiveRate);
+    }
+
+    /**
+     * The Postgres driver only uses a cursor for a forward-only result set with a fetch size, inside a transaction.
+     */
+    private static JdbcTemplate cursorJdbcTemplate(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE);
+        return jdbcTemplate;
+    }
+
+    private static TransactionTemplate readOnly(TransactionTemplate transactionTemplate) {
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate;
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("username.filter.checks")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private void gauge(MeterRegistry meterRegistry, String name, String baseUnit,
+                       ToDoubleFunction<ScalableBloomFilter> value) {
+        Gauge.builder(name, this, usernameFilter -> {
+                    ScalableBloomFilter current = usernameFilter.filter;
+                    return current == null ? 0 : value.applyAsDouble(current);
+                })
+                .baseUnit(baseUnit)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.enabled()) {
+            load();
+        }
+    }
+
+    /**
+     * @return false if the username is certainly free, true if it might be taken
+     */
+    public boolean mightExist(String username) {
+        ScalableBloomFilter current = filter;
+        if (!properties.enabled() || current == null) {
+            return true;
+        }
+        boolean mightExist = current.mightContain(username);
+        (mightExist ? possiblyTaken : absent).increment();
+        return mightExist;
+    }
+
+    public void add(String username) {
+        ScalableBloomFilter current = filter;
+        if (current != null) {
+            current.add(username);
+        }
+        ScalableBloomFilter loadingFilter = pending;
+        if (loadingFilter != null) {
+            loadingFilter.add(username);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void ownersCreated(OwnersCreatedEvent event) {
+        event.usernames().values().forEach(this::add);
+    }
+
+    /**
+     * Counts owner deletions, their names stay in the filter until the next rebuild.
+     */
+    public void deleted(int count) {
+        deletions.addAndGet(count);
+    }
+
+    /**
+     * Reports usernames the filter let through to the DB that were not taken.
+     */
+    public void falsePositives(int count) {
+        falsePositives.increment(count);
+    }
+
+    /**
+     * Loads the filter again when too many of its names were deleted or it got too old, or when it never loaded.
+     */
+    @Scheduled(fixedDelayString = "${username-filter.check-interval:1m}",
+            initialDelayString = "${username-filter.check-interval:1m}")
+    public void reloadIfStale() {
+        if (!properties.enabled()) {
+            return;
+        }
+        ScalableBloomFilter current = filter;
+        if (current == null
+                || deletions.get() > properties.maxDeletedShare() * current.entries()
+                || System.nanoTime() - loadedAt > properties.maxAge().toNanos()) {
+            load();
+        }
+    }
+
+    /**
+     * Streams every username into a new filter, which replaces the current one once complete. Usernames added
+     * meanwhile go to both. Only one load runs at a time, and a failed load keeps the current filter.
+     */
+    public void load() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long deletionsBefore = deletions.get();
+            Long estimatedOwners = jdbcTemplate.queryForObject(ESTIMATED_OWNERS_QUERY, Long.class);
+            ScalableBloomFilter loaded = new ScalableBloomFilter(
+                    Math.max(properties.expectedInsertions(), estimatedOwners == null ? 0 : estimatedOwners),
+                    properties.falsePositiveRate());
+            pending = loaded;
+            loadTransaction.executeWithoutResult(status -> jdbcTemplate.query(USERNAMES_QUERY,
+                    (RowCallbackHandler) resultSet -> loaded.add(resultSet.getString(1))));
+
+            filter = loaded;
+            loadedAt = System.nanoTime();
+            deletions.addAndGet(-deletionsBefore);
+            log.info("[USERNAMES] {} usernames loaded in {} ms: {} layers, {} KiB, expected false positives {}%",
+                    loaded.entries(), (loadedAt - start) / 1_000_000, loaded.layers(), loaded.memoryBytes() / 1024,
+                    String.format("%.3f", loaded.expectedFalsePositiveRate() * 100));
+        } catch (RuntimeException e) {
+            log.warn("[USERNAMES] Could not load the usernames: {}", e.getMessage());
+        } finally {
+            pending = null;
+            loading.set(false);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.fund_app.concurrent;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs subtasks on virtual threads for the duration of a block, like {@code StructuredTaskScope.ShutdownOnFailure},
+ * which is only a preview in Java 21.
+ * <p>
+ * The first subtask to fail cancels the others, and closing the scope cancels those not started yet then waits for
+ * the others, so no subtask outlives the block that forked it. Subtasks do not inherit the transaction nor the
+ * persistence context of the forking thread: they are meant for lookups that stand on their own.
+ * <p>
+ * Cancelling never interrupts a subtask: an interrupt closes the socket of a JDBC connection the subtask may be
+ * reading from, and the pool then discards the connection. A cancelled subtask that already started runs to its end,
+ * its result dropped.
+ */
+public final class TaskScope implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Future<?>> subtasks = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public <T> Subtask<T> fork(Callable<T> task) {
+        Future<T> future = executor.submit(() -> {
+            try {
+                return task.call();
+            } catch (Throwable e) {
+                if (failure.compareAndSet(null, e)) {
+                    subtasks.forEach(subtask -> subtask.cancel(false));
+                }
+                throw e;
+            }
+        });
+        subtasks.add(future);
+        if (failure.get() != null) {
+            future.cancel(false);
+        }
+        return new Subtask<>(future, failure);
+    }
+
+    /**
+     * Cancels the subtasks not started yet and waits for the threads of the others to end.
+     */
+    @Override
+    public void close() {
+        subtasks.forEach(subtask -> subtask.cancel(false));
+        executor.close();
+    }
+
+    public static final class Subtask<T> {
+
+        private final Future<T> future;
+        private final AtomicReference<Throwable> failure;
+
+        private Subtask(Future<T> future, AtomicReference<Throwable> failure) {
+            this.future = future;
+            this.failure = failure;
+        }
+
+        /**
+         * Waits for the result of the subtask.
+         *
+         * @throws RuntimeException the failure of the subtask, or of the sibling that cancelled it, as thrown
+         */
+        public T get() {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw propagate(e.getCause());
+            } catch (CancellationException e) {
+                Throwable cause = failure.get();
+                throw cause != null ? propagate(cause) : e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for a subtask");
+            }
+        }
+
+        private static RuntimeException propagate(Throwable cause) {
+            if (cause instanceof RuntimeException runtimeException) {
+                return runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            return new IllegalStateException(cause);
+        }
+    }
+}
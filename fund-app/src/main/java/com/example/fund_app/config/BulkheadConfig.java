@@ -0,0 +1,28 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.datasource.DatabaseBulkheadAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.bulkhead", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class BulkheadConfig {
+
+    @Bean
+    public DatabaseBulkhead databaseBulkhead(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        return new DatabaseBulkhead(properties.readPermits(), properties.writePermits(), properties.maxWait(),
+                properties.maxQueued(), properties.retryAfter(), meterRegistry);
+    }
+
+    @Bean
+    public DatabaseBulkheadAspect databaseBulkheadAspect(DatabaseBulkhead databaseBulkhead,
+                                                         TransactionAttributeSource transactionAttributeSource) {
+        return new DatabaseBulkheadAspect(databaseBulkhead, transactionAttributeSource);
+    }
+}
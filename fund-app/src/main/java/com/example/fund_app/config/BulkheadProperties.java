@@ -0,0 +1,33 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled whether service transactions are admitted through the bulkhead
+ * @param poolSize connections of the primary pool, shared between the read and write budgets
+ * @param writeShare share of the pool kept for read-write transactions, reads get the rest
+ * @param maxWait longest a transaction waits for a permit before being rejected
+ * @param maxQueued waiting transactions per budget above which new ones are rejected without waiting
+ * @param retryAfter delay suggested to rejected clients
+ */
+@ConfigurationProperties(prefix = "datasource.bulkhead")
+public record BulkheadProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10") int poolSize,
+        @DefaultValue("0.4") double writeShare,
+        @DefaultValue("200ms") Duration maxWait,
+        @DefaultValue("200") int maxQueued,
+        @DefaultValue("1s") Duration retryAfter
+) {
+
+    public int writePermits() {
+        return Math.clamp(Math.round(poolSize * writeShare), 1, poolSize - 1);
+    }
+
+    public int readPermits() {
+        return poolSize - writePermits();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@Configuration
+@EnableConfigurationProperties({CacheProperties.class, HotKeyProperties.class, UsernameFilterProperties.class,
+        WarmUpProperties.class})
+public class CacheConfig {
+
+    /**
+     * Template used by the cache layer. Keys are plain strings (cacheName::key) and values use the JDK serializer.
+     */
+    @Bean
+    public RedisTemplate<String, Object> cacheRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.java());
+        return template;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @param ttl default time to live of the cached entries, zero keeps them until they are invalidated
+ * @param maxEntries default maximum number of entries per cache, zero for no bound
+ * @param earlyRefresh probabilistic refresh of entries that are about to expire
+ * @param specs per cache overrides, keyed by cache name (use the [cacheName] notation in properties files)
+ */
+@ConfigurationProperties(prefix = "cache")
+public record CacheProperties(
+        @DefaultValue("1h") Duration ttl,
+        @DefaultValue("0") long maxEntries,
+        @DefaultValue EarlyRefresh earlyRefresh,
+        Map<String, Spec> specs
+) {
+
+    public CacheProperties {
+        specs = specs == null ? Map.of() : Map.copyOf(specs);
+    }
+
+    /**
+     * Resolves the settings of a cache, falling back on the defaults for anything it does not override.
+     * Keys are prefixed with the cache name unless a prefix is configured.
+     */
+    public Spec spec(String cacheName) {
+        Spec spec = specs.getOrDefault(cacheName, new Spec(null, null, null));
+        return new Spec(
+                spec.ttl() != null ? spec.ttl() : ttl,
+                spec.maxEntries() != null ? spec.maxEntries() : maxEntries,
+                spec.keyPrefix() != null ? spec.keyPrefix() : cacheName);
+    }
+
+    /**
+     * @param ttl time to live of the entries
+     * @param maxEntries maximum number of entries, the least recently written ones being evicted first
+     * @param keyPrefix prefix of the Redis keys of the cache
+     */
+    public record Spec(
+            Duration ttl,
+            Long maxEntries,
+            String keyPrefix
+    ) {
+    }
+
+    /**
+     * @param enabled whether hits may trigger a refresh before the entry expires
+     * @param beta how eagerly entries are refreshed, 1 being the usual trade-off and higher values refreshing sooner
+     */
+    public record EarlyRefresh(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("1.0") double beta
+    ) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.limiter.AdaptiveConcurrencyLimiter;
+import com.example.fund_app.limiter.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "concurrency-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties,
+                                                                 MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+    }
+
+    /**
+     * Only the API is limited, not the documentation nor the errors dispatched by the container.
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter,
+                                                                                 ConcurrencyLimitProperties properties) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(limiter, properties.retryAfter()));
+        registration.addUrlPatterns("/accounts", "/accounts/*", "/owners", "/owners/*");
+        return registration;
+    }
+}
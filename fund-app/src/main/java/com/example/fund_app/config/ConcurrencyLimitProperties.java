@@ -0,0 +1,35 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled whether the API requests go through the adaptive concurrency limiter
+ * @param initialLimit concurrent requests admitted until latency samples come in
+ * @param minLimit lowest limit, however slow the requests get
+ * @param maxLimit highest limit, however fast the requests are
+ * @param smoothing weight of each new estimate of the limit, between 0 and 1
+ * @param rttTolerance latency increase tolerated before the limit is reduced, 2 means twice the usual latency
+ * @param longWindow samples averaged by the usual latency, the short one averages {@link #SHORT_WINDOW}
+ * @param writeShare share of the limit open to writes other than transfers
+ * @param readShare share of the limit open to reads and listings
+ * @param retryAfter delay suggested to shed clients
+ */
+@ConfigurationProperties(prefix = "concurrency-limit")
+public record ConcurrencyLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100") int initialLimit,
+        @DefaultValue("20") int minLimit,
+        @DefaultValue("1000") int maxLimit,
+        @DefaultValue("0.2") double smoothing,
+        @DefaultValue("1.5") double rttTolerance,
+        @DefaultValue("600") int longWindow,
+        @DefaultValue("0.9") double writeShare,
+        @DefaultValue("0.75") double readShare,
+        @DefaultValue("1s") Duration retryAfter
+) {
+
+    public static final int SHORT_WINDOW = 10;
+}
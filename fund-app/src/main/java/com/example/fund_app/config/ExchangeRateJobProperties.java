@@ -0,0 +1,24 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param leaseTtl how long the node running the exchange rate job holds its lease without renewing it, renewed every
+ *                 third of it: the job of a node that died is taken over once it expired
+ * @param partitioned whether the currencies are split into partitions, run by every node of the cluster, instead of
+ *                    all being updated by the node holding the lease
+ * @param partitions partitions the currencies are split into, when partitioned
+ * @param partitionTimeout how long a partition being run goes without committing before it is considered lost with its
+ *                         node, failing the job for the next run to restart it
+ */
+@ConfigurationProperties(prefix = "xrate.job")
+public record ExchangeRateJobProperties(
+        @DefaultValue("1m") Duration leaseTtl,
+        @DefaultValue("false") boolean partitioned,
+        @DefaultValue("4") int partitions,
+        @DefaultValue("10m") Duration partitionTimeout
+) {
+}
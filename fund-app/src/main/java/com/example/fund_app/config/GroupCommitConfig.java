@@ -0,0 +1,38 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.datasource.GroupCommitAspect;
+import com.example.fund_app.datasource.GroupCommitExecutor;
+import com.example.fund_app.datasource.ReadYourWrites;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@ConditionalOnProperty(prefix = "group-commit", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(GroupCommitProperties.class)
+public class GroupCommitConfig {
+
+    @Bean
+    public GroupCommitExecutor groupCommitExecutor(GroupCommitProperties properties,
+                                                   PlatformTransactionManager transactionManager,
+                                                   ObjectProvider<ReadYourWrites> readYourWrites,
+                                                   ObjectProvider<DatabaseBulkhead> databaseBulkhead,
+                                                   MeterRegistry meterRegistry) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setTimeout((int) Math.max(1, properties.timeout().toSeconds()));
+        return new GroupCommitExecutor(properties.window(), properties.maxOperations(), properties.committers(),
+                properties.timeout(), transaction, readYourWrites.getIfAvailable(),
+                databaseBulkhead.getIfAvailable(), meterRegistry);
+    }
+
+    @Bean
+    public GroupCommitAspect groupCommitAspect(GroupCommitExecutor groupCommitExecutor) {
+        return new GroupCommitAspect(groupCommitExecutor);
+    }
+}
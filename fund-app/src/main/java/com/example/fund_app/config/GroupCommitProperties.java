@@ -0,0 +1,24 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled whether deposits, withdrawals and transfers are committed by groups rather than one by one
+ * @param window time a group waits for more operations after its first one, operations queued meanwhile still join
+ *               it when the window is zero
+ * @param maxOperations operations beyond which a group is committed without waiting for the end of its window
+ * @param committers groups committed at the same time, each holding a connection while it runs
+ * @param timeout time a caller waits for a group to take its operation, and limit of the group transactions
+ */
+@ConfigurationProperties(prefix = "group-commit")
+public record GroupCommitProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("2ms") Duration window,
+        @DefaultValue("64") int maxOperations,
+        @DefaultValue("2") int committers,
+        @DefaultValue("5s") Duration timeout
+) {
+}
@@ -0,0 +1,21 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether accesses are tracked at all
+ * @param depth number of rows of the count-min sketch, more rows lower the odds of an overestimate
+ * @param width number of counters per row (rounded up to a power of two), more counters lower the overestimate
+ * @param topK number of hottest keys kept per cache
+ * @param pinInCache whether the hottest keys are exempt from the size bound of their cache
+ */
+@ConfigurationProperties(prefix = "hotkeys")
+public record HotKeyProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("4") int depth,
+        @DefaultValue("4096") int width,
+        @DefaultValue("20") int topK,
+        @DefaultValue("false") boolean pinInCache
+) {
+}
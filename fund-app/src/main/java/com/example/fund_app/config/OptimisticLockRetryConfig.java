@@ -0,0 +1,29 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.datasource.OptimisticLockRetry;
+import com.example.fund_app.datasource.OptimisticLockRetryAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+
+@Configuration
+@ConditionalOnProperty(prefix = "optimistic-lock.retry", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(OptimisticLockRetryProperties.class)
+public class OptimisticLockRetryConfig {
+
+    @Bean
+    public OptimisticLockRetry optimisticLockRetry(OptimisticLockRetryProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        return new OptimisticLockRetry(properties.maxAttempts(), properties.initialBackoff(), properties.maxBackoff(),
+                meterRegistry);
+    }
+
+    @Bean
+    public OptimisticLockRetryAspect optimisticLockRetryAspect(OptimisticLockRetry optimisticLockRetry,
+                                                               TransactionAttributeSource transactionAttributeSource) {
+        return new OptimisticLockRetryAspect(optimisticLockRetry, transactionAttributeSource);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled whether service transactions failing on a concurrent update are run again
+ * @param maxAttempts attempts of a transaction, the first one included
+ * @param initialBackoff backoff ceiling before the first retry, doubled before each next one
+ * @param maxBackoff highest backoff ceiling, the actual backoff is drawn at random below the ceiling
+ */
+@ConfigurationProperties(prefix = "optimistic-lock.retry")
+public record OptimisticLockRetryProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("5") int maxAttempts,
+        @DefaultValue("5ms") Duration initialBackoff,
+        @DefaultValue("200ms") Duration maxBackoff
+) {
+}
@@ -0,0 +1,25 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.service.OwnerPurgeService;
+import com.example.fund_app.service.OwnerService;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@EnableConfigurationProperties(OwnerDeletionProperties.class)
+public class OwnerDeletionConfig {
+
+    @Bean
+    public OwnerPurgeService ownerPurgeService(OwnerDeletionProperties properties, OwnerService ownerService,
+                                               AccountRepository accountRepository,
+                                               AccountCacheStore accountCacheStore,
+                                               PlatformTransactionManager transactionManager) {
+        return new OwnerPurgeService(properties, ownerService, accountRepository, accountCacheStore,
+                new TransactionTemplate(transactionManager));
+    }
+}
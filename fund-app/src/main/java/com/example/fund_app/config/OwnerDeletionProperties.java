@@ -0,0 +1,16 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param asyncThreshold number of accounts from which an owner is purged in the background rather than deleted
+ *                       within the request
+ * @param purgeBatchSize accounts deleted per transaction by a purge, each batch holding its row locks briefly
+ */
+@ConfigurationProperties(prefix = "owner-deletion")
+public record OwnerDeletionProperties(
+        @DefaultValue("1000") int asyncThreshold,
+        @DefaultValue("1000") int purgeBatchSize
+) {
+}
@@ -0,0 +1,14 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param warmUpLimit maximum number of imported owners loaded into the cache once merged,
+ *                    kept well under the cache bound so an import does not push the hot entries out
+ */
+@ConfigurationProperties(prefix = "owner-import")
+public record OwnerImportProperties(
+        @DefaultValue("10000") int warmUpLimit
+) {
+}
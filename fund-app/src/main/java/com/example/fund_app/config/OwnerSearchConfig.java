@@ -0,0 +1,22 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.search.OwnerSearchIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(OwnerSearchProperties.class)
+public class OwnerSearchConfig {
+
+    @Bean
+    public OwnerSearchIndex ownerSearchIndex(OwnerSearchProperties properties, DataSource dataSource,
+                                             PlatformTransactionManager transactionManager,
+                                             MeterRegistry meterRegistry) {
+        return new OwnerSearchIndex(properties, dataSource, transactionManager, meterRegistry);
+    }
+}
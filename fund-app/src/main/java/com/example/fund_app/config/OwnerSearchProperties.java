@@ -0,0 +1,19 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled whether searches use the in-memory index, they query the DB otherwise
+ * @param maxPending owners created or deleted since the last snapshot of the index beyond which it is compacted
+ * @param maxAge age beyond which the index is reloaded from the DB, to pick up the owners of the other nodes
+ */
+@ConfigurationProperties(prefix = "owner-search")
+public record OwnerSearchProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100000") int maxPending,
+        @DefaultValue("1h") Duration maxAge
+) {
+}
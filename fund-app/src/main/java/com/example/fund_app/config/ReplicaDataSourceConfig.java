@@ -0,0 +1,92 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.datasource.ReadYourWrites;
+import com.example.fund_app.datasource.ReadYourWritesFilter;
+import com.example.fund_app.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to the replicas, everything else to the primary of spring.datasource.
+ * <p>
+ * The application DataSource is a lazy proxy: the physical connection is only taken at the first statement,
+ * once the transaction is known to be read-only, and comes from the replicas in that case.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfig {
+
+    private final ReplicaProperties replicaProperties;
+
+    public ReplicaDataSourceConfig(ReplicaProperties replicaProperties) {
+        this.replicaProperties = replicaProperties;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites() {
+        return new ReadYourWrites(replicaProperties.readYourWritesWindow());
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             HikariDataSource primaryDataSource,
+                                                             ReadYourWrites readYourWrites,
+                                                             MeterRegistry meterRegistry) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.urls().size(); i++) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + i);
+            pool.setJdbcUrl(replicaProperties.urls().get(i));
+            pool.setUsername(replicaProperties.username() != null
+                    ? replicaProperties.username()
+                    : dataSourceProperties.determineUsername());
+            pool.setPassword(replicaProperties.password() != null
+                    ? replicaProperties.password()
+                    : dataSourceProperties.determinePassword());
+            pool.setMaximumPoolSize(replicaProperties.maximumPoolSize());
+            pool.setReadOnly(true);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReplicaRoutingDataSource.Replica(pool.getPoolName(), pool,
+                    () -> pool.getHikariPoolMXBean() == null ? 0 : pool.getHikariPoolMXBean().getActiveConnections()));
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWrites,
+                replicaProperties.maxLag(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource,
+                                 ReadYourWrites readYourWrites) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(
+                readYourWrites.trackWrites(primaryDataSource));
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReadYourWrites readYourWrites) {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWrites));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param enabled whether read-only transactions are routed to the replicas
+ * @param urls JDBC URLs of the replicas
+ * @param username user of the replicas, the one of spring.datasource when not set
+ * @param password password of the replicas, the one of spring.datasource when not set
+ * @param maximumPoolSize connections per replica pool
+ * @param healthCheckInterval how often the replicas are checked
+ * @param maxLag replication lag above which a replica stops receiving reads
+ * @param readYourWritesWindow how long a session keeps reading from the primary after a write, zero to turn it off
+ */
+@ConfigurationProperties(prefix = "datasource.replicas")
+public record ReplicaProperties(
+        @DefaultValue("false") boolean enabled,
+        List<String> urls,
+        String username,
+        String password,
+        @DefaultValue("10") int maximumPoolSize,
+        @DefaultValue("5s") Duration healthCheckInterval,
+        @DefaultValue("10s") Duration maxLag,
+        @DefaultValue("0s") Duration readYourWritesWindow
+) {
+
+    public ReplicaProperties {
+        urls = urls == null ? List.of() : List.copyOf(urls);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.repository.StandingOrderRepository;
+import com.example.fund_app.repository.TransferRepository;
+import com.example.fund_app.settlement.StandingOrderScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@ConditionalOnProperty(prefix = "standing-orders", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(StandingOrderProperties.class)
+public class StandingOrderConfig {
+
+    @Bean
+    public StandingOrderScheduler standingOrderScheduler(StandingOrderProperties properties,
+                                                         StandingOrderRepository standingOrderRepository,
+                                                         TransferRepository transferRepository,
+                                                         PlatformTransactionManager transactionManager,
+                                                         ObjectProvider<DatabaseBulkhead> databaseBulkhead,
+                                                         MeterRegistry meterRegistry) {
+        return new StandingOrderScheduler(properties, standingOrderRepository, transferRepository,
+                new TransactionTemplate(transactionManager), databaseBulkhead.getIfAvailable(), meterRegistry);
+    }
+}
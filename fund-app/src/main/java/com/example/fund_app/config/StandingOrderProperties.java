@@ -0,0 +1,17 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether this node runs the due standing orders, they wait for another node otherwise
+ * @param batchSize orders claimed, and run into transfers, per transaction
+ * @param claimers batches claimed in parallel by this node, each holding a connection
+ */
+@ConfigurationProperties(prefix = "standing-orders")
+public record StandingOrderProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000") int batchSize,
+        @DefaultValue("2") int claimers
+) {
+}
@@ -0,0 +1,40 @@
+package com.example.fund_app.config;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.repository.TransferRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.TransactionAuditService;
+import com.example.fund_app.settlement.TransferSettlementEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+@ConditionalOnProperty(prefix = "transfer-settlement", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(TransferSettlementProperties.class)
+public class TransferSettlementConfig {
+
+    @Bean
+    public TransferSettlementEngine transferSettlementEngine(TransferSettlementProperties properties,
+                                                             TransferRepository transferRepository,
+                                                             AccountService accountService,
+                                                             AccountRepository accountRepository,
+                                                             AccountMapper accountMapper,
+                                                             AccountCacheStore accountCacheStore,
+                                                             TransactionAuditService transactionAuditService,
+                                                             PlatformTransactionManager transactionManager,
+                                                             ObjectProvider<DatabaseBulkhead> databaseBulkhead,
+                                                             MeterRegistry meterRegistry) {
+        return new TransferSettlementEngine(properties, transferRepository, accountService, accountRepository,
+                accountMapper, accountCacheStore, transactionAuditService, new TransactionTemplate(transactionManager),
+                databaseBulkhead.getIfAvailable(), meterRegistry);
+    }
+}
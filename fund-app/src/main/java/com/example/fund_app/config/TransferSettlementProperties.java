@@ -0,0 +1,27 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether this node settles the submitted transfers, they wait for another node otherwise
+ * @param partitions partitions the pending transfers are spread over by sender account, settled in parallel. Every
+ *                   partition being settled holds a connection, and a second one while it looks a rate up: keep them
+ *                   well under the pool size
+ * @param batchSize transfers settled per partition and per round, before the partitions are looked up again
+ * @param maxAttempts attempts after which a transfer failing for another reason than the accounts themselves, such
+ *                    as an unavailable exchange rate, is rejected
+ * @param netting whether a round first nets the pending transfers within a currency into one balance update per
+ *                account, before settling the others one by one
+ * @param nettingBatchSize transfers netted per transaction, the accounts they move are updated together
+ */
+@ConfigurationProperties(prefix = "transfer-settlement")
+public record TransferSettlementProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("4") int partitions,
+        @DefaultValue("100") int batchSize,
+        @DefaultValue("10") int maxAttempts,
+        @DefaultValue("true") boolean netting,
+        @DefaultValue("1000") int nettingBatchSize
+) {
+}
@@ -0,0 +1,23 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled whether username checks consult the filter, every check goes to the DB otherwise
+ * @param expectedInsertions usernames the first layer of the filter holds, each further layer holds twice as many
+ * @param falsePositiveRate share of free usernames reported as possibly taken, whatever the number of layers
+ * @param maxDeletedShare deleted owners, as a share of the usernames in the filter, beyond which it is rebuilt
+ * @param maxAge age beyond which the filter is rebuilt anyway, to pick up the owners created by the other nodes
+ */
+@ConfigurationProperties(prefix = "username-filter")
+public record UsernameFilterProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000000") long expectedInsertions,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("0.1") double maxDeletedShare,
+        @DefaultValue("6h") Duration maxAge
+) {
+}
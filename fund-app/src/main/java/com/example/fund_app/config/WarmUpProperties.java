@@ -0,0 +1,21 @@
+package com.example.fund_app.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled whether the application warms up before reporting ready
+ * @param budget maximum time spent warming up, the application reports ready once it is exhausted
+ * @param iterations maximum number of synthetic operations run to exercise the request paths
+ * @param snapshotInterval how often the hottest keys are saved for the next warm-up
+ */
+@ConfigurationProperties(prefix = "warmup")
+public record WarmUpProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30s") Duration budget,
+        @DefaultValue("500") int iterations,
+        @DefaultValue("5m") Duration snapshotInterval
+) {
+}
@@ -7,15 +7,22 @@ import com.example.fund_app.model.dto.TransferDto;
 import com.example.fund_app.service.AccountService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/accounts")
 public class AccountController {
 
+    private static final int MAX_IDS_PER_QUERY = 100;
+    private static final int MAX_IDS_PER_LOOKUP = 1000;
+
     private final AccountService accountService;
     private final AccountMapper accountMapper;
 
@@ -30,6 +37,24 @@ public class AccountController {
         return ResponseEntity.ok(accountMapper.toDto(account));
     }
 
+    /**
+     * Views of several accounts at once, keyed by account ID. Unknown IDs are left out.
+     */
+    @GetMapping
+    public ResponseEntity<Map<Long, AccountViewDto>> getAccountsByIds(
+            @Size(min = 1, max = MAX_IDS_PER_QUERY) @RequestParam("ids") List<Long> accountIds) {
+        return ResponseEntity.ok(toDtos(accountService.findAllById(accountIds)));
+    }
+
+    /**
+     * Same as {@link #getAccountsByIds} for sets of IDs too large for a query string.
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<Map<Long, AccountViewDto>> lookupAccounts(
+            @Size(min = 1, max = MAX_IDS_PER_LOOKUP) @RequestBody List<Long> accountIds) {
+        return ResponseEntity.ok(toDtos(accountService.findAllById(accountIds)));
+    }
+
     @DeleteMapping("/{accountId}")
     public ResponseEntity<Void> deleteAccount(@PathVariable Long accountId) {
         accountService.deleteAccount(accountId);
@@ -59,4 +84,10 @@ public class AccountController {
         }
         return ResponseEntity.ok(accountService.transferFrom(dto.senderAccount(), dto.receiverAccount(), dto.amount()));
     }
+
+    private Map<Long, AccountViewDto> toDtos(Map<Long, Account> accounts) {
+        Map<Long, AccountViewDto> dtos = new LinkedHashMap<>();
+        accounts.forEach((accountId, account) -> dtos.put(accountId, accountMapper.toDto(account)));
+        return dtos;
+    }
 }
@@ -3,30 +3,51 @@ package com.example.fund_app.controller;
 import com.example.fund_app.mapper.OwnerMapper;
 import com.example.fund_app.model.Currency;
 import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.OwnerSearchResult;
 import com.example.fund_app.model.dto.OwnerDetailsViewDto;
+import com.example.fund_app.model.dto.OwnerOnboardingDto;
+import com.example.fund_app.model.dto.OwnerSearchPageDto;
 import com.example.fund_app.model.dto.OwnerViewDto;
+import com.example.fund_app.service.OwnerExportService;
+import com.example.fund_app.service.OwnerPurgeService;
 import com.example.fund_app.service.OwnerService;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 
 @RestController
 @RequestMapping("/owners")
 public class OwnerController {
 
+    private static final int MAX_IDS_PER_QUERY = 100;
+    private static final int MAX_IDS_PER_LOOKUP = 1000;
+    private static final int MAX_OWNERS_PER_ONBOARDING = 100_000;
+
     private final OwnerService ownerService;
     private final OwnerMapper ownerMapper;
+    private final OwnerExportService ownerExportService;
+    private final OwnerPurgeService ownerPurgeService;
 
-    public OwnerController(OwnerService ownerService, OwnerMapper ownerMapper) {
+    public OwnerController(OwnerService ownerService, OwnerMapper ownerMapper, OwnerExportService ownerExportService,
+                           OwnerPurgeService ownerPurgeService) {
         this.ownerService = ownerService;
         this.ownerMapper = ownerMapper;
+        this.ownerExportService = ownerExportService;
+        this.ownerPurgeService = ownerPurgeService;
     }
 
     @PostMapping
@@ -37,6 +58,27 @@ public class OwnerController {
         return ResponseEntity.status(201).build();
     }
 
+    /**
+     * Whether the username can still be signed up. Meant for signup forms, the signup itself may still be refused.
+     */
+    @GetMapping("/available")
+    public ResponseEntity<Boolean> isUsernameAvailable(
+            @Pattern(regexp = "^\\D{3,15}")
+            @RequestParam String name) {
+        return ResponseEntity.ok(ownerService.isUsernameAvailable(name));
+    }
+
+    /**
+     * Onboards owners in bulk, each with one empty account per requested currency.
+     * All or nothing: a username that is taken or repeated rejects the whole request.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<List<OwnerViewDto>> createOwners(
+            @Size(min = 1, max = MAX_OWNERS_PER_ONBOARDING) @RequestBody List<@Valid OwnerOnboardingDto> onboardings) {
+        List<Owner> createdOwners = ownerService.createOwners(onboardings.stream().map(ownerMapper::toModel).toList());
+        return ResponseEntity.status(201).body(createdOwners.stream().map(ownerMapper::toDto).toList());
+    }
+
     @GetMapping
     public ResponseEntity<Page<OwnerViewDto>> getAllOwners(
             @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNumber,
@@ -47,6 +89,37 @@ public class OwnerController {
         return ResponseEntity.ok(ownerMapper.toDto(ownerList));
     }
 
+    /**
+     * Owners whose username starts with the query, ordered by username. The next page is fetched by passing the
+     * returned next value as after, until it is null.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<OwnerSearchPageDto> searchOwners(
+            @Size(min = 1, max = 15) @RequestParam("q") String query,
+            @RequestParam(name = "after", required = false) String after,
+            @Min(1L) @Max(100L) @RequestParam(name = "size", required = false, defaultValue = "20") Integer pageSize) {
+        OwnerSearchResult result = ownerService.searchOwners(query, after, pageSize);
+        return ResponseEntity.ok(new OwnerSearchPageDto(
+                result.owners().stream().map(ownerMapper::toDto).toList(), result.next()));
+    }
+
+    /**
+     * Full dump of the owners and their accounts, consistent as of the start of the export.
+     * The body is streamed as rows are read, whatever the number of owners.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOwners(
+            @RequestParam(name = "format", required = false, defaultValue = "NDJSON") OwnerExportService.Format format) {
+        MediaType mediaType = format == OwnerExportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=owners." + format.name().toLowerCase())
+                .body(output -> ownerExportService.export(format, output));
+    }
+
     @GetMapping("/{ownerId}")
     public ResponseEntity<OwnerViewDto> getOwnerById(@PathVariable Long ownerId) {
         Owner response = ownerService.getById(ownerId);
@@ -59,6 +132,24 @@ public class OwnerController {
         return ResponseEntity.ok(ownerMapper.toDetailsDto(response));
     }
 
+    /**
+     * Details of several owners at once, in the order of the IDs. Unknown IDs are left out.
+     */
+    @GetMapping("/details")
+    public ResponseEntity<List<OwnerDetailsViewDto>> getOwnerDetailsByIds(
+            @Size(min = 1, max = MAX_IDS_PER_QUERY) @RequestParam("ids") List<Long> ownerIds) {
+        return ResponseEntity.ok(toDetailsDtos(ownerIds));
+    }
+
+    /**
+     * Same as {@link #getOwnerDetailsByIds} for sets of IDs too large for a query string.
+     */
+    @PostMapping("/details/lookup")
+    public ResponseEntity<List<OwnerDetailsViewDto>> lookupOwnerDetails(
+            @Size(min = 1, max = MAX_IDS_PER_LOOKUP) @RequestBody List<Long> ownerIds) {
+        return ResponseEntity.ok(toDetailsDtos(ownerIds));
+    }
+
     @PatchMapping("/{ownerId}")
     public ResponseEntity<Void> addAccount(
             @PathVariable Long ownerId,
@@ -67,9 +158,20 @@ public class OwnerController {
         return ResponseEntity.status(201).build();
     }
 
+    /**
+     * Owners with many accounts are purged in the background: the deletion is then accepted rather than done.
+     */
     @DeleteMapping("/{ownerId}")
     public ResponseEntity<Void> deleteOwner(@PathVariable Long ownerId) {
-        ownerService.deleteOwner(ownerId);
-        return ResponseEntity.noContent().build();
+        return switch (ownerPurgeService.delete(ownerId)) {
+            case DELETED -> ResponseEntity.noContent().build();
+            case PURGING -> ResponseEntity.accepted().build();
+        };
+    }
+
+    private List<OwnerDetailsViewDto> toDetailsDtos(List<Long> ownerIds) {
+        return ownerService.getAllById(ownerIds).values().stream()
+                .map(ownerMapper::toDetailsDto)
+                .toList();
     }
 }
@@ -0,0 +1,46 @@
+package com.example.fund_app.controller;
+
+import com.example.fund_app.mapper.StandingOrderMapper;
+import com.example.fund_app.model.StandingOrder;
+import com.example.fund_app.model.dto.StandingOrderDto;
+import com.example.fund_app.model.dto.StandingOrderViewDto;
+import com.example.fund_app.service.StandingOrderService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+@RestController
+@RequestMapping("/accounts/standing-orders")
+public class StandingOrderController {
+
+    private final StandingOrderService standingOrderService;
+    private final StandingOrderMapper standingOrderMapper;
+
+    public StandingOrderController(StandingOrderService standingOrderService,
+                                   StandingOrderMapper standingOrderMapper) {
+        this.standingOrderService = standingOrderService;
+        this.standingOrderMapper = standingOrderMapper;
+    }
+
+    @PostMapping
+    public ResponseEntity<StandingOrderViewDto> createStandingOrder(@Valid @RequestBody StandingOrderDto dto) {
+        StandingOrder standingOrder = standingOrderService.create(dto);
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{standingOrderId}")
+                        .buildAndExpand(standingOrder.getStandingOrderId())
+                        .toUri())
+                .body(standingOrderMapper.toDto(standingOrder));
+    }
+
+    @GetMapping("/{standingOrderId}")
+    public ResponseEntity<StandingOrderViewDto> getStandingOrderById(@PathVariable Long standingOrderId) {
+        return ResponseEntity.ok(standingOrderMapper.toDto(standingOrderService.findById(standingOrderId)));
+    }
+
+    @DeleteMapping("/{standingOrderId}")
+    public ResponseEntity<Void> cancelStandingOrder(@PathVariable Long standingOrderId) {
+        standingOrderService.cancel(standingOrderId);
+        return ResponseEntity.noContent().build();
+    }
+}
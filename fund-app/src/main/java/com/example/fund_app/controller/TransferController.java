@@ -0,0 +1,43 @@
+package com.example.fund_app.controller;
+
+import com.example.fund_app.mapper.TransferMapper;
+import com.example.fund_app.model.Transfer;
+import com.example.fund_app.model.dto.TransferDto;
+import com.example.fund_app.model.dto.TransferViewDto;
+import com.example.fund_app.service.TransferService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+@RestController
+@RequestMapping("/accounts/transfers")
+public class TransferController {
+
+    private final TransferService transferService;
+    private final TransferMapper transferMapper;
+
+    public TransferController(TransferService transferService, TransferMapper transferMapper) {
+        this.transferService = transferService;
+        this.transferMapper = transferMapper;
+    }
+
+    /**
+     * Accepts the transfer to be settled in the background, its status is at the returned location.
+     */
+    @PostMapping
+    public ResponseEntity<TransferViewDto> submitTransfer(@Valid @RequestBody TransferDto dto) {
+        Transfer transfer = transferService.submit(dto);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{transferId}")
+                        .buildAndExpand(transfer.getTransferId())
+                        .toUri())
+                .body(transferMapper.toDto(transfer));
+    }
+
+    @GetMapping("/{transferId}")
+    public ResponseEntity<TransferViewDto> getTransferById(@PathVariable Long transferId) {
+        return ResponseEntity.ok(transferMapper.toDto(transferService.findById(transferId)));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.fund_app.datasource;
+
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission in front of the connection pool. With virtual threads nothing bounds the number of request threads,
+ * without it they would all queue on Hikari and time out together once it is exhausted.
+ * <p>
+ * Read-only and read-write transactions have their own budget, so a burst of reads cannot starve the writes.
+ * Each budget is a fair semaphore: waiting transactions are admitted in arrival order, wait at most the max wait,
+ * and are rejected right away when the queue is already full. A rejection costs the client a retry,
+ * not a thread stuck until the pool timeout.
+ */
+@Slf4j
+public class DatabaseBulkhead {
+
+    private final Map<Budget, Lane> lanes = new EnumMap<>(Budget.class);
+    private final long maxWaitNanos;
+    private final int maxQueued;
+    private final Duration retryAfter;
+
+    public DatabaseBulkhead(int readPermits, int writePermits, Duration maxWait, int maxQueued, Duration retryAfter,
+                            MeterRegistry meterRegistry) {
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxQueued = maxQueued;
+        this.retryAfter = retryAfter;
+        lanes.put(Budget.READ, new Lane(Budget.READ, readPermits, meterRegistry));
+        lanes.put(Budget.WRITE, new Lane(Budget.WRITE, writePermits, meterRegistry));
+        log.info("Database bulkhead admits {} read and {} write transactions at once", readPermits, writePermits);
+    }
+
+    /**
+     * Waits for a permit of the budget, to be given back with {@link #release(Budget)}.
+     *
+     * @throws DatabaseOverloadedException if the queue is full or no permit was freed within the max wait
+     */
+    public void acquire(Budget budget) {
+        Lane lane = lanes.get(budget);
+        try {
+            // The timed variant honours the fairness of the semaphore, a free permit goes to the queued waiters first
+            if (lane.semaphore.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                lane.waits.record(0, TimeUnit.NANOSECONDS);
+                return;
+            }
+            if (lane.semaphore.getQueueLength() >= maxQueued) {
+                throw reject(lane, "queue full");
+            }
+
+            long start = System.nanoTime();
+            boolean acquired = lane.semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            lane.waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                throw reject(lane, "no connection freed in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject(lane, "interrupted while waiting");
+        }
+    }
+
+    public void release(Budget budget) {
+        lanes.get(budget).semaphore.release();
+    }
+
+    private DatabaseOverloadedException reject(Lane lane, String reason) {
+        lane.rejections.increment();
+        return new DatabaseOverloadedException(
+                "Database overloaded, " + lane.name + " transaction rejected: " + reason, retryAfter);
+    }
+
+    public enum Budget {
+        READ,
+        WRITE
+    }
+
+    private static class Lane {
+
+        private final String name;
+        private final Semaphore semaphore;
+        private final Timer waits;
+        private final Counter rejections;
+
+        Lane(Budget budget, int permits, MeterRegistry meterRegistry) {
+            this.name = budget.name().toLowerCase(Locale.ROOT);
+            this.semaphore = new Semaphore(permits, true);
+            this.waits = Timer.builder("datasource.bulkhead.wait")
+                    .tag("budget", name)
+                    .register(meterRegistry);
+            this.rejections = Counter.builder("datasource.bulkhead.rejected")
+                    .tag("budget", name)
+                    .register(meterRegistry);
+            Gauge.builder("datasource.bulkhead.queued", semaphore, Semaphore::getQueueLength)
+                    .tag("budget", name)
+                    .register(meterRegistry);
+            Gauge.builder("datasource.bulkhead.active", semaphore, s -> permits - s.availablePermits())
+                    .tag("budget", name)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.fund_app.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Admits the transactions of the account and owner services through the {@link DatabaseBulkhead}.
+ * It runs before the transaction starts, as the connection is taken at its start and held until its end,
+ * and the budget follows the read-only flag of the transaction. Calls joining an ongoing transaction
+ * already hold a connection and are not admitted again.
+ * <p>
+ * Owner exports are admitted too: they hold their connection for as long as the response streams, after the
+ * request thread and the concurrency limit have let go of the request, so their permit is only given back
+ * once the stream has completed or failed.
+ */
+@Aspect
+public class DatabaseBulkheadAspect implements Ordered {
+
+    private final DatabaseBulkhead databaseBulkhead;
+    private final TransactionAttributeSource transactionAttributeSource;
+
+    public DatabaseBulkheadAspect(DatabaseBulkhead databaseBulkhead,
+                                  TransactionAttributeSource transactionAttributeSource) {
+        this.databaseBulkhead = databaseBulkhead;
+        this.transactionAttributeSource = transactionAttributeSource;
+    }
+
+    @Around("within(com.example.fund_app.service.AccountService) || within(com.example.fund_app.service.OwnerService)"
+            + " || within(com.example.fund_app.service.OwnerExportService)")
+    public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        DatabaseBulkhead.Budget budget = budgetOf(joinPoint);
+        databaseBulkhead.acquire(budget);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            databaseBulkhead.release(budget);
+        }
+    }
+
+    private DatabaseBulkhead.Budget budgetOf(ProceedingJoinPoint joinPoint) {
+        TransactionAttribute transactionAttribute = transactionAttributeSource.getTransactionAttribute(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), AopUtils.getTargetClass(joinPoint.getTarget()));
+        return transactionAttribute != null && transactionAttribute.isReadOnly()
+                ? DatabaseBulkhead.Budget.READ
+                : DatabaseBulkhead.Budget.WRITE;
+    }
+
+    /**
+     * Outside of the transaction interceptor, which has the lowest precedence.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
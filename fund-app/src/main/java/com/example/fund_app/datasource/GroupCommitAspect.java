@@ -0,0 +1,62 @@
+package com.example.fund_app.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Hands the deposits, withdrawals and transfers of the account service over to the {@link GroupCommitExecutor}. The
+ * group calls the service again within its transaction, which the call joins like any other. Calls already within a
+ * transaction are left to it.
+ */
+@Aspect
+public class GroupCommitAspect implements Ordered {
+
+    private final GroupCommitExecutor groupCommitExecutor;
+
+    public GroupCommitAspect(GroupCommitExecutor groupCommitExecutor) {
+        this.groupCommitExecutor = groupCommitExecutor;
+    }
+
+    @Around("execution(public * com.example.fund_app.service.AccountService.deposit(..))"
+            + " || execution(public * com.example.fund_app.service.AccountService.withdraw(..))"
+            + " || execution(public * com.example.fund_app.service.AccountService.transferTo(..))"
+            + " || execution(public * com.example.fund_app.service.AccountService.transferFrom(..))")
+    public Object group(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Object service = joinPoint.getThis();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object[] args = joinPoint.getArgs();
+        return groupCommitExecutor.execute(lowestAccountId(args),
+                () -> AopUtils.invokeJoinpointUsingReflection(service, method, args));
+    }
+
+    /**
+     * The account IDs are the {@code Long} arguments of the operations.
+     */
+    static long lowestAccountId(Object[] args) {
+        return Arrays.stream(args)
+                .filter(Long.class::isInstance)
+                .mapToLong(Long.class::cast)
+                .min()
+                .orElse(0L);
+    }
+
+    /**
+     * Within the optimistic lock retry, which submits a conflicting operation again, and outside of the bulkhead: the
+     * group takes a permit for its whole transaction, not each of its operations.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 2;
+    }
+}
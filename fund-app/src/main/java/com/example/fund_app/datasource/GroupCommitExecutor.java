@@ -0,0 +1,270 @@
+package com.example.fund_app.datasource;
+
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Commits the operations arriving within a short window in one transaction, so that they share the latency of its
+ * commit instead of paying it one by one.
+ * <p>
+ * A group starts with the first operation queued and takes the ones queued until its window ends or it is full. Its
+ * operations run one after the other in the order of their account IDs, so that concurrent groups update the accounts
+ * they share in the same order, and each caller gets its own result once the group committed.
+ * <p>
+ * A failing operation does not fail the others: the group is rolled back, the operation completes with its failure,
+ * and the rest of the group runs again. Only the work bound to the transaction is undone: cache writes and events
+ * wait for the commit, but logs and hot key counts are repeated by the replay. A failure of the commit itself, such as
+ * a concurrent update of an account, is the failure of every operation of the group.
+ * <p>
+ * Operations run on the committer threads with the MDC of their caller, and once their group committed the session
+ * of the caller is recorded for {@link ReadYourWrites}. A group takes a write permit of the {@link DatabaseBulkhead}
+ * for its transaction. A caller waits for its operation up to the timeout: an operation no group took by then is
+ * dropped and rejected, one already taken completes with its group, whose transaction has the same timeout.
+ */
+@Slf4j
+public class GroupCommitExecutor implements AutoCloseable {
+
+    private static final Duration IDLE_POLL = Duration.ofMillis(100);
+
+    private final long windowNanos;
+    private final int maxOperations;
+    private final Duration timeout;
+    private final TransactionTemplate transaction;
+    private final ReadYourWrites readYourWrites;
+    private final DatabaseBulkhead bulkhead;
+    private final BlockingQueue<Operation<?>> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService committers = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean closed;
+
+    private final DistributionSummary groupSize;
+    private final Counter replays;
+    private final Counter timeouts;
+
+    /**
+     * @param readYourWrites the sessions to record the writes of, null without replicas
+     * @param bulkhead the bulkhead to admit the groups through, null when disabled
+     */
+    public GroupCommitExecutor(Duration window, int maxOperations, int committers, Duration timeout,
+                               TransactionTemplate transaction, ReadYourWrites readYourWrites,
+                               DatabaseBulkhead bulkhead, MeterRegistry meterRegistry) {
+        this.windowNanos = window.toNanos();
+        this.maxOperations = Math.max(1, maxOperations);
+        this.timeout = timeout;
+        this.transaction = transaction;
+        this.readYourWrites = readYourWrites;
+        this.bulkhead = bulkhead;
+        this.groupSize = DistributionSummary.builder("group.commit.size")
+                .description("Operations committed together")
+                .register(meterRegistry);
+        this.replays = Counter.builder("group.commit.replays")
+                .description("Groups run again without the operation that failed in them")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("group.commit.timeouts")
+                .description("Operations dropped as no group took them within the timeout")
+                .register(meterRegistry);
+        for (int i = 0; i < Math.max(1, committers); i++) {
+            this.committers.execute(this::commitGroups);
+        }
+    }
+
+    /**
+     * Runs the task within the next group and waits for the group to commit.
+     *
+     * @param accountId the account the task updates, the lowest one when it updates several
+     * @return the result of the task, once committed
+     * @throws DatabaseOverloadedException if no group took the task within the timeout, it never runs then
+     */
+    public <T> T execute(long accountId, Task<T> task) throws Throwable {
+        Operation<T> operation = new Operation<>(accountId, task);
+        queue.add(operation);
+        if (closed && queue.remove(operation) && operation.take()) {
+            // No committer is left to take it
+            commit(List.<Operation<?>>of(operation));
+        }
+        try {
+            return await(operation);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <T> T await(Operation<T> operation) throws ExecutionException, InterruptedException {
+        try {
+            return operation.result().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (operation.take()) {
+                queue.remove(operation);
+                timeouts.increment();
+                throw new DatabaseOverloadedException(
+                        "Database overloaded, write not committed within " + timeout, timeout);
+            }
+        }
+        // Taken by a group just in time, whose transaction ends within the same timeout
+        try {
+            return operation.result().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Group commit did not end within " + timeout, e);
+        }
+    }
+
+    private void commitGroups() {
+        List<Operation<?>> group = new ArrayList<>(maxOperations);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Operation<?> first = queue.poll(IDLE_POLL.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null || !first.take()) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxOperations) {
+                    long remaining = deadline - System.nanoTime();
+                    Operation<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next.take()) {
+                        group.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                group.forEach(operation -> operation.result().completeExceptionally(e));
+                return;
+            }
+            commit(group);
+            group.clear();
+        }
+    }
+
+    void commit(List<Operation<?>> group) {
+        groupSize.record(group.size());
+        if (bulkhead != null) {
+            try {
+                bulkhead.acquire(DatabaseBulkhead.Budget.WRITE);
+            } catch (DatabaseOverloadedException e) {
+                group.forEach(operation -> operation.result().completeExceptionally(e));
+                return;
+            }
+        }
+        try {
+            commitAdmitted(group);
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release(DatabaseBulkhead.Budget.WRITE);
+            }
+        }
+    }
+
+    private void commitAdmitted(List<Operation<?>> group) {
+        List<Operation<?>> pending = new ArrayList<>(group);
+        pending.sort(Comparator.comparingLong(Operation::accountId));
+        while (!pending.isEmpty()) {
+            List<Object> results = new ArrayList<>(pending.size());
+            try {
+                transaction.executeWithoutResult(status -> {
+                    for (Operation<?> operation : pending) {
+                        try {
+                            results.add(run(operation));
+                        } catch (Throwable e) {
+                            // The transaction may be left in any state by the failure: none of its work is kept
+                            status.setRollbackOnly();
+                            operation.result().completeExceptionally(e);
+                            return;
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.warn("Group of {} operations failed to commit: {}", pending.size(), e.getMessage());
+                pending.forEach(operation -> operation.result().completeExceptionally(e));
+                return;
+            }
+            if (results.size() == pending.size()) {
+                if (readYourWrites != null) {
+                    pending.forEach(operation -> readYourWrites.recordWrite(operation.session()));
+                }
+                for (int i = 0; i < pending.size(); i++) {
+                    complete(pending.get(i), results.get(i));
+                }
+                return;
+            }
+            // Run again what succeeded before the failure, and what did not run after it
+            pending.remove(results.size());
+            replays.increment();
+        }
+    }
+
+    private static Object run(Operation<?> operation) throws Throwable {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        setContextMap(operation.mdc());
+        try {
+            return operation.task().run();
+        } finally {
+            setContextMap(previous);
+        }
+    }
+
+    private static void setContextMap(Map<String, String> mdc) {
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void complete(Operation<T> operation, Object result) {
+        operation.result().complete((T) result);
+    }
+
+    /**
+     * Commits the operations already queued, the next ones run on their own.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        committers.close();
+    }
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T run() throws Throwable;
+    }
+
+    /**
+     * An operation along with the session and MDC of its caller. It is taken once, by a group or by its caller giving
+     * up on it.
+     */
+    record Operation<T>(long accountId, Task<T> task, String session, Map<String, String> mdc, AtomicBoolean taken,
+                        CompletableFuture<T> result) {
+
+        Operation(long accountId, Task<T> task) {
+            this(accountId, task, ReadYourWrites.currentSession(), MDC.getCopyOfContextMap(), new AtomicBoolean(),
+                    new CompletableFuture<>());
+        }
+
+        boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+}
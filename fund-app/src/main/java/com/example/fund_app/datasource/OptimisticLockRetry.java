@@ -0,0 +1,103 @@
+package com.example.fund_app.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Runs transactions again when they lose a race on a versioned row. The failed attempt was rolled back as a whole and
+ * the next one reads the rows again in a new transaction, so it works on the state that won the race.
+ * <p>
+ * Attempts are spaced by an exponential backoff with full jitter: the wait is drawn at random below a ceiling that
+ * doubles after each attempt, so that the transactions that collided do not collide again at their next attempt.
+ * Each operation reports its calls, its retries, and its failures once the attempts are exhausted.
+ */
+@Slf4j
+public class OptimisticLockRetry {
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final MeterRegistry meterRegistry;
+    private final DoubleSupplier random;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public OptimisticLockRetry(int maxAttempts, Duration initialBackoff, Duration maxBackoff,
+                               MeterRegistry meterRegistry) {
+        this(maxAttempts, initialBackoff, maxBackoff, meterRegistry, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    OptimisticLockRetry(int maxAttempts, Duration initialBackoff, Duration maxBackoff, MeterRegistry meterRegistry,
+                        DoubleSupplier random) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.meterRegistry = meterRegistry;
+        this.random = random;
+    }
+
+    /**
+     * Runs the transaction until it commits without conflict, at most the max attempts.
+     *
+     * @throws OptimisticLockingFailureException the conflict of the last attempt, once they are exhausted
+     */
+    public <T> T execute(String operation, Attempt<T> transaction) throws Throwable {
+        Meters operationMeters = meters.computeIfAbsent(operation, this::register);
+        operationMeters.calls.increment();
+        long backoffCeiling = initialBackoffNanos;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.run();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    operationMeters.failures.increment();
+                    log.warn("{} still conflicting after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                operationMeters.retries.increment();
+                backOff(backoffCeiling);
+                backoffCeiling = Math.min(backoffCeiling * 2, maxBackoffNanos);
+            }
+        }
+    }
+
+    private void backOff(long ceilingNanos) {
+        try {
+            Thread.sleep(Duration.ofNanos((long) (random.getAsDouble() * ceilingNanos)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off before a retry", e);
+        }
+    }
+
+    private Meters register(String operation) {
+        return new Meters(
+                counter("optimistic.lock.calls", "Transactions run with retries on optimistic lock conflicts",
+                        operation),
+                counter("optimistic.lock.retries", "Attempts run again after an optimistic lock conflict", operation),
+                counter("optimistic.lock.failures", "Transactions still conflicting once the attempts are exhausted",
+                        operation));
+    }
+
+    private Counter counter(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws Throwable;
+    }
+
+    private record Meters(Counter calls, Counter retries, Counter failures) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.fund_app.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs the read-write transactions of the account and owner services through the {@link OptimisticLockRetry}.
+ * It wraps the whole transaction, commit included, as the conflict only shows when the updates are flushed.
+ * Calls joining an ongoing transaction are left to the retry of that transaction, and read-only ones cannot conflict.
+ */
+@Aspect
+public class OptimisticLockRetryAspect implements Ordered {
+
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final TransactionAttributeSource transactionAttributeSource;
+
+    public OptimisticLockRetryAspect(OptimisticLockRetry optimisticLockRetry,
+                                     TransactionAttributeSource transactionAttributeSource) {
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.transactionAttributeSource = transactionAttributeSource;
+    }
+
+    @Around("within(com.example.fund_app.service.AccountService) || within(com.example.fund_app.service.OwnerService)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || isReadOnly(joinPoint)) {
+            return joinPoint.proceed();
+        }
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        return optimisticLockRetry.execute(
+                signature.getDeclaringType().getSimpleName() + "." + signature.getName(), joinPoint::proceed);
+    }
+
+    private boolean isReadOnly(ProceedingJoinPoint joinPoint) {
+        TransactionAttribute transactionAttribute = transactionAttributeSource.getTransactionAttribute(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), AopUtils.getTargetClass(joinPoint.getTarget()));
+        return transactionAttribute != null && transactionAttribute.isReadOnly();
+    }
+
+    /**
+     * Outside of the group commit and of the bulkhead, so that no group slot nor connection permit is held while
+     * backing off.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 3;
+    }
+}
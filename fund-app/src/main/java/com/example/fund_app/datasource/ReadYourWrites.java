@@ -0,0 +1,146 @@
+package com.example.fund_app.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes consistency on top of asynchronous replicas: once a session committed a write, its reads go to
+ * the primary until the window has elapsed, long enough for the replicas to catch up.
+ * Sessions are identified by the {@value #SESSION_HEADER} request header, requests without it are not pinned.
+ */
+public class ReadYourWrites {
+
+    public static final String SESSION_HEADER = "X-Session-Id";
+
+    private static final ThreadLocal<String> CURRENT_SESSION = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final LongSupplier nanoTime;
+
+    public ReadYourWrites(Duration window) {
+        this(window, System::nanoTime);
+    }
+
+    ReadYourWrites(Duration window, LongSupplier nanoTime) {
+        this.windowNanos = window.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    public boolean enabled() {
+        return windowNanos > 0;
+    }
+
+    /**
+     * Binds the session of the current request to the thread, until {@link #unbind()}.
+     *
+     * @param session the session, null when the client did not send one
+     */
+    public void bind(String session) {
+        if (session == null) {
+            CURRENT_SESSION.remove();
+        } else {
+            CURRENT_SESSION.set(session);
+        }
+    }
+
+    public void unbind() {
+        CURRENT_SESSION.remove();
+    }
+
+    static String currentSession() {
+        return CURRENT_SESSION.get();
+    }
+
+    /**
+     * Runs the reads on the primary whatever the session, for the ones the cache is filled from: a lagging replica
+     * would put a state older than the last commit back in the cache, for every session. A transaction takes its
+     * connection at its first statement, so the reads have to be the first ones of their transaction.
+     */
+    public static <T> T fromPrimary(Supplier<T> reads) {
+        if (PRIMARY_READS.get() != null) {
+            return reads.get();
+        }
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            PRIMARY_READS.remove();
+        }
+    }
+
+    /**
+     * @return whether the current reads have to go to the primary: they fill the cache, or the session wrote within
+     * the window
+     */
+    public boolean pinnedToPrimary() {
+        if (PRIMARY_READS.get() != null) {
+            return true;
+        }
+        String session = CURRENT_SESSION.get();
+        if (!enabled() || session == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(session);
+        return lastWrite != null && nanoTime.getAsLong() - lastWrite < windowNanos;
+    }
+
+    void recordWrite() {
+        recordWrite(CURRENT_SESSION.get());
+    }
+
+    /**
+     * Records a write of the session, for the writes committed on another thread than the one of the request.
+     */
+    void recordWrite(String session) {
+        if (enabled() && session != null) {
+            lastWrites.put(session, nanoTime.getAsLong());
+        }
+    }
+
+    /**
+     * Forgets the sessions whose window elapsed, so the map only holds the recent writers.
+     */
+    public void expire() {
+        long now = nanoTime.getAsLong();
+        lastWrites.values().removeIf(lastWrite -> now - lastWrite >= windowNanos);
+    }
+
+    /**
+     * Wraps the primary so that the sessions are recorded when a read-write transaction using it commits.
+     */
+    public DataSource trackWrites(DataSource primary) {
+        return new DelegatingDataSource(primary) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                if (enabled() && CURRENT_SESSION.get() != null
+                        && TransactionSynchronizationManager.isSynchronizationActive()
+                        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            recordWrite();
+                        }
+                    });
+                }
+                return connection;
+            }
+        };
+    }
+
+    int sessions() {
+        return lastWrites.size();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.fund_app.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds the session of each request, so its reads follow its writes to the primary.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        readYourWrites.bind(request.getHeader(ReadYourWrites.SESSION_HEADER));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.unbind();
+        }
+    }
+}
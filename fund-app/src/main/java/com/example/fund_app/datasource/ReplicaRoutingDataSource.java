@@ -0,0 +1,175 @@
+package com.example.fund_app.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * Read-only side of the routing: hands out connections of the healthy replicas, and of the primary when none is
+ * healthy or the current session has to read its own writes.
+ * <p>
+ * Replicas are balanced with two random choices, the one with fewer connections in use wins, which spreads the load
+ * about as well as least-connections without scanning every pool. A replica is taken out when its health check fails,
+ * its lag exceeds the limit or it refuses a connection, and comes back at the next successful check.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE coalesce(extract(epoch FROM now() - pg_last_xact_replay_timestamp()), 0)
+            END
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final Duration maxLag;
+    private final Counter primaryReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, ReadYourWrites readYourWrites,
+                                    Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWrites = readYourWrites;
+        this.maxLag = maxLag;
+        this.primaryReads = routedReads(meterRegistry, "primary");
+        for (Replica replica : this.replicas) {
+            replica.reads = routedReads(meterRegistry, replica.name);
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static Counter routedReads(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.reads.routed")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readYourWrites.pinnedToPrimary()) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = pick();
+                if (replica == null) {
+                    break;
+                }
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replica.reads.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    log.warn("Replica {} refused a connection, taking it out: {}", replica.name, e.getMessage());
+                    replica.healthy = false;
+                }
+            }
+        }
+
+        Connection connection = primary.getConnection();
+        connection.setReadOnly(true);
+        primaryReads.increment();
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Replica connections use the credentials of their pool");
+    }
+
+    private Replica pick() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.size() < 2) {
+            return healthy.isEmpty() ? null : healthy.getFirst();
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Replica first = healthy.get(random.nextInt(healthy.size()));
+        Replica second = healthy.get(random.nextInt(healthy.size()));
+        return first.activeConnections.getAsInt() <= second.activeConnections.getAsInt() ? first : second;
+    }
+
+    /**
+     * Checks every replica: reachable and with a replication lag under the limit.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-check-interval:5s}")
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                double lagSeconds = resultSet.getDouble(1);
+                healthy = lagSeconds <= maxLag.toMillis() / 1000.0;
+                if (!healthy) {
+                    log.warn("Replica {} lags {}s behind the primary, taking it out", replica.name, lagSeconds);
+                }
+            } catch (SQLException e) {
+                log.warn("Replica {} failed its health check: {}", replica.name, e.getMessage());
+                healthy = false;
+            }
+
+            if (healthy && !replica.healthy) {
+                log.info("Replica {} is back", replica.name);
+            }
+            replica.healthy = healthy;
+        }
+        readYourWrites.expire();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * A replica pool. It starts healthy so reads are routed before the first check.
+     */
+    public static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final IntSupplier activeConnections;
+        private volatile boolean healthy = true;
+        private Counter reads;
+
+        /**
+         * @param activeConnections connections of the pool currently in use
+         */
+        public Replica(String name, DataSource dataSource, IntSupplier activeConnections) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.activeConnections = activeConnections;
+        }
+
+        public boolean healthy() {
+            return healthy;
+        }
+    }
+}
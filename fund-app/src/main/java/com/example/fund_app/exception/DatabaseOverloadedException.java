@@ -0,0 +1,17 @@
+package com.example.fund_app.exception;
+
+import java.time.Duration;
+
+public class DatabaseOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public DatabaseOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
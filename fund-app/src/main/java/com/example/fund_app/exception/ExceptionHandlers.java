@@ -1,5 +1,7 @@
 package com.example.fund_app.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -33,4 +35,20 @@ public class ExceptionHandlers {
     public ResponseEntity<String> handleExchangeRateNotRetrievableException(ExchangeRateNotRetrievableException exception) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(exception.getMessage());
     }
+
+    @ExceptionHandler(DatabaseOverloadedException.class)
+    public ResponseEntity<String> handleDatabaseOverloadedException(DatabaseOverloadedException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exception.getRetryAfter().toSeconds())))
+                .body(exception.getMessage());
+    }
+
+    /**
+     * A concurrent update still won once the retries were exhausted, the request can be sent again as is.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailureException(OptimisticLockingFailureException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("The resource was updated concurrently, please try again");
+    }
 }
@@ -0,0 +1,120 @@
+package com.example.fund_app.limiter;
+
+import com.example.fund_app.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit following the gradient of the request latency, instead of a fixed number tuned once.
+ * <p>
+ * Two moving averages of the latency are kept: a short one, the current latency, and a long one, the usual latency.
+ * While the current latency stays within the tolerance of the usual one the limit grows by about its square root
+ * per sample, once it rises above the limit shrinks in proportion (by half at most), and requests start queueing
+ * in the application instead of piling up on the database. The limit only grows while at least half of it is used,
+ * a quiet period does not let it drift up to the max.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, Double> shares = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> rejections = new EnumMap<>(Priority.class);
+    private final Lock sampleLock = new ReentrantLock();
+
+    private volatile double limit;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = properties.initialLimit();
+        shares.put(Priority.TRANSFER, 1.0);
+        shares.put(Priority.WRITE, properties.writeShare());
+        shares.put(Priority.READ, properties.readShare());
+        for (Priority priority : Priority.values()) {
+            rejections.put(priority, Counter.builder("http.concurrency.rejected")
+                    .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        Gauge.builder("http.concurrency.limit", this, AdaptiveConcurrencyLimiter::limit).register(meterRegistry);
+        Gauge.builder("http.concurrency.in.flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * @return whether the request is admitted, in which case {@link #release(long)} must follow
+     */
+    public boolean tryAcquire(Priority priority) {
+        int max = Math.max(1, (int) (limit * shares.get(priority)));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                rejections.get(priority).increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos time the request took, to adjust the limit
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightBefore);
+    }
+
+    /**
+     * A lock rather than a synchronized method, a contended monitor would pin the virtual thread to its carrier.
+     */
+    private void onSample(long rttNanos, int inFlightBefore) {
+        sampleLock.lock();
+        try {
+            adjust(rttNanos, inFlightBefore);
+        } finally {
+            sampleLock.unlock();
+        }
+    }
+
+    private void adjust(long rttNanos, int inFlightBefore) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) / ConcurrencyLimitProperties.SHORT_WINDOW;
+        longRtt += (rttNanos - longRtt) / properties.longWindow();
+
+        // The usual latency recovers faster once the load went down, else the limit would stay high for long
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double gradient = Math.clamp(properties.rttTolerance() * longRtt / shortRtt, 0.5, 1.0);
+        if (gradient == 1.0 && inFlightBefore < limit / 2) {
+            return;
+        }
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - properties.smoothing()) + newLimit * properties.smoothing();
+        limit = Math.clamp(newLimit, properties.minLimit(), properties.maxLimit());
+    }
+
+    public double limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
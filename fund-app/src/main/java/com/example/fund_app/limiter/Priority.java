@@ -0,0 +1,11 @@
+package com.example.fund_app.limiter;
+
+/**
+ * Lanes of the limiter. Lower lanes only get a share of the limit, so they are shed first and the transfers
+ * keep room when the limit shrinks.
+ */
+public enum Priority {
+    TRANSFER,
+    WRITE,
+    READ
+}
@@ -6,12 +6,14 @@ import com.example.fund_app.model.dbo.AccountDbo;
 import com.example.fund_app.model.dbo.OwnerDbo;
 import com.example.fund_app.model.dto.AccountDetailsViewDto;
 import com.example.fund_app.model.dto.OwnerDetailsViewDto;
+import com.example.fund_app.model.dto.OwnerOnboardingDto;
 import com.example.fund_app.model.dto.OwnerViewDto;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import org.springframework.data.domain.Page;
 
+import java.math.BigDecimal;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -58,6 +60,18 @@ public interface OwnerMapper {
 
     Owner toModel(OwnerDbo dbo);
 
+    default Owner toModel(OwnerOnboardingDto dto) {
+        return Owner.builder()
+                .username(dto.username())
+                .accounts(dto.currencies().stream()
+                        .map(currency -> Account.builder()
+                                .currency(currency)
+                                .balance(BigDecimal.ZERO)
+                                .build())
+                        .collect(Collectors.toSet()))
+                .build();
+    }
+
     OwnerDbo toDbo(Owner model);
 
     default Page<Owner> toModel(Page<OwnerDbo> owners) {
@@ -0,0 +1,15 @@
+package com.example.fund_app.mapper;
+
+import com.example.fund_app.model.StandingOrder;
+import com.example.fund_app.model.dbo.StandingOrderDbo;
+import com.example.fund_app.model.dto.StandingOrderViewDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface StandingOrderMapper {
+
+    StandingOrderViewDto toDto(StandingOrder standingOrder);
+
+    StandingOrder toModel(StandingOrderDbo dbo);
+}
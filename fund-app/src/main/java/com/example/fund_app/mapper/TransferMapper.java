@@ -0,0 +1,15 @@
+package com.example.fund_app.mapper;
+
+import com.example.fund_app.model.Transfer;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.model.dto.TransferViewDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface TransferMapper {
+
+    TransferViewDto toDto(Transfer transfer);
+
+    Transfer toModel(TransferDbo dbo);
+}
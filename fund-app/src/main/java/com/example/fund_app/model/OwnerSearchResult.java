@@ -0,0 +1,13 @@
+package com.example.fund_app.model;
+
+import java.util.List;
+
+/**
+ * @param owners a page of owners, ordered by username
+ * @param next username the next page starts after, null on the last page
+ */
+public record OwnerSearchResult(
+        List<Owner> owners,
+        String next
+) {
+}
@@ -0,0 +1,41 @@
+package com.example.fund_app.model;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * How often a standing order runs, counted in UTC from its first run: a monthly order first run on the 31st runs on
+ * the last day of the shorter months, then on the 31st again.
+ */
+public enum Recurrence {
+    ONCE(null),
+    DAILY(ChronoUnit.DAYS),
+    WEEKLY(ChronoUnit.WEEKS),
+    MONTHLY(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    Recurrence(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * The runs missed meanwhile, such as while no node was up, are skipped.
+     *
+     * @return the first run strictly after the given instant, null if the order does not run again
+     */
+    public Instant nextRunAfter(Instant firstRunAt, Instant after) {
+        if (unit == null) {
+            return firstRunAt.isAfter(after) ? firstRunAt : null;
+        }
+        ZonedDateTime first = firstRunAt.atZone(ZoneOffset.UTC);
+        long runs = Math.max(unit.between(first, after.atZone(ZoneOffset.UTC)), 0);
+        Instant next = first.plus(runs, unit).toInstant();
+        while (!next.isAfter(after)) {
+            next = first.plus(++runs, unit).toInstant();
+        }
+        return next;
+    }
+}
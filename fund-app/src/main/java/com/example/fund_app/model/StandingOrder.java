@@ -0,0 +1,40 @@
+package com.example.fund_app.model;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StandingOrder {
+
+    private Long standingOrderId;
+
+    private Long senderAccount;
+
+    private Long receiverAccount;
+
+    private BigDecimal amount;
+
+    private boolean toSend;
+
+    private Recurrence recurrence;
+
+    private Instant firstRunAt;
+
+    private Instant nextRunAt;
+
+    private Instant endsAt;
+
+    private int runs;
+
+    private Long lastTransferId;
+
+    private StandingOrderStatus status;
+
+    private Instant createdAt;
+}
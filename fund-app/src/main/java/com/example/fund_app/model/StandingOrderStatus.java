@@ -0,0 +1,5 @@
+package com.example.fund_app.model;
+
+public enum StandingOrderStatus {
+    ACTIVE, COMPLETED, CANCELLED
+}
@@ -0,0 +1,32 @@
+package com.example.fund_app.model;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Transfer {
+
+    private Long transferId;
+
+    private Long senderAccount;
+
+    private Long receiverAccount;
+
+    private BigDecimal amount;
+
+    private boolean toSend;
+
+    private TransferStatus status;
+
+    private String failure;
+
+    private Instant submittedAt;
+
+    private Instant settledAt;
+}
@@ -4,7 +4,6 @@ import com.example.fund_app.model.Currency;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.ColumnDefault;
-import org.hibernate.annotations.DynamicInsert;
 
 import java.math.BigDecimal;
 
@@ -15,11 +14,10 @@ import java.math.BigDecimal;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@DynamicInsert
 @SequenceGenerator(
         name = "account_generator",
         sequenceName = "account_sequence",
-        allocationSize = 1,
+        allocationSize = 50,
         initialValue = 1000
 )
 public class AccountDbo {
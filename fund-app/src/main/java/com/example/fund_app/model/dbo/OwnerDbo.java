@@ -3,7 +3,6 @@ package com.example.fund_app.model.dbo;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.ColumnDefault;
-import org.hibernate.annotations.DynamicInsert;
 
 import java.util.Set;
 
@@ -17,9 +16,8 @@ import java.util.Set;
 @SequenceGenerator(
         name = "owner_generator",
         sequenceName = "owner_sequence",
-        allocationSize = 1
+        allocationSize = 50
 )
-@DynamicInsert
 public class OwnerDbo {
 
     @Id
@@ -0,0 +1,68 @@
+package com.example.fund_app.model.dbo;
+
+import com.example.fund_app.model.Recurrence;
+import com.example.fund_app.model.StandingOrderStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Entity
+@Table(name = "standing_orders")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@SequenceGenerator(
+        name = "standing_order_generator",
+        sequenceName = "standing_order_sequence",
+        allocationSize = 50
+)
+public class StandingOrderDbo {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "standing_order_generator")
+    @Column(name = "STANDING_ORDER_ID")
+    private Long standingOrderId;
+
+    @Column(name = "SENDER_ACCOUNT", nullable = false)
+    private Long senderAccount;
+
+    @Column(name = "RECEIVER_ACCOUNT", nullable = false)
+    private Long receiverAccount;
+
+    @Column(name = "AMOUNT", nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "TO_SEND", nullable = false)
+    private boolean toSend;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "RECURRENCE", nullable = false)
+    private Recurrence recurrence;
+
+    @Column(name = "FIRST_RUN_AT", nullable = false)
+    private Instant firstRunAt;
+
+    @Column(name = "NEXT_RUN_AT")
+    private Instant nextRunAt;
+
+    @Column(name = "ENDS_AT")
+    private Instant endsAt;
+
+    @Column(name = "RUNS", nullable = false)
+    @ColumnDefault("0")
+    private int runs;
+
+    @Column(name = "LAST_TRANSFER_ID")
+    private Long lastTransferId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "STATUS", nullable = false)
+    private StandingOrderStatus status;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,57 @@
+package com.example.fund_app.model.dbo;
+
+import com.example.fund_app.model.TransferStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Entity
+@Table(name = "transfers")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@SequenceGenerator(
+        name = "transfer_generator",
+        sequenceName = "transfer_sequence",
+        allocationSize = 50
+)
+public class TransferDbo {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfer_generator")
+    @Column(name = "TRANSFER_ID")
+    private Long transferId;
+
+    @Column(name = "SENDER_ACCOUNT", nullable = false)
+    private Long senderAccount;
+
+    @Column(name = "RECEIVER_ACCOUNT", nullable = false)
+    private Long receiverAccount;
+
+    @Column(name = "AMOUNT", nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "TO_SEND", nullable = false)
+    private boolean toSend;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "STATUS", nullable = false)
+    private TransferStatus status;
+
+    @Column(name = "FAILURE")
+    private String failure;
+
+    @Column(name = "ATTEMPTS", nullable = false)
+    @ColumnDefault("0")
+    private int attempts;
+
+    @Column(name = "SUBMITTED_AT", nullable = false)
+    private Instant submittedAt;
+
+    @Column(name = "SETTLED_AT")
+    private Instant settledAt;
+}
@@ -0,0 +1,18 @@
+package com.example.fund_app.model.dto;
+
+import com.example.fund_app.model.Currency;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.Set;
+
+/**
+ *
+ * @param username username of the new owner
+ * @param currencies currencies of the accounts opened along with the owner, one account per currency
+ */
+public record OwnerOnboardingDto(
+        @NotNull @Pattern(regexp = "^\\D{3,15}") String username,
+        @NotNull Set<Currency> currencies
+) {
+}
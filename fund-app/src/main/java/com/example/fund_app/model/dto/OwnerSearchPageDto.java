@@ -0,0 +1,14 @@
+package com.example.fund_app.model.dto;
+
+import java.util.List;
+
+/**
+ *
+ * @param owners owners whose username starts with the query, ordered by username
+ * @param next value of the after parameter fetching the next page, null on the last page
+ */
+public record OwnerSearchPageDto(
+        List<OwnerViewDto> owners,
+        String next
+) {
+}
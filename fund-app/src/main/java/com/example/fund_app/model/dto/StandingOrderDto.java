@@ -0,0 +1,28 @@
+package com.example.fund_app.model.dto;
+
+import com.example.fund_app.model.Recurrence;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * @param senderAccount account ID of the sender
+ * @param receiverAccount account ID of the receiver
+ * @param amount amount to be sent at every run
+ * @param toSend flag to determine if the amount should be the received or sent one, as for a transfer
+ * @param recurrence how often the order runs after its first run
+ * @param firstRunAt when the order first runs, right away if null
+ * @param endsAt after when the order does not run anymore, never if null
+ */
+public record StandingOrderDto(
+        @NotNull Long senderAccount,
+        @NotNull Long receiverAccount,
+        @NotNull @Min(10L) BigDecimal amount,
+        boolean toSend,
+        @NotNull Recurrence recurrence,
+        Instant firstRunAt,
+        Instant endsAt
+) {
+}
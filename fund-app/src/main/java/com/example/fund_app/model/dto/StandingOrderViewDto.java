@@ -0,0 +1,28 @@
+package com.example.fund_app.model.dto;
+
+import com.example.fund_app.model.Recurrence;
+import com.example.fund_app.model.StandingOrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * @param nextRunAt when the order runs next, null once it ended or was cancelled
+ * @param runs times the order ran
+ * @param lastTransferId the transfer of the last run, its status at {@code /accounts/transfers/{id}}
+ */
+public record StandingOrderViewDto(
+        Long standingOrderId,
+        Long senderAccount,
+        Long receiverAccount,
+        BigDecimal amount,
+        boolean toSend,
+        Recurrence recurrence,
+        Instant firstRunAt,
+        Instant nextRunAt,
+        Instant endsAt,
+        int runs,
+        Long lastTransferId,
+        StandingOrderStatus status
+) {
+}
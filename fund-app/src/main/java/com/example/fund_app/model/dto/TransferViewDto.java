@@ -0,0 +1,23 @@
+package com.example.fund_app.model.dto;
+
+import com.example.fund_app.model.TransferStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * @param failure why the transfer was rejected, null otherwise
+ * @param settledAt when the transfer was settled or rejected, null while it is pending
+ */
+public record TransferViewDto(
+        Long transferId,
+        Long senderAccount,
+        Long receiverAccount,
+        BigDecimal amount,
+        boolean toSend,
+        TransferStatus status,
+        String failure,
+        Instant submittedAt,
+        Instant settledAt
+) {
+}
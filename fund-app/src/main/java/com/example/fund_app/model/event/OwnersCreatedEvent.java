@@ -0,0 +1,13 @@
+package com.example.fund_app.model.event;
+
+import java.util.Map;
+
+/**
+ * Published when owners are created, delivered to the transactional listeners once the creation is committed.
+ *
+ * @param usernames usernames of the created owners, by owner ID
+ */
+public record OwnersCreatedEvent(
+        Map<Long, String> usernames
+) {
+}
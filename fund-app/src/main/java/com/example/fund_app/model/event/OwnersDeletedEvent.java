@@ -0,0 +1,11 @@
+package com.example.fund_app.model.event;
+
+import java.util.Collection;
+
+/**
+ * Published when owners are deleted, delivered to the transactional listeners once the deletion is committed.
+ */
+public record OwnersDeletedEvent(
+        Collection<Long> ownerIds
+) {
+}
@@ -3,8 +3,12 @@ package com.example.fund_app.repository;
 import com.example.fund_app.model.dbo.AccountDbo;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -21,4 +25,43 @@ public interface AccountRepository extends JpaRepository<AccountDbo, Long> {
             }
     )
     Optional<AccountDbo> findById(Long id);
+
+    @EntityGraph(
+            type = EntityGraph.EntityGraphType.FETCH,
+            attributePaths = {
+                    "accountId",
+                    "owner",
+                    "owner.id",
+                    "currency",
+                    "balance"
+            }
+    )
+    List<AccountDbo> findAllById(Iterable<Long> ids);
+
+    long countByOwnerId(Long ownerId);
+
+    /**
+     * @return the ID of the owner of the deleted account, empty when there was no such account
+     */
+    @Query(value = "DELETE FROM accounts WHERE account_id = :accountId RETURNING owner_id", nativeQuery = true)
+    Optional<Long> deleteByIdReturningOwnerId(@Param("accountId") Long accountId);
+
+    /**
+     * @return the IDs of the deleted accounts
+     */
+    @Query(value = "DELETE FROM accounts WHERE owner_id IN (:ownerIds) RETURNING account_id", nativeQuery = true)
+    List<Long> deleteAllByOwnerIdIn(@Param("ownerIds") Collection<Long> ownerIds);
+
+    /**
+     * Deletes at most the limit of the accounts of the owner.
+     *
+     * @return the IDs of the deleted accounts, empty once the owner has none left
+     */
+    @Query(value = """
+            DELETE FROM accounts WHERE account_id IN (
+                SELECT account_id FROM accounts WHERE owner_id = :ownerId LIMIT :limit
+            )
+            RETURNING account_id
+            """, nativeQuery = true)
+    List<Long> deleteBatchByOwnerId(@Param("ownerId") Long ownerId, @Param("limit") int limit);
 }
@@ -5,9 +5,13 @@ import com.example.fund_app.model.ExchangeRate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +19,10 @@ public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Curr
     Optional<ExchangeRate> findByCurrencyAndLastUpdatedAt(Currency currency, LocalDate today);
 
     Page<ExchangeRate> findAllByLastUpdatedAtBefore(LocalDate today, PageRequest pageable);
+
+    Page<ExchangeRate> findAllByCurrencyInAndLastUpdatedAtBefore(Collection<Currency> currencies, LocalDate today,
+                                                                 PageRequest pageable);
+
+    @Query("SELECT x.currency FROM ExchangeRate x WHERE x.lastUpdatedAt < :today ORDER BY x.currency")
+    List<Currency> findCurrenciesByLastUpdatedAtBefore(@Param("today") LocalDate today);
 }
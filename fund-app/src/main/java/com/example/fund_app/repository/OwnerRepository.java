@@ -1,17 +1,43 @@
 package com.example.fund_app.repository;
 
 import com.example.fund_app.model.dbo.OwnerDbo;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface OwnerRepository extends JpaRepository<OwnerDbo, Long> {
+public interface OwnerRepository extends JpaRepository<OwnerDbo, Long>, OwnerRepositoryCustom {
 
     boolean existsByUsername(String username);
 
+    @Query("select o.username from OwnerDbo o where o.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    List<OwnerDbo> findByUsernameStartingWithAndUsernameGreaterThanOrderByUsername(String prefix, String after,
+                                                                                  Limit limit);
+
+    /**
+     * Locks the owners in ID order, so that concurrent deletions cannot deadlock and the accounts being opened for
+     * them meanwhile are committed, and deleted, before the owners.
+     *
+     * @return the IDs of the owners that exist
+     */
+    @Query(value = "SELECT id FROM owners WHERE id IN (:ownerIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllById(@Param("ownerIds") Collection<Long> ownerIds);
+
+    @Modifying
+    @Query("delete from OwnerDbo o where o.id in :ownerIds")
+    int deleteAllByIdIn(@Param("ownerIds") Collection<Long> ownerIds);
+
     @EntityGraph(
             type = EntityGraph.EntityGraphType.FETCH,
             attributePaths = {
@@ -22,4 +48,15 @@ public interface OwnerRepository extends JpaRepository<OwnerDbo, Long> {
             }
     )
     Page<OwnerDbo> findAll(Pageable pageable);
+
+    @EntityGraph(
+            type = EntityGraph.EntityGraphType.FETCH,
+            attributePaths = {
+                    "id",
+                    "username",
+                    "accounts",
+                    "accounts.accountId"
+            }
+    )
+    List<OwnerDbo> findAllById(Iterable<Long> ids);
 }
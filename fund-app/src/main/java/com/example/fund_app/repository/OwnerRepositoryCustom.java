@@ -0,0 +1,18 @@
+package com.example.fund_app.repository;
+
+import java.util.Optional;
+
+public interface OwnerRepositoryCustom {
+
+    /**
+     * Unique index on the owner names.
+     */
+    String NAME_INDEX = "owners_name_unique";
+
+    /**
+     * Inserts an owner without account, unless the username is taken, in a single statement.
+     *
+     * @return the ID of the new owner, empty if the username is taken
+     */
+    Optional<Long> insertIfAbsent(String username);
+}
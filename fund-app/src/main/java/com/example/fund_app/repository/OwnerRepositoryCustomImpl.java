@@ -0,0 +1,63 @@
+package com.example.fund_app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The unique index on the owner names arbitrates concurrent signups: the insert either creates the owner or does
+ * nothing, there is no window between a check and the insert.
+ * <p>
+ * IDs are taken from the owner sequence by blocks, the way the pooled-lo optimizer of Hibernate does, so a signup
+ * costs one round trip and a nextval every {@link #ID_BLOCK_SIZE} signups.
+ */
+public class OwnerRepositoryCustomImpl implements OwnerRepositoryCustom {
+
+    /**
+     * Increment of the owner sequence, the allocation size of {@link com.example.fund_app.model.dbo.OwnerDbo}.
+     */
+    static final int ID_BLOCK_SIZE = 50;
+
+    private static final String INSERT_IF_ABSENT = """
+            INSERT INTO owners (id, name, owner_lock_version)
+            VALUES (:id, :username, 0)
+            ON CONFLICT (name) DO NOTHING
+            RETURNING id
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Lock idLock = new ReentrantLock();
+    private long nextId;
+    private long blockEnd;
+
+    @Override
+    @Transactional
+    public Optional<Long> insertIfAbsent(String username) {
+        List<?> ids = entityManager.createNativeQuery(INSERT_IF_ABSENT, Long.class)
+                .setParameter("id", nextId())
+                .setParameter("username", username)
+                .getResultList();
+        return ids.stream().map(Long.class::cast).findFirst();
+    }
+
+    private long nextId() {
+        idLock.lock();
+        try {
+            if (nextId == blockEnd) {
+                nextId = ((Number) entityManager.createNativeQuery("SELECT nextval('owner_sequence')")
+                        .getSingleResult()).longValue();
+                blockEnd = nextId + ID_BLOCK_SIZE;
+            }
+            return nextId++;
+        } finally {
+            idLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.fund_app.repository;
+
+import com.example.fund_app.model.dbo.StandingOrderDbo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface StandingOrderRepository extends JpaRepository<StandingOrderDbo, Long> {
+
+    /**
+     * Locks the due orders for the rest of the transaction, passing over those another transaction already locked:
+     * nodes claiming at the same time each get their own orders, and none waits for the others.
+     *
+     * @return the active orders due at the given instant, those due first first
+     */
+    @Query(value = """
+            SELECT * FROM standing_orders
+            WHERE status = 'ACTIVE' AND next_run_at <= :now
+            ORDER BY next_run_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<StandingOrderDbo> claimDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Waits for a run of the order in progress, so the cancellation never overwrites it.
+     *
+     * @return 1 if the order was active, 0 otherwise
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE standing_orders SET status = 'CANCELLED', next_run_at = NULL
+            WHERE standing_order_id = :standingOrderId AND status = 'ACTIVE'
+            """, nativeQuery = true)
+    int cancel(@Param("standingOrderId") Long standingOrderId);
+}
@@ -0,0 +1,56 @@
+package com.example.fund_app.repository;
+
+import com.example.fund_app.model.dbo.TransferDbo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TransferRepository extends JpaRepository<TransferDbo, Long> {
+
+    /**
+     * The transfers of an account always fall in the same partition, the remainder of the sender account by the
+     * number of partitions.
+     *
+     * @return the partitions holding pending transfers
+     */
+    @Query(value = """
+            SELECT DISTINCT CAST(mod(sender_account, :partitions) AS integer) FROM transfers
+            WHERE status = 'PENDING'
+            """, nativeQuery = true)
+    List<Integer> findPendingPartitions(@Param("partitions") int partitions);
+
+    /**
+     * Takes the partition for the rest of the transaction, unless another node holds it.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('transfer-settlement'), :partition)",
+            nativeQuery = true)
+    boolean tryLockPartition(@Param("partition") int partition);
+
+    /**
+     * IDs are allocated by blocks of 50 on each node, so they do not follow the submissions across nodes: the
+     * submission time does, the ID only breaks the ties.
+     */
+    @Query(value = """
+            SELECT * FROM transfers
+            WHERE status = 'PENDING' AND mod(sender_account, :partitions) = :partition
+            ORDER BY submitted_at, transfer_id
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<TransferDbo> findNextPending(@Param("partitions") int partitions, @Param("partition") int partition);
+
+    /**
+     * @return the oldest pending transfers, all partitions together
+     */
+    @Query(value = """
+            SELECT * FROM transfers
+            WHERE status = 'PENDING'
+            ORDER BY submitted_at, transfer_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TransferDbo> findPending(@Param("limit") int limit);
+}
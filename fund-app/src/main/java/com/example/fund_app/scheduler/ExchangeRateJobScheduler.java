@@ -1,52 +1,180 @@
 package com.example.fund_app.scheduler;
 
+import com.example.fund_app.batch.ExchangeRateBatchConfiguration;
+import com.example.fund_app.concurrent.TaskScope;
+import com.example.fund_app.config.ExchangeRateJobProperties;
 import com.example.fund_app.exception.ScheduledJobRunningException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.*;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobExecutionNotRunningException;
 import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.launch.NoSuchJobExecutionException;
 import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
 import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs the exchange rate job on a single node of the cluster: the node taking the {@link SchedulerLease} on the job
+ * runs it, the others pass. The job is run once a day, a second run of the day only restarting a run that did not
+ * complete.
+ * <p>
+ * A run whose node died is left running in the job repository: the node taking the lease over marks it failed, then
+ * restarts it from the state it saved.
+ */
 @Component
 @Slf4j
 public class ExchangeRateJobScheduler {
 
     private final Job job;
     private final JobLauncher jobLauncher;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final JobOperator jobOperator;
+    private final SchedulerLease lease;
 
-    public ExchangeRateJobScheduler(Job job, JobLauncher jobLauncher) {
+    @Autowired
+    public ExchangeRateJobScheduler(Job job, JobLauncher jobLauncher, JobExplorer jobExplorer,
+                                    JobRepository jobRepository, JobOperator jobOperator, JdbcTemplate jdbcTemplate,
+                                    ExchangeRateJobProperties properties) {
+        this(job, jobLauncher, jobExplorer, jobRepository, jobOperator,
+                new SchedulerLease(jdbcTemplate, ExchangeRateBatchConfiguration.JOB_NAME, properties.leaseTtl()));
+    }
+
+    ExchangeRateJobScheduler(Job job, JobLauncher jobLauncher, JobExplorer jobExplorer, JobRepository jobRepository,
+                             JobOperator jobOperator, SchedulerLease lease) {
         this.job = job;
         this.jobLauncher = jobLauncher;
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.jobOperator = jobOperator;
+        this.lease = lease;
     }
 
     @Scheduled(cron = "${spring.batch.cron.expression.xrate}")
     public void runExchangeRateBatch() {
-        try {
-            log.info("[SCHEDULER] Starting job to update exchanges rates");
-            JobExecution jobExecution = jobLauncher.run(job, buildParameters());
-
-            if (ExitStatus.COMPLETED.equals(jobExecution.getExitStatus())) {
-                log.info("[SCHEDULER] Exchanges rates updated");
-            } else {
-                log.info("[SCHEDULER] Exchange rates not updated properly, job status: {}", jobExecution.getExitStatus());
+        if (!lease.tryAcquire()) {
+            log.info("[SCHEDULER] Exchange rates updated by another node");
+            return;
+        }
+        CountDownLatch jobEnded = new CountDownLatch(1);
+        try (TaskScope scope = new TaskScope()) {
+            scope.fork(() -> keepLease(jobEnded));
+            try {
+                JobParameters parameters = buildParameters();
+                abandonStaleExecutions(parameters);
+
+                log.info("[SCHEDULER] Starting job to update exchanges rates");
+                JobExecution jobExecution = jobLauncher.run(job, parameters);
+
+                if (ExitStatus.COMPLETED.equals(jobExecution.getExitStatus())) {
+                    log.info("[SCHEDULER] Exchanges rates updated");
+                } else {
+                    log.info("[SCHEDULER] Exchange rates not updated properly, job status: {}",
+                            jobExecution.getExitStatus());
+                }
+            } finally {
+                jobEnded.countDown();
             }
 
-        } catch (JobExecutionAlreadyRunningException | JobRestartException | JobInstanceAlreadyCompleteException |
-                 JobParametersInvalidException e) {
+        } catch (JobInstanceAlreadyCompleteException e) {
+            log.info("[SCHEDULER] Exchange rates already updated today");
+        } catch (JobExecutionAlreadyRunningException | JobRestartException | JobParametersInvalidException e) {
             log.error("[SCHEDULER] Error during the batch job: {}", e.getMessage());
             throw new ScheduledJobRunningException(e.getMessage());
+        } finally {
+            lease.release();
+        }
+
+    }
+
+    /**
+     * Renews the lease until the job ends. Once the lease is lost to another node, the job is stopped at its next
+     * commit, for the run of that node to go on from it.
+     */
+    private Void keepLease(CountDownLatch jobEnded) throws InterruptedException {
+        while (!jobEnded.await(lease.ttl().dividedBy(3).toMillis(), TimeUnit.MILLISECONDS)) {
+            boolean held;
+            try {
+                held = lease.renew();
+            } catch (RuntimeException e) {
+                log.warn("[SCHEDULER] Lease on the exchange rate job not renewed: {}", e.getMessage());
+                continue;
+            }
+            if (!held) {
+                log.warn("[SCHEDULER] Lease on the exchange rate job lost to another node, stopping the job");
+                stopOwnExecutions();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void stopOwnExecutions() {
+        for (JobExecution execution : jobExplorer.findRunningJobExecutions(job.getName())) {
+            if (lease.holder().equals(
+                    execution.getJobParameters().getString(ExchangeRateBatchConfiguration.NODE_PARAMETER))) {
+                try {
+                    jobOperator.stop(execution.getId());
+                } catch (NoSuchJobExecutionException | JobExecutionNotRunningException e) {
+                    log.info("[SCHEDULER] Job execution {} already ended", execution.getId());
+                }
+            }
         }
+    }
 
+    /**
+     * Any execution of the day still running belongs to a node that lost the lease, most likely with its life. It is
+     * marked failed, with its steps, for the run to restart it: the completed steps and partitions are skipped, the
+     * others resume from their last commit. A partition the node was still running fails at its next commit, its
+     * current chunk being fetched again by the restart.
+     */
+    void abandonStaleExecutions(JobParameters parameters) {
+        JobInstance instance = jobExplorer.getJobInstance(job.getName(), parameters);
+        if (instance == null) {
+            return;
+        }
+        for (JobExecution execution : jobExplorer.getJobExecutions(instance)) {
+            if (!execution.isRunning()) {
+                continue;
+            }
+            log.warn("[SCHEDULER] Job execution {} of node {} left running, restarting it from its last commit",
+                    execution.getId(), execution.getJobParameters().getString(ExchangeRateBatchConfiguration.NODE_PARAMETER));
+            LocalDateTime now = LocalDateTime.now();
+            ExitStatus abandoned = ExitStatus.FAILED.addExitDescription("Node lost its lease on the job");
+            for (StepExecution stepExecution : execution.getStepExecutions()) {
+                if (stepExecution.getStatus().isRunning()) {
+                    stepExecution.setStatus(BatchStatus.FAILED);
+                    stepExecution.setExitStatus(abandoned);
+                    stepExecution.setEndTime(now);
+                    jobRepository.update(stepExecution);
+                }
+            }
+            execution.setStatus(BatchStatus.FAILED);
+            execution.setExitStatus(abandoned);
+            execution.setEndTime(now);
+            jobRepository.update(execution);
+        }
     }
 
+    /**
+     * The date identifies the instance of the job, the node only tells which node ran an execution of it.
+     */
     private JobParameters buildParameters() {
         return new JobParametersBuilder()
-                .addLocalDateTime("timestamp", LocalDateTime.now())
+                .addLocalDate(ExchangeRateBatchConfiguration.DATE_PARAMETER, LocalDate.now())
+                .addString(ExchangeRateBatchConfiguration.NODE_PARAMETER, lease.holder(), false)
                 .toJobParameters();
     }
 
@@ -0,0 +1,90 @@
+package com.example.fund_app.scheduler;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * A lease on a scheduled job, held in Postgres by a single node of the cluster at a time. The holder renews it while
+ * the job runs and releases it at the end; the lease of a node that died, or stopped renewing it, is taken over by the
+ * next node asking for it once expired.
+ * <p>
+ * Expiries are computed by the clock of the database, so the clocks of the nodes do not have to agree.
+ */
+public class SchedulerLease {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String name;
+    private final String holder;
+    private final Duration ttl;
+
+    public SchedulerLease(JdbcTemplate jdbcTemplate, String name, Duration ttl) {
+        this(jdbcTemplate, name, nodeId(), ttl);
+    }
+
+    public SchedulerLease(JdbcTemplate jdbcTemplate, String name, String holder, Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.name = name;
+        this.holder = holder;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Takes the lease if free, expired or already held by this node.
+     *
+     * @return whether this node holds the lease
+     */
+    public boolean tryAcquire() {
+        return !jdbcTemplate.queryForList("""
+                INSERT INTO scheduler_leases (name, holder, acquired_at, expires_at)
+                VALUES (?, ?, now(), now() + ? * interval '1 millisecond')
+                ON CONFLICT (name) DO UPDATE
+                SET holder = EXCLUDED.holder, acquired_at = EXCLUDED.acquired_at, expires_at = EXCLUDED.expires_at
+                WHERE scheduler_leases.expires_at < now() OR scheduler_leases.holder = EXCLUDED.holder
+                RETURNING holder
+                """, String.class, name, holder, ttl.toMillis()).isEmpty();
+    }
+
+    /**
+     * Pushes the expiry of the lease back by its time to live.
+     *
+     * @return whether this node still held the lease, false once another node took it over
+     */
+    public boolean renew() {
+        return jdbcTemplate.update("""
+                UPDATE scheduler_leases SET expires_at = now() + ? * interval '1 millisecond'
+                WHERE name = ? AND holder = ?
+                """, ttl.toMillis(), name, holder) == 1;
+    }
+
+    /**
+     * Frees the lease for the other nodes, unless another node already took it over.
+     */
+    public void release() {
+        jdbcTemplate.update("DELETE FROM scheduler_leases WHERE name = ? AND holder = ?", name, holder);
+    }
+
+    public String holder() {
+        return holder;
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    /**
+     * The host name tells the nodes apart in the lease table, the suffix tells apart the processes of a host.
+     */
+    private static String nodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
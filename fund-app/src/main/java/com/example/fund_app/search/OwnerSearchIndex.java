@@ -0,0 +1,369 @@
+package com.example.fund_app.search;
+
+import com.example.fund_app.config.OwnerSearchProperties;
+import com.example.fund_app.model.event.OwnersCreatedEvent;
+import com.example.fund_app.model.event.OwnersDeletedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory index of the usernames for prefix searches, ordered as their UTF-8 bytes.
+ * <p>
+ * The names live in an immutable sorted snapshot packed in a single byte array (about 25 bytes per owner), which is
+ * binary searched. Owners created or deleted since the snapshot are kept aside, in a skip list of names and a set of
+ * deleted IDs, and merged with it by every search. Once they outgrow a limit they are compacted into a new snapshot
+ * in the background, searches never wait for it.
+ * <p>
+ * The index is loaded before the node reports ready, then fed by the owner events once their transaction committed.
+ * It is reloaded periodically to pick up the owners created and deleted by the other nodes.
+ */
+@Slf4j
+public class OwnerSearchIndex implements ApplicationRunner {
+
+    private static final String OWNERS_QUERY = "SELECT id, name FROM owners ORDER BY name COLLATE \"C\"";
+    private static final int FETCH_SIZE = 10_000;
+
+    private final OwnerSearchProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate loadTransaction;
+    private final Timer searches;
+
+    private final ConcurrentSkipListMap<byte[], Long> created = new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+    private volatile long loadedAt;
+
+    public OwnerSearchIndex(OwnerSearchProperties properties, DataSource dataSource,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this(properties, cursorJdbcTemplate(dataSource), readOnly(new TransactionTemplate(transactionManager)),
+                meterRegistry);
+    }
+
+    OwnerSearchIndex(OwnerSearchProperties properties, JdbcTemplate jdbcTemplate, TransactionTemplate loadTransaction,
+                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.loadTransaction = loadTransaction;
+        this.searches = Timer.builder("owner.search.duration")
+                .description("Time to find the usernames of a page in the index")
+                .register(meterRegistry);
+        Gauge.builder("owner.search.index.entries", this, index -> index.snapshot == null ? 0 : index.snapshot.size())
+                .register(meterRegistry);
+        Gauge.builder("owner.search.index.pending", this, index -> index.created.size() + index.deleted.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * The Postgres driver only uses a cursor for a forward-only result set with a fetch size, inside a transaction.
+     */
+    private static JdbcTemplate cursorJdbcTemplate(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE);
+        return jdbcTemplate;
+    }
+
+    private static TransactionTemplate readOnly(TransactionTemplate transactionTemplate) {
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.enabled()) {
+            rebuild(this::load);
+        }
+    }
+
+    /**
+     * Whether searches can be answered by the index, they have to go to the DB otherwise.
+     */
+    public boolean isLoaded() {
+        return properties.enabled() && snapshot != null;
+    }
+
+    /**
+     * @param after username of the last owner of the previous page, null for the first page
+     * @return owners whose username starts with the prefix and comes after the given one, in username order
+     */
+    public List<Hit> search(String prefix, String after, int limit) {
+        long start = System.nanoTime();
+        Snapshot current = snapshot;
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        byte[] from = prefixBytes;
+        boolean exclusive = false;
+        if (after != null) {
+            byte[] afterBytes = after.getBytes(StandardCharsets.UTF_8);
+            if (Arrays.compareUnsigned(afterBytes, prefixBytes) >= 0) {
+                from = afterBytes;
+                exclusive = true;
+            }
+        }
+
+        int position = current.lowerBound(from);
+        if (exclusive && position < current.size() && current.compare(position, from) == 0) {
+            position++;
+        }
+        Iterator<Map.Entry<byte[], Long>> pending = created.tailMap(from, !exclusive).entrySet().iterator();
+        Map.Entry<byte[], Long> next = nextMatching(pending, prefixBytes);
+
+        // Both sides are sorted, they are merged like in a merge sort. A name on both sides was deleted and signed up
+        // again, or was created while the snapshot loaded: the pending ID is never older, it wins.
+        List<Hit> hits = new ArrayList<>(limit);
+        while (hits.size() < limit) {
+            boolean inSnapshot = position < current.size() && current.startsWith(position, prefixBytes);
+            if (!inSnapshot && next == null) {
+                break;
+            }
+            int order = !inSnapshot ? 1 : next == null ? -1 : current.compare(position, next.getKey());
+            if (order < 0) {
+                collect(hits, current.name(position), current.ids[position]);
+                position++;
+            } else if (order > 0) {
+                collect(hits, next.getKey(), next.getValue());
+                next = nextMatching(pending, prefixBytes);
+            } else {
+                collect(hits, next.getKey(), next.getValue());
+                position++;
+                next = nextMatching(pending, prefixBytes);
+            }
+        }
+        searches.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return hits;
+    }
+
+    private void collect(List<Hit> hits, byte[] username, long ownerId) {
+        if (!deleted.contains(ownerId)) {
+            hits.add(new Hit(new String(username, StandardCharsets.UTF_8), ownerId));
+        }
+    }
+
+    private static Map.Entry<byte[], Long> nextMatching(Iterator<Map.Entry<byte[], Long>> pending, byte[] prefix) {
+        if (!pending.hasNext()) {
+            return null;
+        }
+        Map.Entry<byte[], Long> entry = pending.next();
+        return startsWith(entry.getKey(), prefix) ? entry : null;
+    }
+
+    private static boolean startsWith(byte[] name, byte[] prefix) {
+        return name.length >= prefix.length && Arrays.equals(name, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void ownersCreated(OwnersCreatedEvent event) {
+        if (properties.enabled()) {
+            event.usernames().forEach((ownerId, username) ->
+                    created.put(username.getBytes(StandardCharsets.UTF_8), ownerId));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void ownersDeleted(OwnersDeletedEvent event) {
+        if (properties.enabled()) {
+            deleted.addAll(event.ownerIds());
+        }
+    }
+
+    /**
+     * Compacts the pending changes into a new snapshot once they outgrow the limit, reloads the index from the DB once
+     * it got too old or if it never loaded.
+     */
+    @Scheduled(fixedDelayString = "${owner-search.check-interval:10s}",
+            initialDelayString = "${owner-search.check-interval:10s}")
+    public void maintain() {
+        if (!properties.enabled()) {
+            return;
+        }
+        if (snapshot == null || System.nanoTime() - loadedAt > properties.maxAge().toNanos()) {
+            rebuild(this::load);
+        } else if (created.size() + deleted.size() > properties.maxPending()) {
+            rebuild(this::compact);
+        }
+    }
+
+    /**
+     * Only one rebuild runs at a time, and a failed one keeps the current snapshot.
+     */
+    private void rebuild(Runnable rebuild) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuild.run();
+        } catch (RuntimeException e) {
+            log.warn("[SEARCH] Could not rebuild the owner search index: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Streams every owner ordered by the bytes of its name ("C" collation) into a new snapshot. The changes seen
+     * before the query are committed, so part of it. Changes seen meanwhile stay pending, the searches and the next
+     * compaction reconcile them with the snapshot.
+     */
+    void load() {
+        long start = System.nanoTime();
+        List<Map.Entry<byte[], Long>> createdBefore = List.copyOf(created.entrySet());
+        Set<Long> deletedBefore = Set.copyOf(deleted);
+        SnapshotBuilder builder = new SnapshotBuilder();
+        loadTransaction.executeWithoutResult(status -> jdbcTemplate.query(OWNERS_QUERY,
+                (RowCallbackHandler) resultSet -> builder.add(
+                        resultSet.getString(2).getBytes(StandardCharsets.UTF_8), resultSet.getLong(1))));
+
+        Snapshot loaded = builder.build();
+        snapshot = loaded;
+        loadedAt = System.nanoTime();
+        createdBefore.forEach(entry -> created.remove(entry.getKey(), entry.getValue()));
+        deleted.removeAll(deletedBefore);
+        log.info("[SEARCH] {} usernames indexed in {} ms, {} KiB", loaded.size(), (loadedAt - start) / 1_000_000,
+                loaded.memoryBytes() / 1024);
+    }
+
+    /**
+     * Merges the pending changes seen so far with the snapshot. Changes coming in meanwhile stay pending.
+     */
+    void compact() {
+        long start = System.nanoTime();
+        Snapshot current = snapshot;
+        List<Map.Entry<byte[], Long>> createdSoFar = List.copyOf(created.entrySet());
+        Set<Long> deletedSoFar = Set.copyOf(deleted);
+
+        SnapshotBuilder builder = new SnapshotBuilder();
+        int position = 0;
+        for (Map.Entry<byte[], Long> entry : createdSoFar) {
+            while (position < current.size() && current.compare(position, entry.getKey()) < 0) {
+                addLive(builder, current.name(position), current.ids[position], deletedSoFar);
+                position++;
+            }
+            if (position < current.size() && current.compare(position, entry.getKey()) == 0) {
+                // Same rule as the searches: the pending ID is never older, it replaces the one of the snapshot
+                position++;
+            }
+            addLive(builder, entry.getKey(), entry.getValue(), deletedSoFar);
+        }
+        for (; position < current.size(); position++) {
+            addLive(builder, current.name(position), current.ids[position], deletedSoFar);
+        }
+
+        snapshot = builder.build();
+        createdSoFar.forEach(entry -> created.remove(entry.getKey(), entry.getValue()));
+        deleted.removeAll(deletedSoFar);
+        log.info("[SEARCH] {} created and {} deleted owners compacted in {} ms", createdSoFar.size(),
+                deletedSoFar.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void addLive(SnapshotBuilder builder, byte[] name, long ownerId, Set<Long> deleted) {
+        if (!deleted.contains(ownerId)) {
+            builder.add(name, ownerId);
+        }
+    }
+
+    public record Hit(String username, Long ownerId) {
+    }
+
+    /**
+     * The names end to end in one array, the i-th spanning offsets[i] to offsets[i + 1].
+     */
+    private record Snapshot(byte[] names, int[] offsets, long[] ids) {
+
+        int size() {
+            return ids.length;
+        }
+
+        int compare(int position, byte[] name) {
+            return Arrays.compareUnsigned(names, offsets[position], offsets[position + 1], name, 0, name.length);
+        }
+
+        boolean startsWith(int position, byte[] prefix) {
+            int start = offsets[position];
+            return offsets[position + 1] - start >= prefix.length
+                    && Arrays.equals(names, start, start + prefix.length, prefix, 0, prefix.length);
+        }
+
+        byte[] name(int position) {
+            return Arrays.copyOfRange(names, offsets[position], offsets[position + 1]);
+        }
+
+        /**
+         * @return position of the first name not before the given one
+         */
+        int lowerBound(byte[] name) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(middle, name) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        long memoryBytes() {
+            return names.length + offsets.length * (long) Integer.BYTES + ids.length * (long) Long.BYTES;
+        }
+    }
+
+    private static class SnapshotBuilder {
+
+        private byte[] names = new byte[1024];
+        private int[] offsets = new int[129];
+        private long[] ids = new long[128];
+        private int size;
+        private byte[] last;
+
+        /**
+         * Names have to come in strictly increasing order.
+         */
+        void add(byte[] name, long ownerId) {
+            if (last != null && Arrays.compareUnsigned(last, name) >= 0) {
+                throw new IllegalStateException("Usernames are not sorted by their bytes at " + new String(name,
+                        StandardCharsets.UTF_8));
+            }
+            last = name;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+            int start = offsets[size];
+            if (start + name.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, start + name.length));
+            }
+            System.arraycopy(name, 0, names, start, name.length);
+            ids[size] = ownerId;
+            offsets[++size] = start + name.length;
+        }
+
+        Snapshot build() {
+            return new Snapshot(Arrays.copyOf(names, offsets[size]), Arrays.copyOf(offsets, size + 1),
+                    Arrays.copyOf(ids, size));
+        }
+    }
+}
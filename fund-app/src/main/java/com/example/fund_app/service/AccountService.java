@@ -1,19 +1,27 @@
 package com.example.fund_app.service;
 
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeyTracker;
 import com.example.fund_app.exception.AccountActionInvalidException;
 import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.exception.ExchangeRateNotRetrievableException;
 import com.example.fund_app.mapper.AccountMapper;
 import com.example.fund_app.model.Account;
+import com.example.fund_app.model.dbo.AccountDbo;
 import com.example.fund_app.repository.AccountRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 
@@ -27,35 +35,69 @@ public class AccountService {
     private final AccountMapper accountMapper;
     private final ExchangeRateService exchangeRateService;
     private final TransactionAuditService transactionService;
+    private final AccountCacheStore accountCacheStore;
+    private final HotKeyTracker hotKeyTracker;
 
     public AccountService(AccountRepository accountRepository, AccountMapper accountMapper,
                           ExchangeRateService exchangeRateService,
-                          TransactionAuditService transactionService) {
+                          TransactionAuditService transactionService,
+                          AccountCacheStore accountCacheStore,
+                          HotKeyTracker hotKeyTracker) {
         this.accountRepository = accountRepository;
         this.accountMapper = accountMapper;
         this.exchangeRateService = exchangeRateService;
         this.transactionService = transactionService;
+        this.accountCacheStore = accountCacheStore;
+        this.hotKeyTracker = hotKeyTracker;
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "accountsCache", key = "#accountId")
     public Account findById(Long accountId) {
+        hotKeyTracker.record(AccountCacheStore.ACCOUNTS_CACHE, accountId);
+        return accountCacheStore.getAccount(accountId, () -> loadAccount(accountId));
+    }
+
+    /**
+     * Finds the accounts in bulk: cached ones in one round trip, the others in one query.
+     *
+     * @return the accounts found, keyed by ID in the order of the given IDs
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Account> findAllById(Collection<Long> accountIds) {
+        accountIds.forEach(accountId -> hotKeyTracker.record(AccountCacheStore.ACCOUNTS_CACHE, accountId));
+        return accountCacheStore.getAccounts(accountIds, this::loadAccounts);
+    }
+
+    private Map<Long, Account> loadAccounts(Set<Long> accountIds) {
+        return accountRepository.findAllById(accountIds).stream()
+                .map(accountMapper::toModel)
+                .collect(Collectors.toMap(Account::getAccountId, Function.identity()));
+    }
+
+    /**
+     * Mutations always start from the DB state: the entity lands in the persistence context,
+     * so the following save does not query it again.
+     */
+    private Account loadAccount(Long accountId) {
         return accountMapper.toModel(
                 accountRepository.findById(accountId)
                         .orElseThrow(() -> new DbRecordNotFoundException("Could not find account with ID: " + accountId)));
     }
 
 
-    @CacheEvict(value = "accountsCache", key = "#accountId")
+    /**
+     * Deletes the account without loading it, then evicts it along with its owner, whose cached entry lists it.
+     */
     public void deleteAccount(Long accountId) {
-        accountRepository.deleteById(accountId);
+        Optional<Long> ownerId = accountRepository.deleteByIdReturningOwnerId(accountId);
+        accountCacheStore.evictAccount(accountId);
+        ownerId.ifPresent(accountCacheStore::evictOwner);
         log.warn("Account {} successfully deleted", accountId);
     }
 
-    @CacheEvict(value = "accountsCache", key = "#accountId")
     public String deposit(Long accountId, BigDecimal amount) {
         log.info("Starting a new deposit on account: {}", accountId);
-        Account account = findById(accountId);
+        Account account = loadAccount(accountId);
         return deposit(account, amount, true);
     }
 
@@ -63,7 +105,7 @@ public class AccountService {
         BigDecimal newBalance = account.getBalance().add(amount);
 
         account.setBalance(newBalance);
-        accountRepository.save(accountMapper.toDbo(account));
+        save(account);
 
         if (logTransaction) {
             transactionService.logDeposit(account, amount);
@@ -73,10 +115,9 @@ public class AccountService {
                 account.getCurrency().name(), amount, account.getAccountId(), account.getCurrency().name(), newBalance);
     }
 
-    @CacheEvict(value = "accountsCache", key = "#accountId")
     public String withdraw(Long accountId, BigDecimal amount) {
         log.info("Starting a new withdrawal on account: {}", accountId);
-        Account account = findById(accountId);
+        Account account = loadAccount(accountId);
         return withdraw(account, amount, true);
     }
 
@@ -88,7 +129,7 @@ public class AccountService {
         }
 
         account.setBalance(newBalance);
-        accountRepository.save(accountMapper.toDbo(account));
+        save(account);
 
         if (logTransaction) {
             transactionService.logWithdrawal(account, amount);
@@ -98,26 +139,20 @@ public class AccountService {
                 account.getCurrency().name(), amount, account.getAccountId(), account.getCurrency().name(), newBalance);
     }
 
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "accountsCache", key = "#senderId"),
-                    @CacheEvict(value = "accountsCache", key = "#receiverId")
-            }
-    )
     public String transferTo(Long senderId, Long receiverId, BigDecimal amount) {
         log.info("Starting a new transfer between {} and {}", senderId, receiverId);
         if (senderId.equals(receiverId)) {
             throw new AccountActionInvalidException("Transfer cannot be performed within the same account");
         }
 
-        Account senderAccount = findById(senderId);
+        Map<Long, Account> accounts = loadTransferAccounts(senderId, receiverId);
+        Account senderAccount = accounts.get(senderId);
+        Account receiverAccount = accounts.get(receiverId);
 
         if (amount.compareTo(senderAccount.getBalance()) > 0) {
             throw new AccountActionInvalidException("The account does not have sufficient funds for this operation");
         }
 
-        Account receiverAccount = findById(receiverId);
-
         if (receiverAccount.getCurrency().equals(senderAccount.getCurrency())) {
             computeWithinCurrency(senderAccount, receiverAccount, amount);
         } else {
@@ -127,40 +162,68 @@ public class AccountService {
         return format("Transfer between accounts %s and %s successful", senderId, receiverId);
     }
 
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "accountsCache", key = "#senderId"),
-                    @CacheEvict(value = "accountsCache", key = "#receiverId")
-            }
-    )
-
     public String transferFrom(Long senderId, Long receiverId, BigDecimal amount) {
         log.info("Starting a new transfer between {} and {}", senderId, receiverId);
         if (senderId.equals(receiverId)) {
             throw new AccountActionInvalidException("Transfer cannot be performed within the same account");
         }
 
-        Account senderAccount = findById(senderId);
-        Account receiverAccount = findById(receiverId);
+        Map<Long, Account> accounts = loadTransferAccounts(senderId, receiverId);
+        Account senderAccount = accounts.get(senderId);
+        Account receiverAccount = accounts.get(receiverId);
 
         BigDecimal amountToWithdraw;
 
         if (senderAccount.getCurrency().equals(receiverAccount.getCurrency())) {
             amountToWithdraw = amount;
             withdraw(senderAccount, amountToWithdraw, false);
+            this.deposit(receiverAccount, amount, false);
         } else {
-            BigDecimal rate = exchangeRateService.getRate(senderAccount.getCurrency(), receiverAccount.getCurrency());
+            BigDecimal rate = rateBetween(senderAccount, receiverAccount);
             amountToWithdraw = amount.divide(rate, 2, RoundingMode.HALF_EVEN);
 
             withdraw(senderAccount, amountToWithdraw, false);
+            this.deposit(receiverAccount, amount, false);
         }
 
-        this.deposit(receiverAccount, amount, false);
         transactionService.logTransfer(senderAccount, receiverAccount, amountToWithdraw, amount);
 
         return format("Transfer between accounts %s and %s successful", senderId, receiverId);
     }
 
+    /**
+     * Both accounts of a transfer in one query, like {@link #loadAccount(Long)} they start from the DB state.
+     */
+    private Map<Long, Account> loadTransferAccounts(Long senderId, Long receiverId) {
+        Map<Long, Account> accounts = loadAccounts(Set.of(senderId, receiverId));
+        for (Long accountId : List.of(senderId, receiverId)) {
+            if (!accounts.containsKey(accountId)) {
+                throw new DbRecordNotFoundException("Could not find account with ID: " + accountId);
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * The rate is read, or refreshed, in the transaction of the transfer, on the same connection.
+     *
+     * @return the rate from the sender currency to the receiver one
+     */
+    private BigDecimal rateBetween(Account senderAccount, Account receiverAccount) {
+        BigDecimal rate = exchangeRateService.getRate(senderAccount.getCurrency(), receiverAccount.getCurrency());
+        if (rate == null) {
+            throw new ExchangeRateNotRetrievableException("Could not retrieve the exchange rate from "
+                    + senderAccount.getCurrency() + " to " + receiverAccount.getCurrency());
+        }
+        return rate;
+    }
+
+    private void save(Account account) {
+        hotKeyTracker.record(AccountCacheStore.ACCOUNTS_CACHE, account.getAccountId());
+        AccountDbo saved = accountRepository.save(accountMapper.toDbo(account));
+        accountCacheStore.putAccount(saved);
+    }
+
     private void computeWithinCurrency(Account senderAccount, Account receiverAccount, BigDecimal amount) {
         withdraw(senderAccount, amount, false);
         deposit(receiverAccount, amount, false);
@@ -168,9 +231,7 @@ public class AccountService {
     }
 
     private void computeOnDifferentCurrenciesToSend(Account senderAccount, Account receiverAccount, BigDecimal amount) {
-        BigDecimal rate = exchangeRateService.getRate(senderAccount.getCurrency(), receiverAccount.getCurrency());
-
-        BigDecimal amountToDeposit = amount.multiply(rate);
+        BigDecimal amountToDeposit = amount.multiply(rateBetween(senderAccount, receiverAccount));
 
         withdraw(senderAccount, amount, false);
         deposit(receiverAccount, amountToDeposit, false);
@@ -18,6 +18,8 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -50,6 +52,19 @@ public class ExchangeRateService {
         return xRate.getRates().get(out);
     }
 
+    /**
+     * Reads every stored rate table, so the first transfers after a start do not pay for a cold table.
+     *
+     * @return the currencies whose rates are up to date
+     */
+    @Transactional(readOnly = true)
+    public Set<Currency> preloadRates() {
+        return exchangeRateRepository.findAll().stream()
+                .filter(xRate -> !xRate.getLastUpdatedAt().isBefore(LocalDate.now()))
+                .map(ExchangeRate::getCurrency)
+                .collect(Collectors.toSet());
+    }
+
     private ExchangeRate retrieveExchangeRate(Currency in) {
         return exchangeRateMapper.toEntity(
                 findRatesByCurrency(in), LocalDate.now());
@@ -0,0 +1,227 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.model.Currency;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams every owner with its accounts, straight from a server-side cursor to the response.
+ * Rows are written as they are fetched, so at most {@link #FETCH_SIZE} rows are held in memory whatever the size
+ * of the tables. The export runs in a read-only repeatable read transaction, a single snapshot of the database.
+ * That transaction holds a read permit of the database bulkhead until the stream is over.
+ */
+@Service
+@Slf4j
+public class OwnerExportService {
+
+    static final int FETCH_SIZE = 1000;
+
+    private static final String EXPORT_QUERY = """
+            SELECT o.id, o.name, a.account_id, a.currency, a.balance
+            FROM owners o
+            LEFT JOIN accounts a ON a.owner_id = o.id
+            ORDER BY o.id, a.account_id
+            """;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public OwnerExportService(DataSource dataSource, ObjectMapper objectMapper) {
+        this(cursorJdbcTemplate(dataSource), objectMapper);
+    }
+
+    OwnerExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The Postgres driver only uses a cursor for a forward-only result set with a fetch size, inside a transaction.
+     */
+    private static JdbcTemplate cursorJdbcTemplate(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE);
+        return jdbcTemplate;
+    }
+
+    /**
+     * @param format NDJSON writes one owner per line with its account details, CSV one line per account
+     *               (owners without account get one line with empty account fields)
+     * @return the number of owners exported
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long export(Format format, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        ExportWriter writer = switch (format) {
+            case NDJSON -> new NdjsonWriter(objectMapper.getFactory().createGenerator(output));
+            case CSV -> new CsvWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        };
+
+        try {
+            jdbcTemplate.query(EXPORT_QUERY, writer);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("{} owners exported as {} in {} ms", writer.owners, format, (System.nanoTime() - start) / 1_000_000);
+        return writer.owners;
+    }
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    /**
+     * Rows come ordered by owner, an owner is complete once the next one shows up.
+     */
+    private abstract static class ExportWriter implements RowCallbackHandler {
+
+        private long currentOwnerId = -1;
+        long owners;
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            long ownerId = resultSet.getLong(1);
+            long accountId = resultSet.getLong(3);
+            boolean hasAccount = !resultSet.wasNull();
+
+            try {
+                if (ownerId != currentOwnerId) {
+                    if (owners > 0) {
+                        endOwner();
+                    }
+                    startOwner(ownerId, resultSet.getString(2), hasAccount);
+                    currentOwnerId = ownerId;
+                    owners++;
+                }
+                if (hasAccount) {
+                    account(ownerId, accountId, CURRENCIES[resultSet.getInt(4)], resultSet.getBigDecimal(5));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (owners > 0) {
+                endOwner();
+            }
+            close();
+        }
+
+        abstract void startOwner(long ownerId, String username, boolean hasAccount) throws IOException;
+
+        abstract void account(long ownerId, long accountId, Currency currency, BigDecimal balance) throws IOException;
+
+        abstract void endOwner() throws IOException;
+
+        abstract void close() throws IOException;
+    }
+
+    /**
+     * Owners are written like {@link com.example.fund_app.model.dto.OwnerDetailsViewDto}, one per line.
+     */
+    private static class NdjsonWriter extends ExportWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(JsonGenerator generator) {
+            this.generator = generator;
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        void startOwner(long ownerId, String username, boolean hasAccount) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", ownerId);
+            generator.writeStringField("username", username);
+            generator.writeArrayFieldStart("accountDetails");
+        }
+
+        @Override
+        void account(long ownerId, long accountId, Currency currency, BigDecimal balance) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("accountId", accountId);
+            generator.writeStringField("currency", currency.name());
+            generator.writeNumberField("balance", balance);
+            generator.writeEndObject();
+        }
+
+        @Override
+        void endOwner() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        @Override
+        void close() throws IOException {
+            if (owners > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.close();
+        }
+    }
+
+    private static class CsvWriter extends ExportWriter {
+
+        private final Writer writer;
+        private String username;
+
+        CsvWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.writer.write("ownerId,username,accountId,currency,balance\n");
+        }
+
+        @Override
+        void startOwner(long ownerId, String username, boolean hasAccount) throws IOException {
+            this.username = quote(username);
+            if (!hasAccount) {
+                writer.write(ownerId + "," + this.username + ",,,\n");
+            }
+        }
+
+        @Override
+        void account(long ownerId, long accountId, Currency currency, BigDecimal balance) throws IOException {
+            writer.write(ownerId + "," + username + "," + accountId + "," + currency.name() + ","
+                    + (balance == null ? "" : balance.toPlainString()) + "\n");
+        }
+
+        @Override
+        void endOwner() {
+        }
+
+        @Override
+        void close() throws IOException {
+            writer.close();
+        }
+
+        private static String quote(String value) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
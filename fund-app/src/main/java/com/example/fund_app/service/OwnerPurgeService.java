@@ -0,0 +1,106 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.config.OwnerDeletionProperties;
+import com.example.fund_app.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deletes owners, in the background for those holding so many accounts that deleting them in one transaction
+ * would lock all the rows at once and hold the request for long.
+ * <p>
+ * A purge deletes the accounts by batches, each in its own transaction followed by the eviction of the deleted
+ * accounts and of the owner, then deletes the owner along with the accounts opened meanwhile. An interrupted purge
+ * leaves the owner with fewer accounts, deleting it again resumes where it stopped.
+ */
+@Slf4j
+public class OwnerPurgeService implements AutoCloseable {
+
+    public enum Deletion {
+        DELETED,
+        PURGING
+    }
+
+    private final OwnerDeletionProperties properties;
+    private final OwnerService ownerService;
+    private final AccountRepository accountRepository;
+    private final AccountCacheStore accountCacheStore;
+    private final TransactionTemplate batchTransaction;
+
+    private final Set<Long> purging = ConcurrentHashMap.newKeySet();
+    private final ExecutorService purges = Executors.newVirtualThreadPerTaskExecutor();
+
+    public OwnerPurgeService(OwnerDeletionProperties properties, OwnerService ownerService,
+                             AccountRepository accountRepository, AccountCacheStore accountCacheStore,
+                             TransactionTemplate batchTransaction) {
+        this.properties = properties;
+        this.ownerService = ownerService;
+        this.accountRepository = accountRepository;
+        this.accountCacheStore = accountCacheStore;
+        this.batchTransaction = batchTransaction;
+    }
+
+    /**
+     * Deletes the owner within the call, or starts purging it when it holds at least the threshold of accounts.
+     * Deleting an owner already being purged does nothing more.
+     */
+    public Deletion delete(Long ownerId) {
+        if (purging.contains(ownerId)) {
+            return Deletion.PURGING;
+        }
+        if (accountRepository.countByOwnerId(ownerId) < properties.asyncThreshold()) {
+            ownerService.deleteOwner(ownerId);
+            return Deletion.DELETED;
+        }
+        if (purging.add(ownerId)) {
+            purges.execute(() -> purge(ownerId));
+        }
+        return Deletion.PURGING;
+    }
+
+    public boolean isPurging(Long ownerId) {
+        return purging.contains(ownerId);
+    }
+
+    void purge(Long ownerId) {
+        long start = System.nanoTime();
+        long purged = 0;
+        try {
+            List<Long> accountIds;
+            do {
+                accountIds = batchTransaction.execute(status -> deleteBatch(ownerId));
+                purged += accountIds.size();
+            } while (accountIds.size() == properties.purgeBatchSize());
+
+            ownerService.deleteOwners(List.of(ownerId));
+            log.info("[PURGE] Owner {} purged with {} accounts in {} ms", ownerId, purged,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("[PURGE] Purge of owner {} stopped after {} accounts: {}", ownerId, purged, e.getMessage());
+        } finally {
+            purging.remove(ownerId);
+        }
+    }
+
+    private List<Long> deleteBatch(Long ownerId) {
+        List<Long> accountIds = accountRepository.deleteBatchByOwnerId(ownerId, properties.purgeBatchSize());
+        accountCacheStore.evictAccounts(accountIds);
+        accountCacheStore.evictOwner(ownerId);
+        return accountIds;
+    }
+
+    /**
+     * Waits for the running purges, so that a node shutting down does not leave them halfway.
+     */
+    @Override
+    public void close() {
+        purges.close();
+    }
+}
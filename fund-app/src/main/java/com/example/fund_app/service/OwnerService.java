@@ -1,5 +1,8 @@
 package com.example.fund_app.service;
 
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeyTracker;
+import com.example.fund_app.cache.UsernameFilter;
 import com.example.fund_app.exception.DbRecordNotFoundException;
 import com.example.fund_app.exception.OwnerActionInvalidException;
 import com.example.fund_app.exception.OwnerAlreadyExistsException;
@@ -8,74 +11,265 @@ import com.example.fund_app.mapper.OwnerMapper;
 import com.example.fund_app.model.Account;
 import com.example.fund_app.model.Currency;
 import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.OwnerSearchResult;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.model.dbo.OwnerDbo;
+import com.example.fund_app.model.event.OwnersCreatedEvent;
+import com.example.fund_app.model.event.OwnersDeletedEvent;
 import com.example.fund_app.repository.AccountRepository;
 import com.example.fund_app.repository.OwnerRepository;
+import com.example.fund_app.repository.OwnerRepositoryCustom;
+import com.example.fund_app.search.OwnerSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @Transactional
 public class OwnerService {
 
+    /**
+     * Owners inserted per flush. A multiple of the JDBC batch size, small enough to keep the persistence context light.
+     */
+    static final int ONBOARDING_CHUNK_SIZE = 1000;
+
     private final OwnerRepository ownerRepository;
 
     private final OwnerMapper ownerMapper;
     private final AccountRepository accountRepository;
 
     private final AccountMapper accountMapper;
+    private final AccountCacheStore accountCacheStore;
+    private final HotKeyTracker hotKeyTracker;
+    private final UsernameFilter usernameFilter;
+    private final OwnerSearchIndex ownerSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
 
-    public OwnerService(OwnerRepository ownerRepository, OwnerMapper ownerMapper, AccountRepository accountRepository, AccountMapper accountMapper) {
+    public OwnerService(OwnerRepository ownerRepository, OwnerMapper ownerMapper, AccountRepository accountRepository,
+                        AccountMapper accountMapper, AccountCacheStore accountCacheStore, HotKeyTracker hotKeyTracker,
+                        UsernameFilter usernameFilter, OwnerSearchIndex ownerSearchIndex,
+                        ApplicationEventPublisher eventPublisher, EntityManager entityManager) {
         this.ownerRepository = ownerRepository;
         this.ownerMapper = ownerMapper;
         this.accountRepository = accountRepository;
         this.accountMapper = accountMapper;
+        this.accountCacheStore = accountCacheStore;
+        this.hotKeyTracker = hotKeyTracker;
+        this.usernameFilter = usernameFilter;
+        this.ownerSearchIndex = ownerSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
     }
 
-    @CachePut(value = "ownersCache", key = "#result.id")
+    /**
+     * Creates the owner in a single statement, the unique index on the names rejects a taken username,
+     * even when it is signed up concurrently.
+     */
     public Owner createOwner(String username) {
-        if (ownerRepository.existsByUsername(username)) {
+        Optional<Long> insertedId = ownerRepository.insertIfAbsent(username);
+        if (insertedId.isEmpty()) {
+            // A taken name may come from another node and be missing from the filter
+            usernameFilter.add(username);
             throw new OwnerAlreadyExistsException(username + " already exists");
         }
+        Long ownerId = insertedId.get();
 
-        Owner newOwner = Owner.builder()
+        Owner createdOwner = Owner.builder()
+                .id(ownerId)
                 .username(username)
                 .accounts(new HashSet<>())
+                .version(0L)
                 .build();
+        accountCacheStore.putOwner(createdOwner);
+        eventPublisher.publishEvent(new OwnersCreatedEvent(Map.of(ownerId, username)));
+
+        return createdOwner;
+    }
+
+    /**
+     * Onboards owners along with their initial accounts in a single transaction. Rows are inserted by JDBC batches
+     * and the persistence context is cleared after each chunk. Nothing is cached, the new owners are cold.
+     *
+     * @param newOwners owners to create, their accounts only need a currency
+     * @return the created owners with their accounts, in the given order
+     */
+    public List<Owner> createOwners(List<Owner> newOwners) {
+        Set<String> usernames = new HashSet<>();
+        for (Owner newOwner : newOwners) {
+            if (!usernames.add(newOwner.getUsername())) {
+                throw new OwnerAlreadyExistsException(newOwner.getUsername() + " is onboarded more than once");
+            }
+        }
+
+        List<Owner> createdOwners = new ArrayList<>(newOwners.size());
+        for (int from = 0; from < newOwners.size(); from += ONBOARDING_CHUNK_SIZE) {
+            List<Owner> chunk = newOwners.subList(from, Math.min(from + ONBOARDING_CHUNK_SIZE, newOwners.size()));
+
+            // Only the usernames the filter cannot rule out are looked up, most chunks need no query at all
+            List<String> possiblyTaken = chunk.stream()
+                    .map(Owner::getUsername)
+                    .filter(usernameFilter::mightExist)
+                    .toList();
+            List<String> existingUsernames = possiblyTaken.isEmpty()
+                    ? List.of()
+                    : ownerRepository.findExistingUsernames(possiblyTaken);
+            if (!existingUsernames.isEmpty()) {
+                throw new OwnerAlreadyExistsException(String.join(", ", existingUsernames) + " already exist");
+            }
+            usernameFilter.falsePositives(possiblyTaken.size());
+
+            List<OwnerDbo> savedOwners = ownerRepository.saveAll(chunk.stream().map(this::toNewOwnerDbo).toList());
+            try {
+                entityManager.flush();
+            } catch (PersistenceException e) {
+                if (isOwnerNameConflict(e)) {
+                    throw new OwnerAlreadyExistsException("A username of the onboarding was signed up meanwhile");
+                }
+                throw e;
+            }
+            Map<Long, String> createdUsernames = new LinkedHashMap<>();
+            for (OwnerDbo savedOwner : savedOwners) {
+                createdUsernames.put(savedOwner.getId(), savedOwner.getUsername());
+            }
+            eventPublisher.publishEvent(new OwnersCreatedEvent(createdUsernames));
+            savedOwners.stream().map(ownerMapper::toModel).forEach(createdOwners::add);
+            entityManager.clear();
+        }
+        log.info("{} owners onboarded", createdOwners.size());
 
-        return ownerMapper.toModel(ownerRepository.save(ownerMapper.toDbo(newOwner)));
+        return createdOwners;
     }
 
+    private static boolean isOwnerNameConflict(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && OwnerRepositoryCustom.NAME_INDEX.equals(violation.getConstraintName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private OwnerDbo toNewOwnerDbo(Owner owner) {
+        OwnerDbo ownerDbo = OwnerDbo.builder()
+                .username(owner.getUsername())
+                .accounts(new HashSet<>())
+                .build();
+        for (Account account : owner.getAccounts()) {
+            ownerDbo.getAccounts().add(AccountDbo.builder()
+                    .owner(ownerDbo)
+                    .currency(account.getCurrency())
+                    .balance(BigDecimal.ZERO)
+                    .build());
+        }
+        return ownerDbo;
+    }
+
+    /**
+     * Free usernames are answered by the filter without a query. The answer is advisory: a username free on this
+     * node may have been taken on another one since its last filter rebuild, the signup itself has the last word.
+     */
+    @Transactional(readOnly = true)
+    public boolean isUsernameAvailable(String username) {
+        if (!usernameFilter.mightExist(username)) {
+            return true;
+        }
+        boolean available = !ownerRepository.existsByUsername(username);
+        if (available) {
+            usernameFilter.falsePositives(1);
+        }
+        return available;
+    }
+
+    /**
+     * Finds the owners whose username starts with the prefix, by pages ordered by username. Pages are keyset paginated
+     * on the username, the owners created or deleted between two pages never shift the next ones.
+     * The in-memory index answers unless it is disabled or not loaded yet, the DB does otherwise.
+     *
+     * @param after username of the last owner of the previous page, null for the first page
+     */
+    @Transactional(readOnly = true)
+    public OwnerSearchResult searchOwners(String prefix, String after, int size) {
+        List<Long> ownerIds;
+        List<String> usernames;
+        if (ownerSearchIndex.isLoaded()) {
+            List<OwnerSearchIndex.Hit> hits = ownerSearchIndex.search(prefix, after, size + 1);
+            ownerIds = hits.stream().map(OwnerSearchIndex.Hit::ownerId).toList();
+            usernames = hits.stream().map(OwnerSearchIndex.Hit::username).toList();
+        } else {
+            List<OwnerDbo> found = ownerRepository.findByUsernameStartingWithAndUsernameGreaterThanOrderByUsername(
+                    prefix, after == null ? "" : after, Limit.of(size + 1));
+            ownerIds = found.stream().map(OwnerDbo::getId).toList();
+            usernames = found.stream().map(OwnerDbo::getUsername).toList();
+        }
+
+        boolean hasNext = ownerIds.size() > size;
+        List<Owner> owners = List.copyOf(getAllById(hasNext ? ownerIds.subList(0, size) : ownerIds).values());
+        // Owners deleted since the search are left out, the next page still starts after the last username found
+        String next = hasNext ? usernames.get(size - 1) : null;
+        return new OwnerSearchResult(owners, next);
+    }
+
+    @Transactional(readOnly = true)
     public Page<Owner> getAllOwners(Pageable pageable) {
         return ownerMapper.toModel(ownerRepository.findAll(pageable));
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "ownersCache", key = "#ownerId")
     public Owner getById(Long ownerId) {
+        hotKeyTracker.record(AccountCacheStore.OWNERS_CACHE, ownerId);
+        return accountCacheStore.getOwner(ownerId, () -> loadOwner(ownerId));
+    }
+
+    /**
+     * Finds the owners in bulk: cached ones in one round trip, the others in one query.
+     *
+     * @return the owners found, keyed by ID in the order of the given IDs
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Owner> getAllById(Collection<Long> ownerIds) {
+        ownerIds.forEach(ownerId -> hotKeyTracker.record(AccountCacheStore.OWNERS_CACHE, ownerId));
+        return accountCacheStore.getOwners(ownerIds, this::loadOwners);
+    }
+
+    private Map<Long, Owner> loadOwners(Set<Long> ownerIds) {
+        return ownerRepository.findAllById(ownerIds).stream()
+                .map(ownerMapper::toModel)
+                .collect(Collectors.toMap(Owner::getId, Function.identity()));
+    }
+
+    private Owner loadOwner(Long ownerId) {
         return  ownerMapper.toModel(
                 ownerRepository.findById(ownerId)
                         .orElseThrow(() -> new DbRecordNotFoundException("Owner not found with ID: " + ownerId)));
 
     }
 
-    @Caching(
-            evict = { @CacheEvict(value = "ownersCache", key = "#ownerId") },
-            put = { @CachePut(value = "ownersCache", key = "#result.id") }
-    )
     public Owner addAccountToOwner(Long ownerId, Currency currency) {
         log.info("Adding new account for owner: {}", ownerId);
-        Owner owner = this.getById(ownerId);
+        hotKeyTracker.record(AccountCacheStore.OWNERS_CACHE, ownerId);
+        Owner owner = loadOwner(ownerId);
 
         for (Account account : owner.getAccounts()) {
             if (account.getCurrency().equals(currency)) {
@@ -89,14 +283,46 @@ public class OwnerService {
                 .currency(currency)
                 .build();
 
-        accountRepository.save(accountMapper.toDbo(accountToAdd));
+        AccountDbo savedAccount = accountRepository.save(accountMapper.toDbo(accountToAdd));
+
+        owner.getAccounts().add(Account.builder()
+                .accountId(savedAccount.getAccountId())
+                .owner(null)
+                .currency(currency)
+                .balance(BigDecimal.ZERO)
+                .version(savedAccount.getVersion())
+                .build());
+
+        accountCacheStore.putAccount(savedAccount);
+        accountCacheStore.putOwner(owner);
 
         return owner;
     }
 
-    @CacheEvict(value = "ownersCache", key = "#ownerId")
     public void deleteOwner(Long ownerId) {
-        ownerRepository.deleteById(ownerId);
-        log.warn("Owner {} successfully deleted", ownerId);
+        deleteOwners(List.of(ownerId));
+    }
+
+    /**
+     * Deletes the owners and their accounts with one statement per table, without loading them. The owners are
+     * locked first, so that an account opened for them meanwhile is deleted too instead of failing the deletion.
+     * The cached owners and accounts are evicted together once the deletion has committed. Unknown IDs are ignored.
+     *
+     * @return the number of owners deleted
+     */
+    public int deleteOwners(Collection<Long> ownerIds) {
+        List<Long> lockedIds = ownerRepository.lockAllById(ownerIds);
+        if (lockedIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> accountIds = accountRepository.deleteAllByOwnerIdIn(lockedIds);
+        int deleted = ownerRepository.deleteAllByIdIn(lockedIds);
+
+        accountCacheStore.evictAccounts(accountIds);
+        accountCacheStore.evictOwners(lockedIds);
+        usernameFilter.deleted(deleted);
+        eventPublisher.publishEvent(new OwnersDeletedEvent(lockedIds));
+        log.warn("Owners {} successfully deleted along with {} accounts", lockedIds, accountIds.size());
+        return deleted;
     }
 }
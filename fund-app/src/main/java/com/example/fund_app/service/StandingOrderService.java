@@ -0,0 +1,95 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.StandingOrderMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.StandingOrder;
+import com.example.fund_app.model.StandingOrderStatus;
+import com.example.fund_app.model.dbo.StandingOrderDbo;
+import com.example.fund_app.model.dto.StandingOrderDto;
+import com.example.fund_app.repository.StandingOrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records standing orders, run by the {@code StandingOrderScheduler} into transfers settled like the submitted ones.
+ * <p>
+ * As for a submitted transfer, an order only checks that its accounts differ and exist: whether the sender has the
+ * funds is known at every run, whose transfer is rejected if not while the order keeps running.
+ */
+@Service
+@Slf4j
+public class StandingOrderService {
+
+    private final StandingOrderRepository standingOrderRepository;
+    private final StandingOrderMapper standingOrderMapper;
+    private final AccountService accountService;
+
+    public StandingOrderService(StandingOrderRepository standingOrderRepository,
+                                StandingOrderMapper standingOrderMapper, AccountService accountService) {
+        this.standingOrderRepository = standingOrderRepository;
+        this.standingOrderMapper = standingOrderMapper;
+        this.accountService = accountService;
+    }
+
+    public StandingOrder create(StandingOrderDto dto) {
+        if (dto.senderAccount().equals(dto.receiverAccount())) {
+            throw new AccountActionInvalidException("Transfer cannot be performed within the same account");
+        }
+        Instant now = Instant.now();
+        Instant firstRunAt = dto.firstRunAt() == null ? now : dto.firstRunAt();
+        if (dto.endsAt() != null && dto.endsAt().isBefore(firstRunAt)) {
+            throw new AccountActionInvalidException("A standing order cannot end before its first run");
+        }
+        Map<Long, Account> accounts =
+                accountService.findAllById(List.of(dto.senderAccount(), dto.receiverAccount()));
+        for (Long accountId : List.of(dto.senderAccount(), dto.receiverAccount())) {
+            if (!accounts.containsKey(accountId)) {
+                throw new DbRecordNotFoundException("Could not find account with ID: " + accountId);
+            }
+        }
+
+        StandingOrderDbo standingOrder = standingOrderRepository.save(StandingOrderDbo.builder()
+                .senderAccount(dto.senderAccount())
+                .receiverAccount(dto.receiverAccount())
+                .amount(dto.amount())
+                .toSend(dto.toSend())
+                .recurrence(dto.recurrence())
+                .firstRunAt(firstRunAt)
+                .nextRunAt(firstRunAt)
+                .endsAt(dto.endsAt())
+                .status(StandingOrderStatus.ACTIVE)
+                .createdAt(now)
+                .build());
+        log.info("Standing order {} between {} and {} created, first run at {}", standingOrder.getStandingOrderId(),
+                dto.senderAccount(), dto.receiverAccount(), firstRunAt);
+        return standingOrderMapper.toModel(standingOrder);
+    }
+
+    @Transactional(readOnly = true)
+    public StandingOrder findById(Long standingOrderId) {
+        return standingOrderRepository.findById(standingOrderId)
+                .map(standingOrderMapper::toModel)
+                .orElseThrow(() -> new DbRecordNotFoundException(
+                        "Could not find standing order with ID: " + standingOrderId));
+    }
+
+    /**
+     * Cancelling an order that already ended or was cancelled does nothing. A run claimed before the cancellation
+     * still settles.
+     */
+    @Transactional
+    public void cancel(Long standingOrderId) {
+        if (standingOrderRepository.cancel(standingOrderId) == 0
+                && !standingOrderRepository.existsById(standingOrderId)) {
+            throw new DbRecordNotFoundException("Could not find standing order with ID: " + standingOrderId);
+        }
+        log.info("Standing order {} cancelled", standingOrderId);
+    }
+}
@@ -7,6 +7,8 @@ import com.example.fund_app.model.TransactionType;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -36,7 +38,7 @@ public class TransactionAuditService {
                 .transactionDate(Instant.now())
                 .build();
 
-        log.info("[FUND_APP] New deposit performed: {}", transaction.toString());
+        audit("[FUND_APP] New deposit performed: {}", transaction);
     }
 
     public void logWithdrawal(Account withdrawalAccount, BigDecimal value) {
@@ -53,7 +55,7 @@ public class TransactionAuditService {
                 .transactionDate(Instant.now())
                 .build();
 
-        log.info("[FUND_APP] New withdrawal performed: {}", transaction.toString());
+        audit("[FUND_APP] New withdrawal performed: {}", transaction);
     }
 
     public void logTransfer(Account sender, Account receiver, BigDecimal valueOut, BigDecimal valueIn) {
@@ -77,6 +79,25 @@ public class TransactionAuditService {
                 .transactionDate(Instant.now())
                 .build();
 
-        log.info("[FUND_APP] New transfer performed: {}", transaction.toString());
+        audit("[FUND_APP] New transfer performed: {}", transaction);
+    }
+
+    /**
+     * Operations are only audited once the DB transaction that performed them has committed,
+     * so rolled back operations never show up in the audit trail.
+     */
+    private void audit(String message, Transaction transaction) {
+        String entry = transaction.toString();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            log.info(message, entry);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                log.info(message, entry);
+            }
+        });
     }
 }
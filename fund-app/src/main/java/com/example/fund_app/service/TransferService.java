@@ -0,0 +1,77 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.TransferMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Transfer;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.model.dto.TransferDto;
+import com.example.fund_app.repository.TransferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accepts transfers to be settled in the background by the {@code TransferSettlementEngine}.
+ * <p>
+ * A submission only checks what cannot change until the transfer settles, that the accounts differ and exist, and
+ * records the transfer as pending. Whether the sender has the funds is known once it settles: the transfer is then
+ * rejected, as the synchronous transfer would have been.
+ */
+@Service
+@Slf4j
+public class TransferService {
+
+    private final TransferRepository transferRepository;
+    private final TransferMapper transferMapper;
+    private final AccountService accountService;
+
+    public TransferService(TransferRepository transferRepository, TransferMapper transferMapper,
+                           AccountService accountService) {
+        this.transferRepository = transferRepository;
+        this.transferMapper = transferMapper;
+        this.accountService = accountService;
+    }
+
+    /**
+     * The accounts are checked from the cache, and the transfer is committed before returning, so an accepted
+     * transfer is never lost.
+     */
+    public Transfer submit(TransferDto dto) {
+        if (dto.senderAccount().equals(dto.receiverAccount())) {
+            throw new AccountActionInvalidException("Transfer cannot be performed within the same account");
+        }
+        Map<Long, Account> accounts =
+                accountService.findAllById(List.of(dto.senderAccount(), dto.receiverAccount()));
+        for (Long accountId : List.of(dto.senderAccount(), dto.receiverAccount())) {
+            if (!accounts.containsKey(accountId)) {
+                throw new DbRecordNotFoundException("Could not find account with ID: " + accountId);
+            }
+        }
+
+        TransferDbo transfer = transferRepository.save(TransferDbo.builder()
+                .senderAccount(dto.senderAccount())
+                .receiverAccount(dto.receiverAccount())
+                .amount(dto.amount())
+                .toSend(dto.toSend())
+                .status(TransferStatus.PENDING)
+                .submittedAt(Instant.now())
+                .build());
+        log.info("Transfer {} between {} and {} submitted", transfer.getTransferId(), dto.senderAccount(),
+                dto.receiverAccount());
+        return transferMapper.toModel(transfer);
+    }
+
+    @Transactional(readOnly = true)
+    public Transfer findById(Long transferId) {
+        return transferRepository.findById(transferId)
+                .map(transferMapper::toModel)
+                .orElseThrow(() -> new DbRecordNotFoundException("Could not find transfer with ID: " + transferId));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.fund_app.settlement;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map of long keys to long values, without boxing either. Absent keys read as 0, and
+ * {@link Long#MIN_VALUE} marks the free slots so it cannot be a key.
+ */
+final class LongLongHashMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 1)) << 1;
+        allocate(Math.max(capacity, 8));
+    }
+
+    long get(long key) {
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : 0L;
+    }
+
+    boolean containsKey(long key) {
+        return keys[slot(key)] == key;
+    }
+
+    void put(long key, long value) {
+        int slot = claim(key);
+        values[slot] = value;
+    }
+
+    /**
+     * @return the new value of the key
+     */
+    long addTo(long key, long delta) {
+        int slot = claim(key);
+        values[slot] = Math.addExact(values[slot], delta);
+        return values[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Entry consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the key, added with a 0 value when absent
+     */
+    private int claim(long key) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be a key");
+        }
+        int slot = slot(key);
+        if (keys[slot] == key) {
+            return slot;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+            slot = slot(key);
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Linear probing from the mixed key: the slot of the key, or the free slot ending its probe sequence.
+     */
+    private int slot(long key) {
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != key && keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != FREE) {
+                int newSlot = slot(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * SplitMix64 finalizer, sequential account IDs would otherwise fill neighbouring slots.
+     */
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @FunctionalInterface
+    interface Entry {
+        void accept(long key, long value);
+    }
+}
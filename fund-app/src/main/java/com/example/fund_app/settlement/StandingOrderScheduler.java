@@ -0,0 +1,173 @@
+package com.example.fund_app.settlement;
+
+import com.example.fund_app.concurrent.TaskScope;
+import com.example.fund_app.config.StandingOrderProperties;
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import com.example.fund_app.model.StandingOrderStatus;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.StandingOrderDbo;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.repository.StandingOrderRepository;
+import com.example.fund_app.repository.TransferRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the due standing orders into pending transfers, settled by the {@link TransferSettlementEngine} through the
+ * transfer path of the {@code AccountService}.
+ * <p>
+ * The due orders are claimed by batches with {@code FOR UPDATE SKIP LOCKED}, and a batch inserts the transfers of its
+ * orders and moves them to their next run in the same transaction: every node claims its own orders, a run is never
+ * made twice, and the claims of a node that died roll back for the others to take. Each batch takes a write permit of
+ * the {@link DatabaseBulkhead}, the orders a full bulkhead left unclaimed run at the next poll.
+ */
+@Slf4j
+public class StandingOrderScheduler {
+
+    private final StandingOrderProperties properties;
+    private final StandingOrderRepository standingOrderRepository;
+    private final TransferRepository transferRepository;
+    private final TransactionTemplate transaction;
+    private final DatabaseBulkhead bulkhead;
+
+    private final Counter runs;
+    private final Counter completed;
+    private final Timer delay;
+
+    public StandingOrderScheduler(StandingOrderProperties properties, StandingOrderRepository standingOrderRepository,
+                                  TransferRepository transferRepository, TransactionTemplate transaction,
+                                  DatabaseBulkhead bulkhead, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.standingOrderRepository = standingOrderRepository;
+        this.transferRepository = transferRepository;
+        this.transaction = transaction;
+        this.bulkhead = bulkhead;
+        this.runs = Counter.builder("standing.orders.runs")
+                .description("Standing order runs, each submitted as a transfer")
+                .register(meterRegistry);
+        this.completed = Counter.builder("standing.orders.completed")
+                .description("Standing orders done with their last run")
+                .register(meterRegistry);
+        this.delay = Timer.builder("standing.orders.run.delay")
+                .description("Time from when a standing order was due to its run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A round runs every order due when it started, its claimers taking batches until none is left.
+     */
+    @Scheduled(fixedDelayString = "${standing-orders.poll-interval:1s}")
+    public void runDue() {
+        Instant now = Instant.now();
+        int claimed;
+        try (TaskScope scope = new TaskScope()) {
+            claimed = IntStream.range(0, properties.claimers())
+                    .mapToObj(claimer -> scope.fork(() -> claim(now)))
+                    .toList()
+                    .stream()
+                    .mapToInt(TaskScope.Subtask::get)
+                    .sum();
+        }
+        if (claimed > 0) {
+            log.info("[STANDING_ORDERS] {} standing orders due at {} run in {} ms", claimed, now,
+                    Duration.between(now, Instant.now()).toMillis());
+        }
+    }
+
+    /**
+     * @return the number of orders run
+     */
+    int claim(Instant now) {
+        int done = 0;
+        while (true) {
+            Batch batch;
+            try {
+                batch = admitted(now);
+            } catch (DatabaseOverloadedException e) {
+                log.debug("[STANDING_ORDERS] Run of the due standing orders postponed: {}", e.getMessage());
+                return done;
+            } catch (RuntimeException e) {
+                log.warn("[STANDING_ORDERS] Run of the due standing orders stopped: {}", e.getMessage());
+                return done;
+            }
+            runs.increment(batch.delays().size());
+            completed.increment(batch.completed());
+            batch.delays().forEach(delay::record);
+            done += batch.delays().size();
+            if (batch.delays().size() < properties.batchSize()) {
+                return done;
+            }
+        }
+    }
+
+    /**
+     * Runs a batch under a write permit of the bulkhead, if there is one.
+     *
+     * @throws DatabaseOverloadedException if the bulkhead turned it away, nothing was claimed then
+     */
+    private Batch admitted(Instant now) {
+        if (bulkhead == null) {
+            return transaction.execute(status -> runBatch(now));
+        }
+        bulkhead.acquire(DatabaseBulkhead.Budget.WRITE);
+        try {
+            return transaction.execute(status -> runBatch(now));
+        } finally {
+            bulkhead.release(DatabaseBulkhead.Budget.WRITE);
+        }
+    }
+
+    private Batch runBatch(Instant now) {
+        List<StandingOrderDbo> due = standingOrderRepository.claimDue(now, properties.batchSize());
+        if (due.isEmpty()) {
+            return new Batch(List.of(), 0);
+        }
+        Instant submittedAt = Instant.now();
+        List<TransferDbo> transfers = transferRepository.saveAll(due.stream()
+                .map(order -> TransferDbo.builder()
+                        .senderAccount(order.getSenderAccount())
+                        .receiverAccount(order.getReceiverAccount())
+                        .amount(order.getAmount())
+                        .toSend(order.isToSend())
+                        .status(TransferStatus.PENDING)
+                        .submittedAt(submittedAt)
+                        .build())
+                .toList());
+
+        List<Duration> delays = new ArrayList<>(due.size());
+        int ended = 0;
+        for (int i = 0; i < due.size(); i++) {
+            StandingOrderDbo order = due.get(i);
+            delays.add(Duration.between(order.getNextRunAt(), submittedAt));
+            order.setRuns(order.getRuns() + 1);
+            order.setLastTransferId(transfers.get(i).getTransferId());
+            Instant next = order.getRecurrence().nextRunAfter(order.getFirstRunAt(), now);
+            if (next == null || (order.getEndsAt() != null && next.isAfter(order.getEndsAt()))) {
+                order.setStatus(StandingOrderStatus.COMPLETED);
+                order.setNextRunAt(null);
+                ended++;
+            } else {
+                order.setNextRunAt(next);
+            }
+        }
+        return new Batch(delays, ended);
+    }
+
+    /**
+     * @param delays how late each order of the batch ran
+     * @param completed the orders of the batch done with their last run
+     */
+    private record Batch(List<Duration> delays, int completed) {
+    }
+}
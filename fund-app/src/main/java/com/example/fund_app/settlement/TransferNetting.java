@@ -0,0 +1,99 @@
+package com.example.fund_app.settlement;
+
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.model.dbo.TransferDbo;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nets a batch of pending transfers into one balance change per account, in cents, with the outcome each transfer
+ * would have had if settled one after the other in the order of the batch.
+ * <p>
+ * A transfer is checked against the position of its sender: its balance plus what the transfers before it in the
+ * batch already moved. Transfers between currencies need a rate and are left out, deferred to the settlement one by
+ * one, along with every later transfer of the batch touching one of their accounts, so that these accounts still see
+ * their transfers in order.
+ */
+final class TransferNetting {
+
+    private final LongLongHashMap deltas;
+    private final List<TransferDbo> settled = new ArrayList<>();
+    private final Map<TransferDbo, String> rejected = new LinkedHashMap<>();
+    private final List<TransferDbo> deferred = new ArrayList<>();
+
+    private TransferNetting(int expectedAccounts) {
+        this.deltas = new LongLongHashMap(expectedAccounts);
+    }
+
+    /**
+     * @param transfers the batch, in the order the transfers were submitted
+     * @param accounts the accounts of the batch by ID, deleted ones missing
+     */
+    static TransferNetting net(List<TransferDbo> transfers, Map<Long, AccountDbo> accounts) {
+        TransferNetting netting = new TransferNetting(accounts.size());
+        LongLongHashMap balances = new LongLongHashMap(accounts.size());
+        accounts.forEach((accountId, account) -> balances.put(accountId, cents(account.getBalance())));
+        LongLongHashMap held = new LongLongHashMap(16);
+
+        for (TransferDbo transfer : transfers) {
+            long senderId = transfer.getSenderAccount();
+            long receiverId = transfer.getReceiverAccount();
+            AccountDbo sender = accounts.get(senderId);
+            AccountDbo receiver = accounts.get(receiverId);
+            if (held.containsKey(senderId) || held.containsKey(receiverId)
+                    || (sender != null && receiver != null && sender.getCurrency() != receiver.getCurrency())) {
+                held.put(senderId, 1L);
+                held.put(receiverId, 1L);
+                netting.deferred.add(transfer);
+            } else if (sender == null || receiver == null) {
+                netting.rejected.put(transfer, "Could not find account with ID: "
+                        + (sender == null ? senderId : receiverId));
+            } else if (senderId == receiverId) {
+                netting.rejected.put(transfer, "Transfer cannot be performed within the same account");
+            } else {
+                long amount = cents(transfer.getAmount());
+                if (balances.get(senderId) + netting.deltas.get(senderId) < amount) {
+                    netting.rejected.put(transfer, "The account does not have sufficient funds for this operation");
+                } else {
+                    netting.deltas.addTo(senderId, -amount);
+                    netting.deltas.addTo(receiverId, amount);
+                    netting.settled.add(transfer);
+                }
+            }
+        }
+        return netting;
+    }
+
+    /**
+     * Amounts and balances are stored with 2 decimals.
+     */
+    static long cents(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(2).longValueExact();
+    }
+
+    /**
+     * The net change of every account moved by a settled transfer, 0 for those whose transfers cancelled out.
+     */
+    LongLongHashMap deltas() {
+        return deltas;
+    }
+
+    List<TransferDbo> settled() {
+        return settled;
+    }
+
+    /**
+     * @return the rejected transfers with the reason of their rejection
+     */
+    Map<TransferDbo, String> rejected() {
+        return rejected;
+    }
+
+    List<TransferDbo> deferred() {
+        return deferred;
+    }
+}
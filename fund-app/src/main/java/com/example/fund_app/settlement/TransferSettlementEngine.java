@@ -0,0 +1,380 @@
+package com.example.fund_app.settlement;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.concurrent.TaskScope;
+import com.example.fund_app.config.TransferSettlementProperties;
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.repository.TransferRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.TransactionAuditService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Settles the transfers submitted through the {@code TransferService}.
+ * <p>
+ * The pending transfers are partitioned by sender account, and the partitions are drained in parallel, each in the
+ * order the transfers were submitted, so the transfers of an account settle one after the other as they would have
+ * synchronously. Every transfer settles in its own transaction, which first takes its partition with an advisory lock:
+ * a partition is settled by one node at a time, the others skip it.
+ * <p>
+ * A transfer the accounts cannot take, for lack of funds or because one was deleted, is rejected. Other failures leave
+ * it pending, and hold back the rest of its partition, until a later round settles it or it runs out of attempts.
+ * <p>
+ * With netting on, a round first settles the oldest pending transfers by batches, holding every partition: the
+ * transfers within a currency are netted into one balance update per account, instead of two per transfer, while each
+ * of them is still marked settled and audited on its own. The transfers netting leaves out, between currencies, are
+ * then settled one by one.
+ * <p>
+ * The settlement transactions call the account service from within, past its bulkhead admission: each of them takes
+ * a write permit of the {@link DatabaseBulkhead} itself, and a round stops where the bulkhead turns it away.
+ */
+@Slf4j
+public class TransferSettlementEngine {
+
+    private static final int MAX_FAILURE_LENGTH = 255;
+
+    private final TransferSettlementProperties properties;
+    private final TransferRepository transferRepository;
+    private final AccountService accountService;
+    private final AccountRepository accountRepository;
+    private final AccountMapper accountMapper;
+    private final AccountCacheStore accountCacheStore;
+    private final TransactionAuditService transactionAuditService;
+    private final TransactionTemplate transaction;
+    private final DatabaseBulkhead bulkhead;
+
+    private final Counter settled;
+    private final Counter rejected;
+    private final Counter conflicts;
+    private final Timer lag;
+    private final Counter netted;
+    private final Counter nettedUpdates;
+
+    public TransferSettlementEngine(TransferSettlementProperties properties, TransferRepository transferRepository,
+                                    AccountService accountService, AccountRepository accountRepository,
+                                    AccountMapper accountMapper, AccountCacheStore accountCacheStore,
+                                    TransactionAuditService transactionAuditService, TransactionTemplate transaction,
+                                    DatabaseBulkhead bulkhead, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.transferRepository = transferRepository;
+        this.accountService = accountService;
+        this.accountRepository = accountRepository;
+        this.accountMapper = accountMapper;
+        this.accountCacheStore = accountCacheStore;
+        this.transactionAuditService = transactionAuditService;
+        this.transaction = transaction;
+        this.bulkhead = bulkhead;
+        this.settled = counter(meterRegistry, "settled");
+        this.rejected = counter(meterRegistry, "rejected");
+        this.conflicts = Counter.builder("transfers.settlement.conflicts")
+                .description("Settlements rolled back by a concurrent update of the accounts, retried the next round")
+                .register(meterRegistry);
+        this.lag = Timer.builder("transfers.settlement.lag")
+                .description("Time from the submission of a transfer to its settlement or rejection")
+                .register(meterRegistry);
+        this.netted = Counter.builder("transfers.netting.transfers")
+                .description("Transfers settled by netting, each would have updated its two accounts")
+                .register(meterRegistry);
+        this.nettedUpdates = Counter.builder("transfers.netting.account.updates")
+                .description("Account updates the netted transfers were applied with")
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("transfers.settlements")
+                .description("Transfers settled or rejected")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A round settles up to a batch of transfers in every partition holding pending ones.
+     */
+    @Scheduled(fixedDelayString = "${transfer-settlement.poll-interval:100ms}")
+    public void settle() {
+        if (properties.netting() && !netPending()) {
+            return;
+        }
+        List<Integer> partitions;
+        try {
+            partitions = transferRepository.findPendingPartitions(properties.partitions());
+        } catch (RuntimeException e) {
+            log.warn("[SETTLEMENT] Could not look the pending transfers up: {}", e.getMessage());
+            return;
+        }
+        try (TaskScope scope = new TaskScope()) {
+            partitions.stream()
+                    .map(partition -> scope.fork(() -> settlePartition(partition)))
+                    .toList()
+                    .forEach(TaskScope.Subtask::get);
+        }
+    }
+
+    /**
+     * Nets the pending transfers batch after batch, until they are all settled or netting leaves some out.
+     *
+     * @return whether transfers are left to settle one by one
+     */
+    boolean netPending() {
+        while (true) {
+            NettedBatch batch;
+            try {
+                batch = admitted(status -> netNext());
+            } catch (OptimisticLockingFailureException e) {
+                // An account of the batch changed meanwhile: the whole batch is still pending, the next round nets it
+                conflicts.increment();
+                return false;
+            } catch (DatabaseOverloadedException e) {
+                log.debug("[SETTLEMENT] Netting postponed: {}", e.getMessage());
+                return false;
+            } catch (RuntimeException e) {
+                log.warn("[SETTLEMENT] Netting stopped, settling the transfers one by one: {}", e.getMessage());
+                return true;
+            }
+            if (batch == null) {
+                // Another node settles some partitions, the free ones are settled one by one
+                return true;
+            }
+            record(batch);
+            if (!batch.netting().deferred().isEmpty()) {
+                return true;
+            }
+            if (batch.size() < properties.nettingBatchSize()) {
+                return false;
+            }
+        }
+    }
+
+    private NettedBatch netNext() {
+        for (int partition = 0; partition < properties.partitions(); partition++) {
+            if (!transferRepository.tryLockPartition(partition)) {
+                return null;
+            }
+        }
+        List<TransferDbo> transfers = transferRepository.findPending(properties.nettingBatchSize());
+        if (transfers.isEmpty()) {
+            return new NettedBatch(0, TransferNetting.net(transfers, Map.of()), 0);
+        }
+        Set<Long> accountIds = transfers.stream()
+                .flatMap(transfer -> Stream.of(transfer.getSenderAccount(), transfer.getReceiverAccount()))
+                .collect(Collectors.toSet());
+        Map<Long, AccountDbo> accounts = accountRepository.findAllById(accountIds).stream()
+                .collect(Collectors.toMap(AccountDbo::getAccountId, Function.identity()));
+        TransferNetting netting = TransferNetting.net(transfers, accounts);
+
+        int[] updates = {0};
+        netting.deltas().forEach((accountId, cents) -> {
+            if (cents != 0) {
+                AccountDbo account = accounts.get(accountId);
+                BigDecimal balance = account.getBalance() == null ? BigDecimal.ZERO : account.getBalance();
+                account.setBalance(balance.add(BigDecimal.valueOf(cents, 2)));
+                accountCacheStore.putAccount(account);
+                updates[0]++;
+            }
+        });
+
+        Instant now = Instant.now();
+        Map<Long, Account> models = new HashMap<>();
+        for (TransferDbo transfer : netting.settled()) {
+            transfer.setStatus(TransferStatus.SETTLED);
+            transfer.setSettledAt(now);
+            transactionAuditService.logTransfer(
+                    models.computeIfAbsent(transfer.getSenderAccount(), id -> accountMapper.toModel(accounts.get(id))),
+                    models.computeIfAbsent(transfer.getReceiverAccount(), id -> accountMapper.toModel(accounts.get(id))),
+                    transfer.getAmount(), transfer.getAmount());
+        }
+        netting.rejected().forEach((transfer, reason) -> {
+            transfer.setAttempts(transfer.getAttempts() + 1);
+            transfer.setStatus(TransferStatus.REJECTED);
+            transfer.setFailure(reason);
+            transfer.setSettledAt(now);
+        });
+        return new NettedBatch(transfers.size(), netting, updates[0]);
+    }
+
+    /**
+     * Once the batch committed.
+     */
+    private void record(NettedBatch batch) {
+        TransferNetting netting = batch.netting();
+        Instant now = Instant.now();
+        for (TransferDbo transfer : netting.settled()) {
+            settled.increment();
+            lag.record(Duration.between(transfer.getSubmittedAt(), now));
+        }
+        netting.rejected().forEach((transfer, reason) -> {
+            rejected.increment();
+            lag.record(Duration.between(transfer.getSubmittedAt(), now));
+            log.info("[SETTLEMENT] Transfer {} rejected: {}", transfer.getTransferId(), reason);
+        });
+        if (!netting.settled().isEmpty()) {
+            netted.increment(netting.settled().size());
+            nettedUpdates.increment(batch.accountUpdates());
+            log.debug("[SETTLEMENT] {} transfers netted into {} account updates instead of {}",
+                    netting.settled().size(), batch.accountUpdates(), netting.settled().size() * 2);
+        }
+    }
+
+    /**
+     * @return the number of transfers settled or rejected
+     */
+    int settlePartition(int partition) {
+        int done = 0;
+        while (done < properties.batchSize()) {
+            Attempt attempt;
+            try {
+                attempt = admitted(status -> settleNext(partition, status));
+            } catch (OptimisticLockingFailureException e) {
+                // The accounts changed while the transfer settled: it is still pending, the next round takes it again
+                conflicts.increment();
+                return done;
+            } catch (DatabaseOverloadedException e) {
+                log.debug("[SETTLEMENT] Settlement of partition {} postponed: {}", partition, e.getMessage());
+                return done;
+            } catch (RuntimeException e) {
+                log.warn("[SETTLEMENT] Settlement of partition {} stopped: {}", partition, e.getMessage());
+                return done;
+            }
+            if (attempt == null) {
+                // Nothing left to settle, or another node settles the partition
+                return done;
+            }
+            if (attempt.failure() == null) {
+                settled.increment();
+                lag.record(Duration.between(attempt.transfer().getSubmittedAt(), Instant.now()));
+            } else if (!fail(attempt)) {
+                return done;
+            }
+            done++;
+        }
+        return done;
+    }
+
+    private Attempt settleNext(int partition, TransactionStatus status) {
+        if (!transferRepository.tryLockPartition(partition)) {
+            return null;
+        }
+        TransferDbo transfer = transferRepository.findNextPending(properties.partitions(), partition).orElse(null);
+        if (transfer == null) {
+            return null;
+        }
+        try {
+            if (transfer.isToSend()) {
+                accountService.transferTo(transfer.getSenderAccount(), transfer.getReceiverAccount(),
+                        transfer.getAmount());
+            } else {
+                accountService.transferFrom(transfer.getSenderAccount(), transfer.getReceiverAccount(),
+                        transfer.getAmount());
+            }
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            status.setRollbackOnly();
+            return new Attempt(transfer, e);
+        }
+        transfer.setStatus(TransferStatus.SETTLED);
+        transfer.setSettledAt(Instant.now());
+        return new Attempt(transfer, null);
+    }
+
+    /**
+     * Records the failed attempt, in a transaction of its own since the one of the attempt rolled back.
+     *
+     * @return whether the transfer was rejected, and its partition can move on
+     */
+    private boolean fail(Attempt attempt) {
+        RuntimeException failure = attempt.failure();
+        boolean rejectedByAccounts =
+                failure instanceof AccountActionInvalidException || failure instanceof DbRecordNotFoundException;
+        Boolean rejectedNow;
+        try {
+            rejectedNow = admitted(status -> transferRepository
+                    .findById(attempt.transfer().getTransferId())
+                    .filter(transfer -> transfer.getStatus() == TransferStatus.PENDING)
+                    .map(transfer -> {
+                        transfer.setAttempts(transfer.getAttempts() + 1);
+                        if (!rejectedByAccounts && transfer.getAttempts() < properties.maxAttempts()) {
+                            return false;
+                        }
+                        transfer.setStatus(TransferStatus.REJECTED);
+                        String reason = String.valueOf(failure.getMessage());
+                        transfer.setFailure(reason.substring(0, Math.min(reason.length(), MAX_FAILURE_LENGTH)));
+                        transfer.setSettledAt(Instant.now());
+                        return true;
+                    })
+                    .orElse(null));
+        } catch (DatabaseOverloadedException e) {
+            // The attempt is not recorded, the transfer is still pending and the next round takes it again
+            log.debug("[SETTLEMENT] Transfer {} failed, to be retried: {}", attempt.transfer().getTransferId(),
+                    failure.getMessage());
+            return false;
+        }
+        if (rejectedNow == null) {
+            // Settled by another node meanwhile
+            return true;
+        }
+        if (rejectedNow) {
+            rejected.increment();
+            lag.record(Duration.between(attempt.transfer().getSubmittedAt(), Instant.now()));
+            log.info("[SETTLEMENT] Transfer {} rejected: {}", attempt.transfer().getTransferId(), failure.getMessage());
+            return true;
+        }
+        log.warn("[SETTLEMENT] Transfer {} failed, to be retried: {}", attempt.transfer().getTransferId(),
+                failure.getMessage());
+        return false;
+    }
+
+    /**
+     * Runs the transaction under a write permit of the bulkhead, if there is one.
+     *
+     * @throws DatabaseOverloadedException if the bulkhead turned it away, it never started then
+     */
+    private <T> T admitted(TransactionCallback<T> action) {
+        if (bulkhead == null) {
+            return transaction.execute(action);
+        }
+        bulkhead.acquire(DatabaseBulkhead.Budget.WRITE);
+        try {
+            return transaction.execute(action);
+        } finally {
+            bulkhead.release(DatabaseBulkhead.Budget.WRITE);
+        }
+    }
+
+    private record Attempt(TransferDbo transfer, RuntimeException failure) {
+    }
+
+    /**
+     * @param size the pending transfers the batch was made of
+     */
+    private record NettedBatch(int size, TransferNetting netting, int accountUpdates) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.fund_app.warmup;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeySnapshots;
+import com.example.fund_app.cache.HotKeyTracker;
+import com.example.fund_app.config.WarmUpProperties;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.mapper.OwnerMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.dto.TransferDto;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.ExchangeRateService;
+import com.example.fund_app.service.OwnerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Warms the application up before it reports ready.
+ * <p>
+ * Application runners complete before the readiness state switches to ACCEPTING_TRAFFIC,
+ * so the readiness probe keeps the node out of the load balancer until the warm-up is over. It:
+ * <ol>
+ *     <li>preloads the hottest accounts and owners saved by the previous nodes into the caches,</li>
+ *     <li>reads the stored exchange rates,</li>
+ *     <li>runs synthetic transfers in transactions that are always rolled back, to get the transfer, mapping and
+ *     serialization code compiled before the first real requests. Their accesses are kept out of the hot keys.</li>
+ * </ol>
+ * Every step stops once the time budget is exhausted, and a failing step never prevents the start.
+ */
+@Component
+@Slf4j
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final String SYNTHETIC_USERNAME_PREFIX = "warmup-";
+    private static final BigDecimal AMOUNT = BigDecimal.TEN;
+
+    private final WarmUpProperties properties;
+    private final HotKeySnapshots hotKeySnapshots;
+    private final HotKeyTracker hotKeyTracker;
+    private final AccountService accountService;
+    private final OwnerService ownerService;
+    private final ExchangeRateService exchangeRateService;
+    private final AccountMapper accountMapper;
+    private final OwnerMapper ownerMapper;
+    private final ObjectMapper objectMapper;
+    private final RedisTemplate<String, Object> cacheRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public WarmUpRunner(WarmUpProperties properties, HotKeySnapshots hotKeySnapshots, HotKeyTracker hotKeyTracker,
+                        AccountService accountService, OwnerService ownerService, ExchangeRateService exchangeRateService,
+                        AccountMapper accountMapper, OwnerMapper ownerMapper, ObjectMapper objectMapper,
+                        RedisTemplate<String, Object> cacheRedisTemplate,
+                        PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.hotKeySnapshots = hotKeySnapshots;
+        this.hotKeyTracker = hotKeyTracker;
+        this.accountService = accountService;
+        this.ownerService = ownerService;
+        this.exchangeRateService = exchangeRateService;
+        this.accountMapper = accountMapper;
+        this.ownerMapper = ownerMapper;
+        this.objectMapper = objectMapper;
+        this.cacheRedisTemplate = cacheRedisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + properties.budget().toNanos();
+        log.info("[WARMUP] Warming up within {}", properties.budget());
+
+        int accounts = preload(AccountCacheStore.ACCOUNTS_CACHE, accountService::findById, deadline);
+        int owners = preload(AccountCacheStore.OWNERS_CACHE, ownerService::getById, deadline);
+        Set<Currency> freshRates = preloadRates();
+        int iterations = exerciseRequestPaths(freshRates.contains(Currency.EUR), deadline);
+
+        log.info("[WARMUP] Preloaded {} accounts, {} owners, {} exchange rates and ran {} synthetic transfers in {} ms",
+                accounts, owners, freshRates.size(), iterations, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int preload(String cacheName, Consumer<Long> loader, long deadline) {
+        int loaded = 0;
+        try {
+            for (Long key : hotKeySnapshots.load(cacheName)) {
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+                try {
+                    loader.accept(key);
+                    loaded++;
+                } catch (DbRecordNotFoundException e) {
+                    log.debug("[WARMUP] {} {} no longer exists", cacheName, key);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("[WARMUP] Could not preload {}: {}", cacheName, e.getMessage());
+        }
+        return loaded;
+    }
+
+    private Set<Currency> preloadRates() {
+        try {
+            return exchangeRateService.preloadRates();
+        } catch (RuntimeException e) {
+            log.warn("[WARMUP] Could not preload the exchange rates: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private int exerciseRequestPaths(boolean withExchange, long deadline) {
+        int iterations = 0;
+        try {
+            while (iterations < properties.iterations() && System.nanoTime() < deadline) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    status.setRollbackOnly();
+                    hotKeyTracker.withoutRecording(() -> syntheticTransfer(withExchange));
+                });
+                iterations++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("[WARMUP] Synthetic transfers stopped after {} iterations: {}", iterations, e.getMessage());
+        }
+        return iterations;
+    }
+
+    /**
+     * Goes through the same services as the controllers, without the cache reads: a reader populating the cache
+     * would store state that is about to be rolled back. Cache writes and audit entries are only flushed on commit.
+     */
+    private void syntheticTransfer(boolean withExchange) {
+        Owner sender = ownerService.createOwner(SYNTHETIC_USERNAME_PREFIX + UUID.randomUUID());
+        Owner receiver = ownerService.createOwner(SYNTHETIC_USERNAME_PREFIX + UUID.randomUUID());
+        Long senderAccount = addAccount(sender, Currency.EUR);
+        Long receiverAccount = addAccount(receiver, Currency.EUR);
+
+        accountService.deposit(senderAccount, AMOUNT.multiply(BigDecimal.TEN));
+        accountService.transferTo(senderAccount, receiverAccount, AMOUNT);
+        accountService.transferFrom(receiverAccount, senderAccount, AMOUNT);
+        accountService.withdraw(senderAccount, AMOUNT);
+
+        if (withExchange) {
+            Long receiverForeignAccount = addAccount(receiver, Currency.USD);
+            accountService.transferTo(senderAccount, receiverForeignAccount, AMOUNT);
+        }
+
+        Owner owner = ownerService.addAccountToOwner(sender.getId(), Currency.GBP);
+        try {
+            objectMapper.writeValueAsBytes(ownerMapper.toDetailsDto(owner));
+            objectMapper.writeValueAsBytes(ownerMapper.toDto(owner));
+            for (Account account : owner.getAccounts()) {
+                objectMapper.writeValueAsBytes(accountMapper.toDto(account));
+            }
+            objectMapper.readValue(
+                    objectMapper.writeValueAsBytes(new TransferDto(senderAccount, receiverAccount, AMOUNT, true)),
+                    TransferDto.class);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        valueSerializer().deserialize(valueSerializer().serialize(owner));
+    }
+
+    private Long addAccount(Owner owner, Currency currency) {
+        return ownerService.addAccountToOwner(owner.getId(), currency).getAccounts().stream()
+                .filter(account -> account.getCurrency() == currency)
+                .findFirst()
+                .map(Account::getAccountId)
+                .orElseThrow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializer() {
+        return (RedisSerializer<Object>) cacheRedisTemplate.getValueSerializer();
+    }
+}
@@ -0,0 +1,30 @@
+-- Schema as Hibernate generated it until migrations were introduced. Databases created that way are baselined at
+-- version 0, so every statement here must be a no-op on them.
+
+CREATE SEQUENCE IF NOT EXISTS owner_sequence START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS account_sequence START WITH 1000 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS owners (
+    id                 bigint       NOT NULL,
+    name               varchar(255) NOT NULL,
+    owner_lock_version bigint       NOT NULL DEFAULT 0,
+    CONSTRAINT owners_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS accounts (
+    account_id           bigint         NOT NULL,
+    balance              numeric(38, 2),
+    currency             smallint       NOT NULL,
+    account_lock_version bigint         NOT NULL DEFAULT 0,
+    owner_id             bigint         NOT NULL,
+    CONSTRAINT accounts_pkey PRIMARY KEY (account_id),
+    CONSTRAINT fkdga5edlb4xcqscl7vmn6imknf FOREIGN KEY (owner_id) REFERENCES owners (id)
+);
+
+CREATE TABLE IF NOT EXISTS exchange_rates (
+    currency           varchar(255) NOT NULL,
+    last_updated_at    date         NOT NULL,
+    rates              jsonb,
+    xrate_lock_version bigint       NOT NULL DEFAULT 0,
+    CONSTRAINT exchange_rates_pkey PRIMARY KEY (currency)
+);
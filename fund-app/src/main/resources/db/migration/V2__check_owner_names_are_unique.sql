@@ -0,0 +1,14 @@
+-- Concurrent signups could create the same owner twice before names were unique. Owners hold accounts,
+-- so duplicates are not merged automatically: the migration stops until they are sorted out.
+DO $$
+DECLARE
+    duplicates text;
+BEGIN
+    SELECT string_agg(name, ', ') INTO duplicates
+    FROM (SELECT name FROM owners GROUP BY name HAVING count(*) > 1 LIMIT 20) d;
+
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'Owner names must be unique before migrating, duplicated: %', duplicates;
+    END IF;
+END
+$$;
@@ -0,0 +1,13 @@
+-- Built concurrently so signups go on meanwhile. A failed build leaves an invalid index behind: it is dropped
+-- here, so the migration only needs a repair to run again. A valid index, built by hand for instance, is kept.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1
+               FROM pg_index i
+               JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE c.relname = 'owners_name_unique' AND NOT i.indisvalid) THEN
+        DROP INDEX owners_name_unique;
+    END IF;
+END
+$$;
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS owners_name_unique ON owners (name);
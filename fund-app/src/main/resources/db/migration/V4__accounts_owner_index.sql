@@ -0,0 +1,3 @@
+-- Accounts are looked up and deleted by owner, and deleting an owner checks the foreign key against them:
+-- without an index, each of these scans the whole accounts table. Built concurrently like the names index.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS accounts_owner_id_idx ON accounts (owner_id);
@@ -0,0 +1,21 @@
+-- Transfers accepted by POST /accounts/transfers and settled in the background. A transfer is only inserted, then
+-- updated once when it settles or is rejected.
+CREATE SEQUENCE IF NOT EXISTS transfer_sequence START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS transfers (
+    transfer_id      bigint         NOT NULL,
+    sender_account   bigint         NOT NULL,
+    receiver_account bigint         NOT NULL,
+    amount           numeric(38, 2) NOT NULL,
+    to_send          boolean        NOT NULL,
+    status           varchar(16)    NOT NULL,
+    failure          varchar(255),
+    attempts         integer        NOT NULL DEFAULT 0,
+    submitted_at     timestamptz    NOT NULL,
+    settled_at       timestamptz,
+    CONSTRAINT transfers_pkey PRIMARY KEY (transfer_id)
+);
+
+-- The settlement only ever looks for the pending transfers, oldest first: the index holds those alone, so it stays
+-- as small as the backlog however many transfers settled before.
+CREATE INDEX IF NOT EXISTS transfers_pending_idx ON transfers (transfer_id) WHERE status = 'PENDING';
@@ -0,0 +1,23 @@
+-- Standing orders, transfers run at a date then again at every recurrence. A run inserts a pending transfer, settled
+-- like the submitted ones, and moves the order to its next run in the same transaction.
+CREATE SEQUENCE IF NOT EXISTS standing_order_sequence START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS standing_orders (
+    standing_order_id bigint         NOT NULL,
+    sender_account    bigint         NOT NULL,
+    receiver_account  bigint         NOT NULL,
+    amount            numeric(38, 2) NOT NULL,
+    to_send           boolean        NOT NULL,
+    recurrence        varchar(16)    NOT NULL,
+    first_run_at      timestamptz    NOT NULL,
+    next_run_at       timestamptz,
+    ends_at           timestamptz,
+    runs              integer        NOT NULL DEFAULT 0,
+    last_transfer_id  bigint,
+    status            varchar(16)    NOT NULL,
+    created_at        timestamptz    NOT NULL,
+    CONSTRAINT standing_orders_pkey PRIMARY KEY (standing_order_id)
+);
+
+-- The scheduler only ever looks for the active orders due first: the ended and cancelled ones stay out of the index.
+CREATE INDEX IF NOT EXISTS standing_orders_next_run_idx ON standing_orders (next_run_at) WHERE status = 'ACTIVE';
@@ -0,0 +1,9 @@
+-- Leases of the scheduled jobs run by a single node of the cluster at a time. The holder pushes the expiry back while
+-- its job runs, so the lease of a node that died is taken over by the next node asking for it once expired.
+CREATE TABLE IF NOT EXISTS scheduler_leases (
+    name        varchar(64)  NOT NULL,
+    holder      varchar(255) NOT NULL,
+    acquired_at timestamptz  NOT NULL,
+    expires_at  timestamptz  NOT NULL,
+    CONSTRAINT scheduler_leases_pkey PRIMARY KEY (name)
+);
@@ -0,0 +1,9 @@
+-- Changes the databases Hibernate created before the migrations, already in place on the ones created by V1.
+
+-- IDs are allocated by blocks of 50 (pooled-lo optimizer), older databases still increment by 1
+ALTER SEQUENCE owner_sequence INCREMENT BY 50;
+ALTER SEQUENCE account_sequence INCREMENT BY 50;
+
+-- Hibernate checked the currencies against the enum of the time, a new currency would have needed a migration
+ALTER TABLE accounts DROP CONSTRAINT IF EXISTS accounts_currency_check;
+ALTER TABLE exchange_rates DROP CONSTRAINT IF EXISTS exchange_rates_currency_check;
@@ -0,0 +1,5 @@
+-- The pending transfers settle in the order they were submitted: IDs come by blocks of 50 from each node, they only
+-- break the ties between submissions of the same instant. Built concurrently while transfers are submitted.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS transfers_pending_submitted_idx ON transfers (submitted_at, transfer_id)
+    WHERE status = 'PENDING';
+DROP INDEX CONCURRENTLY IF EXISTS transfers_pending_idx;
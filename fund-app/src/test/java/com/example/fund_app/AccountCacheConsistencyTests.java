@@ -0,0 +1,139 @@
+package com.example.fund_app;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.repository.OwnerRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.OwnerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+@Testcontainers
+class AccountCacheConsistencyTests {
+
+	private static final int READERS = 8;
+	private static final int DEPOSITS = 200;
+	private static final int WRITERS = 8;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private AccountCacheStore accountCacheStore;
+
+	@Autowired
+	private OwnerRepository ownerRepository;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	@BeforeEach
+	void setUp() { ownerRepository.deleteAll(); }
+
+	@Test
+	@DisplayName("should never serve a balance older than the last committed deposit")
+	void concurrentReadsNeverSeePreCommitBalance() throws Exception {
+		// Given
+		Owner owner = ownerService.createOwner("consistency");
+		Long accountId = ownerService.addAccountToOwner(owner.getId(), Currency.USD)
+				.getAccounts().iterator().next().getAccountId();
+
+		AtomicReference<BigDecimal> committedBalance = new AtomicReference<>(BigDecimal.ZERO);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		List<String> staleReads = new CopyOnWriteArrayList<>();
+
+		// When
+		try (ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < READERS; i++) {
+				int reader = i;
+				readers.submit(() -> {
+					while (writing.get()) {
+						// Force misses so readers keep racing the writer to repopulate the entry
+						if (ThreadLocalRandom.current().nextInt(4) == 0) {
+							accountCacheStore.evictAccount(accountId);
+						}
+
+						BigDecimal floor = committedBalance.get();
+						BigDecimal seen = accountService.findById(accountId).getBalance();
+						if (seen.compareTo(floor) < 0) {
+							staleReads.add("reader " + reader + " saw " + seen + " after " + floor + " was committed");
+						}
+					}
+					return null;
+				});
+			}
+
+			for (int i = 0; i < DEPOSITS; i++) {
+				accountService.deposit(accountId, BigDecimal.TEN);
+				committedBalance.set(committedBalance.get().add(BigDecimal.TEN));
+			}
+			writing.set(false);
+		}
+
+		// Then
+		assertTrue(staleReads.isEmpty(), () -> staleReads.size() + " stale reads, first: " + staleReads.getFirst());
+
+		BigDecimal dbBalance = accountRepository.findById(accountId).orElseThrow().getBalance();
+		assertEquals(0, committedBalance.get().compareTo(dbBalance));
+		assertEquals(0, dbBalance.compareTo(accountService.findById(accountId).getBalance()));
+	}
+
+	@Test
+	@DisplayName("should leave the cached account equal to the DB row once concurrent deposits have settled")
+	void concurrentWritersLeaveLatestVersionCached() {
+		// Given
+		Owner owner = ownerService.createOwner("writers");
+		Long accountId = ownerService.addAccountToOwner(owner.getId(), Currency.USD)
+				.getAccounts().iterator().next().getAccountId();
+
+		AtomicInteger committed = new AtomicInteger();
+
+		// When
+		try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < WRITERS; i++) {
+				writers.submit(() -> {
+					for (int j = 0; j < DEPOSITS / WRITERS; j++) {
+						try {
+							accountService.deposit(accountId, BigDecimal.TEN);
+							committed.incrementAndGet();
+						} catch (RuntimeException e) {
+							// A deposit that ran out of optimistic lock retries changed nothing
+						}
+					}
+				});
+			}
+		}
+
+		// Then
+		AccountDbo row = accountRepository.findById(accountId).orElseThrow();
+		assertTrue(committed.get() > 0);
+		assertEquals(0, BigDecimal.TEN.multiply(BigDecimal.valueOf(committed.get())).compareTo(row.getBalance()));
+
+		Account cached = accountCacheStore.getAccount(accountId, () -> fail("the account should be cached"));
+		assertEquals(row.getVersion(), cached.getVersion());
+		assertEquals(0, row.getBalance().compareTo(cached.getBalance()));
+	}
+}
@@ -0,0 +1,204 @@
+package com.example.fund_app;
+
+import com.example.fund_app.batch.ExchangeRateBatchConfiguration;
+import com.example.fund_app.batch.ExchangeRatePartitioner;
+import com.example.fund_app.feign.ERApiResponse;
+import com.example.fund_app.feign.ExchangeRateClient;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.repository.ExchangeRateRepository;
+import com.example.fund_app.scheduler.ExchangeRateJobScheduler;
+import com.example.fund_app.scheduler.SchedulerLease;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Runs the partitioned exchange rate job as a cluster would: a node dies in the middle of a run, leaving it running in
+ * the job repository, and the next node taking its lease restarts the run where it stopped.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"warmup.enabled=false", "spring.batch.cron.expression.xrate=-",
+		"xrate.job.partitioned=true", "xrate.job.partitions=3", "xrate.job.partition-poll-interval=100ms"})
+@Testcontainers
+class ExchangeRateJobFailoverTests {
+
+	private static final String DEAD_NODE = "dead-node";
+	private static final String READ_COUNT = "exchangeRateItemReader.read.count";
+
+	@MockitoBean
+	private ExchangeRateClient exchangeRateClient;
+
+	@Autowired
+	private ExchangeRateJobScheduler scheduler;
+
+	@Autowired
+	private Job exchangeRateJob;
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private JobExplorer jobExplorer;
+
+	@Autowired
+	private JobRepository jobRepository;
+
+	@Autowired
+	private ExchangeRateRepository exchangeRateRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Currency> fetched = new CopyOnWriteArrayList<>();
+	private List<String> seeded;
+
+	@BeforeEach
+	void setUp() {
+		cleanUp();
+		seeded = jdbcTemplate.queryForList("""
+				INSERT INTO exchange_rates (currency, last_updated_at, rates)
+				SELECT currency, current_date - 1, '{}'::jsonb FROM unnest(?::varchar[]) AS currency
+				ON CONFLICT (currency) DO NOTHING
+				RETURNING currency
+				""", String.class, (Object) Arrays.stream(Currency.values()).map(Currency::name).toArray(String[]::new));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		JobInstance instance = jobExplorer.getJobInstance(ExchangeRateBatchConfiguration.JOB_NAME, parameters(DEAD_NODE));
+		if (instance != null) {
+			jobRepository.deleteJobInstance(instance);
+		}
+		jdbcTemplate.update("DELETE FROM scheduler_leases");
+		if (seeded != null) {
+			jdbcTemplate.update("DELETE FROM exchange_rates WHERE currency = ANY (?::varchar[])",
+					(Object) seeded.toArray(String[]::new));
+		}
+	}
+
+	@Test
+	@DisplayName("should restart the run of a dead node from its last commits once its lease expired")
+	void restartRunOfDeadNode() throws Exception {
+		// Given a run with a partition failing after its first commit
+		List<Currency> outOfDate = exchangeRateRepository.findCurrenciesByLastUpdatedAtBefore(LocalDate.now());
+		Currency failing = outOfDate.get(3 * 15);
+		AtomicBoolean failed = new AtomicBoolean();
+		doAnswer(invocation -> {
+			Currency currency = invocation.getArgument(0);
+			if (currency == failing && failed.compareAndSet(false, true)) {
+				throw new IllegalStateException("Connection reset");
+			}
+			fetched.add(currency);
+			return ResponseEntity.ok(new ERApiResponse("success", currency.name(), Map.of("EUR", BigDecimal.ONE)));
+		}).when(exchangeRateClient).fetchRatesPerCurrency(any());
+		JobExecution interrupted = jobLauncher.run(exchangeRateJob, parameters(DEAD_NODE));
+		assertEquals(BatchStatus.FAILED, interrupted.getStatus());
+
+		// left running by its node, dead with its lease still held
+		jdbcTemplate.update("UPDATE batch_job_execution SET status = 'STARTED', exit_code = 'UNKNOWN', end_time = NULL"
+				+ " WHERE job_execution_id = ?", interrupted.getId());
+		jdbcTemplate.update("UPDATE batch_step_execution SET status = 'STARTED', exit_code = 'EXECUTING', end_time = NULL"
+				+ " WHERE job_execution_id = ? AND status = 'FAILED'", interrupted.getId());
+		jdbcTemplate.update("INSERT INTO scheduler_leases VALUES (?, ?, now(), now() + interval '1 minute')",
+				ExchangeRateBatchConfiguration.JOB_NAME, DEAD_NODE);
+		StepExecution lost = jobExplorer.getJobExecution(interrupted.getId()).getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().startsWith("exchangeRateStep:")
+						&& stepExecution.getStatus() == BatchStatus.STARTED)
+				.findFirst().orElseThrow();
+		List<Currency> lostCurrencies = ExchangeRatePartitioner.currencies(
+				lost.getExecutionContext().getString(ExchangeRatePartitioner.CURRENCIES_KEY));
+		int committed = lost.getExecutionContext().getInt(READ_COUNT);
+		assertEquals(outOfDate.size() - lostCurrencies.size() + 15, fetched.size());
+		assertEquals(10, committed);
+		fetched.clear();
+
+		// When
+		scheduler.runExchangeRateBatch();
+		List<Currency> fetchedUnderLease = List.copyOf(fetched);
+		jdbcTemplate.update("UPDATE scheduler_leases SET expires_at = now() - interval '1 second'");
+		scheduler.runExchangeRateBatch();
+		List<Currency> fetchedOnRestart = List.copyOf(fetched);
+		scheduler.runExchangeRateBatch();
+
+		// Then
+		assertTrue(fetchedUnderLease.isEmpty());
+		assertEquals(lostCurrencies.subList(committed, lostCurrencies.size()), fetchedOnRestart);
+		assertEquals(fetchedOnRestart, fetched);
+		JobInstance instance = jobExplorer.getJobInstance(ExchangeRateBatchConfiguration.JOB_NAME,
+				parameters(DEAD_NODE));
+		List<JobExecution> executions = jobExplorer.getJobExecutions(instance);
+		assertEquals(2, executions.size());
+		assertEquals(BatchStatus.COMPLETED, jobExplorer.getLastJobExecution(instance).getStatus());
+		assertEquals(BatchStatus.FAILED, jobExplorer.getJobExecution(interrupted.getId()).getStatus());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM scheduler_leases", Integer.class));
+	}
+
+	@Test
+	@DisplayName("should let a single node hold the lease until it releases it or lets it expire")
+	void contendForLease() throws Exception {
+		// Given
+		SchedulerLease first = new SchedulerLease(jdbcTemplate, "leaseTest", "first", Duration.ofMillis(500));
+		SchedulerLease second = new SchedulerLease(jdbcTemplate, "leaseTest", "second", Duration.ofMillis(500));
+
+		// When
+		boolean firstAcquired = first.tryAcquire();
+		boolean secondWhileHeld = second.tryAcquire();
+		boolean secondRenewedWhileHeld = second.renew();
+		boolean firstRenewed = first.renew();
+		Thread.sleep(600);
+		boolean secondOnceExpired = second.tryAcquire();
+		boolean firstRenewedOnceLost = first.renew();
+		first.release();
+		boolean firstWhileHeldBySecond = first.tryAcquire();
+		second.release();
+		boolean firstOnceReleased = first.tryAcquire();
+
+		// Then
+		assertTrue(firstAcquired);
+		assertFalse(secondWhileHeld);
+		assertFalse(secondRenewedWhileHeld);
+		assertTrue(firstRenewed);
+		assertTrue(secondOnceExpired);
+		assertFalse(firstRenewedOnceLost);
+		assertFalse(firstWhileHeldBySecond);
+		assertTrue(firstOnceReleased);
+	}
+
+	private static JobParameters parameters(String node) {
+		return new JobParametersBuilder()
+				.addLocalDate(ExchangeRateBatchConfiguration.DATE_PARAMETER, LocalDate.now())
+				.addString(ExchangeRateBatchConfiguration.NODE_PARAMETER, node, false)
+				.toJobParameters();
+	}
+}
@@ -1,9 +1,17 @@
 package com.example.fund_app;
 
+import com.example.fund_app.batch.OwnerImportEndpoint;
+import com.example.fund_app.batch.OwnerImportReport;
 import com.example.fund_app.model.Currency;
 import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.Recurrence;
+import com.example.fund_app.model.dto.AccountDetailsViewDto;
 import com.example.fund_app.model.dto.AccountViewDto;
+import com.example.fund_app.model.dto.OwnerDetailsViewDto;
+import com.example.fund_app.model.dto.OwnerOnboardingDto;
+import com.example.fund_app.model.dto.OwnerSearchPageDto;
 import com.example.fund_app.model.dto.OwnerViewDto;
+import com.example.fund_app.model.dto.StandingOrderDto;
 import com.example.fund_app.model.dto.TransferDto;
 import com.example.fund_app.repository.AccountRepository;
 import com.example.fund_app.repository.OwnerRepository;
@@ -11,25 +19,45 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Import(TestcontainersConfiguration.class)
@@ -50,6 +78,15 @@ class FundAppApplicationTests {
 	@MockitoSpyBean
 	private OwnerRepository ownerRepositorySpy;
 
+	@Autowired
+	private RedisTemplate<String, Object> cacheRedisTemplate;
+
+	@Autowired
+	private OwnerImportEndpoint ownerImportEndpoint;
+
+	@Autowired
+	private DataSource dataSource;
+
 	private final ObjectMapper objectMapper = new ObjectMapper();
 
 	@BeforeEach
@@ -99,10 +136,20 @@ class FundAppApplicationTests {
 		assertNotNull(dto);
 		assertFalse(dto.accountIds().isEmpty());
 
-		// Call to delete owner
-		mockMvc.perform(delete("/owners/" + ownerId));
+		// Put the account into cache too
+		Long accountId = dto.accountIds().iterator().next();
+		mockMvc.perform(get("/accounts/" + accountId))
+				.andExpect(status().isOk());
 
+		// Call to delete owner
+		mockMvc.perform(delete("/owners/" + ownerId))
+				.andExpect(status().isNoContent());
 
+		// Check owner and account have been evicted from cache
+		mockMvc.perform(get("/owners/" + ownerId))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/accounts/" + accountId))
+				.andExpect(status().isNotFound());
 
 		// Check owner has been deleted from DB
 		String responseBody3 = mockMvc.perform(get("/owners"))
@@ -349,4 +396,433 @@ class FundAppApplicationTests {
 
 		assertEquals(expectedBalance.setScale(2, RoundingMode.HALF_EVEN),view6.balance());
 	}
+
+	@Test
+	@DisplayName("should onboard owners with their accounts in bulk, all or nothing")
+	void createOwnersInBulk_ThenRejectTakenUsernames() throws Exception {
+		// Enough owners to span two flushes
+		List<OwnerOnboardingDto> onboardings = IntStream.range(0, 1500)
+				.mapToObj(i -> new OwnerOnboardingDto("onboard" + String.valueOf(i).chars()
+								.mapToObj(digit -> String.valueOf((char) ('a' + digit - '0')))
+								.collect(Collectors.joining()),
+						Set.of(Currency.EUR, Currency.USD)))
+				.toList();
+
+		String responseBody = mockMvc.perform(post("/owners/bulk")
+						.content(objectMapper.writeValueAsString(onboardings))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+
+		List<OwnerViewDto> created = List.of(objectMapper.readValue(responseBody, OwnerViewDto[].class));
+		assertEquals(onboardings.stream().map(OwnerOnboardingDto::username).toList(),
+				created.stream().map(OwnerViewDto::username).toList());
+		created.forEach(owner -> assertEquals(2, owner.accountIds().size()));
+		assertEquals(1500, ownerRepository.count());
+		assertEquals(3000, accountRepository.count());
+
+		// A taken username rejects the whole request
+		mockMvc.perform(post("/owners/bulk")
+						.content(objectMapper.writeValueAsString(List.of(
+								new OwnerOnboardingDto("newcomer", Set.of(Currency.EUR)), onboardings.get(0))))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+		assertFalse(ownerRepository.existsByUsername("newcomer"));
+	}
+
+	@Test
+	@DisplayName("should create an owner signed up concurrently only once")
+	void createSameOwnerConcurrently_ThenOnlyOneIsCreated() throws Exception {
+		List<Integer> statuses;
+		try (ExecutorService signups = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Integer>> responses = IntStream.range(0, 20)
+					.mapToObj(i -> signups.submit(() -> mockMvc.perform(post("/owners").param("name", "racer"))
+							.andReturn()
+							.getResponse()
+							.getStatus()))
+					.toList();
+			statuses = new ArrayList<>();
+			for (Future<Integer> response : responses) {
+				statuses.add(response.get());
+			}
+		}
+
+		// Requests beyond the write budget may be shed, every other one but the first is told the name is taken
+		assertEquals(1, statuses.stream().filter(status -> status == 201).count());
+		assertTrue(statuses.stream().allMatch(status -> status == 201 || status == 400 || status == 503),
+				statuses::toString);
+		assertTrue(statuses.contains(400), statuses::toString);
+		assertEquals(1, ownerRepository.count());
+		assertTrue(ownerRepository.existsByUsername("racer"));
+	}
+
+	@Test
+	@DisplayName("should import owners from CSV and NDJSON files, merging them with the existing ones")
+	void importOwnersFromCsv_ThenFromNdjson_ThenRejectSameFileAgain(@TempDir Path directory) throws Exception {
+		// BatchTestConfig enables batch processing, which turns off the batch schema initialization of Spring Boot
+		ResourceDatabasePopulator batchSchema = new ResourceDatabasePopulator(
+				new ClassPathResource("org/springframework/batch/core/schema-postgresql.sql"));
+		batchSchema.setContinueOnError(true);
+		batchSchema.execute(dataSource);
+
+		// An existing owner, cached before the import gives it a new account
+		mockMvc.perform(post("/owners").param("name", "legacy"));
+		Long legacyId = ownerRepository.findAll().getFirst().getId();
+		mockMvc.perform(get("/owners/" + legacyId));
+
+		Path csv = Files.writeString(directory.resolve("owners.csv"), """
+				username,currency
+				legacy,EUR
+				alice,EUR
+				alice,USD
+				"bob, jr",
+				x1,EUR
+				carol,XXX
+				""");
+
+		OwnerImportReport csvReport = ownerImportEndpoint.importOwners(csv.toString(), null);
+
+		assertEquals(BatchStatus.COMPLETED, csvReport.status());
+		assertEquals(6, csvReport.rows());
+		assertEquals(2, csvReport.rejected());
+		assertEquals(2, csvReport.ownersCreated());
+		assertEquals(3, csvReport.accountsCreated());
+		assertEquals(1, csvReport.ownersEvicted());
+		assertEquals(3, csvReport.ownersWarmed());
+		assertTrue(csvReport.rowsPerSecond().containsKey("job"));
+
+		// The evicted owner is read again with its new account
+		String legacyBody = mockMvc.perform(get("/owners/" + legacyId + "/details"))
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+		OwnerDetailsViewDto legacy = objectMapper.readValue(legacyBody, OwnerDetailsViewDto.class);
+		assertEquals(Currency.EUR, legacy.accountDetails().iterator().next().currency());
+
+		Path ndjson = Files.writeString(directory.resolve("owners.ndjson"), """
+				{"username": "alice", "currencies": ["EUR", "GBP"]}
+				{"username": "dave", "currencies": []}
+				""");
+
+		OwnerImportReport ndjsonReport = ownerImportEndpoint.importOwners(ndjson.toString(), null);
+
+		assertEquals(BatchStatus.COMPLETED, ndjsonReport.status());
+		assertEquals(3, ndjsonReport.rows());
+		assertEquals(1, ndjsonReport.ownersCreated());
+		assertEquals(1, ndjsonReport.accountsCreated());
+		assertEquals(4, ownerRepository.count());
+		assertEquals(4, accountRepository.count());
+
+		// IDs come from the entity sequences, the application keeps inserting without collision
+		mockMvc.perform(post("/owners").param("name", "newcomer"))
+				.andExpect(status().isCreated());
+
+		assertThrows(RuntimeException.class, () -> ownerImportEndpoint.importOwners(ndjson.toString(), "ndjson"));
+	}
+
+	@Test
+	@DisplayName("should stream every owner with its accounts")
+	void createOwnersInBulk_ThenExportThem() throws Exception {
+		List<OwnerOnboardingDto> onboardings = List.of(
+				new OwnerOnboardingDto("exportone", Set.of(Currency.EUR, Currency.USD)),
+				new OwnerOnboardingDto("exporttwo", Set.of()));
+		mockMvc.perform(post("/owners/bulk")
+						.content(objectMapper.writeValueAsString(onboardings))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated());
+
+		MvcResult result = mockMvc.perform(get("/owners/export"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+
+		List<OwnerDetailsViewDto> exported = body.lines()
+				.map(line -> {
+					try {
+						return objectMapper.readValue(line, OwnerDetailsViewDto.class);
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				})
+				.toList();
+		assertEquals(List.of("exportone", "exporttwo"), exported.stream().map(OwnerDetailsViewDto::username).toList());
+		assertEquals(2, exported.getFirst().accountDetails().size());
+		assertTrue(exported.getLast().accountDetails().isEmpty());
+	}
+
+	@Test
+	@DisplayName("should search owners by username prefix page after page, leaving the deleted ones out")
+	void createOwnersInBulk_ThenDeleteOne_ThenSearchThemByPages() throws Exception {
+		List<OwnerOnboardingDto> onboardings = Stream.of("seekb", "seeka", "seekd", "seekc", "seeke", "other")
+				.map(username -> new OwnerOnboardingDto(username, Set.of()))
+				.toList();
+		String responseBody = mockMvc.perform(post("/owners/bulk")
+						.content(objectMapper.writeValueAsString(onboardings))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+		Long deletedId = Stream.of(objectMapper.readValue(responseBody, OwnerViewDto[].class))
+				.filter(owner -> owner.username().equals("seekc"))
+				.findFirst()
+				.orElseThrow()
+				.id();
+		mockMvc.perform(delete("/owners/" + deletedId))
+				.andExpect(status().isNoContent());
+
+		OwnerSearchPageDto firstPage = objectMapper.readValue(mockMvc.perform(get("/owners/search")
+						.param("q", "seek")
+						.param("size", "2"))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getContentAsString(), OwnerSearchPageDto.class);
+		OwnerSearchPageDto lastPage = objectMapper.readValue(mockMvc.perform(get("/owners/search")
+						.param("q", "seek")
+						.param("after", firstPage.next())
+						.param("size", "2"))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getContentAsString(), OwnerSearchPageDto.class);
+
+		assertEquals(List.of("seeka", "seekb"), firstPage.owners().stream().map(OwnerViewDto::username).toList());
+		assertEquals("seekb", firstPage.next());
+		assertEquals(List.of("seekd", "seeke"), lastPage.owners().stream().map(OwnerViewDto::username).toList());
+		assertNull(lastPage.next());
+	}
+
+	@Test
+	@DisplayName("should read several owners and accounts at once, loading the missing ones in one query")
+	void createOwners_ThenGetThemInBulk_ThenGetTheirAccountsInBulk() throws Exception {
+		// Create two owners with one account each
+		mockMvc.perform(post("/owners").param("name", "bulkone"));
+		mockMvc.perform(post("/owners").param("name", "bulktwo"));
+
+		String responseBody = mockMvc.perform(get("/owners"))
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+
+		Map<String, Object> response = objectMapper.readValue(responseBody, Map.class);
+		List<Long> ownerIds = ((List<Object>) response.get("content")).stream()
+				.map(owner -> objectMapper.convertValue(owner, OwnerViewDto.class).id())
+				.toList();
+
+		for (Long ownerId : ownerIds) {
+			mockMvc.perform(patch("/owners/" + ownerId)
+					.param("currency", Currency.USD.name()));
+		}
+
+		// Drop the cached owners so the bulk read has to load them
+		ownerIds.forEach(ownerId -> cacheRedisTemplate.delete("fund-app:owners::" + ownerId));
+
+		String detailsBody = mockMvc.perform(get("/owners/details")
+						.param("ids", ownerIds.get(1) + "," + ownerIds.get(0) + ",0"))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+
+		List<OwnerDetailsViewDto> details = List.of(objectMapper.readValue(detailsBody, OwnerDetailsViewDto[].class));
+		assertEquals(List.of(ownerIds.get(1), ownerIds.get(0)), details.stream().map(OwnerDetailsViewDto::id).toList());
+		verify(ownerRepositorySpy, times(1)).findAllById(any());
+
+		// The owners have been backfilled, the second read does not reach the DB
+		mockMvc.perform(get("/owners/details")
+						.param("ids", ownerIds.get(0) + "," + ownerIds.get(1)))
+				.andExpect(status().isOk());
+		verify(ownerRepositorySpy, times(1)).findAllById(any());
+
+		// Then read their accounts in one call
+		List<Long> accountIds = details.stream()
+				.flatMap(owner -> owner.accountDetails().stream())
+				.map(AccountDetailsViewDto::accountId)
+				.toList();
+
+		String accountsBody = mockMvc.perform(post("/accounts/lookup")
+						.content(objectMapper.writeValueAsString(accountIds))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+
+		Map<String, AccountViewDto> accounts = objectMapper.readValue(accountsBody,
+				objectMapper.getTypeFactory().constructMapType(Map.class, String.class, AccountViewDto.class));
+		assertEquals(2, accounts.size());
+		accounts.values().forEach(account -> assertEquals(Currency.USD, account.currency()));
+	}
+
+	@Test
+	@DisplayName("should accept transfers, then settle or reject them in the background")
+	void createAccounts_ThenSubmitTransfers_ThenSettleThem() throws Exception {
+		// Create two owners with one USD account each, the first one funded
+		mockMvc.perform(post("/owners").param("name", "payer"));
+		mockMvc.perform(post("/owners").param("name", "payee"));
+
+		String responseBody = mockMvc.perform(get("/owners"))
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+
+		Map<String, Object> response = objectMapper.readValue(responseBody, Map.class);
+		List<Long> ownerIds = ((List<Object>) response.get("content")).stream()
+				.map(owner -> objectMapper.convertValue(owner, OwnerViewDto.class).id())
+				.toList();
+
+		List<Long> accountIds = new ArrayList<>();
+		for (Long ownerId : ownerIds) {
+			mockMvc.perform(patch("/owners/" + ownerId)
+					.param("currency", Currency.USD.name()));
+			String ownerBody = mockMvc.perform(get("/owners/" + ownerId))
+					.andReturn()
+					.getResponse()
+					.getContentAsString();
+			accountIds.add(objectMapper.readValue(ownerBody, OwnerViewDto.class).accountIds().iterator().next());
+		}
+		mockMvc.perform(post("/accounts/" + accountIds.get(0) + "/deposit")
+				.param("amount", "100"));
+
+		// Submit a transfer the payer can afford, then one it cannot afford anymore
+		String settledLocation = submitTransfer(new TransferDto(accountIds.get(0), accountIds.get(1),
+				BigDecimal.valueOf(60), true));
+		String rejectedLocation = submitTransfer(new TransferDto(accountIds.get(0), accountIds.get(1),
+				BigDecimal.valueOf(60), true));
+
+		// An unknown account is refused right away
+		mockMvc.perform(post("/accounts/transfers")
+						.content(objectMapper.writeValueAsString(new TransferDto(accountIds.get(0), 0L,
+								BigDecimal.TEN, true)))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+
+		// Both settle in the order they were submitted
+		Map<String, Object> settled = awaitTransfer(settledLocation);
+		assertEquals("SETTLED", settled.get("status"));
+		Map<String, Object> rejected = awaitTransfer(rejectedLocation);
+		assertEquals("REJECTED", rejected.get("status"));
+		assertEquals("The account does not have sufficient funds for this operation", rejected.get("failure"));
+
+		for (int i = 0; i < 2; i++) {
+			String accountBody = mockMvc.perform(get("/accounts/" + accountIds.get(i)))
+					.andExpect(status().isOk())
+					.andReturn()
+					.getResponse()
+					.getContentAsString();
+			BigDecimal balance = objectMapper.readValue(accountBody, AccountViewDto.class).balance();
+			assertEquals(0, BigDecimal.valueOf(i == 0 ? 40 : 60).compareTo(balance));
+		}
+
+		mockMvc.perform(get("/accounts/transfers/0"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	@DisplayName("should run a standing order into a settled transfer, then stop running it once cancelled")
+	void createAccounts_ThenCreateStandingOrder_ThenRunIt_ThenCancelIt() throws Exception {
+		// Create two owners with one USD account each, the first one funded
+		mockMvc.perform(post("/owners").param("name", "orderer"));
+		mockMvc.perform(post("/owners").param("name", "beneficiary"));
+
+		String responseBody = mockMvc.perform(get("/owners"))
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+
+		Map<String, Object> response = objectMapper.readValue(responseBody, Map.class);
+		List<Long> ownerIds = ((List<Object>) response.get("content")).stream()
+				.map(owner -> objectMapper.convertValue(owner, OwnerViewDto.class).id())
+				.toList();
+
+		List<Long> accountIds = new ArrayList<>();
+		for (Long ownerId : ownerIds) {
+			mockMvc.perform(patch("/owners/" + ownerId)
+					.param("currency", Currency.USD.name()));
+			String ownerBody = mockMvc.perform(get("/owners/" + ownerId))
+					.andReturn()
+					.getResponse()
+					.getContentAsString();
+			accountIds.add(objectMapper.readValue(ownerBody, OwnerViewDto.class).accountIds().iterator().next());
+		}
+		mockMvc.perform(post("/accounts/" + accountIds.get(0) + "/deposit")
+				.param("amount", "100"));
+
+		// A daily order first run right away
+		String location = mockMvc.perform(post("/accounts/standing-orders")
+						.content(objectMapper.writeValueAsString(new StandingOrderDto(accountIds.get(0),
+								accountIds.get(1), BigDecimal.valueOf(30), true, Recurrence.DAILY, null, null)))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn()
+				.getResponse()
+				.getHeader("Location");
+
+		// Its first run is settled as a transfer, the next one is due tomorrow
+		Map<String, Object> standingOrder;
+		long deadline = System.currentTimeMillis() + 10_000;
+		do {
+			Thread.sleep(50);
+			String body = mockMvc.perform(get(location))
+					.andExpect(status().isOk())
+					.andReturn()
+					.getResponse()
+					.getContentAsString();
+			standingOrder = objectMapper.readValue(body, Map.class);
+		} while ((Integer) standingOrder.get("runs") == 0 && System.currentTimeMillis() < deadline);
+		assertEquals(1, standingOrder.get("runs"));
+		assertEquals("ACTIVE", standingOrder.get("status"));
+		// Dates are written in seconds since the epoch
+		assertTrue(((Number) standingOrder.get("nextRunAt")).longValue() > Instant.now().getEpochSecond() + 86_000);
+
+		Map<String, Object> transfer = awaitTransfer("/accounts/transfers/" + standingOrder.get("lastTransferId"));
+		assertEquals("SETTLED", transfer.get("status"));
+
+		// Cancelled, it does not run anymore
+		mockMvc.perform(delete(location))
+				.andExpect(status().isNoContent());
+		String cancelledBody = mockMvc.perform(get(location))
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+		Map<String, Object> cancelled = objectMapper.readValue(cancelledBody, Map.class);
+		assertEquals("CANCELLED", cancelled.get("status"));
+		assertNull(cancelled.get("nextRunAt"));
+	}
+
+	/**
+	 * @return the location of the status of the accepted transfer
+	 */
+	private String submitTransfer(TransferDto dto) throws Exception {
+		return mockMvc.perform(post("/accounts/transfers")
+						.content(objectMapper.writeValueAsString(dto))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isAccepted())
+				.andReturn()
+				.getResponse()
+				.getHeader("Location");
+	}
+
+	private Map<String, Object> awaitTransfer(String location) throws Exception {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (true) {
+			String body = mockMvc.perform(get(location))
+					.andExpect(status().isOk())
+					.andReturn()
+					.getResponse()
+					.getContentAsString();
+			Map<String, Object> transfer = objectMapper.readValue(body, Map.class);
+			if (!"PENDING".equals(transfer.get("status")) || System.currentTimeMillis() > deadline) {
+				return transfer;
+			}
+			Thread.sleep(50);
+		}
+	}
 }
@@ -0,0 +1,180 @@
+package com.example.fund_app;
+
+import com.example.fund_app.datasource.GroupCommitExecutor;
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.OwnerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput and latency of deposits committed one by one, then by groups over growing windows. One operation in ten
+ * is a withdrawal the account cannot afford, which must fail alone. The deposits add 1, so the balances must add up
+ * to the successful deposits.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}, tuned with the system properties groupcommit.operations,
+ * groupcommit.callers and groupcommit.accounts.
+ */
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+// Commits one by one through the bulkhead as the baseline, the groups are run by executors built for each window
+@SpringBootTest(properties = {"warmup.enabled=false", "datasource.bulkhead.max-wait=1m",
+		"group-commit.enabled=false"})
+@Testcontainers
+@Slf4j
+class GroupCommitBenchmarkTests {
+
+	private static final int OPERATIONS = Integer.getInteger("groupcommit.operations", 5_000);
+	private static final int CALLERS = Integer.getInteger("groupcommit.callers", 32);
+	private static final int ACCOUNTS = Integer.getInteger("groupcommit.accounts", 200);
+	private static final Duration[] WINDOWS = {Duration.ZERO, Duration.ofMillis(1), Duration.ofMillis(2),
+			Duration.ofMillis(5)};
+	private static final int MAX_OPERATIONS = 64;
+	private static final int COMMITTERS = 2;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	@DisplayName("should commit grouped operations faster, failing the unaffordable withdrawals alone")
+	void groupCommitThroughput() throws Exception {
+		log.info("[GROUPCOMMIT] synchronous_commit={}, fsync={}",
+				jdbcTemplate.queryForObject("SHOW synchronous_commit", String.class),
+				jdbcTemplate.queryForObject("SHOW fsync", String.class));
+		String run = letters(System.currentTimeMillis() % 100_000);
+
+		benchmark("one by one", accounts(run + "x"), null);
+		for (Duration window : WINDOWS) {
+			try (GroupCommitExecutor executor = new GroupCommitExecutor(window, MAX_OPERATIONS, COMMITTERS,
+					Duration.ofMinutes(1), new TransactionTemplate(transactionManager), null, null, meterRegistry)) {
+				benchmark("window " + window.toMillis() + " ms", accounts(run + letters(window.toMillis())),
+						executor);
+			}
+		}
+	}
+
+	private void benchmark(String mode, List<Long> accountIds, GroupCommitExecutor executor) throws Exception {
+		// Given
+		AtomicInteger next = new AtomicInteger();
+		LongAdder deposited = new LongAdder();
+		LongAdder refused = new LongAdder();
+		LongAdder conflicted = new LongAdder();
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		long[] latencies = new long[OPERATIONS];
+
+		// When
+		long start = System.nanoTime();
+		try (ExecutorService callers = Executors.newFixedThreadPool(CALLERS, Thread.ofVirtual().factory())) {
+			for (int t = 0; t < CALLERS; t++) {
+				callers.submit(() -> {
+					for (int i = next.getAndIncrement(); i < OPERATIONS; i = next.getAndIncrement()) {
+						Long accountId = accountIds.get(i % ACCOUNTS);
+						boolean withdrawal = i % 10 == 9;
+						long operationStart = System.nanoTime();
+						try {
+							if (withdrawal) {
+								run(executor, accountId, () -> accountService.withdraw(accountId,
+										BigDecimal.valueOf(1_000_000)));
+							} else {
+								run(executor, accountId, () -> accountService.deposit(accountId, BigDecimal.ONE));
+								deposited.increment();
+							}
+						} catch (AccountActionInvalidException e) {
+							refused.increment();
+						} catch (OptimisticLockingFailureException e) {
+							conflicted.increment();
+						} catch (Throwable e) {
+							failures.add(e);
+						}
+						latencies[i] = System.nanoTime() - operationStart;
+					}
+					return null;
+				});
+			}
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		// Then
+		Arrays.sort(latencies);
+		BigDecimal balances = jdbcTemplate.queryForObject(
+				"SELECT sum(balance) FROM accounts WHERE account_id IN (" + accountIds.stream()
+						.map(String::valueOf).collect(Collectors.joining(",")) + ")", BigDecimal.class);
+		log.info("[GROUPCOMMIT] {}: {} operations from {} callers in {} ms: {} ops/s, {} refused, {} conflicted,"
+						+ " p50 {} µs, p99 {} µs",
+				mode, OPERATIONS, CALLERS, Duration.ofNanos(elapsedNanos).toMillis(),
+				Math.round(OPERATIONS * 1_000_000_000.0 / elapsedNanos), refused.sum(), conflicted.sum(),
+				latencies[OPERATIONS / 2] / 1000, latencies[OPERATIONS * 99 / 100] / 1000);
+
+		assertTrue(failures.isEmpty(), () -> failures.size() + " operations failed, first: " + failures.getFirst());
+		assertEquals(OPERATIONS / 10, refused.sum());
+		assertEquals(0, BigDecimal.valueOf(deposited.sum()).compareTo(balances));
+	}
+
+	private static void run(GroupCommitExecutor executor, Long accountId, GroupCommitExecutor.Task<String> operation)
+			throws Throwable {
+		if (executor == null) {
+			operation.run();
+		} else {
+			executor.execute(accountId, operation);
+		}
+	}
+
+	private List<Long> accounts(String prefix) {
+		List<Long> accountIds = new ArrayList<>();
+		for (int i = 0; i < ACCOUNTS; i++) {
+			Owner owner = ownerService.createOwner("group" + prefix + "x" + letters(i));
+			Owner withAccount = ownerService.addAccountToOwner(owner.getId(), Currency.USD);
+			accountIds.add(withAccount.getAccounts().iterator().next().getAccountId());
+		}
+		return accountIds;
+	}
+
+	/**
+	 * Usernames cannot hold digits.
+	 */
+	private static String letters(long number) {
+		return Long.toString(number).chars()
+				.mapToObj(digit -> String.valueOf((char) ('a' + digit - '0')))
+				.collect(Collectors.joining());
+	}
+}
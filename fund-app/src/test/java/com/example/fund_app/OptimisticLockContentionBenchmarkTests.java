@@ -0,0 +1,139 @@
+package com.example.fund_app;
+
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.OwnerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deposit throughput while concurrent deposits fight over the versions of a few hot accounts: from all of them on one
+ * account down to one account per thread. Every deposit adds 1, so the balances must add up to the successes.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}, tuned with the system properties contention.deposits and contention.threads.
+ * Compare with {@code -Doptimistic-lock.retry.enabled=false} to see the conflicts the retries absorb.
+ */
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+// Measures the conflicts: one thread per pooled connection, without the admission of the bulkhead
+@SpringBootTest(properties = {"warmup.enabled=false", "datasource.bulkhead.enabled=false"})
+@Testcontainers
+@Slf4j
+class OptimisticLockContentionBenchmarkTests {
+
+	private static final int DEPOSITS = Integer.getInteger("contention.deposits", 5_000);
+	private static final int THREADS = Integer.getInteger("contention.threads", 10);
+	private static final int[] HOT_ACCOUNTS = {1, 2, 5, THREADS};
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	@DisplayName("should keep depositing under contention without losing any update")
+	void depositThroughputUnderContention() throws Exception {
+		String run = letters(System.currentTimeMillis() % 100_000);
+		for (int hotAccounts : HOT_ACCOUNTS) {
+			// Given
+			List<Long> accountIds = new ArrayList<>();
+			for (int i = 0; i < hotAccounts; i++) {
+				Owner owner = ownerService.createOwner("lock" + run + letters(hotAccounts) + "x" + letters(i));
+				Owner withAccount = ownerService.addAccountToOwner(owner.getId(), Currency.USD);
+				accountIds.add(withAccount.getAccounts().iterator().next().getAccountId());
+			}
+			double retriesBefore = count("optimistic.lock.retries");
+			AtomicInteger next = new AtomicInteger();
+			LongAdder succeeded = new LongAdder();
+			LongAdder conflicted = new LongAdder();
+			List<Exception> failures = new CopyOnWriteArrayList<>();
+			long[] latencies = new long[DEPOSITS];
+
+			// When
+			long start = System.nanoTime();
+			try (ExecutorService depositors = Executors.newFixedThreadPool(THREADS, Thread.ofVirtual().factory())) {
+				for (int t = 0; t < THREADS; t++) {
+					depositors.submit(() -> {
+						for (int i = next.getAndIncrement(); i < DEPOSITS; i = next.getAndIncrement()) {
+							long depositStart = System.nanoTime();
+							try {
+								accountService.deposit(accountIds.get(i % hotAccounts), BigDecimal.ONE);
+								succeeded.increment();
+							} catch (OptimisticLockingFailureException e) {
+								conflicted.increment();
+							} catch (Exception e) {
+								failures.add(e);
+							}
+							latencies[i] = System.nanoTime() - depositStart;
+						}
+						return null;
+					});
+				}
+			}
+			long elapsedNanos = System.nanoTime() - start;
+
+			// Then
+			Arrays.sort(latencies);
+			BigDecimal deposited = jdbcTemplate.queryForObject(
+					"SELECT sum(balance) FROM accounts WHERE account_id IN (" + accountIds.stream()
+							.map(String::valueOf).collect(Collectors.joining(",")) + ")", BigDecimal.class);
+			log.info("[CONTENTION] {} deposits on {} accounts from {} threads in {} ms: {} successes/s, {} retries,"
+							+ " {} failed ({}%), p50 {} µs, p99 {} µs",
+					DEPOSITS, hotAccounts, THREADS, Duration.ofNanos(elapsedNanos).toMillis(),
+					Math.round(succeeded.sum() * 1_000_000_000.0 / elapsedNanos),
+					Math.round(count("optimistic.lock.retries") - retriesBefore), conflicted.sum(),
+					String.format("%.2f", conflicted.sum() * 100.0 / DEPOSITS), latencies[DEPOSITS / 2] / 1000,
+					latencies[DEPOSITS * 99 / 100] / 1000);
+
+			assertTrue(failures.isEmpty(), () -> failures.size() + " deposits failed, first: " + failures.getFirst());
+			assertEquals(DEPOSITS, succeeded.sum() + conflicted.sum());
+			assertEquals(0, BigDecimal.valueOf(succeeded.sum()).compareTo(deposited));
+		}
+	}
+
+	private double count(String name) {
+		return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+	}
+
+	/**
+	 * Usernames cannot hold digits.
+	 */
+	private static String letters(long number) {
+		return Long.toString(number).chars()
+				.mapToObj(digit -> String.valueOf((char) ('a' + digit - '0')))
+				.collect(Collectors.joining());
+	}
+}
@@ -0,0 +1,132 @@
+package com.example.fund_app;
+
+import com.example.fund_app.exception.OwnerAlreadyExistsException;
+import com.example.fund_app.service.OwnerService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Signup throughput against a large owners table, 10M owners by default. The table is seeded once and kept,
+ * later runs on the same database only top it up.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}, tuned with the system properties signup.owners, signup.count and
+ * signup.threads.
+ */
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+// Measures the statement path: one thread per pooled connection, without the admission of the bulkhead
+@SpringBootTest(properties = {"warmup.enabled=false", "datasource.bulkhead.enabled=false"})
+@Testcontainers
+@Slf4j
+class OwnerSignupBenchmarkTests {
+
+	private static final int OWNERS = Integer.getInteger("signup.owners", 10_000_000);
+	private static final int SIGNUPS = Integer.getInteger("signup.count", 20_000);
+	private static final int THREADS = Integer.getInteger("signup.threads", 10);
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seedOwners() {
+		Long existing = jdbcTemplate.queryForObject("SELECT count(*) FROM owners", Long.class);
+		if (existing == null || existing >= OWNERS) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		// Names are made of letters only, like the usernames the API accepts
+		jdbcTemplate.update("""
+				INSERT INTO owners (id, name, owner_lock_version)
+				SELECT nextval('owner_sequence'), 'seed' || translate(g::text, '0123456789', 'abcdefghij'), 0
+				FROM generate_series(?, ?) g
+				ON CONFLICT (name) DO NOTHING
+				""", existing, OWNERS - 1);
+		jdbcTemplate.execute("ANALYZE owners");
+		log.info("[SIGNUP] {} owners seeded in {} s", OWNERS - existing,
+				Duration.ofNanos(System.nanoTime() - start).toSeconds());
+	}
+
+	@Test
+	@DisplayName("should sign up owners at a steady rate however large the table, and reject the taken usernames")
+	void signupThroughput() throws Exception {
+		// Given
+		String run = letters(System.currentTimeMillis() % 100_000);
+		AtomicInteger next = new AtomicInteger();
+		LongAdder created = new LongAdder();
+		LongAdder rejected = new LongAdder();
+		List<Exception> failures = new CopyOnWriteArrayList<>();
+		long[] latencies = new long[SIGNUPS];
+
+		// When
+		long start = System.nanoTime();
+		try (ExecutorService signups = Executors.newFixedThreadPool(THREADS, Thread.ofVirtual().factory())) {
+			for (int t = 0; t < THREADS; t++) {
+				signups.submit(() -> {
+					for (int i = next.getAndIncrement(); i < SIGNUPS; i = next.getAndIncrement()) {
+						// One signup out of ten retries a name already taken
+						String username = i % 10 == 9 ? "seedb" : "su" + run + letters(i);
+						long signupStart = System.nanoTime();
+						try {
+							ownerService.createOwner(username);
+							created.increment();
+						} catch (OwnerAlreadyExistsException e) {
+							rejected.increment();
+						} catch (Exception e) {
+							failures.add(e);
+						}
+						latencies[i] = System.nanoTime() - signupStart;
+					}
+					return null;
+				});
+			}
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		// Then
+		Arrays.sort(latencies);
+		double signupsPerSecond = SIGNUPS * 1_000_000_000.0 / elapsedNanos;
+		log.info("[SIGNUP] {} signups on {} owners from {} threads in {} ms: {} signups/s, {} created, {} rejected,"
+						+ " p50 {} µs, p99 {} µs, max {} µs",
+				SIGNUPS, OWNERS, THREADS, Duration.ofNanos(elapsedNanos).toMillis(), Math.round(signupsPerSecond),
+				created.sum(), rejected.sum(), latencies[SIGNUPS / 2] / 1000, latencies[SIGNUPS * 99 / 100] / 1000,
+				latencies[SIGNUPS - 1] / 1000);
+
+		assertTrue(failures.isEmpty(), () -> failures.size() + " signups failed, first: " + failures.getFirst());
+		assertEquals(SIGNUPS, created.sum() + rejected.sum());
+		assertTrue(rejected.sum() >= SIGNUPS / 10);
+	}
+
+	/**
+	 * Usernames cannot hold digits.
+	 */
+	private static String letters(long number) {
+		return Long.toString(number).chars()
+				.mapToObj(digit -> String.valueOf((char) ('a' + digit - '0')))
+				.collect(Collectors.joining());
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.fund_app;
+
+import com.example.fund_app.config.StandingOrderProperties;
+import com.example.fund_app.repository.StandingOrderRepository;
+import com.example.fund_app.repository.TransferRepository;
+import com.example.fund_app.settlement.StandingOrderScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Time taken by several nodes claiming at the same time to run a burst of daily standing orders all due at midnight,
+ * each node with its own scheduler. Every order must have run exactly once, into exactly one transfer.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}, tuned with the system properties standing.orders, standing.nodes and
+ * standing.claimers. The transfers are left pending: their settlement is measured by the netting benchmark.
+ */
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+// The schedulers of the nodes are built by the benchmark, and nothing settles the transfers they submit
+@SpringBootTest(properties = {"warmup.enabled=false", "standing-orders.enabled=false",
+		"transfer-settlement.enabled=false"})
+@Testcontainers
+@Slf4j
+class StandingOrderBenchmarkTests {
+
+	private static final int ORDERS = Integer.getInteger("standing.orders", 200_000);
+	private static final int NODES = Integer.getInteger("standing.nodes", 2);
+	private static final int CLAIMERS = Integer.getInteger("standing.claimers", 2);
+	private static final int BATCH_SIZE = 1_000;
+
+	@Autowired
+	private StandingOrderRepository standingOrderRepository;
+
+	@Autowired
+	private TransferRepository transferRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	@DisplayName("should run every order due at midnight once, whichever node claims it")
+	void runMidnightBurst() throws Exception {
+		// Given
+		Instant midnight = Instant.now().truncatedTo(ChronoUnit.DAYS);
+		long firstOrderId = jdbcTemplate.queryForObject(
+				"SELECT coalesce(max(standing_order_id), 0) + 1 FROM standing_orders", Long.class);
+		long firstTransferId = jdbcTemplate.queryForObject(
+				"SELECT coalesce(max(transfer_id), 0) + 1 FROM transfers", Long.class);
+		jdbcTemplate.update("""
+				INSERT INTO standing_orders (standing_order_id, sender_account, receiver_account, amount, to_send,
+				    recurrence, first_run_at, next_run_at, runs, status, created_at)
+				SELECT ? + n, 1 + n % 1000, 1 + (n + 1) % 1000, 10, true, 'DAILY', ?, ?, 0, 'ACTIVE', now()
+				FROM generate_series(0, ? - 1) AS n
+				""", firstOrderId, Timestamp.from(midnight), Timestamp.from(midnight), ORDERS);
+		// Hibernate allocates its IDs from the sequence, past the inserted ones
+		jdbcTemplate.queryForObject("SELECT setval('standing_order_sequence', ?)", Long.class,
+				firstOrderId + ORDERS);
+		jdbcTemplate.execute("ANALYZE standing_orders");
+
+		// When
+		long start = System.nanoTime();
+		try (ExecutorService nodes = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int node = 0; node < NODES; node++) {
+				StandingOrderScheduler scheduler = new StandingOrderScheduler(
+						new StandingOrderProperties(true, BATCH_SIZE, CLAIMERS), standingOrderRepository,
+						transferRepository, new TransactionTemplate(transactionManager), null, meterRegistry);
+				nodes.submit(scheduler::runDue);
+			}
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		// Then
+		long ran = jdbcTemplate.queryForObject("SELECT count(*) FROM standing_orders WHERE standing_order_id >= ?"
+				+ " AND runs = 1 AND next_run_at = ?", Long.class, firstOrderId, Timestamp.from(midnight.plus(1,
+				ChronoUnit.DAYS)));
+		long transfers = jdbcTemplate.queryForObject("SELECT count(*) FROM transfers WHERE transfer_id >= ?",
+				Long.class, firstTransferId);
+		long runTransfers = jdbcTemplate.queryForObject("SELECT count(DISTINCT last_transfer_id) FROM standing_orders"
+				+ " WHERE standing_order_id >= ?", Long.class, firstOrderId);
+		log.info("[STANDING_ORDERS] {} orders due at midnight run by {} nodes of {} claimers in {} ms: {} orders/s,"
+						+ " a million in {} s",
+				ORDERS, NODES, CLAIMERS, Duration.ofNanos(elapsedNanos).toMillis(),
+				Math.round(ORDERS * 1_000_000_000.0 / elapsedNanos),
+				Math.round(elapsedNanos / 1_000_000_000.0 * 1_000_000 / ORDERS));
+
+		jdbcTemplate.update("DELETE FROM transfers WHERE transfer_id >= ?", firstTransferId);
+		jdbcTemplate.update("DELETE FROM standing_orders WHERE standing_order_id >= ?", firstOrderId);
+
+		assertEquals(ORDERS, ran);
+		assertEquals(ORDERS, transfers);
+		assertEquals(ORDERS, runTransfers);
+	}
+}
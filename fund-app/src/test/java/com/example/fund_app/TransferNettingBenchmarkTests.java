@@ -0,0 +1,197 @@
+package com.example.fund_app;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.config.TransferSettlementProperties;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.repository.TransferRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.OwnerService;
+import com.example.fund_app.service.TransactionAuditService;
+import com.example.fund_app.settlement.TransferSettlementEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Account row updates and time taken to settle the same transfers one by one, then netted, over three payment graphs:
+ * transfers between random accounts, buyers paying a few popular merchants, and pairs of accounts paying each other
+ * back and forth. Every account starts with 1000, and the transfers only move money around, so the balances must
+ * still add up to as much once settled.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}, tuned with the system properties netting.transfers and netting.accounts.
+ */
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+// The engines are built for each run, with netting off then on
+@SpringBootTest(properties = {"warmup.enabled=false", "transfer-settlement.enabled=false"})
+@Testcontainers
+@Slf4j
+class TransferNettingBenchmarkTests {
+
+	private static final int TRANSFERS = Integer.getInteger("netting.transfers", 5_000);
+	private static final int ACCOUNTS = Integer.getInteger("netting.accounts", 300);
+	private static final int MERCHANTS = 20;
+	private static final BigDecimal FUNDS = BigDecimal.valueOf(1_000);
+
+	@Autowired
+	private TransferRepository transferRepository;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	@Autowired
+	private AccountMapper accountMapper;
+
+	@Autowired
+	private AccountCacheStore accountCacheStore;
+
+	@Autowired
+	private TransactionAuditService transactionAuditService;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	@DisplayName("should settle the same transfers with fewer account updates once netted")
+	void nettingRowUpdates() {
+		List<Long> accountIds = accounts(letters(System.currentTimeMillis() % 100_000));
+		Random random = new Random(42);
+
+		List<long[]> uniform = new ArrayList<>();
+		for (int i = 0; i < TRANSFERS; i++) {
+			int sender = random.nextInt(ACCOUNTS);
+			int receiver = (sender + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+			uniform.add(new long[]{sender, receiver, 100 + random.nextInt(4_900)});
+		}
+		List<long[]> marketplace = new ArrayList<>();
+		for (int i = 0; i < TRANSFERS; i++) {
+			// Merchant k is paid about 1/k as often as the first one
+			int merchant = (int) Math.floor(Math.pow(MERCHANTS + 1, random.nextDouble())) - 1;
+			marketplace.add(new long[]{MERCHANTS + random.nextInt(ACCOUNTS - MERCHANTS), merchant,
+					100 + random.nextInt(4_900)});
+		}
+		List<long[]> bilateral = new ArrayList<>();
+		for (int i = 0; i < TRANSFERS; i++) {
+			int pair = random.nextInt(ACCOUNTS / 2) * 2;
+			boolean back = random.nextBoolean();
+			bilateral.add(new long[]{back ? pair + 1 : pair, back ? pair : pair + 1, 100 + random.nextInt(4_900)});
+		}
+
+		for (boolean netting : new boolean[]{false, true}) {
+			benchmark("uniform", uniform, accountIds, netting);
+			benchmark("marketplace", marketplace, accountIds, netting);
+			benchmark("bilateral", bilateral, accountIds, netting);
+		}
+	}
+
+	private void benchmark(String graph, List<long[]> payments, List<Long> accountIds, boolean netting) {
+		// Given
+		String accountList = accountIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+		jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE account_id IN (" + accountList + ")", FUNDS);
+		Instant now = Instant.now();
+		List<TransferDbo> transfers = transferRepository.saveAll(payments.stream()
+				.map(payment -> TransferDbo.builder()
+						.senderAccount(accountIds.get((int) payment[0]))
+						.receiverAccount(accountIds.get((int) payment[1]))
+						.amount(BigDecimal.valueOf(payment[2], 2))
+						.toSend(true)
+						.status(TransferStatus.PENDING)
+						.submittedAt(now)
+						.build())
+				.toList());
+		long firstTransferId = transfers.getFirst().getTransferId();
+		TransferSettlementEngine engine = new TransferSettlementEngine(
+				new TransferSettlementProperties(true, 4, 100, 10, netting, 1_000), transferRepository,
+				accountService, accountRepository, accountMapper, accountCacheStore, transactionAuditService,
+				new TransactionTemplate(transactionManager), null, meterRegistry);
+		long versionsBefore = versions(accountList);
+
+		// When
+		long start = System.nanoTime();
+		while (count("status = 'PENDING'", firstTransferId) > 0) {
+			engine.settle();
+		}
+		long elapsedNanos = System.nanoTime() - start;
+
+		// Then
+		long updates = versions(accountList) - versionsBefore;
+		long settled = count("status = 'SETTLED'", firstTransferId);
+		long rejected = count("status = 'REJECTED'", firstTransferId);
+		BigDecimal balances = jdbcTemplate.queryForObject(
+				"SELECT sum(balance) FROM accounts WHERE account_id IN (" + accountList + ")", BigDecimal.class);
+		log.info("[NETTING] {} graph, {}: {} transfers settled, {} rejected, in {} ms with {} account updates,"
+						+ " {} per settled transfer",
+				graph, netting ? "netted" : "one by one", settled, rejected,
+				Duration.ofNanos(elapsedNanos).toMillis(), updates, String.format("%.2f", updates / (double) settled));
+
+		assertEquals(TRANSFERS, settled + rejected);
+		assertEquals(0, FUNDS.multiply(BigDecimal.valueOf(ACCOUNTS)).compareTo(balances));
+		assertTrue(updates <= 2 * settled);
+	}
+
+	private long count(String condition, long firstTransferId) {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM transfers WHERE " + condition
+				+ " AND transfer_id >= ?", Long.class, firstTransferId);
+	}
+
+	private long versions(String accountList) {
+		return jdbcTemplate.queryForObject("SELECT sum(account_lock_version) FROM accounts WHERE account_id IN ("
+				+ accountList + ")", Long.class);
+	}
+
+	private List<Long> accounts(String prefix) {
+		List<Long> accountIds = new ArrayList<>();
+		for (int i = 0; i < ACCOUNTS; i++) {
+			Owner owner = ownerService.createOwner("netting" + prefix + "x" + letters(i));
+			Owner withAccount = ownerService.addAccountToOwner(owner.getId(), Currency.USD);
+			accountIds.add(withAccount.getAccounts().iterator().next().getAccountId());
+		}
+		return accountIds;
+	}
+
+	/**
+	 * Usernames cannot hold digits.
+	 */
+	private static String letters(long number) {
+		return Long.toString(number).chars()
+				.mapToObj(digit -> String.valueOf((char) ('a' + digit - '0')))
+				.collect(Collectors.joining());
+	}
+}
@@ -0,0 +1,321 @@
+package com.example.fund_app;
+
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.repository.OwnerRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.OwnerService;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the transfer, deposit and owner endpoints under load while JFR records the virtual threads pinned to their
+ * carrier, through JDBC, Redis, Hibernate or Feign (whose rate API is stubbed locally).
+ * Writes a report of the pinned stack traces to target/pinning-report.txt and fails above the allowed number of pins.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}, tuned with the system properties pinning.requests, pinning.clients,
+ * pinning.max-events and pinning.min-duration.
+ */
+@Tag("benchmark")
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "warmup.enabled=false")
+@Testcontainers
+@Slf4j
+class VirtualThreadPinningBenchmarkTests {
+
+	private static final int REQUESTS = Integer.getInteger("pinning.requests", 5000);
+	private static final int CLIENTS = Integer.getInteger("pinning.clients", 64);
+	private static final int MAX_PINNED_EVENTS = Integer.getInteger("pinning.max-events", 0);
+	private static final Duration MIN_PIN_DURATION = Duration.ofMillis(Long.getLong("pinning.min-duration", 0));
+	private static final int OWNERS = 200;
+	private static final int REPORTED_FRAMES = 12;
+	private static final Path REPORT = Path.of("target", "pinning-report.txt");
+
+	private static final HttpServer RATE_API = rateApiStub();
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private AccountService accountService;
+
+	@Autowired
+	private OwnerRepository ownerRepository;
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.executor(Executors.newFixedThreadPool(4))
+			.build();
+
+	private List<Owner> owners;
+
+	@DynamicPropertySource
+	static void rateApi(DynamicPropertyRegistry registry) {
+		registry.add("xrate.client.url", () -> "http://localhost:" + RATE_API.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopRateApi() {
+		RATE_API.stop(0);
+	}
+
+	@BeforeEach
+	void setUp() {
+		ownerRepository.deleteAll();
+		owners = ownerService.createOwners(IntStream.range(0, OWNERS)
+				.mapToObj(i -> Owner.builder()
+						.username("pin" + letters(i))
+						.accounts(Set.of(
+								Account.builder().currency(Currency.EUR).build(),
+								Account.builder().currency(Currency.USD).build()))
+						.build())
+				.toList());
+		owners.forEach(owner -> owner.getAccounts()
+				.forEach(account -> accountService.deposit(account.getAccountId(), BigDecimal.valueOf(1_000_000))));
+	}
+
+	@Test
+	@DisplayName("should not pin carrier threads on the transfer, deposit and owner paths")
+	void hotPathsDoNotPinCarrierThreads() throws Exception {
+		// Given
+		// A first pass loads the classes and fills the pools, whose one-off pins are not regressions
+		drive(REQUESTS / 10);
+
+		Map<String, PinnedStack> pinnedStacks = new ConcurrentHashMap<>();
+		LongAdder pinnedEvents = new LongAdder();
+		Map<Integer, Integer> statuses;
+		long elapsedNanos;
+
+		// When
+		try (RecordingStream recording = new RecordingStream()) {
+			recording.enable("jdk.VirtualThreadPinned").withThreshold(MIN_PIN_DURATION).withStackTrace();
+			recording.onEvent("jdk.VirtualThreadPinned", event -> {
+				pinnedEvents.increment();
+				pinnedStacks.computeIfAbsent(stackOf(event), PinnedStack::new).add(event.getDuration());
+			});
+			recording.startAsync();
+
+			long start = System.nanoTime();
+			statuses = drive(REQUESTS);
+			elapsedNanos = System.nanoTime() - start;
+			recording.stop();
+		}
+
+		// Then
+		String report = report(pinnedStacks, pinnedEvents.sum(), statuses, elapsedNanos);
+		Files.createDirectories(REPORT.getParent());
+		Files.writeString(REPORT, report);
+		log.info("[PINNING] Report written to {}\n{}", REPORT.toAbsolutePath(), report);
+
+		assertTrue(pinnedEvents.sum() <= MAX_PINNED_EVENTS, () -> pinnedEvents.sum()
+				+ " pinned virtual threads, at most " + MAX_PINNED_EVENTS + " allowed\n" + report);
+	}
+
+	/**
+	 * Sends the requests from a fixed set of platform threads, so the pins recorded are the ones of the server.
+	 *
+	 * @return the number of responses per status
+	 */
+	private Map<Integer, Integer> drive(int requests) {
+		Map<Integer, Integer> statuses = new ConcurrentHashMap<>();
+		AtomicInteger sent = new AtomicInteger();
+		try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+			for (int i = 0; i < CLIENTS; i++) {
+				clients.submit(() -> {
+					while (sent.incrementAndGet() <= requests) {
+						statuses.merge(send(nextRequest()), 1, Integer::sum);
+					}
+					return null;
+				});
+			}
+		}
+		return statuses;
+	}
+
+	private int send(HttpRequest request) {
+		try {
+			return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+		} catch (IOException e) {
+			return -1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	/**
+	 * Mostly transfers, within a currency and across currencies, then deposits and owner reads and creations.
+	 */
+	private HttpRequest nextRequest() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Owner sender = owners.get(random.nextInt(OWNERS));
+		Owner receiver = owners.get(random.nextInt(OWNERS));
+		int operation = random.nextInt(10);
+		return switch (operation) {
+			case 0, 1, 2, 3 -> transfer(account(sender, Currency.EUR), account(receiver, Currency.EUR));
+			case 4, 5 -> transfer(account(sender, Currency.EUR), account(receiver, Currency.USD));
+			case 6, 7 -> post("/accounts/" + account(sender, Currency.USD) + "/deposit?amount=10", "");
+			case 8 -> HttpRequest.newBuilder(uri("/owners/" + sender.getId() + "/details")).GET().build();
+			default -> post("/owners?name=pin" + letters(random.nextInt(1_000_000, Integer.MAX_VALUE)), "");
+		};
+	}
+
+	private HttpRequest transfer(Long senderAccount, Long receiverAccount) {
+		return post("/accounts/transfer", """
+				{"senderAccount": %d, "receiverAccount": %d, "amount": 10, "toSend": true}
+				""".formatted(senderAccount, receiverAccount));
+	}
+
+	private HttpRequest post(String path, String json) {
+		return HttpRequest.newBuilder(uri(path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json))
+				.build();
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	private static Long account(Owner owner, Currency currency) {
+		return owner.getAccounts().stream()
+				.filter(account -> account.getCurrency() == currency)
+				.findFirst()
+				.orElseThrow()
+				.getAccountId();
+	}
+
+	/**
+	 * Usernames cannot hold digits.
+	 */
+	private static String letters(int number) {
+		return Integer.toString(number).chars()
+				.mapToObj(digit -> String.valueOf((char) ('a' + digit - '0')))
+				.collect(Collectors.joining());
+	}
+
+	private static String stackOf(RecordedEvent event) {
+		if (event.getStackTrace() == null) {
+			return "\tat <no stack trace>";
+		}
+		return event.getStackTrace().getFrames().stream()
+				.limit(REPORTED_FRAMES)
+				.map(VirtualThreadPinningBenchmarkTests::frame)
+				.collect(Collectors.joining("\n"));
+	}
+
+	private static String frame(RecordedFrame frame) {
+		return "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+				+ "(line " + frame.getLineNumber() + ")";
+	}
+
+	private static String report(Map<String, PinnedStack> pinnedStacks, long pinnedEvents,
+								 Map<Integer, Integer> statuses, long elapsedNanos) {
+		StringBuilder report = new StringBuilder()
+				.append(REQUESTS).append(" requests from ").append(CLIENTS).append(" clients in ")
+				.append(Duration.ofNanos(elapsedNanos).toMillis()).append(" ms, responses per status: ")
+				.append(statuses).append('\n')
+				.append(pinnedEvents).append(" pinned virtual threads (at least ").append(MIN_PIN_DURATION.toMillis())
+				.append(" ms) in ").append(pinnedStacks.size()).append(" distinct stacks\n");
+		pinnedStacks.values().stream()
+				.sorted(Comparator.comparingLong(PinnedStack::count).reversed())
+				.forEach(pinned -> report.append('\n')
+						.append(pinned.count()).append(" pins, ")
+						.append(Duration.ofNanos(pinned.totalNanos.sum()).toMillis()).append(" ms in total:\n")
+						.append(pinned.stack).append('\n'));
+		return report.toString();
+	}
+
+	/**
+	 * Serves the same rates for every currency, so cross-currency transfers go through Feign without the network.
+	 */
+	private static HttpServer rateApiStub() {
+		String rates = Arrays.stream(Currency.values())
+				.map(currency -> "\"" + currency.name() + "\": 1.1")
+				.collect(Collectors.joining(", "));
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.createContext("/", exchange -> {
+				String base = exchange.getRequestURI().getPath().substring(1);
+				byte[] body = """
+						{"result": "success", "base_code": "%s", "rates": {%s}}
+						""".formatted(base, rates).getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream output = exchange.getResponseBody()) {
+					output.write(body);
+				}
+			});
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not start the rate API stub", e);
+		}
+	}
+
+	private static class PinnedStack {
+
+		private final String stack;
+		private final LongAdder events = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+
+		PinnedStack(String stack) {
+			this.stack = stack;
+		}
+
+		void add(Duration duration) {
+			events.increment();
+			totalNanos.add(duration.toNanos());
+		}
+
+		long count() {
+			return events.sum();
+		}
+	}
+}
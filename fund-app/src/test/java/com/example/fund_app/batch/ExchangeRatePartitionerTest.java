@@ -0,0 +1,53 @@
+package com.example.fund_app.batch;
+
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.repository.ExchangeRateRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ExchangeRatePartitionerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 1, 31);
+
+    private final ExchangeRateRepository exchangeRateRepository = mock(ExchangeRateRepository.class);
+    private final ExchangeRatePartitioner partitioner = new ExchangeRatePartitioner(exchangeRateRepository, DATE);
+
+    @Test
+    @DisplayName("should deal the out of date currencies over the partitions, and never leave one empty")
+    void dealCurrencies() {
+        // When
+        doReturn(List.of(Currency.BRL, Currency.CHF, Currency.EUR, Currency.GBP, Currency.USD))
+                .when(exchangeRateRepository).findCurrenciesByLastUpdatedAtBefore(DATE);
+        Map<String, ExecutionContext> partitions = partitioner.partition(2);
+        Map<String, ExecutionContext> fewer = partitioner.partition(8);
+
+        // Then
+        assertEquals(2, partitions.size());
+        assertEquals(List.of(Currency.BRL, Currency.EUR, Currency.USD), currencies(partitions.get("partition0")));
+        assertEquals(List.of(Currency.CHF, Currency.GBP), currencies(partitions.get("partition1")));
+        assertEquals(5, fewer.size());
+        assertEquals(List.of(Currency.USD), currencies(fewer.get("partition4")));
+    }
+
+    @Test
+    @DisplayName("should make no partition when every rate is up to date")
+    void noPartitionWhenUpToDate() {
+        // When
+        doReturn(List.of()).when(exchangeRateRepository).findCurrenciesByLastUpdatedAtBefore(DATE);
+
+        // Then
+        assertTrue(partitioner.partition(4).isEmpty());
+    }
+
+    private static List<Currency> currencies(ExecutionContext context) {
+        return ExchangeRatePartitioner.currencies(context.getString(ExchangeRatePartitioner.CURRENCIES_KEY));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.fund_app.batch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OwnerImportCopyTaskletTest {
+
+    @Test
+    @DisplayName("should quote CSV fields and leave a missing currency empty")
+    void csvRow() {
+        assertEquals("\"alice\",\"EUR\"\n", new String(OwnerImportCopyTasklet.csvRow("alice", "EUR"), StandardCharsets.UTF_8));
+        assertEquals("\"bob, \"\"jr\"\"\",\n", new String(OwnerImportCopyTasklet.csvRow("bob, \"jr\"", null), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("should guess the format from the file extension")
+    void formatOfFile() {
+        assertEquals(OwnerImportFormat.NDJSON, OwnerImportFormat.of("/imports/owners.ndjson"));
+        assertEquals(OwnerImportFormat.NDJSON, OwnerImportFormat.of("/imports/owners.jsonl"));
+        assertEquals(OwnerImportFormat.CSV, OwnerImportFormat.of("/imports/owners.csv"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.model.dbo.OwnerDbo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AccountCacheStoreTest {
+
+    @Mock
+    private CacheInvalidationCoordinator coordinator;
+
+    @Mock
+    private AccountMapper accountMapper;
+
+    @InjectMocks
+    private AccountCacheStore accountCacheStore;
+
+    @Captor
+    ArgumentCaptor<Supplier<?>> valueCaptor;
+
+    @Test
+    @DisplayName("should write the account through and invalidate its owner entry")
+    void putAccountInvalidatesOwner() {
+        // Given
+        OwnerDbo ownerDbo = OwnerDbo.builder().id(1L).build();
+        AccountDbo dbo = AccountDbo.builder().accountId(10L).owner(ownerDbo).build();
+        Account account = Account.builder().accountId(10L).owner(Owner.builder().id(1L).build()).build();
+
+        // When
+        doReturn(account).when(accountMapper).toModel(dbo);
+        accountCacheStore.putAccount(dbo);
+
+        // Then
+        verify(coordinator, times(1)).put(eq(AccountCacheStore.ACCOUNTS_CACHE), eq(10L), valueCaptor.capture(), any());
+        verify(coordinator, times(1)).evict(AccountCacheStore.OWNERS_CACHE, 1L);
+        assertSame(account, valueCaptor.getValue().get());
+    }
+
+    @Test
+    @DisplayName("should map the account only when the write is flushed")
+    void putAccountMapsLazily() {
+        // Given
+        AccountDbo dbo = AccountDbo.builder().accountId(10L).build();
+
+        // When
+        accountCacheStore.putAccount(dbo);
+
+        // Then
+        verify(coordinator, times(1)).put(eq(AccountCacheStore.ACCOUNTS_CACHE), eq(10L), any(), any());
+        verify(coordinator, times(0)).evict(any(), any());
+        verifyNoInteractions(accountMapper);
+    }
+
+    @Test
+    @DisplayName("should read the account through the coordinator")
+    void getAccount() {
+        // Given
+        Account account = Account.builder().accountId(10L).build();
+        Supplier<Account> loader = () -> account;
+
+        // When
+        doReturn(account).when(coordinator).getOrLoad(AccountCacheStore.ACCOUNTS_CACHE, 10L, Account.class, loader);
+
+        // Then
+        assertSame(account, accountCacheStore.getAccount(10L, loader));
+    }
+}
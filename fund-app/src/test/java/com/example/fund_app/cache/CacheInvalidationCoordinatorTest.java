@@ -0,0 +1,359 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.config.CacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CacheInvalidationCoordinatorTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @Mock
+    private HotKeyTracker hotKeyTracker;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private RedisConnection connection;
+
+    private final Clock clock = Clock.fixed(Instant.ofEpochMilli(1_000_000L), ZoneOffset.UTC);
+
+    private double random = 0.5;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CacheInvalidationCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties properties = new CacheProperties(Duration.ofMinutes(1), 0,
+                new CacheProperties.EarlyRefresh(true, 1.0),
+                Map.of("ownersCache", new CacheProperties.Spec(Duration.ofMinutes(5), 100L, "fund-app:owners")));
+        coordinator = new CacheInvalidationCoordinator(redisTemplate, properties, new CacheMetrics(meterRegistry),
+                hotKeyTracker, clock, () -> random);
+        doReturn(valueOperations).when(redisTemplate).opsForValue();
+        doReturn(RedisSerializer.java()).when(redisTemplate).getValueSerializer();
+        doAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of();
+        }).when(redisTemplate).executePipelined(any(RedisCallback.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("should flush every key touched in the transaction in one pipeline after commit")
+    void flushAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        coordinator.put("accountsCache", 1L, () -> "first");
+        coordinator.put("accountsCache", 2L, () -> "second");
+        coordinator.evict("ownersCache", 3L);
+
+        // Then
+        verify(redisTemplate, times(0)).executePipelined(any(RedisCallback.class));
+
+        commit();
+
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+        verify(connection.stringCommands(), times(2))
+                .set(any(byte[].class), any(byte[].class), eq(Expiration.from(Duration.ofMinutes(1))), eq(SetOption.upsert()));
+
+        ArgumentCaptor<byte[][]> deletedKeys = ArgumentCaptor.forClass(byte[][].class);
+        verify(connection.keyCommands(), times(1)).del(deletedKeys.capture());
+        assertEquals(
+                Set.of("fund-app:owners::3",
+                        "accountsCache::1::lease", "accountsCache::2::lease", "fund-app:owners::3::lease"),
+                asStrings(deletedKeys.getAllValues()));
+    }
+
+    @Test
+    @DisplayName("should only write a versioned value if it is newer than the last one flushed")
+    void versionedWriteIsGuarded() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        coordinator.put("accountsCache", 1L, () -> "account", value -> 7L);
+        commit();
+
+        // Then
+        verify(connection.stringCommands(), times(0)).set(any(byte[].class), any(byte[].class), any(), any());
+        verify(connection.scriptingCommands(), times(1)).scriptLoad(any(byte[].class));
+        verify(connection.scriptingCommands(), times(1)).evalSha(anyString(), eq(ReturnType.INTEGER), eq(2),
+                eq(bytes("accountsCache::1")), eq(bytes("accountsCache::1::version")), any(byte[].class),
+                eq(bytes("7")), eq(bytes("60000")));
+    }
+
+    @Test
+    @DisplayName("should not touch redis if the transaction rolls back")
+    void noFlushOnRollback() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        coordinator.put("accountsCache", 1L, () -> "first");
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        verifyNoInteractions(connection);
+        verify(redisTemplate, times(0)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @DisplayName("should keep only the last operation registered for a key")
+    void lastOperationWins() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        coordinator.put("ownersCache", 3L, () -> "owner");
+        coordinator.evict("ownersCache", 3L);
+        commit();
+
+        // Then
+        verify(connection.stringCommands(), times(0)).set(any(byte[].class), any(byte[].class), any(), any());
+
+        ArgumentCaptor<byte[][]> deletedKeys = ArgumentCaptor.forClass(byte[][].class);
+        verify(connection.keyCommands(), times(1)).del(deletedKeys.capture());
+        assertEquals(Set.of("fund-app:owners::3", "fund-app:owners::3::lease"), asStrings(deletedKeys.getAllValues()));
+    }
+
+    @Test
+    @DisplayName("should flush straight away outside of a transaction")
+    void flushWithoutTransaction() {
+        // When
+        coordinator.evict("accountsCache", 1L);
+
+        // Then
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @DisplayName("should return a cached entry without calling the loader")
+    void getOrLoadHit() {
+        // When
+        doReturn(new CacheEntry("cached", clock.millis() + 60_000, 10)).when(valueOperations).get("accountsCache::1");
+
+        // Then
+        String result = coordinator.getOrLoad("accountsCache", 1L, String.class, () -> fail("should not load"));
+        assertEquals("cached", result);
+    }
+
+    @Test
+    @DisplayName("should refresh a hot entry shortly before it expires")
+    void getOrLoadRefreshesEarly() {
+        // Given
+        random = 0.99;
+
+        // When
+        doReturn(new CacheEntry("cached", clock.millis() + 100, 50)).when(valueOperations).get("accountsCache::1");
+        doReturn(true).when(valueOperations)
+                .setIfAbsent(eq("accountsCache::1::lease"), any(), any(Duration.class));
+
+        // Then
+        String result = coordinator.getOrLoad("accountsCache", 1L, String.class, () -> "refreshed");
+        assertEquals("refreshed", result);
+    }
+
+    @Test
+    @DisplayName("should not refresh an entry that is far from its expiry")
+    void getOrLoadNoEarlyRefresh() {
+        // Given
+        random = 0.99;
+
+        // When
+        doReturn(new CacheEntry("cached", clock.millis() + 60_000, 50)).when(valueOperations).get("accountsCache::1");
+
+        // Then
+        String result = coordinator.getOrLoad("accountsCache", 1L, String.class, () -> fail("should not load"));
+        assertEquals("cached", result);
+    }
+
+    @Test
+    @DisplayName("should populate a missing entry under a lease")
+    void getOrLoadMiss() {
+        // When
+        doReturn(true).when(valueOperations)
+                .setIfAbsent(eq("accountsCache::1::lease"), any(), any(Duration.class));
+
+        // Then
+        String result = coordinator.getOrLoad("accountsCache", 1L, String.class, () -> "loaded");
+        assertEquals("loaded", result);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                eq(List.of("accountsCache::1", "accountsCache::1::lease", "accountsCache::index")), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should not populate the entry if another reader holds the lease")
+    void getOrLoadWithoutLease() {
+        // When
+        doReturn(false).when(valueOperations)
+                .setIfAbsent(eq("accountsCache::1::lease"), any(), any(Duration.class));
+
+        // Then
+        String result = coordinator.getOrLoad("accountsCache", 1L, String.class, () -> "loaded");
+        assertEquals("loaded", result);
+        verify(redisTemplate, times(0)).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                anyList(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should apply the TTL, prefix and bound of each cache")
+    void perCacheSettings() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        coordinator.put("accountsCache", 1L, () -> "account");
+        coordinator.put("ownersCache", 3L, () -> "owner");
+        commit();
+
+        // Then
+        verify(connection.stringCommands(), times(1)).set(eq(bytes("accountsCache::1")), any(byte[].class),
+                eq(Expiration.from(Duration.ofMinutes(1))), eq(SetOption.upsert()));
+        verify(connection.stringCommands(), times(1)).set(eq(bytes("fund-app:owners::3")), any(byte[].class),
+                eq(Expiration.from(Duration.ofMinutes(5))), eq(SetOption.upsert()));
+
+        // Only the bounded cache is indexed and trimmed
+        verify(connection.zSetCommands(), times(1))
+                .zAdd(bytes("fund-app:owners::index"), clock.millis(), bytes("fund-app:owners::3"));
+        verify(connection.zSetCommands(), times(0)).zAdd(eq(bytes("accountsCache::index")), anyDouble(), any(byte[].class));
+        verify(connection.scriptingCommands(), times(1)).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(1),
+                eq(bytes("fund-app:owners::index")), eq(bytes("1000000")), eq(bytes("300000")), eq(bytes("100")));
+    }
+
+    @Test
+    @DisplayName("should record hits, misses, loads and size evictions per cache")
+    void metrics() {
+        // Given
+        doReturn(new CacheEntry("cached", clock.millis() + 60_000, 10)).when(valueOperations).get("accountsCache::1");
+        doReturn(true).when(valueOperations)
+                .setIfAbsent(eq("fund-app:owners::3::lease"), any(), any(Duration.class));
+        doReturn(2L).when(redisTemplate).execute(any(RedisScript.class), any(RedisSerializer.class),
+                any(RedisSerializer.class), anyList(), any(), any(), any(), any(), any(), any());
+
+        // When
+        coordinator.getOrLoad("accountsCache", 1L, String.class, () -> fail("should not load"));
+        coordinator.getOrLoad("ownersCache", 3L, String.class, () -> "owner");
+
+        // Then
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "accountsCache", "result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "ownersCache", "result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("cache.load.duration").tags("cache", "ownersCache").timer().count());
+        assertEquals(1, meterRegistry.get("cache.payload.size").tags("cache", "ownersCache").summary().count());
+        assertEquals(2, meterRegistry.get("cache.evictions").tags("cache", "ownersCache", "cause", "size").counter().count());
+    }
+
+    @Test
+    @DisplayName("should keep pinned hot keys out of the size bound")
+    void pinnedKeysAreNotIndexed() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        doReturn(true).when(hotKeyTracker).isPinned("ownersCache", 3L);
+
+        // When
+        coordinator.put("ownersCache", 3L, () -> "owner");
+        commit();
+
+        // Then
+        verify(connection.zSetCommands(), times(1)).zRem(bytes("fund-app:owners::index"), bytes("fund-app:owners::3"));
+        verify(connection.zSetCommands(), times(0)).zAdd(any(byte[].class), anyDouble(), any(byte[].class));
+    }
+
+    @Test
+    @DisplayName("should read the entries in one MGET and backfill the leased misses in one pipeline")
+    void getAllOrLoad() {
+        // Given
+        doReturn(Arrays.asList(null, new CacheEntry("cached", clock.millis() + 60_000, 10), null))
+                .when(valueOperations).multiGet(List.of("accountsCache::3", "accountsCache::1", "accountsCache::2"));
+        doAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of(true, false);
+        }).doAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of("sha", 0L);
+        }).when(redisTemplate).executePipelined(any(RedisCallback.class));
+
+        // When
+        Map<Long, String> result = coordinator.getAllOrLoad("accountsCache", List.of(3L, 1L, 2L, 1L), String.class,
+                keys -> {
+                    assertEquals(Set.of(2L, 3L), keys);
+                    return Map.of(2L, "two", 3L, "three");
+                });
+
+        // Then
+        assertEquals(List.of(3L, 1L, 2L), List.copyOf(result.keySet()));
+        assertEquals(List.of("three", "cached", "two"), List.copyOf(result.values()));
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+        verify(connection.scriptingCommands(), times(1)).evalSha(anyString(), eq(ReturnType.INTEGER), eq(3),
+                eq(bytes("accountsCache::3")), eq(bytes("accountsCache::3::lease")), eq(bytes("accountsCache::index")),
+                any(byte[].class), any(byte[].class), any(byte[].class), any(byte[].class), any(byte[].class),
+                any(byte[].class));
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "accountsCache", "result", "hit").counter().count());
+        assertEquals(2, meterRegistry.get("cache.gets").tags("cache", "accountsCache", "result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("cache.puts").tags("cache", "accountsCache").counter().count());
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private Set<String> asStrings(List<byte[][]> captured) {
+        return captured.stream()
+                .flatMap(Arrays::stream)
+                .map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+                .collect(Collectors.toSet());
+    }
+}
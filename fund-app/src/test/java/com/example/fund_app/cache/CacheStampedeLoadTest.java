@@ -0,0 +1,168 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.config.CacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Fires bursts of concurrent misses at the coordinator, backed by an in-memory stand-in for Redis,
+ * and counts how many of them reach the loader (i.e. the DB).
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CacheStampedeLoadTest {
+
+    private static final int CONCURRENT_REQUESTS = 1_000;
+    private static final Duration DB_LATENCY = Duration.ofMillis(50);
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private HotKeyTracker hotKeyTracker;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+
+    private CacheInvalidationCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties properties = new CacheProperties(Duration.ofMinutes(1), 0,
+                new CacheProperties.EarlyRefresh(true, 1.0), Map.of());
+        coordinator = new CacheInvalidationCoordinator(redisTemplate, properties, new CacheMetrics(new SimpleMeterRegistry()),
+                hotKeyTracker);
+
+        doReturn(valueOperations).when(redisTemplate).opsForValue();
+        doReturn(RedisSerializer.java()).when(redisTemplate).getValueSerializer();
+        doAnswer(invocation -> redis.get(invocation.<String>getArgument(0)))
+                .when(valueOperations).get(anyString());
+        doAnswer(invocation -> redis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null)
+                .when(valueOperations).setIfAbsent(anyString(), any(), any(Duration.class));
+        doAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(3);
+            redis.put(keys.get(0), RedisSerializer.java().deserialize(invocation.getArgument(5)));
+            redis.remove(keys.get(1));
+            return 0L;
+        }).when(redisTemplate).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                anyList(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should reach the DB about once when 1000 requests miss the same key")
+    void missBurstOnOneKey() throws Exception {
+        // Given
+        AtomicInteger dbQueries = new AtomicInteger();
+
+        // When
+        burst(CONCURRENT_REQUESTS, request -> coordinator.getOrLoad("accountsCache", 1L, String.class, () -> {
+            dbQueries.incrementAndGet();
+            sleep(DB_LATENCY);
+            return "account";
+        }));
+
+        // Then
+        assertTrue(dbQueries.get() <= 2, "DB queries for a single key: " + dbQueries.get());
+        assertInstanceOf(CacheEntry.class, redis.get("accountsCache::1"));
+    }
+
+    @Test
+    @DisplayName("should reach the DB about once per key when a burst spreads over several keys")
+    void missBurstOnSeveralKeys() throws Exception {
+        // Given
+        int keys = 10;
+        Map<Long, AtomicInteger> dbQueries = new ConcurrentHashMap<>();
+
+        // When
+        burst(CONCURRENT_REQUESTS, request -> {
+            long key = request % keys;
+            return coordinator.getOrLoad("ownersCache", key, String.class, () -> {
+                dbQueries.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+                sleep(DB_LATENCY);
+                return "owner " + key;
+            });
+        });
+
+        // Then
+        assertEquals(keys, dbQueries.size());
+        dbQueries.forEach((key, queries) ->
+                assertTrue(queries.get() <= 2, "DB queries for key " + key + ": " + queries.get()));
+    }
+
+    @Test
+    @DisplayName("should hand the loader failure to every coalesced request")
+    void missBurstWithFailingLoad() throws Exception {
+        // Given
+        AtomicInteger failures = new AtomicInteger();
+
+        // When
+        burst(100, request -> {
+            try {
+                return coordinator.getOrLoad("accountsCache", 2L, String.class, () -> {
+                    sleep(DB_LATENCY);
+                    throw new IllegalStateException("not found");
+                });
+            } catch (IllegalStateException e) {
+                failures.incrementAndGet();
+                return null;
+            }
+        });
+
+        // Then
+        assertEquals(100, failures.get());
+        assertNull(redis.get("accountsCache::2"));
+    }
+
+    private void burst(int requests, Request request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Object>> results = new java.util.ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                int id = i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return request.run(id);
+                }));
+            }
+            start.countDown();
+            for (Future<Object> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        Object run(int id) throws Exception;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.fund_app.cache;
+
+import com.example.fund_app.config.HotKeyProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotKeyTrackerTest {
+
+    private static final String CACHE = AccountCacheStore.ACCOUNTS_CACHE;
+
+    @Test
+    @DisplayName("should find the hottest keys among a long tail of cold ones")
+    void topKeys() {
+        // Given
+        HotKeyTracker tracker = new HotKeyTracker(new HotKeyProperties(true, 4, 1024, 3, false));
+        Random random = new Random(42);
+
+        // When
+        for (int i = 0; i < 50_000; i++) {
+            tracker.record(CACHE, 1_000L + random.nextInt(10_000));
+            if (i % 10 == 0) {
+                tracker.record(CACHE, 1L);
+                tracker.record(CACHE, 2L);
+            }
+            if (i % 20 == 0) {
+                tracker.record(CACHE, 3L);
+            }
+        }
+
+        // Then
+        List<HotKeyTracker.HotKey> top = tracker.topKeys(CACHE);
+        assertEquals(List.of(1L, 2L, 3L),
+                top.stream().map(HotKeyTracker.HotKey::key).sorted().toList());
+        assertTrue(top.get(0).estimatedCount() >= 5_000);
+        assertEquals(3L, top.get(2).key());
+    }
+
+    @Test
+    @DisplayName("should halve the counts on decay so the top follows the current traffic")
+    void decay() {
+        // Given
+        HotKeyTracker tracker = new HotKeyTracker(new HotKeyProperties(true, 4, 1024, 1, false));
+        LongStream.range(0, 100).forEach(i -> tracker.record(CACHE, 1L));
+
+        // When
+        tracker.decay();
+        tracker.decay();
+        LongStream.range(0, 30).forEach(i -> tracker.record(CACHE, 2L));
+        tracker.decay();
+
+        // Then
+        assertEquals(List.of(new HotKeyTracker.HotKey(2L, 15)), tracker.topKeys(CACHE));
+    }
+
+    @Test
+    @DisplayName("should only pin the hottest keys when pinning is enabled")
+    void pinning() {
+        // Given
+        HotKeyTracker pinning = new HotKeyTracker(new HotKeyProperties(true, 4, 1024, 1, true));
+        HotKeyTracker notPinning = new HotKeyTracker(new HotKeyProperties(true, 4, 1024, 1, false));
+
+        // When
+        for (HotKeyTracker tracker : List.of(pinning, notPinning)) {
+            LongStream.range(0, 10).forEach(i -> tracker.record(CACHE, 1L));
+            tracker.record(CACHE, 2L);
+            tracker.decay();
+        }
+
+        // Then
+        assertTrue(pinning.isPinned(CACHE, 1L));
+        assertFalse(pinning.isPinned(CACHE, 2L));
+        assertFalse(pinning.isPinned(AccountCacheStore.OWNERS_CACHE, 1L));
+        assertFalse(notPinning.isPinned(CACHE, 1L));
+    }
+
+    @Test
+    @DisplayName("should not track anything when disabled")
+    void disabled() {
+        // Given
+        HotKeyTracker tracker = new HotKeyTracker(new HotKeyProperties(false, 4, 1024, 1, true));
+
+        // When
+        tracker.record(CACHE, 1L);
+
+        // Then
+        assertTrue(tracker.topKeys().isEmpty());
+    }
+
+    @Test
+    @DisplayName("should not record the accesses made without recording")
+    void withoutRecording() {
+        // Given
+        HotKeyTracker tracker = new HotKeyTracker(new HotKeyProperties(true, 4, 1024, 1, false));
+
+        // When
+        tracker.withoutRecording(() -> tracker.record(CACHE, 1L));
+        tracker.record(CACHE, 2L);
+
+        // Then
+        assertEquals(List.of(2L), tracker.topKeys(CACHE).stream().map(HotKeyTracker.HotKey::key).toList());
+    }
+
+    @Test
+    @DisplayName("should never undercount a key")
+    void sketchNeverUndercounts() {
+        // Given
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+
+        // When
+        LongStream.range(0, 10_000).forEach(key -> sketch.increment(key % 500));
+
+        // Then
+        LongStream.range(0, 500).forEach(key -> assertTrue(sketch.estimate(key) >= 20));
+    }
+}
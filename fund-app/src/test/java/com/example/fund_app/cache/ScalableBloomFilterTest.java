@@ -0,0 +1,70 @@
+package com.example.fund_app.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    @DisplayName("should never miss an added value and keep false positives under the rate while growing")
+    void growsWithinFalsePositiveRate() {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+
+        // When
+        IntStream.range(0, 50_000).forEach(i -> filter.add("owner" + i));
+
+        // Then
+        assertTrue(IntStream.range(0, 50_000).allMatch(i -> filter.mightContain("owner" + i)));
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("free" + i)).count();
+        assertTrue(falsePositives < 1_000, falsePositives + " false positives");
+        assertTrue(filter.expectedFalsePositiveRate() < 0.01);
+        assertTrue(filter.layers() > 1);
+        assertEquals(50_000, filter.entries(), 50_000 * 0.01);
+    }
+
+    @Test
+    @DisplayName("should report nothing before any value is added")
+    void empty() {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+
+        // Then
+        assertFalse(filter.mightContain("owner"));
+        assertEquals(0, filter.entries());
+        assertEquals(0, filter.expectedFalsePositiveRate());
+        assertTrue(filter.memoryBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("should keep every value added concurrently")
+    void concurrentAdds() throws Exception {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+
+        // When
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> adds = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread;
+                adds.add(executor.submit(() -> IntStream.range(0, 5_000)
+                        .forEach(i -> filter.add("owner" + (i * 8 + offset)))));
+            }
+            for (Future<?> add : adds) {
+                add.get();
+            }
+        }
+
+        // Then
+        assertTrue(IntStream.range(0, 40_000).allMatch(i -> filter.mightContain("owner" + i)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.fund_app.concurrent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskScopeTest {
+
+    @Test
+    @DisplayName("should run the subtasks at the same time and hand their results over")
+    void runSubtasksConcurrently() {
+        // Given
+        long start = System.nanoTime();
+
+        // When
+        int sum;
+        try (TaskScope scope = new TaskScope()) {
+            TaskScope.Subtask<Integer> first = scope.fork(() -> {
+                Thread.sleep(200);
+                return 1;
+            });
+            TaskScope.Subtask<Integer> second = scope.fork(() -> {
+                Thread.sleep(200);
+                return 2;
+            });
+            sum = first.get() + second.get();
+        }
+
+        // Then
+        assertEquals(3, sum);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 350);
+    }
+
+    @Test
+    @DisplayName("should rethrow the failure of a subtask from its siblings without interrupting them")
+    void cancelSiblingsOnFailure() throws Exception {
+        // Given
+        CompletableFuture<Boolean> siblingInterrupted = new CompletableFuture<>();
+        IllegalStateException failure = new IllegalStateException("sender not found");
+        long start = System.nanoTime();
+
+        // When
+        IllegalStateException thrown;
+        try (TaskScope scope = new TaskScope()) {
+            TaskScope.Subtask<Integer> slow = scope.fork(() -> {
+                try {
+                    Thread.sleep(300);
+                    siblingInterrupted.complete(false);
+                } catch (InterruptedException e) {
+                    siblingInterrupted.complete(true);
+                }
+                return 1;
+            });
+            scope.fork(() -> {
+                throw failure;
+            });
+            thrown = assertThrows(IllegalStateException.class, slow::get);
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 200);
+        }
+
+        // Then
+        assertSame(failure, thrown);
+        assertFalse(siblingInterrupted.get(1, TimeUnit.SECONDS));
+    }
+}
@@ -4,6 +4,7 @@ import com.example.fund_app.exception.DbRecordNotFoundException;
 import com.example.fund_app.mapper.AccountMapper;
 import com.example.fund_app.model.Account;
 import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.dbo.AccountDbo;
 import com.example.fund_app.model.dto.AccountViewDto;
 import com.example.fund_app.model.dto.TransferDto;
 import com.example.fund_app.service.AccountService;
@@ -13,9 +14,15 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
@@ -113,6 +120,19 @@ public class AccountControllerTest extends AbstractCT {
         assertEquals(confirmation, result);
     }
 
+    @Test
+    @DisplayName("should answer a conflict when concurrent updates still win once the retries are exhausted")
+    void accountDepositConflicts() throws Exception {
+        // When
+        doThrow(new ObjectOptimisticLockingFailureException(AccountDbo.class, 1L))
+                .when(accountService).deposit(1L, BigDecimal.TEN);
+
+        // Then
+        mockMvc.perform(post(BASE_URL.concat("/1/deposit"))
+                        .param("amount", "10"))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     @DisplayName("should withdraw successfully")
     void accountWithdrawSuccessfully() throws Exception {
@@ -214,4 +234,54 @@ public class AccountControllerTest extends AbstractCT {
         verify(accountService, times(0)).transferTo(any(), any(), any());
         verify(accountService, times(1)).transferFrom(any(), any(), any());
     }
+
+    @Test
+    @DisplayName("should return the views of several accounts keyed by ID")
+    void getAccountsByIdsSuccessfully() throws Exception {
+        // Given
+        Account account1 = Account.builder().accountId(1L).build();
+        Account account2 = Account.builder().accountId(2L).build();
+        Map<Long, Account> accounts = new LinkedHashMap<>();
+        accounts.put(1L, account1);
+        accounts.put(2L, account2);
+
+        // When
+        doReturn(accounts).when(accountService).findAllById(List.of(1L, 2L, 3L));
+        doReturn(new AccountViewDto(Currency.USD, BigDecimal.TEN)).when(accountMapper).toDto(account1);
+        doReturn(new AccountViewDto(Currency.EUR, BigDecimal.ONE)).when(accountMapper).toDto(account2);
+
+        // Then
+        String responseBody = mockMvc.perform(get(BASE_URL).param("ids", "1,2,3"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String lookupResponseBody = mockMvc.perform(post(BASE_URL.concat("/lookup"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(gson.toJson(List.of(1L, 2L, 3L))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertEquals(responseBody, lookupResponseBody);
+        JsonApprovals.verifyJson(responseBody);
+    }
+
+    @Test
+    @DisplayName("should return 400 if too many accounts are requested at once")
+    void getAccountsByIdsTooMany() throws Exception {
+        // Given
+        List<Long> ids = LongStream.rangeClosed(1, 101).boxed().toList();
+
+        // Then
+        mockMvc.perform(get(BASE_URL).param("ids", ids.stream().map(String::valueOf).collect(Collectors.joining(","))))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post(BASE_URL.concat("/lookup"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(gson.toJson(LongStream.rangeClosed(1, 1001).boxed().toList())))
+                .andExpect(status().isBadRequest());
+        verify(accountService, times(0)).findAllById(any());
+    }
 }
@@ -6,9 +6,13 @@ import com.example.fund_app.exception.OwnerAlreadyExistsException;
 import com.example.fund_app.mapper.OwnerMapper;
 import com.example.fund_app.model.Currency;
 import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.OwnerSearchResult;
 import com.example.fund_app.model.dto.AccountDetailsViewDto;
 import com.example.fund_app.model.dto.OwnerDetailsViewDto;
+import com.example.fund_app.model.dto.OwnerOnboardingDto;
 import com.example.fund_app.model.dto.OwnerViewDto;
+import com.example.fund_app.service.OwnerExportService;
+import com.example.fund_app.service.OwnerPurgeService;
 import com.example.fund_app.service.OwnerService;
 import com.google.gson.Gson;
 import org.approvaltests.JsonApprovals;
@@ -17,14 +21,18 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.data.domain.*;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = {OwnerController.class})
 public class OwnerControllerTest extends AbstractCT {
@@ -35,6 +43,12 @@ public class OwnerControllerTest extends AbstractCT {
     @MockitoBean
     private OwnerMapper ownerMapper;
 
+    @MockitoBean
+    private OwnerExportService ownerExportService;
+
+    @MockitoBean
+    private OwnerPurgeService ownerPurgeService;
+
     private final String BASE_URL = "/owners";
     @Mock
     private Pageable pageable;
@@ -56,6 +70,43 @@ public class OwnerControllerTest extends AbstractCT {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    @DisplayName("should tell whether a username is available")
+    void isUsernameAvailable() throws Exception {
+        // When
+        doReturn(true).when(ownerService).isUsernameAvailable("free");
+        doReturn(false).when(ownerService).isUsernameAvailable("taken");
+
+        // Then
+        mockMvc.perform(get(BASE_URL + "/available").param("name", "free"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"));
+        mockMvc.perform(get(BASE_URL + "/available").param("name", "taken"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("false"));
+    }
+
+    @Test
+    @DisplayName("should return a page of owners found by username prefix with the next page cursor")
+    void searchOwners() throws Exception {
+        // Given
+        Owner owner = Owner.builder().id(1L).username("bob").build();
+        OwnerViewDto ownerDto = new OwnerViewDto(1L, "bob", Set.of(1000L));
+
+        // When
+        doReturn(new OwnerSearchResult(List.of(owner), "bob")).when(ownerService).searchOwners("bo", null, 1);
+        doReturn(ownerDto).when(ownerMapper).toDto(owner);
+
+        // Then
+        mockMvc.perform(get(BASE_URL + "/search").param("q", "bo").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.owners[0].username").value("bob"))
+                .andExpect(jsonPath("$.owners[0].accountIds[0]").value(1000))
+                .andExpect(jsonPath("$.next").value("bob"));
+        mockMvc.perform(get(BASE_URL + "/search").param("q", ""))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("should not create owner if name does not follow regex pattern")
     void createOwnerFailsRegex() throws Exception {
@@ -94,6 +145,45 @@ public class OwnerControllerTest extends AbstractCT {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("should onboard owners in bulk successfully")
+    void createOwnersSuccessfully() throws Exception {
+        // Given
+        OwnerOnboardingDto onboarding1 = new OwnerOnboardingDto("test", Set.of(Currency.EUR));
+        OwnerOnboardingDto onboarding2 = new OwnerOnboardingDto("other", Set.of());
+        Owner owner1 = Owner.builder().username("test").build();
+        Owner owner2 = Owner.builder().username("other").build();
+
+        // When
+        doReturn(owner1).when(ownerMapper).toModel(onboarding1);
+        doReturn(owner2).when(ownerMapper).toModel(onboarding2);
+        doReturn(List.of(owner1, owner2)).when(ownerService).createOwners(List.of(owner1, owner2));
+        doReturn(new OwnerViewDto(1L, "test", Set.of(1000L))).when(ownerMapper).toDto(owner1);
+        doReturn(new OwnerViewDto(2L, "other", Set.of())).when(ownerMapper).toDto(owner2);
+
+        // Then
+        String responseBody = mockMvc.perform(post(BASE_URL.concat("/bulk"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(gson.toJson(List.of(onboarding1, onboarding2))))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonApprovals.verifyJson(responseBody);
+    }
+
+    @Test
+    @DisplayName("should not onboard owners if a name does not follow regex pattern")
+    void createOwnersFailsRegex() throws Exception {
+        // Then
+        mockMvc.perform(post(BASE_URL.concat("/bulk"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"username\":\"test\",\"currencies\":[\"EUR\"]},{\"username\":\"t1\",\"currencies\":[]}]"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(ownerService);
+    }
+
     @Test
     @DisplayName("should return empty page if no owner exists")
     void getAllOwnersEmpty() throws Exception {
@@ -227,6 +317,66 @@ public class OwnerControllerTest extends AbstractCT {
         JsonApprovals.verifyJson(responseBody);
     }
 
+    @Test
+    @DisplayName("should return the details of several owners in the order of the IDs")
+    void getOwnerDetailsByIdsSuccessfully() throws Exception {
+        // Given
+        Owner owner1 = Owner.builder().id(1L).build();
+        Owner owner2 = Owner.builder().id(2L).build();
+        Map<Long, Owner> owners = new LinkedHashMap<>();
+        owners.put(2L, owner2);
+        owners.put(1L, owner1);
+
+        OwnerDetailsViewDto dto1 = new OwnerDetailsViewDto(1L, "test1",
+                Set.of(new AccountDetailsViewDto(1L, Currency.EUR, BigDecimal.ONE)));
+        OwnerDetailsViewDto dto2 = new OwnerDetailsViewDto(2L, "test2", Set.of());
+
+        // When
+        doReturn(owners).when(ownerService).getAllById(List.of(2L, 1L));
+        doReturn(dto1).when(ownerMapper).toDetailsDto(owner1);
+        doReturn(dto2).when(ownerMapper).toDetailsDto(owner2);
+
+        // Then
+        String responseBody = mockMvc.perform(get(BASE_URL.concat("/details")).param("ids", "2,1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonApprovals.verifyJson(responseBody);
+    }
+
+    @Test
+    @DisplayName("should return 400 if no owner details are requested")
+    void lookupOwnerDetailsEmpty() throws Exception {
+        // Then
+        mockMvc.perform(post(BASE_URL.concat("/details/lookup"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should stream the export of the owners in the requested format")
+    void exportOwnersSuccessfully() throws Exception {
+        // When
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("ownerId,username\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(ownerExportService).export(eq(OwnerExportService.Format.CSV), any());
+
+        // Then
+        MvcResult result = mockMvc.perform(get(BASE_URL.concat("/export")).param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=owners.csv"))
+                .andExpect(content().string("ownerId,username\n"));
+    }
+
     @Test
     @DisplayName("should link a new account to the owner successfully")
     void addAccountSuccessfully() throws Exception {
@@ -266,10 +416,24 @@ public class OwnerControllerTest extends AbstractCT {
         Long id = 1L;
 
         // When
-        doNothing().when(ownerService).deleteOwner(id);
+        doReturn(OwnerPurgeService.Deletion.DELETED).when(ownerPurgeService).delete(id);
 
         // Then
         mockMvc.perform(delete(BASE_URL.concat("/1")))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    @DisplayName("should accept the deletion of an owner purged in the background")
+    void deleteAccepted() throws Exception {
+        // Given
+        Long id = 1L;
+
+        // When
+        doReturn(OwnerPurgeService.Deletion.PURGING).when(ownerPurgeService).delete(id);
+
+        // Then
+        mockMvc.perform(delete(BASE_URL.concat("/1")))
+                .andExpect(status().isAccepted());
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.fund_app.controller;
+
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.StandingOrderMapper;
+import com.example.fund_app.model.Recurrence;
+import com.example.fund_app.model.StandingOrder;
+import com.example.fund_app.model.StandingOrderStatus;
+import com.example.fund_app.model.dto.StandingOrderDto;
+import com.example.fund_app.model.dto.StandingOrderViewDto;
+import com.example.fund_app.service.StandingOrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = {StandingOrderController.class})
+public class StandingOrderControllerTest extends AbstractCT {
+
+    @MockitoBean
+    private StandingOrderService standingOrderService;
+
+    @MockitoBean
+    private StandingOrderMapper standingOrderMapper;
+
+    private final String BASE_URL = "/accounts/standing-orders";
+
+    // The dates of an order are serialized as Jackson reads them
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("should create a standing order and point to it")
+    void createStandingOrder() throws Exception {
+        // Given
+        StandingOrderDto dto = new StandingOrderDto(1L, 2L, BigDecimal.TEN, true, Recurrence.WEEKLY, null, null);
+        StandingOrder standingOrder = StandingOrder.builder().standingOrderId(7L).build();
+        StandingOrderViewDto view = new StandingOrderViewDto(7L, 1L, 2L, BigDecimal.TEN, true, Recurrence.WEEKLY,
+                null, null, null, 0, null, StandingOrderStatus.ACTIVE);
+
+        // When
+        doReturn(standingOrder).when(standingOrderService).create(dto);
+        doReturn(view).when(standingOrderMapper).toDto(standingOrder);
+
+        // Then
+        mockMvc.perform(post(BASE_URL)
+                        .content(objectMapper.writeValueAsString(dto))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "http://localhost/accounts/standing-orders/7"))
+                .andExpect(jsonPath("$.recurrence").value("WEEKLY"))
+                .andExpect(jsonPath("$.status").value("ACTIVE"));
+    }
+
+    @Test
+    @DisplayName("should not create a standing order without a recurrence")
+    void createInvalid() throws Exception {
+        // Given
+        StandingOrderDto dto = new StandingOrderDto(1L, 2L, BigDecimal.TEN, true, null, null, null);
+
+        // Then
+        mockMvc.perform(post(BASE_URL)
+                        .content(objectMapper.writeValueAsString(dto))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(standingOrderService);
+    }
+
+    @Test
+    @DisplayName("should report a standing order and cancel it, or 404 if it does not exist")
+    void getAndCancel() throws Exception {
+        // Given
+        StandingOrder standingOrder = StandingOrder.builder().standingOrderId(7L).build();
+        StandingOrderViewDto view = new StandingOrderViewDto(7L, 1L, 2L, BigDecimal.TEN, true, Recurrence.DAILY,
+                null, null, null, 3, 40L, StandingOrderStatus.ACTIVE);
+
+        // When
+        doReturn(standingOrder).when(standingOrderService).findById(7L);
+        doReturn(view).when(standingOrderMapper).toDto(standingOrder);
+        doThrow(DbRecordNotFoundException.class).when(standingOrderService).cancel(8L);
+
+        // Then
+        mockMvc.perform(get(BASE_URL.concat("/7")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.runs").value(3))
+                .andExpect(jsonPath("$.lastTransferId").value(40));
+        mockMvc.perform(delete(BASE_URL.concat("/7")))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete(BASE_URL.concat("/8")))
+                .andExpect(status().isNotFound());
+        verify(standingOrderService).cancel(7L);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.fund_app.controller;
+
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.TransferMapper;
+import com.example.fund_app.model.Transfer;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dto.TransferDto;
+import com.example.fund_app.model.dto.TransferViewDto;
+import com.example.fund_app.service.TransferService;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = {TransferController.class})
+public class TransferControllerTest extends AbstractCT {
+
+    @MockitoBean
+    private TransferService transferService;
+
+    @MockitoBean
+    private TransferMapper transferMapper;
+
+    private final String BASE_URL = "/accounts/transfers";
+
+    private final Gson gson = new Gson();
+
+    @Test
+    @DisplayName("should accept a transfer and point to its status")
+    void submitAccepted() throws Exception {
+        // Given
+        TransferDto dto = new TransferDto(1L, 2L, BigDecimal.TEN, true);
+        Transfer transfer = Transfer.builder().transferId(7L).status(TransferStatus.PENDING).build();
+        TransferViewDto view = new TransferViewDto(7L, 1L, 2L, BigDecimal.TEN, true, TransferStatus.PENDING, null,
+                null, null);
+
+        // When
+        doReturn(transfer).when(transferService).submit(dto);
+        doReturn(view).when(transferMapper).toDto(transfer);
+
+        // Then
+        mockMvc.perform(post(BASE_URL)
+                        .content(gson.toJson(dto))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/accounts/transfers/7"))
+                .andExpect(jsonPath("$.transferId").value(7))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    @DisplayName("should not accept an invalid transfer")
+    void submitInvalid() throws Exception {
+        // Given
+        TransferDto dto = new TransferDto(1L, 2L, BigDecimal.TWO, true);
+
+        // Then
+        mockMvc.perform(post(BASE_URL)
+                        .content(gson.toJson(dto))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(transferService);
+    }
+
+    @Test
+    @DisplayName("should report the status of a transfer, or 404 if it does not exist")
+    void getTransfer() throws Exception {
+        // Given
+        Transfer transfer = Transfer.builder().transferId(7L).status(TransferStatus.REJECTED).build();
+        TransferViewDto view = new TransferViewDto(7L, 1L, 2L, BigDecimal.TEN, true, TransferStatus.REJECTED,
+                "The account does not have sufficient funds for this operation", null, null);
+
+        // When
+        doReturn(transfer).when(transferService).findById(7L);
+        doReturn(view).when(transferMapper).toDto(transfer);
+        doThrow(DbRecordNotFoundException.class).when(transferService).findById(8L);
+
+        // Then
+        mockMvc.perform(get(BASE_URL.concat("/7")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("REJECTED"))
+                .andExpect(jsonPath("$.failure").value("The account does not have sufficient funds for this operation"));
+        mockMvc.perform(get(BASE_URL.concat("/8")))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.fund_app.datasource;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeyTracker;
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.ExchangeRateService;
+import com.example.fund_app.service.OwnerExportService;
+import com.example.fund_app.service.TransactionAuditService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DatabaseBulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("should reject a transaction once its budget is exhausted for the max wait, without touching the other budget")
+    void rejectAfterMaxWait() {
+        // Given
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(1, 1, Duration.ofMillis(50), 10, Duration.ofSeconds(2),
+                meterRegistry);
+        bulkhead.acquire(DatabaseBulkhead.Budget.WRITE);
+
+        // When
+        DatabaseOverloadedException exception = assertThrows(DatabaseOverloadedException.class,
+                () -> bulkhead.acquire(DatabaseBulkhead.Budget.WRITE));
+        bulkhead.acquire(DatabaseBulkhead.Budget.READ);
+
+        // Then
+        assertEquals(Duration.ofSeconds(2), exception.getRetryAfter());
+        assertEquals(1, meterRegistry.get("datasource.bulkhead.rejected").tag("budget", "write").counter().count());
+        assertEquals(0, meterRegistry.get("datasource.bulkhead.rejected").tag("budget", "read").counter().count());
+        assertEquals(1, meterRegistry.get("datasource.bulkhead.active").tag("budget", "read").gauge().value());
+        assertTrue(meterRegistry.get("datasource.bulkhead.wait").tag("budget", "write").timer()
+                .max(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    @DisplayName("should reject right away when the queue is full and admit waiters as permits are released")
+    void rejectWhenQueueFull() throws Exception {
+        // Given
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(1, 1, Duration.ofSeconds(10), 1, Duration.ofSeconds(1),
+                meterRegistry);
+        bulkhead.acquire(DatabaseBulkhead.Budget.READ);
+        CountDownLatch admitted = new CountDownLatch(1);
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> {
+            bulkhead.acquire(DatabaseBulkhead.Budget.READ);
+            admitted.countDown();
+        });
+        while (meterRegistry.get("datasource.bulkhead.queued").tag("budget", "read").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        // When
+        long start = System.nanoTime();
+        assertThrows(DatabaseOverloadedException.class, () -> bulkhead.acquire(DatabaseBulkhead.Budget.READ));
+        long rejectionMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        bulkhead.release(DatabaseBulkhead.Budget.READ);
+        waiter.get();
+
+        // Then
+        assertTrue(rejectionMillis < 1000);
+        assertEquals(0, admitted.getCount());
+        assertEquals(1, meterRegistry.get("datasource.bulkhead.rejected").tag("budget", "read").counter().count());
+    }
+
+    @Test
+    @DisplayName("should admit service calls on the budget of their transaction, and only the outermost one")
+    void admitServiceTransactions() {
+        // Given
+        DatabaseBulkhead bulkhead = mock(DatabaseBulkhead.class);
+        AccountService accountService = proxied(bulkhead);
+
+        // When
+        accountService.findById(1L);
+        assertThrows(DbRecordNotFoundException.class, () -> accountService.deposit(1L, BigDecimal.ONE));
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            accountService.findById(2L);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        // Then
+        verify(bulkhead).acquire(DatabaseBulkhead.Budget.READ);
+        verify(bulkhead).release(DatabaseBulkhead.Budget.READ);
+        verify(bulkhead).acquire(DatabaseBulkhead.Budget.WRITE);
+        verify(bulkhead).release(DatabaseBulkhead.Budget.WRITE);
+        verifyNoMoreInteractions(bulkhead);
+    }
+
+    @Test
+    @DisplayName("should hold a read permit for the whole export, and give it back when the export fails")
+    void admitExports() {
+        // Given
+        DatabaseBulkhead bulkhead = mock(DatabaseBulkhead.class);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+                new OwnerExportService(mock(DataSource.class), new ObjectMapper()));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new DatabaseBulkheadAspect(bulkhead, new AnnotationTransactionAttributeSource()));
+        OwnerExportService ownerExportService = proxyFactory.getProxy();
+
+        // When
+        assertThrows(RuntimeException.class,
+                () -> ownerExportService.export(OwnerExportService.Format.CSV, new ByteArrayOutputStream()));
+
+        // Then
+        InOrder inOrder = inOrder(bulkhead);
+        inOrder.verify(bulkhead).acquire(DatabaseBulkhead.Budget.READ);
+        inOrder.verify(bulkhead).release(DatabaseBulkhead.Budget.READ);
+        verifyNoMoreInteractions(bulkhead);
+    }
+
+    private AccountService proxied(DatabaseBulkhead bulkhead) {
+        AccountService accountService = new AccountService(mock(AccountRepository.class), mock(AccountMapper.class),
+                mock(ExchangeRateService.class), mock(TransactionAuditService.class), mock(AccountCacheStore.class),
+                mock(HotKeyTracker.class));
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(accountService);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new DatabaseBulkheadAspect(bulkhead, new AnnotationTransactionAttributeSource()));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.fund_app.datasource;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeyTracker;
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.ExchangeRateService;
+import com.example.fund_app.service.TransactionAuditService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class GroupCommitExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final TransactionStatus transactionStatus = mock(TransactionStatus.class);
+    private final List<Long> applied = new CopyOnWriteArrayList<>();
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(2));
+
+    private GroupCommitExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+            try {
+                invocation.<Consumer<TransactionStatus>>getArgument(0).accept(transactionStatus);
+            } finally {
+                TransactionSynchronizationManager.setActualTransactionActive(false);
+            }
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        executor = new GroupCommitExecutor(Duration.ofMillis(200), 3, 1, Duration.ofSeconds(5), transactionTemplate,
+                readYourWrites, null, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+        readYourWrites.unbind();
+        MDC.clear();
+    }
+
+    @Test
+    @DisplayName("should commit the operations of a window together, in account order, each with its own result")
+    void commitGroup() throws Exception {
+        // When
+        List<Future<String>> results;
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            results = List.of(3L, 1L, 2L).stream()
+                    .map(accountId -> callers.submit(() -> submit(accountId)))
+                    .toList();
+        }
+
+        // Then
+        assertEquals(List.of("3", "1", "2"), results.stream().map(GroupCommitExecutorTest::get).toList());
+        assertEquals(List.of(1L, 2L, 3L), applied);
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        assertEquals(3, meterRegistry.get("group.commit.size").summary().max());
+    }
+
+    @Test
+    @DisplayName("should fail only the failing operation, running the rest of its group again")
+    void isolateFailure() {
+        // Given
+        AccountActionInvalidException failure =
+                new AccountActionInvalidException("The account does not have sufficient funds for this operation");
+        List<GroupCommitExecutor.Operation<?>> group = List.of(
+                operation(1L, () -> apply(1L)),
+                operation(2L, () -> {
+                    throw failure;
+                }),
+                operation(3L, () -> apply(3L)));
+
+        // When
+        executor.commit(group);
+
+        // Then
+        assertEquals("1", group.get(0).result().join());
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> group.get(1).result().get());
+        assertSame(failure, thrown.getCause());
+        assertEquals("3", group.get(2).result().join());
+        assertEquals(List.of(1L, 1L, 3L), applied);
+        verify(transactionStatus, times(1)).setRollbackOnly();
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        assertEquals(1, meterRegistry.get("group.commit.replays").counter().count());
+    }
+
+    @Test
+    @DisplayName("should run an operation with the MDC of its caller and record the write of its session once committed")
+    void carryCallerContext() throws Throwable {
+        // Given
+        MDC.put("request", "r-1");
+        readYourWrites.bind("writer");
+
+        // When
+        String request = executor.execute(1L, () -> MDC.get("request") + " on " + Thread.currentThread().getName());
+
+        // Then
+        assertTrue(request.startsWith("r-1 on "));
+        assertNotEquals(Thread.currentThread().getName(), request.substring("r-1 on ".length()));
+        assertEquals("r-1", MDC.get("request"));
+        assertTrue(readYourWrites.pinnedToPrimary());
+        readYourWrites.bind("other");
+        assertFalse(readYourWrites.pinnedToPrimary());
+    }
+
+    @Test
+    @DisplayName("should reject an operation no group took within the timeout, and never run it")
+    void rejectAfterTimeout() throws Exception {
+        // Given
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (GroupCommitExecutor busy = new GroupCommitExecutor(Duration.ZERO, 1, 1, Duration.ofMillis(100),
+                transactionTemplate, null, null, meterRegistry);
+             ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> first = callers.submit(() -> submit(busy, 1L, () -> {
+                blocked.countDown();
+                release.await();
+                return apply(1L);
+            }));
+            blocked.await();
+
+            // When
+            DatabaseOverloadedException exception = assertThrows(DatabaseOverloadedException.class,
+                    () -> busy.execute(2L, () -> apply(2L)));
+            release.countDown();
+
+            // Then
+            assertEquals(Duration.ofMillis(100), exception.getRetryAfter());
+            assertEquals("1", first.get());
+        }
+        assertEquals(List.of(1L), applied);
+        assertEquals(1, meterRegistry.get("group.commit.timeouts").counter().count());
+    }
+
+    @Test
+    @DisplayName("should fail every operation of a group that cannot commit")
+    void failGroup() {
+        // Given
+        ObjectOptimisticLockingFailureException conflict = new ObjectOptimisticLockingFailureException("accounts", 1L);
+        List<GroupCommitExecutor.Operation<?>> group = List.of(
+                operation(1L, () -> apply(1L)),
+                operation(2L, () -> apply(2L)));
+
+        // When
+        doThrow(conflict).when(transactionTemplate).executeWithoutResult(any());
+        executor.commit(group);
+
+        // Then
+        group.forEach(operation -> assertTrue(operation.result().isCompletedExceptionally()));
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("should hand the deposits of the account service over to the groups, and leave the reads alone")
+    void groupServiceWrites() {
+        // Given
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        AccountMapper accountMapper = mock(AccountMapper.class);
+        AccountCacheStore accountCacheStore = mock(AccountCacheStore.class);
+        AccountService target = new AccountService(accountRepository, accountMapper, mock(ExchangeRateService.class),
+                mock(TransactionAuditService.class), accountCacheStore, mock(HotKeyTracker.class));
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new GroupCommitAspect(executor));
+        AccountService accountService = proxyFactory.getProxy();
+        AccountDbo dbo = new AccountDbo();
+        Account account = Account.builder().accountId(1L).currency(Currency.USD).balance(BigDecimal.TEN).build();
+
+        // When
+        doReturn(Optional.of(dbo)).when(accountRepository).findById(1L);
+        doReturn(account).when(accountMapper).toModel(dbo);
+        doReturn(dbo).when(accountMapper).toDbo(account);
+        doReturn(dbo).when(accountRepository).save(dbo);
+        doAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get())
+                .when(accountCacheStore).getAccount(any(), any());
+
+        // Then
+        accountService.deposit(1L, BigDecimal.ONE);
+        accountService.findById(1L);
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        assertEquals(0, BigDecimal.valueOf(11).compareTo(account.getBalance()));
+        assertEquals(1L, GroupCommitAspect.lowestAccountId(new Object[]{7L, 1L, BigDecimal.TEN}));
+    }
+
+    private String submit(Long accountId) {
+        return submit(executor, accountId, () -> apply(accountId));
+    }
+
+    private static String submit(GroupCommitExecutor executor, Long accountId, GroupCommitExecutor.Task<String> task) {
+        try {
+            return executor.execute(accountId, task);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String apply(Long accountId) {
+        applied.add(accountId);
+        return String.valueOf(accountId);
+    }
+
+    private static <T> GroupCommitExecutor.Operation<T> operation(long accountId, GroupCommitExecutor.Task<T> task) {
+        return new GroupCommitExecutor.Operation<>(accountId, task);
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.fund_app.datasource;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeyTracker;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.ExchangeRateService;
+import com.example.fund_app.service.TransactionAuditService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OptimisticLockRetryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OptimisticLockRetry retry = new OptimisticLockRetry(3, Duration.ofMillis(1), Duration.ofMillis(2),
+            meterRegistry, () -> 0.5);
+
+    @Test
+    @DisplayName("should run a conflicting transaction again until it commits")
+    void retryUntilCommitted() throws Throwable {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = retry.execute("deposit", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(AccountDbo.class, 1L);
+            }
+            return "committed";
+        });
+
+        // Then
+        assertEquals("committed", result);
+        assertEquals(3, attempts.get());
+        assertEquals(1, meterRegistry.get("optimistic.lock.calls").tag("operation", "deposit").counter().count());
+        assertEquals(2, meterRegistry.get("optimistic.lock.retries").tag("operation", "deposit").counter().count());
+        assertEquals(0, meterRegistry.get("optimistic.lock.failures").tag("operation", "deposit").counter().count());
+    }
+
+    @Test
+    @DisplayName("should give up with the last conflict once the attempts are exhausted, and not retry other failures")
+    void giveUpAfterMaxAttempts() {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> retry.execute("deposit", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(AccountDbo.class, 1L);
+        }));
+        assertThrows(IllegalStateException.class, () -> retry.execute("withdraw", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        }));
+
+        // Then
+        assertEquals(4, attempts.get());
+        assertEquals(2, meterRegistry.get("optimistic.lock.retries").tag("operation", "deposit").counter().count());
+        assertEquals(1, meterRegistry.get("optimistic.lock.failures").tag("operation", "deposit").counter().count());
+        assertEquals(0, meterRegistry.get("optimistic.lock.retries").tag("operation", "withdraw").counter().count());
+    }
+
+    @Test
+    @DisplayName("should retry the read-write service transactions only")
+    void retryServiceWrites() {
+        // Given
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        AccountService accountService = proxied(accountRepository);
+        ObjectOptimisticLockingFailureException conflict =
+                new ObjectOptimisticLockingFailureException(AccountDbo.class, 1L);
+
+        // When
+        doThrow(conflict).doReturn(Optional.empty()).when(accountRepository).deleteByIdReturningOwnerId(1L);
+        doThrow(conflict).when(accountRepository).findById(1L);
+
+        // Then
+        accountService.deleteAccount(1L);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> accountService.findById(1L));
+        verify(accountRepository, times(2)).deleteByIdReturningOwnerId(1L);
+        verify(accountRepository, times(1)).findById(1L);
+        assertEquals(1, meterRegistry.get("optimistic.lock.retries").tag("operation", "AccountService.deleteAccount")
+                .counter().count());
+    }
+
+    private AccountService proxied(AccountRepository accountRepository) {
+        AccountCacheStore accountCacheStore = mock(AccountCacheStore.class);
+        doAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get())
+                .when(accountCacheStore).getAccount(any(), any());
+        AccountService accountService = new AccountService(accountRepository, mock(AccountMapper.class),
+                mock(ExchangeRateService.class), mock(TransactionAuditService.class), accountCacheStore,
+                mock(HotKeyTracker.class));
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(accountService);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new OptimisticLockRetryAspect(retry, new AnnotationTransactionAttributeSource()));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.fund_app.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(2), nanoTime::get);
+
+    @AfterEach
+    void unbind() {
+        readYourWrites.unbind();
+    }
+
+    @Test
+    @DisplayName("should read mostly from the replica with fewer connections in use")
+    void leastBusyReplica() throws SQLException {
+        // Given
+        DataSource busy = mock(DataSource.class);
+        doReturn(mock(Connection.class)).when(busy).getConnection();
+        DataSource idle = mock(DataSource.class);
+        doReturn(mock(Connection.class)).when(idle).getConnection();
+        ReplicaRoutingDataSource routing = routing(mock(DataSource.class),
+                new ReplicaRoutingDataSource.Replica("busy", busy, () -> 8),
+                new ReplicaRoutingDataSource.Replica("idle", idle, () -> 1));
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            routing.getConnection();
+        }
+
+        // Then
+        // The busy replica only wins when both random choices land on it, about one read out of four
+        double busyReads = meterRegistry.get("datasource.reads.routed").tag("target", "busy").counter().count();
+        double idleReads = meterRegistry.get("datasource.reads.routed").tag("target", "idle").counter().count();
+        assertEquals(1000, busyReads + idleReads);
+        assertTrue(idleReads > 2 * busyReads);
+    }
+
+    @Test
+    @DisplayName("should take out a replica refusing connections and fall back to a read-only primary connection")
+    void fallBackToPrimary() throws SQLException {
+        // Given
+        Connection primaryConnection = mock(Connection.class);
+        DataSource primary = mock(DataSource.class);
+        doReturn(primaryConnection).when(primary).getConnection();
+        DataSource down = mock(DataSource.class);
+        doThrow(new SQLException("Connection refused")).when(down).getConnection();
+        ReplicaRoutingDataSource.Replica replica = new ReplicaRoutingDataSource.Replica("down", down, () -> 0);
+        ReplicaRoutingDataSource routing = routing(primary, replica);
+
+        // When
+        Connection first = routing.getConnection();
+        Connection second = routing.getConnection();
+
+        // Then
+        assertSame(primaryConnection, first);
+        assertSame(primaryConnection, second);
+        assertFalse(replica.healthy());
+        verify(down, times(1)).getConnection();
+        verify(primaryConnection, times(2)).setReadOnly(true);
+        assertEquals(2, meterRegistry.get("datasource.reads.routed").tag("target", "primary").counter().count());
+        assertEquals(0, meterRegistry.get("datasource.replica.healthy").tag("replica", "down").gauge().value());
+    }
+
+    @Test
+    @DisplayName("should take out a lagging replica and bring it back once it caught up")
+    void healthCheck() throws SQLException {
+        // Given
+        ResultSet resultSet = mock(ResultSet.class);
+        doReturn(true).when(resultSet).next();
+        doReturn(30.0, 0.5).when(resultSet).getDouble(1);
+        Statement statement = mock(Statement.class);
+        doReturn(resultSet).when(statement).executeQuery(anyString());
+        Connection connection = mock(Connection.class);
+        doReturn(statement).when(connection).createStatement();
+        DataSource dataSource = mock(DataSource.class);
+        doReturn(connection).when(dataSource).getConnection();
+        ReplicaRoutingDataSource.Replica replica = new ReplicaRoutingDataSource.Replica("lagging", dataSource, () -> 0);
+        ReplicaRoutingDataSource routing = routing(mock(DataSource.class), replica);
+
+        // When
+        routing.checkHealth();
+        boolean healthyWhenLagging = replica.healthy();
+        routing.checkHealth();
+
+        // Then
+        assertFalse(healthyWhenLagging);
+        assertTrue(replica.healthy());
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    @DisplayName("should read from the primary within the window after a write of the same session")
+    void readYourWrites() throws SQLException {
+        // Given
+        DataSource primary = mock(DataSource.class);
+        doReturn(mock(Connection.class)).when(primary).getConnection();
+        DataSource replica = mock(DataSource.class);
+        doReturn(mock(Connection.class)).when(replica).getConnection();
+        ReplicaRoutingDataSource routing = routing(primary,
+                new ReplicaRoutingDataSource.Replica("replica", replica, () -> 0));
+        readYourWrites.bind("writer");
+        readYourWrites.recordWrite();
+
+        // When
+        routing.getConnection();
+        readYourWrites.bind("other");
+        routing.getConnection();
+        readYourWrites.bind("writer");
+        nanoTime.addAndGet(Duration.ofSeconds(3).toNanos());
+        routing.getConnection();
+
+        // Then
+        verify(primary, times(1)).getConnection();
+        verify(replica, times(2)).getConnection();
+    }
+
+    @Test
+    @DisplayName("should read from the primary the reads filling the cache, whatever the session")
+    void readFromPrimaryForCache() throws SQLException {
+        // Given
+        DataSource primary = mock(DataSource.class);
+        doReturn(mock(Connection.class)).when(primary).getConnection();
+        DataSource replica = mock(DataSource.class);
+        doReturn(mock(Connection.class)).when(replica).getConnection();
+        ReplicaRoutingDataSource routing = routing(primary,
+                new ReplicaRoutingDataSource.Replica("replica", replica, () -> 0));
+
+        // When
+        Connection cacheRead = ReadYourWrites.fromPrimary(() -> {
+            try {
+                return routing.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        routing.getConnection();
+
+        // Then
+        verify(cacheRead, times(1)).setReadOnly(true);
+        verify(primary, times(1)).getConnection();
+        verify(replica, times(1)).getConnection();
+    }
+
+    @Test
+    @DisplayName("should forget the sessions whose window elapsed")
+    void expireSessions() {
+        // Given
+        readYourWrites.bind("first");
+        readYourWrites.recordWrite();
+        nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+        readYourWrites.bind("second");
+        readYourWrites.recordWrite();
+        readYourWrites.unbind();
+        readYourWrites.recordWrite();
+
+        // When
+        nanoTime.addAndGet(Duration.ofMillis(1500).toNanos());
+        readYourWrites.expire();
+
+        // Then
+        assertEquals(1, readYourWrites.sessions());
+        assertFalse(readYourWrites.pinnedToPrimary());
+    }
+
+    private ReplicaRoutingDataSource routing(DataSource primary, ReplicaRoutingDataSource.Replica... replicas) {
+        return new ReplicaRoutingDataSource(primary, List.of(replicas), readYourWrites, Duration.ofSeconds(10),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.fund_app.limiter;
+
+import com.example.fund_app.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("should lower the limit when the latency rises and raise it back once it recovers")
+    void followLatency() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(100), meterRegistry);
+        samples(limiter, 1000, 10 * MILLIS, 60);
+        double usualLimit = limiter.limit();
+
+        // When
+        samples(limiter, 5, 50 * MILLIS, 60);
+        double overloadedLimit = limiter.limit();
+        samples(limiter, 1000, 10 * MILLIS, 40);
+
+        // Then
+        assertTrue(overloadedLimit < usualLimit / 2, () -> overloadedLimit + " vs " + usualLimit);
+        assertTrue(limiter.limit() > overloadedLimit * 2, () -> "recovered to " + limiter.limit());
+        assertEquals(limiter.limit(), meterRegistry.get("http.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    @DisplayName("should not raise the limit while most of it is unused")
+    void appLimited() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(100), meterRegistry);
+
+        // When
+        samples(limiter, 1000, 10 * MILLIS, 10);
+
+        // Then
+        assertEquals(100, limiter.limit());
+    }
+
+    @Test
+    @DisplayName("should shed reads before writes, and writes before transfers")
+    void priorityLanes() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(20), meterRegistry);
+        IntStream.range(0, 15).forEach(i -> assertTrue(limiter.tryAcquire(Priority.READ)));
+
+        // When
+        boolean read = limiter.tryAcquire(Priority.READ);
+        int writes = 0;
+        while (limiter.tryAcquire(Priority.WRITE)) {
+            writes++;
+        }
+        int transfers = 0;
+        while (limiter.tryAcquire(Priority.TRANSFER)) {
+            transfers++;
+        }
+
+        // Then
+        assertFalse(read);
+        assertEquals(3, writes);
+        assertEquals(2, transfers);
+        assertEquals(20, limiter.inFlight());
+        assertEquals(1, meterRegistry.get("http.concurrency.rejected").tag("priority", "read").counter().count());
+        assertEquals(1, meterRegistry.get("http.concurrency.rejected").tag("priority", "transfer").counter().count());
+    }
+
+    @Test
+    @DisplayName("should answer 503 with Retry-After once the lane is full")
+    void shedWithRetryAfter() throws Exception {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(20), meterRegistry);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter, Duration.ofSeconds(2));
+        IntStream.range(0, 15).forEach(i -> limiter.tryAcquire(Priority.TRANSFER));
+        MockHttpServletResponse readResponse = new MockHttpServletResponse();
+        MockHttpServletResponse transferResponse = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(new MockHttpServletRequest("GET", "/owners"), readResponse, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("POST", "/accounts/transfer"), transferResponse,
+                new MockFilterChain());
+
+        // Then
+        assertEquals(503, readResponse.getStatus());
+        assertEquals("2", readResponse.getHeader("Retry-After"));
+        assertEquals(200, transferResponse.getStatus());
+        assertEquals(15, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("should put transfers, writes and reads in their lanes")
+    void classifyRequests() {
+        assertEquals(Priority.TRANSFER, ConcurrencyLimitFilter.priorityOf(new MockHttpServletRequest("POST", "/accounts/transfer")));
+        assertEquals(Priority.TRANSFER, ConcurrencyLimitFilter.priorityOf(new MockHttpServletRequest("POST", "/accounts/transfers")));
+        assertEquals(Priority.READ, ConcurrencyLimitFilter.priorityOf(new MockHttpServletRequest("GET", "/accounts/transfers/1")));
+        assertEquals(Priority.WRITE, ConcurrencyLimitFilter.priorityOf(new MockHttpServletRequest("POST", "/accounts/1/deposit")));
+        assertEquals(Priority.WRITE, ConcurrencyLimitFilter.priorityOf(new MockHttpServletRequest("DELETE", "/owners/1")));
+        assertEquals(Priority.READ, ConcurrencyLimitFilter.priorityOf(new MockHttpServletRequest("POST", "/owners/details/lookup")));
+        assertEquals(Priority.READ, ConcurrencyLimitFilter.priorityOf(new MockHttpServletRequest("GET", "/accounts")));
+    }
+
+    /**
+     * Completes requests one after the other, each seeing the given number of requests in flight.
+     */
+    private static void samples(AdaptiveConcurrencyLimiter limiter, int count, long rttNanos, int inFlight) {
+        for (int i = 0; i < count; i++) {
+            int admitted = 0;
+            while (admitted < inFlight && limiter.tryAcquire(Priority.TRANSFER)) {
+                admitted++;
+            }
+            for (int j = 0; j < admitted; j++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+
+    private static ConcurrencyLimitProperties properties(int initialLimit) {
+        return new ConcurrencyLimitProperties(true, initialLimit, 20, 1000, 0.2, 1.5, 600, 0.9, 0.75,
+                Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.fund_app.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.batch.core.*;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExchangeRateJobSchedulerTest {
+
+    @Mock
+    private Job job;
+
+    @Mock
+    private JobLauncher jobLauncher;
+
+    @Mock
+    private JobExplorer jobExplorer;
+
+    @Mock
+    private JobRepository jobRepository;
+
+    @Mock
+    private JobOperator jobOperator;
+
+    @Mock
+    private SchedulerLease lease;
+
+    private ExchangeRateJobScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ExchangeRateJobScheduler(job, jobLauncher, jobExplorer, jobRepository, jobOperator, lease);
+        lenient().doReturn("exchangeRateJob").when(job).getName();
+        lenient().doReturn("node-b").when(lease).holder();
+        lenient().doReturn(Duration.ofMinutes(1)).when(lease).ttl();
+    }
+
+    @Test
+    @DisplayName("should leave the job to the node holding the lease")
+    void passWhenLeaseHeldElsewhere() throws Exception {
+        // Given
+        doReturn(false).when(lease).tryAcquire();
+
+        // When
+        scheduler.runExchangeRateBatch();
+
+        // Then
+        verify(jobLauncher, never()).run(any(), any());
+        verify(lease, never()).release();
+    }
+
+    @Test
+    @DisplayName("should run the job of the day once the lease is taken, then release it")
+    void runWithLease() throws Exception {
+        // Given
+        ArgumentCaptor<JobParameters> parametersCaptor = ArgumentCaptor.forClass(JobParameters.class);
+        JobExecution completed = new JobExecution(new JobInstance(1L, "exchangeRateJob"), 10L, new JobParameters());
+        completed.setExitStatus(ExitStatus.COMPLETED);
+
+        // When
+        doReturn(true).when(lease).tryAcquire();
+        doReturn(completed).when(jobLauncher).run(eq(job), any());
+        scheduler.runExchangeRateBatch();
+
+        // Then
+        verify(jobLauncher).run(eq(job), parametersCaptor.capture());
+        JobParameters parameters = parametersCaptor.getValue();
+        assertEquals(LocalDate.now(), parameters.getLocalDate("date"));
+        assertEquals("node-b", parameters.getString("node"));
+        assertFalse(parameters.getParameter("node").isIdentifying());
+        verify(lease).release();
+    }
+
+    @Test
+    @DisplayName("should fail the run left running by a node that lost the lease, then restart it")
+    void restartAbandonedExecution() throws Exception {
+        // Given
+        JobInstance instance = new JobInstance(1L, "exchangeRateJob");
+        JobExecution abandoned = new JobExecution(instance, 10L, new JobParametersBuilder()
+                .addString("node", "node-a", false)
+                .toJobParameters());
+        abandoned.setStatus(BatchStatus.STARTED);
+        StepExecution done = abandoned.createStepExecution("exchangeRateStep:partition0");
+        done.setStatus(BatchStatus.COMPLETED);
+        StepExecution running = abandoned.createStepExecution("exchangeRateStep:partition1");
+        running.setStatus(BatchStatus.STARTED);
+        StepExecution waiting = abandoned.createStepExecution("exchangeRateStep:partition2");
+        JobExecution restarted = new JobExecution(instance, 11L, new JobParameters());
+        restarted.setExitStatus(ExitStatus.COMPLETED);
+
+        // When
+        doReturn(true).when(lease).tryAcquire();
+        doReturn(instance).when(jobExplorer).getJobInstance(eq("exchangeRateJob"), any());
+        doReturn(List.of(abandoned)).when(jobExplorer).getJobExecutions(instance);
+        doReturn(restarted).when(jobLauncher).run(eq(job), any());
+        scheduler.runExchangeRateBatch();
+
+        // Then
+        InOrder inOrder = inOrder(jobRepository, jobLauncher);
+        inOrder.verify(jobRepository).update(running);
+        inOrder.verify(jobRepository).update(waiting);
+        inOrder.verify(jobRepository).update(abandoned);
+        inOrder.verify(jobLauncher).run(eq(job), any());
+        verify(jobRepository, never()).update(done);
+        assertEquals(BatchStatus.FAILED, abandoned.getStatus());
+        assertEquals(BatchStatus.FAILED, running.getStatus());
+        assertEquals(BatchStatus.FAILED, waiting.getStatus());
+        assertEquals(BatchStatus.COMPLETED, done.getStatus());
+        verify(lease).release();
+    }
+
+    @Test
+    @DisplayName("should pass quietly when the job of the day already completed, and release the lease")
+    void passWhenAlreadyComplete() throws Exception {
+        // When
+        doReturn(true).when(lease).tryAcquire();
+        doThrow(new JobInstanceAlreadyCompleteException("complete")).when(jobLauncher).run(eq(job), any());
+
+        // Then
+        assertDoesNotThrow(() -> scheduler.runExchangeRateBatch());
+        verify(lease).release();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.fund_app.search;
+
+import com.example.fund_app.config.OwnerSearchProperties;
+import com.example.fund_app.model.event.OwnersCreatedEvent;
+import com.example.fund_app.model.event.OwnersDeletedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class OwnerSearchIndexTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OwnerSearchIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void loadIndex() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        doReturn(3L, 1L, 2L, 4L).when(resultSet).getLong(1);
+        doReturn("alice", "bob", "bobby", "élodie").when(resultSet).getString(2);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int row = 0; row < 4; row++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        index = new OwnerSearchIndex(new OwnerSearchProperties(true, 100, Duration.ofHours(1)), jdbcTemplate,
+                transactionTemplate, meterRegistry);
+        index.load();
+    }
+
+    @Test
+    @DisplayName("should page through the usernames starting with the prefix, created ones included")
+    void searchByPages() {
+        // Given
+        index.ownersCreated(new OwnersCreatedEvent(Map.of(10L, "bobo", 11L, "boa", 12L, "carl")));
+
+        // When
+        List<OwnerSearchIndex.Hit> firstPage = index.search("bo", null, 2);
+        List<OwnerSearchIndex.Hit> secondPage = index.search("bo", firstPage.getLast().username(), 2);
+        List<OwnerSearchIndex.Hit> lastPage = index.search("bo", secondPage.getLast().username(), 2);
+
+        // Then
+        assertEquals(List.of(new OwnerSearchIndex.Hit("boa", 11L), new OwnerSearchIndex.Hit("bob", 1L)), firstPage);
+        assertEquals(List.of(new OwnerSearchIndex.Hit("bobby", 2L), new OwnerSearchIndex.Hit("bobo", 10L)), secondPage);
+        assertEquals(List.of(), lastPage);
+        assertEquals(List.of(new OwnerSearchIndex.Hit("élodie", 4L)), index.search("é", null, 10));
+        assertEquals(List.of(), index.search("z", null, 10));
+    }
+
+    @Test
+    @DisplayName("should leave deleted owners out, and find the new owner of a name signed up again")
+    void searchAfterDeletions() {
+        // Given
+        index.ownersDeleted(new OwnersDeletedEvent(List.of(1L, 3L)));
+        index.ownersCreated(new OwnersCreatedEvent(Map.of(20L, "bob")));
+
+        // When
+        List<OwnerSearchIndex.Hit> beforeCompaction = index.search("", null, 10);
+        index.compact();
+        List<OwnerSearchIndex.Hit> afterCompaction = index.search("", null, 10);
+
+        // Then
+        List<OwnerSearchIndex.Hit> expected = List.of(
+                new OwnerSearchIndex.Hit("bob", 20L),
+                new OwnerSearchIndex.Hit("bobby", 2L),
+                new OwnerSearchIndex.Hit("élodie", 4L));
+        assertEquals(expected, beforeCompaction);
+        assertEquals(expected, afterCompaction);
+        assertEquals(0, meterRegistry.get("owner.search.index.pending").gauge().value());
+        assertEquals(3, meterRegistry.get("owner.search.index.entries").gauge().value());
+    }
+
+    @Test
+    @DisplayName("should keep the new owner of a name deleted on another node once compacted")
+    void compactNameSignedUpAgain() {
+        // Given
+        index.ownersCreated(new OwnersCreatedEvent(Map.of(20L, "bob")));
+
+        // When
+        index.compact();
+        List<OwnerSearchIndex.Hit> afterCompaction = index.search("bob", null, 10);
+
+        // Then
+        assertEquals(List.of(new OwnerSearchIndex.Hit("bob", 20L), new OwnerSearchIndex.Hit("bobby", 2L)),
+                afterCompaction);
+        assertEquals(0, meterRegistry.get("owner.search.index.pending").gauge().value());
+    }
+}
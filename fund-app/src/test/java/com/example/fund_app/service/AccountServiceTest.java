@@ -1,7 +1,10 @@
 package com.example.fund_app.service;
 
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeyTracker;
 import com.example.fund_app.exception.AccountActionInvalidException;
 import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.exception.ExchangeRateNotRetrievableException;
 import com.example.fund_app.mapper.AccountMapper;
 import com.example.fund_app.model.Account;
 import com.example.fund_app.model.Currency;
@@ -18,7 +21,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -38,6 +45,12 @@ public class AccountServiceTest {
     @Mock
     private TransactionAuditService transactionAuditService;
 
+    @Mock
+    private AccountCacheStore accountCacheStore;
+
+    @Mock
+    private HotKeyTracker hotKeyTracker;
+
     @InjectMocks
     private AccountService accountService;
 
@@ -58,6 +71,8 @@ public class AccountServiceTest {
                 .build();
 
         // When
+        doAnswer(invocation -> invocation.<Supplier<Account>>getArgument(1).get())
+                .when(accountCacheStore).getAccount(eq(id), any());
         doReturn(Optional.of(dbo)).when(accountRepository).findById(id);
         doReturn(account).when(accountMapper).toModel(dbo);
 
@@ -67,6 +82,49 @@ public class AccountServiceTest {
         assertNotNull(result);
         assertEquals(id, result.getAccountId());
         verify(accountRepository, times(1)).findById(anyLong());
+        verify(hotKeyTracker, times(1)).record(AccountCacheStore.ACCOUNTS_CACHE, id);
+    }
+
+    @Test
+    @DisplayName("should return the cached account without reaching the db")
+    void findByIdFromCache() {
+        // Given
+        Long id = 1L;
+        Account account = Account.builder()
+                .accountId(id)
+                .build();
+
+        // When
+        doReturn(account).when(accountCacheStore).getAccount(eq(id), any());
+
+        // Then
+        Account result = accountService.findById(id);
+
+        assertSame(account, result);
+        verify(accountRepository, times(0)).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("should load the accounts missing from the cache in one query")
+    void findAllByIdSuccessful() {
+        // Given
+        AccountDbo dbo = new AccountDbo();
+        Account account = Account.builder()
+                .accountId(2L)
+                .build();
+
+        // When
+        doAnswer(invocation -> invocation.<Function<Set<Long>, Map<Long, Account>>>getArgument(1).apply(Set.of(2L)))
+                .when(accountCacheStore).getAccounts(eq(List.of(1L, 2L)), any());
+        doReturn(List.of(dbo)).when(accountRepository).findAllById(Set.of(2L));
+        doReturn(account).when(accountMapper).toModel(dbo);
+
+        // Then
+        Map<Long, Account> result = accountService.findAllById(List.of(1L, 2L));
+
+        assertEquals(Map.of(2L, account), result);
+        verify(accountRepository, times(1)).findAllById(any());
+        verify(hotKeyTracker, times(2)).record(eq(AccountCacheStore.ACCOUNTS_CACHE), anyLong());
     }
 
     @Test
@@ -76,6 +134,8 @@ public class AccountServiceTest {
         Long id = 1L;
 
         // When
+        doAnswer(invocation -> invocation.<Supplier<Account>>getArgument(1).get())
+                .when(accountCacheStore).getAccount(eq(id), any());
         doReturn(Optional.empty()).when(accountRepository).findById(id);
 
         // Then
@@ -108,6 +168,7 @@ public class AccountServiceTest {
         assertDoesNotThrow(() -> accountService.deposit(id, deposit));
         verify(transactionAuditService, times(1)).logDeposit(any(), any());
         verify(accountRepository, times(1)).save(accountDboCaptor.capture());
+        verify(accountCacheStore, times(1)).putAccount(dbo);
 
         AccountDbo savedEntity = accountDboCaptor.getValue();
         assertNotNull(savedEntity);
@@ -165,6 +226,7 @@ public class AccountServiceTest {
 
         verify(transactionAuditService, times(0)).logWithdrawal(any(), any());
         verify(accountRepository, times(0)).save(any());
+        verify(accountCacheStore, times(0)).putAccount(any());
     }
 
     @Test
@@ -189,11 +251,10 @@ public class AccountServiceTest {
         AccountDbo receiver = AccountDbo.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.USD).build();
 
         Account senderAcc = Account.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
-        Account receiverAcc = Account.builder().accountId(id1).balance(BigDecimal.TWO).currency(Currency.USD).build();
+        Account receiverAcc = Account.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.USD).build();
 
         // When
-        doReturn(Optional.of(sender)).when(accountRepository).findById(id1);
-        doReturn(Optional.of(receiver)).when(accountRepository).findById(id2);
+        doReturn(List.of(sender, receiver)).when(accountRepository).findAllById(Set.of(id1, id2));
         doReturn(senderAcc).when(accountMapper).toModel(sender);
         doReturn(receiverAcc).when(accountMapper).toModel(receiver);
         doReturn(sender).when(accountMapper).toDbo(senderAcc);
@@ -203,9 +264,12 @@ public class AccountServiceTest {
 
         // Then
         assertDoesNotThrow(() -> accountService.transferTo(id1, id2, BigDecimal.TEN));
+        verifyNoInteractions(exchangeRateService);
         verify(transactionAuditService, times(1)).logTransfer(
                 accountModelCaptor.capture(), accountModelCaptor.capture(), any(BigDecimal.class), any(BigDecimal.class)
         );
+        verify(accountCacheStore, times(1)).putAccount(sender);
+        verify(accountCacheStore, times(1)).putAccount(receiver);
 
         List<Account> updatedAccounts = accountModelCaptor.getAllValues();
         assertEquals(2, updatedAccounts.size());
@@ -224,11 +288,10 @@ public class AccountServiceTest {
         AccountDbo receiver = AccountDbo.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.USD).build();
 
         Account senderAcc = Account.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
-        Account receiverAcc = Account.builder().accountId(id1).balance(BigDecimal.TWO).currency(Currency.USD).build();
+        Account receiverAcc = Account.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.USD).build();
 
         // When
-        doReturn(Optional.of(sender)).when(accountRepository).findById(id1);
-        doReturn(Optional.of(receiver)).when(accountRepository).findById(id2);
+        doReturn(List.of(sender, receiver)).when(accountRepository).findAllById(Set.of(id1, id2));
         doReturn(senderAcc).when(accountMapper).toModel(sender);
         doReturn(receiverAcc).when(accountMapper).toModel(receiver);
         doReturn(sender).when(accountMapper).toDbo(senderAcc);
@@ -238,6 +301,7 @@ public class AccountServiceTest {
 
         // Then
         assertDoesNotThrow(() -> accountService.transferFrom(id1, id2, BigDecimal.TEN));
+        verifyNoInteractions(exchangeRateService);
         verify(transactionAuditService, times(1)).logTransfer(
                 accountModelCaptor.capture(), accountModelCaptor.capture(), any(BigDecimal.class), any(BigDecimal.class)
         );
@@ -259,11 +323,10 @@ public class AccountServiceTest {
         AccountDbo receiver = AccountDbo.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
 
         Account senderAcc = Account.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
-        Account receiverAcc = Account.builder().accountId(id1).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+        Account receiverAcc = Account.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
 
         // When
-        doReturn(Optional.of(sender)).when(accountRepository).findById(id1);
-        doReturn(Optional.of(receiver)).when(accountRepository).findById(id2);
+        doReturn(List.of(sender, receiver)).when(accountRepository).findAllById(Set.of(id1, id2));
         doReturn(senderAcc).when(accountMapper).toModel(sender);
         doReturn(receiverAcc).when(accountMapper).toModel(receiver);
         doReturn(sender).when(accountMapper).toDbo(senderAcc);
@@ -295,11 +358,10 @@ public class AccountServiceTest {
         AccountDbo receiver = AccountDbo.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
 
         Account senderAcc = Account.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
-        Account receiverAcc = Account.builder().accountId(id1).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+        Account receiverAcc = Account.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
 
         // When
-        doReturn(Optional.of(sender)).when(accountRepository).findById(id1);
-        doReturn(Optional.of(receiver)).when(accountRepository).findById(id2);
+        doReturn(List.of(sender, receiver)).when(accountRepository).findAllById(Set.of(id1, id2));
         doReturn(senderAcc).when(accountMapper).toModel(sender);
         doReturn(receiverAcc).when(accountMapper).toModel(receiver);
         doReturn(sender).when(accountMapper).toDbo(senderAcc);
@@ -319,4 +381,102 @@ public class AccountServiceTest {
         assertEquals(BigDecimal.valueOf(500, 2), updatedAccounts.get(0).getBalance());
         assertEquals(BigDecimal.valueOf(12), updatedAccounts.get(1).getBalance());
     }
+
+    @Test
+    @DisplayName("should look the exchange rate up on the thread of the transfer, within its transaction")
+    void transferLooksUpRateInItsTransaction() {
+        // Given
+        Long id1 = 1L;
+        Long id2 = 2L;
+
+        AccountDbo sender = AccountDbo.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
+        AccountDbo receiver = AccountDbo.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+
+        Account senderAcc = Account.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
+        Account receiverAcc = Account.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+        Thread transferThread = Thread.currentThread();
+
+        // When
+        doReturn(List.of(sender, receiver)).when(accountRepository).findAllById(Set.of(id1, id2));
+        doAnswer(invocation -> {
+            assertSame(transferThread, Thread.currentThread());
+            return BigDecimal.TWO;
+        }).when(exchangeRateService).getRate(Currency.USD, Currency.EUR);
+        doReturn(senderAcc).when(accountMapper).toModel(sender);
+        doReturn(receiverAcc).when(accountMapper).toModel(receiver);
+        doReturn(sender).when(accountMapper).toDbo(senderAcc);
+        doReturn(receiver).when(accountMapper).toDbo(receiverAcc);
+        doReturn(sender).when(accountRepository).save(sender);
+        doReturn(receiver).when(accountRepository).save(receiver);
+
+        // Then
+        accountService.transferTo(id1, id2, BigDecimal.TEN);
+
+        verify(exchangeRateService, times(1)).getRate(Currency.USD, Currency.EUR);
+        assertEquals(BigDecimal.ZERO, senderAcc.getBalance());
+        assertEquals(BigDecimal.valueOf(22), receiverAcc.getBalance());
+    }
+
+    @Test
+    @DisplayName("should not look the exchange rate up when an account of the transfer is not found")
+    void transferSkipsRateLookupWhenAccountMissing() {
+        // Given
+        Long id1 = 1L;
+        Long id2 = 2L;
+
+        AccountDbo receiver = AccountDbo.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+        Account receiverAcc = Account.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+
+        // When
+        doReturn(List.of(receiver)).when(accountRepository).findAllById(Set.of(id1, id2));
+        doReturn(receiverAcc).when(accountMapper).toModel(receiver);
+
+        // Then
+        DbRecordNotFoundException exception = assertThrows(DbRecordNotFoundException.class,
+                () -> accountService.transferTo(id1, id2, BigDecimal.TEN));
+        assertEquals("Could not find account with ID: 1", exception.getMessage());
+        verifyNoInteractions(exchangeRateService);
+        verify(accountRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("should fail the transfer when no exchange rate is found between the currencies")
+    void transferFailsWithoutRate() {
+        // Given
+        Long id1 = 1L;
+        Long id2 = 2L;
+
+        AccountDbo sender = AccountDbo.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
+        AccountDbo receiver = AccountDbo.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+
+        Account senderAcc = Account.builder().accountId(id1).balance(BigDecimal.TEN).currency(Currency.USD).build();
+        Account receiverAcc = Account.builder().accountId(id2).balance(BigDecimal.TWO).currency(Currency.EUR).build();
+
+        // When
+        doReturn(List.of(sender, receiver)).when(accountRepository).findAllById(Set.of(id1, id2));
+        doReturn(null).when(exchangeRateService).getRate(Currency.USD, Currency.EUR);
+        doReturn(senderAcc).when(accountMapper).toModel(sender);
+        doReturn(receiverAcc).when(accountMapper).toModel(receiver);
+
+        // Then
+        assertThrows(ExchangeRateNotRetrievableException.class,
+                () -> accountService.transferFrom(id1, id2, BigDecimal.TEN));
+        verify(accountRepository, never()).save(any());
+        verify(transactionAuditService, never()).logTransfer(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should delete the account, then evict it along with its owner")
+    void deleteAccountSuccessful() {
+        // Given
+        Long id = 1000L;
+
+        // When
+        doReturn(Optional.of(1L)).when(accountRepository).deleteByIdReturningOwnerId(id);
+
+        // Then
+        accountService.deleteAccount(id);
+        verify(accountCacheStore, times(1)).evictAccount(id);
+        verify(accountCacheStore, times(1)).evictOwner(1L);
+    }
 }
@@ -17,8 +17,10 @@ import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -158,4 +160,27 @@ public class ExchangeRateServiceTest {
         verify(exchangeRateRepository, times(1)).findById(any());
         verify(exchangeRateClient, times(1)).fetchRatesPerCurrency(any(Currency.class));
     }
+
+    @Test
+    @DisplayName("should preload the stored rates and return the currencies that are up to date")
+    void preloadRates() {
+        // Given
+        ExchangeRate upToDate = ExchangeRate.builder()
+                .currency(Currency.EUR)
+                .rates(Map.of(Currency.USD, BigDecimal.TWO))
+                .lastUpdatedAt(LocalDate.now())
+                .build();
+        ExchangeRate outdated = ExchangeRate.builder()
+                .currency(Currency.BRL)
+                .rates(Map.of(Currency.USD, BigDecimal.TWO))
+                .lastUpdatedAt(LocalDate.now().minusDays(1))
+                .build();
+
+        // When
+        doReturn(List.of(upToDate, outdated)).when(exchangeRateRepository).findAll();
+
+        // Then
+        assertEquals(Set.of(Currency.EUR), exchangeRateService.preloadRates());
+        verify(exchangeRateClient, times(0)).fetchRatesPerCurrency(any(Currency.class));
+    }
 }
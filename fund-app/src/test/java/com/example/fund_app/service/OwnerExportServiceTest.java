@@ -0,0 +1,112 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.model.Currency;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OwnerExportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private OwnerExportService ownerExportService;
+
+    @BeforeEach
+    void setUp() {
+        ownerExportService = new OwnerExportService(jdbcTemplate, new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("should write one line per owner with its accounts in NDJSON")
+    void exportNdjson() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        givenRows();
+
+        // Then
+        long owners = ownerExportService.export(OwnerExportService.Format.NDJSON, output);
+
+        assertEquals(2, owners);
+        assertEquals("""
+                {"id":1,"username":"alice","accountDetails":[{"accountId":1000,"currency":"EUR","balance":10.50},{"accountId":1001,"currency":"USD","balance":0}]}
+                {"id":2,"username":"bob, \\"jr\\"","accountDetails":[]}
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("should write one line per account in CSV")
+    void exportCsv() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        givenRows();
+
+        // Then
+        long owners = ownerExportService.export(OwnerExportService.Format.CSV, output);
+
+        assertEquals(2, owners);
+        assertEquals("""
+                ownerId,username,accountId,currency,balance
+                1,"alice",1000,EUR,10.50
+                1,"alice",1001,USD,0
+                2,"bob, ""jr\"\"",,,
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("should write nothing but the CSV header when there is no owner")
+    void exportEmpty() throws Exception {
+        // Given
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+
+        // Then
+        assertEquals(0, ownerExportService.export(OwnerExportService.Format.NDJSON, ndjson));
+        assertEquals(0, ownerExportService.export(OwnerExportService.Format.CSV, csv));
+        assertEquals("", ndjson.toString(StandardCharsets.UTF_8));
+        assertEquals("ownerId,username,accountId,currency,balance\n", csv.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Alice with an EUR and a USD account, then Bob without account, as the LEFT JOIN returns them.
+     */
+    private void givenRows() throws Exception {
+        doReturn(1L, 1L, 2L).when(resultSet).getLong(1);
+        doReturn("alice", "bob, \"jr\"").when(resultSet).getString(2);
+        doReturn(1000L, 1001L, 0L).when(resultSet).getLong(3);
+        doReturn(false, false, true).when(resultSet).wasNull();
+        doReturn(Currency.EUR.ordinal(), Currency.USD.ordinal()).when(resultSet).getInt(4);
+        doReturn(new BigDecimal("10.50"), BigDecimal.ZERO).when(resultSet).getBigDecimal(5);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+}
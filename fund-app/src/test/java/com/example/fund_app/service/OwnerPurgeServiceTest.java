@@ -0,0 +1,79 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.config.OwnerDeletionProperties;
+import com.example.fund_app.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OwnerPurgeServiceTest {
+
+    @Mock
+    private OwnerService ownerService;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private AccountCacheStore accountCacheStore;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private OwnerPurgeService ownerPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        ownerPurgeService = new OwnerPurgeService(new OwnerDeletionProperties(3, 2), ownerService, accountRepository,
+                accountCacheStore, transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("should delete an owner with few accounts within the call")
+    void deleteSynchronously() {
+        // Given
+        Long ownerId = 1L;
+
+        // When
+        doReturn(2L).when(accountRepository).countByOwnerId(ownerId);
+
+        // Then
+        assertEquals(OwnerPurgeService.Deletion.DELETED, ownerPurgeService.delete(ownerId));
+        verify(ownerService, times(1)).deleteOwner(ownerId);
+        assertFalse(ownerPurgeService.isPurging(ownerId));
+    }
+
+    @Test
+    @DisplayName("should purge the accounts by batches, evicting each one, then delete the owner")
+    void purgeByBatches() {
+        // Given
+        Long ownerId = 1L;
+
+        // When
+        doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+        doReturn(List.of(1000L, 1001L), List.of(1002L))
+                .when(accountRepository).deleteBatchByOwnerId(ownerId, 2);
+
+        // Then
+        ownerPurgeService.purge(ownerId);
+        verify(accountRepository, times(2)).deleteBatchByOwnerId(ownerId, 2);
+        verify(accountCacheStore, times(1)).evictAccounts(List.of(1000L, 1001L));
+        verify(accountCacheStore, times(1)).evictAccounts(List.of(1002L));
+        verify(accountCacheStore, times(2)).evictOwner(ownerId);
+        verify(ownerService, times(1)).deleteOwners(List.of(ownerId));
+        assertFalse(ownerPurgeService.isPurging(ownerId));
+    }
+}
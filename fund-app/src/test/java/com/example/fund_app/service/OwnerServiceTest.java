@@ -1,5 +1,8 @@
 package com.example.fund_app.service;
 
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeyTracker;
+import com.example.fund_app.cache.UsernameFilter;
 import com.example.fund_app.exception.DbRecordNotFoundException;
 import com.example.fund_app.exception.OwnerActionInvalidException;
 import com.example.fund_app.exception.OwnerAlreadyExistsException;
@@ -8,10 +11,15 @@ import com.example.fund_app.mapper.OwnerMapper;
 import com.example.fund_app.model.Account;
 import com.example.fund_app.model.Currency;
 import com.example.fund_app.model.Owner;
+import com.example.fund_app.model.OwnerSearchResult;
 import com.example.fund_app.model.dbo.AccountDbo;
 import com.example.fund_app.model.dbo.OwnerDbo;
+import com.example.fund_app.model.event.OwnersCreatedEvent;
+import com.example.fund_app.model.event.OwnersDeletedEvent;
 import com.example.fund_app.repository.AccountRepository;
 import com.example.fund_app.repository.OwnerRepository;
+import com.example.fund_app.search.OwnerSearchIndex;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,12 +28,17 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -44,6 +57,24 @@ public class OwnerServiceTest {
     @Mock
     private AccountMapper accountMapper;
 
+    @Mock
+    private AccountCacheStore accountCacheStore;
+
+    @Mock
+    private HotKeyTracker hotKeyTracker;
+
+    @Mock
+    private UsernameFilter usernameFilter;
+
+    @Mock
+    private OwnerSearchIndex ownerSearchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private OwnerService ownerService;
 
@@ -53,6 +84,28 @@ public class OwnerServiceTest {
     @Mock
     private Pageable pageable;
 
+    @Test
+    @DisplayName("should load the owners missing from the cache in one query")
+    void getAllByIdSuccessful() {
+        // Given
+        OwnerDbo dbo = new OwnerDbo();
+        Owner owner = Owner.builder()
+                .id(2L)
+                .build();
+
+        // When
+        doAnswer(invocation -> invocation.<Function<Set<Long>, Map<Long, Owner>>>getArgument(1).apply(Set.of(2L)))
+                .when(accountCacheStore).getOwners(eq(List.of(1L, 2L)), any());
+        doReturn(List.of(dbo)).when(ownerRepository).findAllById(Set.of(2L));
+        doReturn(owner).when(ownerMapper).toModel(dbo);
+
+        // Then
+        Map<Long, Owner> result = ownerService.getAllById(List.of(1L, 2L));
+
+        assertEquals(Map.of(2L, owner), result);
+        verify(ownerRepository, times(1)).findAllById(any());
+    }
+
     @Test
     @DisplayName("should throw if owner already in DB")
     void createOwnerFails() {
@@ -60,11 +113,12 @@ public class OwnerServiceTest {
         String username = "test";
 
         // When
-        doReturn(true).when(ownerRepository).existsByUsername(username);
+        doReturn(Optional.empty()).when(ownerRepository).insertIfAbsent(username);
 
         // Then
         assertThrows(OwnerAlreadyExistsException.class, () -> ownerService.createOwner(username));
-        verify(ownerRepository, times(0)).save(any(OwnerDbo.class));
+        verify(accountCacheStore, times(0)).putOwner(any());
+        verify(usernameFilter, times(1)).add(username);
     }
 
     @Test
@@ -72,22 +126,158 @@ public class OwnerServiceTest {
     void createOwnerSuccessful() {
         // Given
         String username = "test";
+
+        // When
+        doReturn(Optional.of(1L)).when(ownerRepository).insertIfAbsent(username);
+
+        // Then
+        Owner createdOwner = ownerService.createOwner(username);
+
+        assertEquals(1L, createdOwner.getId());
+        assertEquals(username, createdOwner.getUsername());
+        assertEquals(0L, createdOwner.getVersion());
+        assertTrue(createdOwner.getAccounts().isEmpty());
+        verify(ownerRepository, times(0)).save(any());
+        verify(accountCacheStore, times(1)).putOwner(createdOwner);
+        verify(eventPublisher, times(1)).publishEvent(new OwnersCreatedEvent(Map.of(1L, username)));
+        verify(usernameFilter, never()).add(any());
+    }
+
+    @Test
+    @DisplayName("should search owners in the index and return the username the next page starts after")
+    void searchOwnersFromIndex() {
+        // Given
+        Owner first = Owner.builder().id(1L).username("bob").build();
+        Owner second = Owner.builder().id(2L).username("bobby").build();
+
+        // When
+        doReturn(true).when(ownerSearchIndex).isLoaded();
+        doReturn(List.of(new OwnerSearchIndex.Hit("bob", 1L), new OwnerSearchIndex.Hit("bobby", 2L),
+                new OwnerSearchIndex.Hit("bobo", 3L))).when(ownerSearchIndex).search("bo", "ali", 3);
+        doReturn(Map.of(1L, first, 2L, second)).when(accountCacheStore).getOwners(eq(List.of(1L, 2L)), any());
+
+        // Then
+        OwnerSearchResult result = ownerService.searchOwners("bo", "ali", 2);
+
+        assertEquals(2, result.owners().size());
+        assertEquals("bobby", result.next());
+        verify(ownerRepository, never()).findByUsernameStartingWithAndUsernameGreaterThanOrderByUsername(
+                any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should search owners in the DB until the index is loaded")
+    void searchOwnersFromDb() {
+        // Given
+        OwnerDbo dbo = OwnerDbo.builder().id(1L).username("bob").build();
+        Owner owner = Owner.builder().id(1L).username("bob").build();
+
+        // When
+        doReturn(false).when(ownerSearchIndex).isLoaded();
+        doReturn(List.of(dbo)).when(ownerRepository)
+                .findByUsernameStartingWithAndUsernameGreaterThanOrderByUsername("bo", "", Limit.of(3));
+        doReturn(Map.of(1L, owner)).when(accountCacheStore).getOwners(eq(List.of(1L)), any());
+
+        // Then
+        OwnerSearchResult result = ownerService.searchOwners("bo", null, 2);
+
+        assertEquals(List.of(owner), result.owners());
+        assertNull(result.next());
+    }
+
+    @Test
+    @DisplayName("should reject an onboarding that repeats a username")
+    void createOwnersFailsDuplicate() {
+        // Given
+        List<Owner> newOwners = List.of(
+                Owner.builder().username("test").accounts(Set.of()).build(),
+                Owner.builder().username("test").accounts(Set.of()).build());
+
+        // Then
+        assertThrows(OwnerAlreadyExistsException.class, () -> ownerService.createOwners(newOwners));
+        verify(ownerRepository, times(0)).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("should reject an onboarding if a username is taken")
+    void createOwnersFailsExisting() {
+        // Given
+        List<Owner> newOwners = List.of(
+                Owner.builder().username("test1").accounts(Set.of()).build(),
+                Owner.builder().username("test2").accounts(Set.of()).build());
+
+        // When
+        doReturn(false).when(usernameFilter).mightExist("test1");
+        doReturn(true).when(usernameFilter).mightExist("test2");
+        doReturn(List.of("test2")).when(ownerRepository).findExistingUsernames(List.of("test2"));
+
+        // Then
+        assertThrows(OwnerAlreadyExistsException.class, () -> ownerService.createOwners(newOwners));
+        verify(ownerRepository, times(0)).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("should onboard owners with their accounts chunk by chunk")
+    void createOwnersSuccessful() {
+        // Given
+        List<Owner> newOwners = new ArrayList<>();
+        for (int i = 0; i < OwnerService.ONBOARDING_CHUNK_SIZE + 1; i++) {
+            newOwners.add(Owner.builder()
+                    .username("test" + i)
+                    .accounts(Set.of(Account.builder().currency(Currency.EUR).build()))
+                    .build());
+        }
         Owner owner = Owner.builder().id(1L).build();
-        OwnerDbo dbo = new OwnerDbo();
 
         // When
-        doReturn(false).when(ownerRepository).existsByUsername(username);
-        doReturn(dbo).when(ownerRepository).save(any());
-        doReturn(owner).when(ownerMapper).toModel(dbo);
+        doAnswer(invocation -> invocation.getArgument(0)).when(ownerRepository).saveAll(any());
+        doReturn(owner).when(ownerMapper).toModel(any(OwnerDbo.class));
 
+        // Then
+        List<Owner> result = ownerService.createOwners(newOwners);
+
+        assertEquals(newOwners.size(), result.size());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OwnerDbo>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ownerRepository, times(2)).saveAll(captor.capture());
+        assertEquals(OwnerService.ONBOARDING_CHUNK_SIZE, captor.getAllValues().get(0).size());
+
+        OwnerDbo savedOwner = captor.getAllValues().get(1).get(0);
+        AccountDbo savedAccount = savedOwner.getAccounts().iterator().next();
+        assertEquals("test" + OwnerService.ONBOARDING_CHUNK_SIZE, savedOwner.getUsername());
+        assertSame(savedOwner, savedAccount.getOwner());
+        assertEquals(Currency.EUR, savedAccount.getCurrency());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        verify(ownerRepository, never()).findExistingUsernames(any());
+        verify(eventPublisher, times(2)).publishEvent(any(OwnersCreatedEvent.class));
+        verify(usernameFilter, never()).add(any());
+        verifyNoInteractions(accountCacheStore);
+    }
+
+    @Test
+    @DisplayName("should tell a username is available without a query when the filter rules it out")
+    void isUsernameAvailableFromFilter() {
+        // When
+        doReturn(false).when(usernameFilter).mightExist("test");
 
         // Then
-        assertDoesNotThrow(() -> ownerService.createOwner(username));
-        verify(ownerRepository, times(1)).save(any());
-        verify(ownerMapper, times(1)).toDbo(ownerModelCaptor.capture());
+        assertTrue(ownerService.isUsernameAvailable("test"));
+        verifyNoInteractions(ownerRepository);
+    }
+
+    @Test
+    @DisplayName("should check the DB when the filter reports a username possibly taken")
+    void isUsernameAvailableFromDb() {
+        // When
+        doReturn(true).when(usernameFilter).mightExist(any());
+        doReturn(true).when(ownerRepository).existsByUsername("taken");
+        doReturn(false).when(ownerRepository).existsByUsername("free");
 
-        Owner savedEntity = ownerModelCaptor.getValue();
-        assertEquals(username, savedEntity.getUsername());
+        // Then
+        assertFalse(ownerService.isUsernameAvailable("taken"));
+        assertTrue(ownerService.isUsernameAvailable("free"));
+        verify(usernameFilter, times(1)).falsePositives(1);
     }
 
     @Test
@@ -97,10 +287,13 @@ public class OwnerServiceTest {
         Long id = 1L;
 
         // When
+        doAnswer(invocation -> invocation.<Supplier<Owner>>getArgument(1).get())
+                .when(accountCacheStore).getOwner(eq(id), any());
         doReturn(Optional.empty()).when(ownerRepository).findById(id);
 
         // Then
         assertThrows(DbRecordNotFoundException.class, () -> ownerService.getById(id));
+        verify(hotKeyTracker, times(1)).record(AccountCacheStore.OWNERS_CACHE, id);
     }
 
     @Test
@@ -171,14 +364,55 @@ public class OwnerServiceTest {
         Owner owner = new Owner(id, "test", new HashSet<>(), 0L);
 
         AccountDbo account = new AccountDbo();
+        AccountDbo savedAccount = AccountDbo.builder().accountId(1000L).currency(currency).version(0L).build();
 
         // When
         doReturn(Optional.of(ownerDbo)).when(ownerRepository).findById(id);
         doReturn(owner).when(ownerMapper).toModel(ownerDbo);
         doReturn(account).when(accountMapper).toDbo(any());
+        doReturn(savedAccount).when(accountRepository).save(account);
 
         // Then
-        assertDoesNotThrow(() -> ownerService.addAccountToOwner(id, currency));
+        Owner result = assertDoesNotThrow(() -> ownerService.addAccountToOwner(id, currency));
         verify(accountRepository, times(1)).save(any(AccountDbo.class));
+        verify(accountCacheStore, times(1)).putAccount(savedAccount);
+        verify(accountCacheStore, times(1)).putOwner(ownerModelCaptor.capture());
+
+        assertEquals(1, result.getAccounts().size());
+        assertEquals(1000L, result.getAccounts().iterator().next().getAccountId());
+        assertSame(result, ownerModelCaptor.getValue());
+    }
+
+    @Test
+    @DisplayName("should delete the owners and their accounts in bulk, then evict them all")
+    void deleteOwnersSuccessful() {
+        // Given
+        List<Long> ownerIds = List.of(1L, 2L, 3L);
+
+        // When
+        doReturn(List.of(1L, 3L)).when(ownerRepository).lockAllById(ownerIds);
+        doReturn(List.of(1000L, 1001L, 1050L)).when(accountRepository).deleteAllByOwnerIdIn(List.of(1L, 3L));
+        doReturn(2).when(ownerRepository).deleteAllByIdIn(List.of(1L, 3L));
+
+        // Then
+        assertEquals(2, ownerService.deleteOwners(ownerIds));
+        verify(accountCacheStore, times(1)).evictAccounts(List.of(1000L, 1001L, 1050L));
+        verify(accountCacheStore, times(1)).evictOwners(List.of(1L, 3L));
+        verify(usernameFilter, times(1)).deleted(2);
+        verify(eventPublisher, times(1)).publishEvent(new OwnersDeletedEvent(List.of(1L, 3L)));
+    }
+
+    @Test
+    @DisplayName("should delete nothing when none of the owners exist")
+    void deleteOwnersNotFound() {
+        // Given
+        List<Long> ownerIds = List.of(1L);
+
+        // When
+        doReturn(List.of()).when(ownerRepository).lockAllById(ownerIds);
+
+        // Then
+        assertEquals(0, ownerService.deleteOwners(ownerIds));
+        verifyNoInteractions(accountRepository, accountCacheStore, usernameFilter, eventPublisher);
     }
 }
@@ -0,0 +1,106 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.StandingOrderMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Recurrence;
+import com.example.fund_app.model.StandingOrder;
+import com.example.fund_app.model.StandingOrderStatus;
+import com.example.fund_app.model.dbo.StandingOrderDbo;
+import com.example.fund_app.model.dto.StandingOrderDto;
+import com.example.fund_app.repository.StandingOrderRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StandingOrderServiceTest {
+
+    @Mock
+    private StandingOrderRepository standingOrderRepository;
+
+    @Mock
+    private StandingOrderMapper standingOrderMapper;
+
+    @Mock
+    private AccountService accountService;
+
+    @InjectMocks
+    private StandingOrderService standingOrderService;
+
+    @Captor
+    ArgumentCaptor<StandingOrderDbo> standingOrderDboCaptor;
+
+    @Test
+    @DisplayName("should record a standing order between existing accounts, first run right away by default")
+    void createSuccessful() {
+        // Given
+        StandingOrderDto dto = new StandingOrderDto(1L, 2L, BigDecimal.TEN, true, Recurrence.MONTHLY, null, null);
+        StandingOrder standingOrder = StandingOrder.builder().standingOrderId(7L).build();
+
+        // When
+        doReturn(Map.of(1L, new Account(), 2L, new Account())).when(accountService).findAllById(List.of(1L, 2L));
+        doAnswer(invocation -> invocation.getArgument(0)).when(standingOrderRepository).save(any());
+        doReturn(standingOrder).when(standingOrderMapper).toModel(any());
+
+        // Then
+        assertSame(standingOrder, standingOrderService.create(dto));
+        verify(standingOrderRepository, times(1)).save(standingOrderDboCaptor.capture());
+        StandingOrderDbo saved = standingOrderDboCaptor.getValue();
+        assertEquals(StandingOrderStatus.ACTIVE, saved.getStatus());
+        assertEquals(Recurrence.MONTHLY, saved.getRecurrence());
+        assertEquals(saved.getCreatedAt(), saved.getFirstRunAt());
+        assertEquals(saved.getFirstRunAt(), saved.getNextRunAt());
+        assertEquals(0, saved.getRuns());
+    }
+
+    @Test
+    @DisplayName("should not record a standing order within an account, ending before its first run or to a missing account")
+    void createInvalid() {
+        // Given
+        Instant firstRunAt = Instant.parse("2030-01-01T00:00:00Z");
+
+        // When
+        doReturn(Map.of(1L, new Account())).when(accountService).findAllById(List.of(1L, 2L));
+
+        // Then
+        assertThrows(AccountActionInvalidException.class, () -> standingOrderService.create(
+                new StandingOrderDto(1L, 1L, BigDecimal.TEN, true, Recurrence.DAILY, null, null)));
+        assertThrows(AccountActionInvalidException.class, () -> standingOrderService.create(
+                new StandingOrderDto(1L, 2L, BigDecimal.TEN, true, Recurrence.DAILY, firstRunAt,
+                        firstRunAt.minusSeconds(1))));
+        DbRecordNotFoundException missing = assertThrows(DbRecordNotFoundException.class,
+                () -> standingOrderService.create(
+                        new StandingOrderDto(1L, 2L, BigDecimal.TEN, true, Recurrence.DAILY, firstRunAt, null)));
+        assertEquals("Could not find account with ID: 2", missing.getMessage());
+        verify(standingOrderRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("should cancel a standing order, and report a missing one")
+    void cancel() {
+        // When
+        doReturn(1).when(standingOrderRepository).cancel(7L);
+        doReturn(0).when(standingOrderRepository).cancel(8L);
+        doReturn(false).when(standingOrderRepository).existsById(8L);
+
+        // Then
+        standingOrderService.cancel(7L);
+        assertThrows(DbRecordNotFoundException.class, () -> standingOrderService.cancel(8L));
+        verify(standingOrderRepository, never()).existsById(7L);
+    }
+}
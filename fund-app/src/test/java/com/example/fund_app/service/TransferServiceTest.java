@@ -0,0 +1,98 @@
+package com.example.fund_app.service;
+
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.TransferMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Transfer;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.model.dto.TransferDto;
+import com.example.fund_app.repository.TransferRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferServiceTest {
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private TransferMapper transferMapper;
+
+    @Mock
+    private AccountService accountService;
+
+    @InjectMocks
+    private TransferService transferService;
+
+    @Captor
+    ArgumentCaptor<TransferDbo> transferDboCaptor;
+
+    @Test
+    @DisplayName("should record a transfer between existing accounts as pending")
+    void submitSuccessful() {
+        // Given
+        TransferDto dto = new TransferDto(1L, 2L, BigDecimal.TEN, true);
+        Transfer transfer = Transfer.builder().transferId(7L).status(TransferStatus.PENDING).build();
+
+        // When
+        doReturn(Map.of(1L, new Account(), 2L, new Account())).when(accountService).findAllById(List.of(1L, 2L));
+        doAnswer(invocation -> invocation.getArgument(0)).when(transferRepository).save(any());
+        doReturn(transfer).when(transferMapper).toModel(any());
+
+        // Then
+        assertSame(transfer, transferService.submit(dto));
+        verify(transferRepository, times(1)).save(transferDboCaptor.capture());
+        TransferDbo saved = transferDboCaptor.getValue();
+        assertEquals(TransferStatus.PENDING, saved.getStatus());
+        assertEquals(1L, saved.getSenderAccount());
+        assertEquals(2L, saved.getReceiverAccount());
+        assertEquals(BigDecimal.TEN, saved.getAmount());
+        assertTrue(saved.isToSend());
+        assertNotNull(saved.getSubmittedAt());
+    }
+
+    @Test
+    @DisplayName("should refuse a transfer within the same account or from an unknown one")
+    void submitInvalid() {
+        // Given
+        TransferDto sameAccount = new TransferDto(1L, 1L, BigDecimal.TEN, true);
+        TransferDto unknownReceiver = new TransferDto(1L, 2L, BigDecimal.TEN, true);
+
+        // When
+        doReturn(Map.of(1L, new Account())).when(accountService).findAllById(List.of(1L, 2L));
+
+        // Then
+        assertThrows(AccountActionInvalidException.class, () -> transferService.submit(sameAccount));
+        DbRecordNotFoundException exception =
+                assertThrows(DbRecordNotFoundException.class, () -> transferService.submit(unknownReceiver));
+        assertEquals("Could not find account with ID: 2", exception.getMessage());
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("should throw if the transfer does not exist")
+    void findByIdNotFound() {
+        // When
+        doReturn(Optional.empty()).when(transferRepository).findById(1L);
+
+        // Then
+        assertThrows(DbRecordNotFoundException.class, () -> transferService.findById(1L));
+    }
+}
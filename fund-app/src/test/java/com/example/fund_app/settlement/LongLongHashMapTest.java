@@ -0,0 +1,51 @@
+package com.example.fund_app.settlement;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongLongHashMapTest {
+
+    @Test
+    @DisplayName("should sum the deltas of every key like a boxed map, across resizes")
+    void matchBoxedMap() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextInt(2_000) * 50L;
+            long delta = random.nextInt(1_000) - 500;
+            map.addTo(key, delta);
+            expected.merge(key, delta, Long::sum);
+        }
+
+        // Then
+        assertEquals(expected.size(), map.size());
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+        assertEquals(0, map.get(-1L));
+        assertFalse(map.containsKey(-1L));
+    }
+
+    @Test
+    @DisplayName("should refuse the key marking free slots and fail rather than overflow")
+    void rejectInvalidUpdates() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap(4);
+        map.put(1L, Long.MAX_VALUE);
+
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> map.addTo(Long.MIN_VALUE, 1L));
+        assertThrows(ArithmeticException.class, () -> map.addTo(1L, 1L));
+        assertEquals(Long.MAX_VALUE, map.get(1L));
+    }
+}
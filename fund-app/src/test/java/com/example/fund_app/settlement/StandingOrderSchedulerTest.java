@@ -0,0 +1,174 @@
+package com.example.fund_app.settlement;
+
+import com.example.fund_app.config.StandingOrderProperties;
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import com.example.fund_app.model.Recurrence;
+import com.example.fund_app.model.StandingOrderStatus;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.StandingOrderDbo;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.repository.StandingOrderRepository;
+import com.example.fund_app.repository.TransferRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StandingOrderSchedulerTest {
+
+    private static final Instant NOW = Instant.parse("2030-01-31T00:00:00Z");
+
+    @Mock
+    private StandingOrderRepository standingOrderRepository;
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    @Mock
+    private DatabaseBulkhead bulkhead;
+
+    @Captor
+    ArgumentCaptor<List<TransferDbo>> transfersCaptor;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private StandingOrderScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new StandingOrderScheduler(new StandingOrderProperties(true, 2, 1), standingOrderRepository,
+                transferRepository, transactionTemplate, bulkhead, meterRegistry);
+        lenient().doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(transactionStatus))
+                .when(transactionTemplate).execute(any());
+        AtomicLong transferIds = new AtomicLong(100);
+        lenient().doAnswer(invocation -> {
+            List<TransferDbo> transfers = invocation.getArgument(0);
+            transfers.forEach(transfer -> transfer.setTransferId(transferIds.incrementAndGet()));
+            return transfers;
+        }).when(transferRepository).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("should run the due orders by batches into pending transfers, and move them to their next run")
+    void runDueOrders() {
+        // Given
+        StandingOrderDbo monthly = order(1L, Recurrence.MONTHLY, Instant.parse("2029-12-31T00:00:00Z"), null);
+        StandingOrderDbo once = order(2L, Recurrence.ONCE, NOW, null);
+        StandingOrderDbo ending = order(3L, Recurrence.DAILY, Instant.parse("2030-01-30T00:00:00Z"),
+                Instant.parse("2030-01-31T12:00:00Z"));
+
+        // When
+        doReturn(List.of(monthly, once), List.of(ending)).when(standingOrderRepository).claimDue(NOW, 2);
+
+        // Then
+        assertEquals(3, scheduler.claim(NOW));
+        verify(transferRepository, times(2)).saveAll(transfersCaptor.capture());
+        TransferDbo transfer = transfersCaptor.getAllValues().getFirst().getFirst();
+        assertEquals(TransferStatus.PENDING, transfer.getStatus());
+        assertEquals(5L, transfer.getSenderAccount());
+        assertEquals(6L, transfer.getReceiverAccount());
+        assertEquals(BigDecimal.TEN, transfer.getAmount());
+
+        assertEquals(Instant.parse("2030-02-28T00:00:00Z"), monthly.getNextRunAt());
+        assertEquals(StandingOrderStatus.ACTIVE, monthly.getStatus());
+        assertEquals(1, monthly.getRuns());
+        assertEquals(101L, monthly.getLastTransferId());
+        assertEquals(StandingOrderStatus.COMPLETED, once.getStatus());
+        assertNull(once.getNextRunAt());
+        assertEquals(StandingOrderStatus.COMPLETED, ending.getStatus());
+        assertEquals(103L, ending.getLastTransferId());
+        assertEquals(3, meterRegistry.get("standing.orders.runs").counter().count());
+        assertEquals(2, meterRegistry.get("standing.orders.completed").counter().count());
+    }
+
+    @Test
+    @DisplayName("should stop claiming when a batch fails, its orders left due for the next round")
+    void stopOnFailure() {
+        // When
+        doThrow(new IllegalStateException("connection lost")).when(standingOrderRepository).claimDue(NOW, 2);
+
+        // Then
+        assertEquals(0, scheduler.claim(NOW));
+        verifyNoInteractions(transferRepository);
+        assertEquals(0, meterRegistry.get("standing.orders.runs").counter().count());
+    }
+
+    @Test
+    @DisplayName("should claim every batch under a write permit, and leave the orders due once the bulkhead is full")
+    void admitBatches() {
+        // Given
+        StandingOrderDbo first = order(1L, Recurrence.DAILY, NOW, null);
+        StandingOrderDbo second = order(2L, Recurrence.DAILY, NOW, null);
+
+        // When
+        doReturn(List.of(first, second)).when(standingOrderRepository).claimDue(NOW, 2);
+        doNothing()
+                .doThrow(new DatabaseOverloadedException("Database overloaded", Duration.ofSeconds(1)))
+                .when(bulkhead).acquire(DatabaseBulkhead.Budget.WRITE);
+
+        // Then
+        assertEquals(2, scheduler.claim(NOW));
+        verify(bulkhead, times(2)).acquire(DatabaseBulkhead.Budget.WRITE);
+        verify(bulkhead, times(1)).release(DatabaseBulkhead.Budget.WRITE);
+        verify(standingOrderRepository, times(1)).claimDue(NOW, 2);
+    }
+
+    @Test
+    @DisplayName("should count the recurrences from the first run, skipping the missed ones")
+    void nextRun() {
+        // Given
+        Instant first = Instant.parse("2030-01-31T08:00:00Z");
+
+        // Then
+        assertEquals(Instant.parse("2030-03-31T08:00:00Z"),
+                Recurrence.MONTHLY.nextRunAfter(first, Instant.parse("2030-02-28T08:00:00Z")));
+        assertEquals(Instant.parse("2030-02-07T08:00:00Z"),
+                Recurrence.WEEKLY.nextRunAfter(first, Instant.parse("2030-02-03T00:00:00Z")));
+        assertEquals(Instant.parse("2030-02-06T08:00:00Z"),
+                Recurrence.DAILY.nextRunAfter(first, Instant.parse("2030-02-05T09:00:00Z")));
+        assertEquals(first, Recurrence.DAILY.nextRunAfter(first, first.minusSeconds(1)));
+        assertNull(Recurrence.ONCE.nextRunAfter(first, first));
+    }
+
+    private static StandingOrderDbo order(Long standingOrderId, Recurrence recurrence, Instant firstRunAt,
+                                          Instant endsAt) {
+        return StandingOrderDbo.builder()
+                .standingOrderId(standingOrderId)
+                .senderAccount(5L)
+                .receiverAccount(6L)
+                .amount(BigDecimal.TEN)
+                .toSend(true)
+                .recurrence(recurrence)
+                .firstRunAt(firstRunAt)
+                .nextRunAt(NOW)
+                .endsAt(endsAt)
+                .status(StandingOrderStatus.ACTIVE)
+                .build();
+    }
+}
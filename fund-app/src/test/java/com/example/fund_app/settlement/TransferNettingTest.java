@@ -0,0 +1,94 @@
+package com.example.fund_app.settlement;
+
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.model.dbo.TransferDbo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransferNettingTest {
+
+    @Test
+    @DisplayName("should check every transfer against the position the previous ones left the sender with")
+    void checkFundsAgainstPosition() {
+        // Given
+        Map<Long, AccountDbo> accounts = Map.of(1L, account(1L, "10.00"), 2L, account(2L, "0.00"));
+        TransferDbo tooEarly = transfer(1L, 2L, 1L, "5.00");
+        TransferDbo funding = transfer(2L, 1L, 2L, "10.00");
+        TransferDbo funded = transfer(3L, 2L, 1L, "5.00");
+
+        // When
+        TransferNetting netting = TransferNetting.net(List.of(tooEarly, funding, funded), accounts);
+
+        // Then
+        assertEquals(List.of(funding, funded), netting.settled());
+        assertEquals(Map.of(tooEarly, "The account does not have sufficient funds for this operation"),
+                netting.rejected());
+        assertEquals(-500, netting.deltas().get(1L));
+        assertEquals(500, netting.deltas().get(2L));
+    }
+
+    @Test
+    @DisplayName("should reject the transfers whose accounts are gone or the same")
+    void rejectInvalidTransfers() {
+        // Given
+        Map<Long, AccountDbo> accounts = Map.of(1L, account(1L, "10.00"));
+        TransferDbo toDeleted = transfer(1L, 1L, 3L, "1.00");
+        TransferDbo toItself = transfer(2L, 1L, 1L, "1.00");
+
+        // When
+        TransferNetting netting = TransferNetting.net(List.of(toDeleted, toItself), accounts);
+
+        // Then
+        assertEquals("Could not find account with ID: 3", netting.rejected().get(toDeleted));
+        assertEquals("Transfer cannot be performed within the same account", netting.rejected().get(toItself));
+        assertTrue(netting.settled().isEmpty());
+        assertEquals(0, netting.deltas().size());
+    }
+
+    @Test
+    @DisplayName("should defer a transfer between currencies along with the later transfers of its accounts")
+    void deferBetweenCurrencies() {
+        // Given
+        AccountDbo eur = account(3L, "10.00");
+        eur.setCurrency(Currency.EUR);
+        Map<Long, AccountDbo> accounts = Map.of(1L, account(1L, "10.00"), 2L, account(2L, "10.00"), 3L, eur);
+        TransferDbo between = transfer(1L, 1L, 3L, "5.00");
+        TransferDbo afterwards = transfer(2L, 2L, 1L, "5.00");
+        TransferDbo unrelated = transfer(3L, 3L, 3L, "5.00");
+
+        // When
+        TransferNetting netting = TransferNetting.net(List.of(between, afterwards, unrelated), accounts);
+
+        // Then
+        assertEquals(List.of(between, afterwards, unrelated), netting.deferred());
+        assertTrue(netting.settled().isEmpty());
+        assertTrue(netting.rejected().isEmpty());
+    }
+
+    private static AccountDbo account(Long accountId, String balance) {
+        return AccountDbo.builder()
+                .accountId(accountId)
+                .currency(Currency.USD)
+                .balance(new BigDecimal(balance))
+                .build();
+    }
+
+    private static TransferDbo transfer(Long transferId, Long senderId, Long receiverId, String amount) {
+        return TransferDbo.builder()
+                .transferId(transferId)
+                .senderAccount(senderId)
+                .receiverAccount(receiverId)
+                .amount(new BigDecimal(amount))
+                .toSend(true)
+                .status(TransferStatus.PENDING)
+                .build();
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.fund_app.settlement;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.config.TransferSettlementProperties;
+import com.example.fund_app.datasource.DatabaseBulkhead;
+import com.example.fund_app.exception.AccountActionInvalidException;
+import com.example.fund_app.exception.DatabaseOverloadedException;
+import com.example.fund_app.exception.ExchangeRateNotRetrievableException;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.TransferStatus;
+import com.example.fund_app.model.dbo.AccountDbo;
+import com.example.fund_app.model.dbo.TransferDbo;
+import com.example.fund_app.repository.AccountRepository;
+import com.example.fund_app.repository.TransferRepository;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.TransactionAuditService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferSettlementEngineTest {
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private AccountMapper accountMapper;
+
+    @Mock
+    private AccountCacheStore accountCacheStore;
+
+    @Mock
+    private TransactionAuditService transactionAuditService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    @Mock
+    private DatabaseBulkhead bulkhead;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TransferSettlementEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TransferSettlementEngine(new TransferSettlementProperties(true, 4, 10, 2, true, 3),
+                transferRepository, accountService, accountRepository, accountMapper, accountCacheStore,
+                transactionAuditService, transactionTemplate, bulkhead, meterRegistry);
+        lenient().doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(transactionStatus))
+                .when(transactionTemplate).execute(any());
+    }
+
+    @Test
+    @DisplayName("should settle the pending transfers of a partition in the order they were submitted")
+    void settleInOrder() {
+        // Given
+        TransferDbo first = transfer(1L, true);
+        TransferDbo second = transfer(2L, false);
+
+        // When
+        doReturn(true).when(transferRepository).tryLockPartition(1);
+        doReturn(Optional.of(first), Optional.of(second), Optional.empty())
+                .when(transferRepository).findNextPending(4, 1);
+
+        // Then
+        assertEquals(2, engine.settlePartition(1));
+        var inOrder = inOrder(accountService);
+        inOrder.verify(accountService).transferTo(5L, 6L, BigDecimal.TEN);
+        inOrder.verify(accountService).transferFrom(5L, 6L, BigDecimal.TEN);
+        assertEquals(TransferStatus.SETTLED, first.getStatus());
+        assertEquals(TransferStatus.SETTLED, second.getStatus());
+        assertNotNull(first.getSettledAt());
+        assertEquals(2, meterRegistry.get("transfers.settlements").tag("result", "settled").counter().count());
+    }
+
+    @Test
+    @DisplayName("should settle each transfer under a write permit, and postpone the partition once the bulkhead is full")
+    void admitSettlements() {
+        // Given
+        TransferDbo first = transfer(1L, true);
+
+        // When
+        doReturn(true).when(transferRepository).tryLockPartition(1);
+        doReturn(Optional.of(first)).when(transferRepository).findNextPending(4, 1);
+        doNothing()
+                .doThrow(new DatabaseOverloadedException("Database overloaded", Duration.ofSeconds(1)))
+                .when(bulkhead).acquire(DatabaseBulkhead.Budget.WRITE);
+
+        // Then
+        assertEquals(1, engine.settlePartition(1));
+        verify(bulkhead, times(2)).acquire(DatabaseBulkhead.Budget.WRITE);
+        verify(bulkhead, times(1)).release(DatabaseBulkhead.Budget.WRITE);
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(accountService, times(1)).transferTo(5L, 6L, BigDecimal.TEN);
+    }
+
+    @Test
+    @DisplayName("should leave a partition settled by another node alone")
+    void skipLockedPartition() {
+        // When
+        doReturn(false).when(transferRepository).tryLockPartition(1);
+
+        // Then
+        assertEquals(0, engine.settlePartition(1));
+        verify(transferRepository, never()).findNextPending(anyInt(), anyInt());
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    @DisplayName("should reject a transfer the accounts cannot take, and move on to the next one")
+    void rejectAndMoveOn() {
+        // Given
+        TransferDbo failing = transfer(1L, true);
+        TransferDbo stored = transfer(1L, true);
+        TransferDbo next = transfer(2L, true);
+
+        // When
+        doReturn(true).when(transferRepository).tryLockPartition(1);
+        doReturn(Optional.of(failing), Optional.of(next), Optional.empty())
+                .when(transferRepository).findNextPending(4, 1);
+        doThrow(new AccountActionInvalidException("The account does not have sufficient funds for this operation"))
+                .doReturn("ok")
+                .when(accountService).transferTo(5L, 6L, BigDecimal.TEN);
+        doReturn(Optional.of(stored)).when(transferRepository).findById(1L);
+
+        // Then
+        assertEquals(2, engine.settlePartition(1));
+        verify(transactionStatus, times(1)).setRollbackOnly();
+        assertEquals(TransferStatus.REJECTED, stored.getStatus());
+        assertEquals("The account does not have sufficient funds for this operation", stored.getFailure());
+        assertEquals(1, stored.getAttempts());
+        assertEquals(TransferStatus.SETTLED, next.getStatus());
+        assertEquals(1, meterRegistry.get("transfers.settlements").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("should keep a transfer failing for another reason pending, and hold its partition back")
+    void retryLater() {
+        // Given
+        TransferDbo failing = transfer(1L, true);
+        TransferDbo stored = transfer(1L, true);
+
+        // When
+        doReturn(true).when(transferRepository).tryLockPartition(1);
+        doReturn(Optional.of(failing), Optional.of(failing), Optional.empty())
+                .when(transferRepository).findNextPending(4, 1);
+        doThrow(new ExchangeRateNotRetrievableException("Could not retrieve rates"))
+                .when(accountService).transferTo(5L, 6L, BigDecimal.TEN);
+        doReturn(Optional.of(stored)).when(transferRepository).findById(1L);
+
+        // Then
+        assertEquals(0, engine.settlePartition(1));
+        assertEquals(TransferStatus.PENDING, stored.getStatus());
+        assertEquals(1, stored.getAttempts());
+
+        // Once out of attempts
+        assertEquals(1, engine.settlePartition(1));
+        assertEquals(TransferStatus.REJECTED, stored.getStatus());
+        assertEquals("Could not retrieve rates", stored.getFailure());
+    }
+
+    @Test
+    @DisplayName("should net a batch of transfers into one update per account, and settle every transfer on its own")
+    void netBatch() {
+        // Given
+        AccountDbo first = account(5L, "100.00");
+        AccountDbo second = account(6L, "0.00");
+        TransferDbo there = transfer(1L, 5L, 6L, "60.00");
+        TransferDbo back = transfer(2L, 6L, 5L, "50.00");
+        TransferDbo again = transfer(3L, 5L, 6L, "90.00");
+
+        // When
+        doReturn(true).when(transferRepository).tryLockPartition(anyInt());
+        doReturn(List.of(there, back, again), List.of()).when(transferRepository).findPending(3);
+        doReturn(List.of(first, second)).when(accountRepository).findAllById(Set.of(5L, 6L));
+
+        // Then
+        assertFalse(engine.netPending());
+        assertEquals(new BigDecimal("0.00"), first.getBalance());
+        assertEquals(new BigDecimal("100.00"), second.getBalance());
+        verify(accountCacheStore, times(2)).putAccount(any());
+        verify(transactionAuditService, times(3)).logTransfer(any(), any(), any(), any());
+        assertEquals(List.of(TransferStatus.SETTLED, TransferStatus.SETTLED, TransferStatus.SETTLED),
+                List.of(there.getStatus(), back.getStatus(), again.getStatus()));
+        assertEquals(3, meterRegistry.get("transfers.netting.transfers").counter().count());
+        assertEquals(2, meterRegistry.get("transfers.netting.account.updates").counter().count());
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    @DisplayName("should leave the transfers between currencies to the settlement one by one")
+    void deferBetweenCurrencies() {
+        // Given
+        AccountDbo usd = account(5L, "100.00");
+        AccountDbo eur = account(6L, "0.00");
+        eur.setCurrency(Currency.EUR);
+        TransferDbo between = transfer(1L, 5L, 6L, "10.00");
+
+        // When
+        doReturn(true).when(transferRepository).tryLockPartition(anyInt());
+        doReturn(List.of(between)).when(transferRepository).findPending(3);
+        doReturn(List.of(usd, eur)).when(accountRepository).findAllById(Set.of(5L, 6L));
+
+        // Then
+        assertTrue(engine.netPending());
+        assertEquals(TransferStatus.PENDING, between.getStatus());
+        assertEquals(new BigDecimal("100.00"), usd.getBalance());
+        verifyNoInteractions(accountCacheStore, transactionAuditService);
+    }
+
+    private static AccountDbo account(Long accountId, String balance) {
+        return AccountDbo.builder()
+                .accountId(accountId)
+                .currency(Currency.USD)
+                .balance(new BigDecimal(balance))
+                .version(0L)
+                .build();
+    }
+
+    private static TransferDbo transfer(Long transferId, Long senderId, Long receiverId, String amount) {
+        TransferDbo transfer = transfer(transferId, true);
+        transfer.setSenderAccount(senderId);
+        transfer.setReceiverAccount(receiverId);
+        transfer.setAmount(new BigDecimal(amount));
+        return transfer;
+    }
+
+    private static TransferDbo transfer(Long transferId, boolean toSend) {
+        return TransferDbo.builder()
+                .transferId(transferId)
+                .senderAccount(5L)
+                .receiverAccount(6L)
+                .amount(BigDecimal.TEN)
+                .toSend(toSend)
+                .status(TransferStatus.PENDING)
+                .submittedAt(Instant.now())
+                .build();
+    }
+}
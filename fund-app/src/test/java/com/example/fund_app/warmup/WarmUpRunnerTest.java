@@ -0,0 +1,182 @@
+package com.example.fund_app.warmup;
+
+import com.example.fund_app.cache.AccountCacheStore;
+import com.example.fund_app.cache.HotKeySnapshots;
+import com.example.fund_app.cache.HotKeyTracker;
+import com.example.fund_app.config.HotKeyProperties;
+import com.example.fund_app.config.WarmUpProperties;
+import com.example.fund_app.exception.DbRecordNotFoundException;
+import com.example.fund_app.mapper.AccountMapper;
+import com.example.fund_app.mapper.OwnerMapper;
+import com.example.fund_app.model.Account;
+import com.example.fund_app.model.Currency;
+import com.example.fund_app.model.Owner;
+import com.example.fund_app.service.AccountService;
+import com.example.fund_app.service.ExchangeRateService;
+import com.example.fund_app.service.OwnerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class WarmUpRunnerTest {
+
+    @Mock
+    private HotKeySnapshots hotKeySnapshots;
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private OwnerService ownerService;
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    @Mock
+    private AccountMapper accountMapper;
+
+    @Mock
+    private OwnerMapper ownerMapper;
+
+    @Mock
+    private RedisTemplate<String, Object> cacheRedisTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final HotKeyTracker hotKeyTracker = new HotKeyTracker(new HotKeyProperties(true, 4, 1024, 3, false));
+
+    private final AtomicLong ids = new AtomicLong(1000);
+
+    @BeforeEach
+    void setUp() {
+        doReturn(RedisSerializer.java()).when(cacheRedisTemplate).getValueSerializer();
+        doReturn(new SimpleTransactionStatus()).when(transactionManager).getTransaction(any());
+        doAnswer(invocation -> Owner.builder()
+                .id(ids.incrementAndGet())
+                .username(invocation.getArgument(0))
+                .accounts(new HashSet<>())
+                .build())
+                .when(ownerService).createOwner(anyString());
+        doAnswer(invocation -> Owner.builder()
+                .id(invocation.getArgument(0))
+                .accounts(new HashSet<>(Set.of(Account.builder()
+                        .accountId(ids.incrementAndGet())
+                        .currency(invocation.getArgument(1))
+                        .balance(BigDecimal.ZERO)
+                        .build())))
+                .build())
+                .when(ownerService).addAccountToOwner(anyLong(), any(Currency.class));
+    }
+
+    @Test
+    @DisplayName("should preload the saved hot keys and skip the ones that no longer exist")
+    void preloadHotKeys() {
+        // Given
+        doReturn(List.of(1L, 2L)).when(hotKeySnapshots).load(AccountCacheStore.ACCOUNTS_CACHE);
+        doReturn(List.of(3L)).when(hotKeySnapshots).load(AccountCacheStore.OWNERS_CACHE);
+        doThrow(new DbRecordNotFoundException("gone")).when(accountService).findById(1L);
+
+        // When
+        runner(Duration.ofSeconds(10), 0).run(null);
+
+        // Then
+        verify(accountService, times(1)).findById(1L);
+        verify(accountService, times(1)).findById(2L);
+        verify(ownerService, times(1)).getById(3L);
+        verify(exchangeRateService, times(1)).preloadRates();
+    }
+
+    @Test
+    @DisplayName("should run the synthetic transfers in transactions that are rolled back")
+    void syntheticTransfersRolledBack() {
+        // Given
+        doReturn(Set.of(Currency.EUR)).when(exchangeRateService).preloadRates();
+        doAnswer(invocation -> {
+            hotKeyTracker.record(AccountCacheStore.ACCOUNTS_CACHE, invocation.getArgument(0));
+            return "deposited";
+        }).when(accountService).deposit(anyLong(), any());
+
+        // When
+        runner(Duration.ofSeconds(10), 3).run(null);
+
+        // Then
+        ArgumentCaptor<TransactionStatus> statuses = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, times(3)).commit(statuses.capture());
+        assertTrue(statuses.getAllValues().stream().allMatch(TransactionStatus::isRollbackOnly));
+        verify(accountService, times(3)).deposit(anyLong(), any());
+        verify(accountService, times(6)).transferTo(anyLong(), anyLong(), any());
+        verify(accountService, never()).findById(anyLong());
+        verify(ownerService, never()).getById(anyLong());
+        assertTrue(hotKeyTracker.topKeys().isEmpty());
+    }
+
+    @Test
+    @DisplayName("should stop the synthetic transfers on the first failure without failing the start")
+    void syntheticTransferFailure() {
+        // Given
+        doThrow(new IllegalStateException("db down")).when(accountService).deposit(anyLong(), any());
+
+        // When
+        assertDoesNotThrow(() -> runner(Duration.ofSeconds(10), 3).run(null));
+
+        // Then
+        verify(accountService, times(1)).deposit(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("should not do anything once the budget is exhausted")
+    void budgetExhausted() {
+        // Given
+        doReturn(List.of(1L)).when(hotKeySnapshots).load(anyString());
+
+        // When
+        runner(Duration.ZERO, 3).run(null);
+
+        // Then
+        verifyNoInteractions(accountService);
+        verify(ownerService, never()).createOwner(anyString());
+    }
+
+    @Test
+    @DisplayName("should not warm up when disabled")
+    void disabled() {
+        // When
+        new WarmUpRunner(new WarmUpProperties(false, Duration.ofSeconds(10), 3, Duration.ofMinutes(5)),
+                hotKeySnapshots, hotKeyTracker, accountService, ownerService, exchangeRateService, accountMapper, ownerMapper,
+                new ObjectMapper(), cacheRedisTemplate, transactionManager).run(null);
+
+        // Then
+        verifyNoInteractions(hotKeySnapshots, accountService, ownerService, exchangeRateService, transactionManager);
+    }
+
+    private WarmUpRunner runner(Duration budget, int iterations) {
+        return new WarmUpRunner(new WarmUpProperties(true, budget, iterations, Duration.ofMinutes(5)),
+                hotKeySnapshots, hotKeyTracker, accountService, ownerService, exchangeRateService, accountMapper, ownerMapper,
+                new ObjectMapper(), cacheRedisTemplate, transactionManager);
+    }
+}